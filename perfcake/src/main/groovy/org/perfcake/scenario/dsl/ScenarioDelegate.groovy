@@ -25,6 +25,7 @@ import org.perfcake.PerfCakeConst
 import org.perfcake.PerfCakeException
 import org.perfcake.common.Period
 import org.perfcake.common.PeriodType
+import org.perfcake.message.MappedContentStore
 import org.perfcake.message.MessageTemplate
 import org.perfcake.message.generator.MessageGenerator
 import org.perfcake.scenario.Scenario
@@ -593,6 +594,10 @@ class Message extends PropertiesBacked {
    def uri
    def multiplicity = 1
    def content
+   def name
+   def weight = -1
+   def binary = false
+   def mapped = false
    def validators = []
    def headers = [:]
 
@@ -600,6 +605,30 @@ class Message extends PropertiesBacked {
       this.multiplicity = multiplicity
    }
 
+   // name of the message (template group) in the weighted selection mode, 'name' itself would clash with message properties
+   def named(String name) {
+      this.name = name
+      this
+   }
+
+   // weight of the message in the weighted selection mode
+   def weight(def weight) {
+      this.weight = weight
+      this
+   }
+
+   // the message is sent as raw bytes read from the uri, or decoded from Base64 content
+   def getBinary() {
+      this.binary = true
+      this
+   }
+
+   // the message content is memory-mapped from the uri and sent without reading it to the heap
+   def getMapped() {
+      this.mapped = true
+      this
+   }
+
    // validator ids can be specified as a list (handled later) or as a string separated by commas or semicolons
    def validate(String validator) {
       this.validators.addAll(validator.tokenize(" ,;\t\n\r\f"))
@@ -619,7 +648,7 @@ class Message extends PropertiesBacked {
    }
 
    String toString() {
-      "Message: {uri: $uri, content: '$content', multiplicity: $multiplicity, headers: $headers, validators: $validators, ${super.toString()}}"
+      "Message: {uri: $uri, content: '$content', multiplicity: $multiplicity, name: $name, weight: $weight, binary: $binary, mapped: $mapped, headers: $headers, validators: $validators, ${super.toString()}}"
    }
 
    def MessageTemplate buildMessageTemplate() {
@@ -642,18 +671,23 @@ class Message extends PropertiesBacked {
 
       def payload = null
 
-      if (uri) {
+      if (mapped) {
+         if (!uri || content) {
+            throw new PerfCakeException("A memory-mapped message must have the 'uri' set and no 'content' on message ${this.toString()}.")
+         }
+         payload = MappedContentStore.get(uri as String)
+      } else if (uri) {
          def url = Utils.locationToUrl(uri, PerfCakeConst.MESSAGES_DIR_PROPERTY, Utils.determineDefaultLocation("messages"), "")
-         payload = Utils.readFilteredContent(url)
+         payload = binary ? Utils.readContent(url) : Utils.readFilteredContent(url)
       } else if (content) {
-         payload = content
+         payload = binary ? Base64.getMimeDecoder().decode(content as String) : content
       }
 
       org.perfcake.message.Message m = new org.perfcake.message.Message(payload)
       m.setProperties(props)
       m.setHeaders(head)
 
-      new MessageTemplate(m, multiplicity, validators)
+      new MessageTemplate(m, multiplicity, validators, name, weight as double)
    }
 }
 
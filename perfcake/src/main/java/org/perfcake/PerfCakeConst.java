@@ -56,6 +56,21 @@ public final class PerfCakeConst {
     */
    public static final String SCENARIO_PROPERTY = "perfcake.scenario";
 
+   /**
+    * Message attribute with the name of the message (template group) selected for the current iteration in the weighted selection mode.
+    */
+   public static final String MESSAGE_NAME_PROPERTY = "perfcake.message.name";
+
+   /**
+    * Message attribute with the identification of the virtual user session in the journey mode.
+    */
+   public static final String SESSION_ID_PROPERTY = "perfcake.session.id";
+
+   /**
+    * Message attribute with the cookies of the virtual user session in the journey mode.
+    */
+   public static final String SESSION_COOKIES_PROPERTY = "perfcake.session.cookies";
+
    /**
     * Name of the system property that stores name of the default String encoding.
     */
@@ -131,6 +146,37 @@ public final class PerfCakeConst {
     */
    public static final String RECEIVER_BOOT_DELAY_PROPERTY = "perfcake.receiver.boot.delay";
 
+   /**
+    * Property with the port on which the coordinator of a distributed test listens for workers.
+    */
+   public static final String COORDINATOR_PROPERTY = "perfcake.coordinator";
+
+   /**
+    * Property with the number of workers the coordinator of a distributed test waits for.
+    */
+   public static final String WORKERS_PROPERTY = "perfcake.workers";
+
+   /**
+    * Property with the address (host:port) of the coordinator a worker of a distributed test connects to.
+    */
+   public static final String WORKER_PROPERTY = "perfcake.worker";
+
+   /**
+    * Property with the address the coordinator of a distributed test binds to, the loopback address is used by default.
+    */
+   public static final String COORDINATOR_BIND_PROPERTY = "perfcake.coordinator.bind";
+
+   /**
+    * Property with the secret shared by the coordinator and the workers of a distributed test to authenticate each other.
+    */
+   public static final String DISTRIBUTED_SECRET_PROPERTY = "perfcake.distributed.secret";
+
+   /**
+    * Property with a comma separated list of the properties a worker of a distributed test accepts from the coordinator.
+    * A name ending with an asterisk matches all the properties with the given prefix.
+    */
+   public static final String WORKER_ALLOWED_PROPERTIES_PROPERTY = "perfcake.worker.properties";
+
    /**
     * Name of the CLI argument to print help.
     */
@@ -186,6 +232,21 @@ public final class PerfCakeConst {
     */
    public static final String DEBUG_AGENT_NAME_OPT = "debug-name";
 
+   /**
+    * Name of the cli argument to coordinate a distributed test on the given port.
+    */
+   public static final String COORDINATOR_OPT = "coordinator";
+
+   /**
+    * Name of the cli argument with the number of workers of a distributed test.
+    */
+   public static final String WORKERS_OPT = "workers";
+
+   /**
+    * Name of the cli argument to run as a worker of a distributed test connecting to the given coordinator.
+    */
+   public static final String WORKER_OPT = "worker";
+
    /**
     * Default name of the debug agent.
     */
@@ -221,6 +282,37 @@ public final class PerfCakeConst {
     */
    public static final String REQUEST_SIZE_TAG = "RequestSize";
 
+   /**
+    * Result name of the delay between the intended and the actual start of an iteration. When the generator does not follow
+    * a schedule, the intended start is the moment the iteration was placed in the sender task queue.
+    */
+   public static final String SCHEDULE_LAG_TAG = "ScheduleLag";
+
+   /**
+    * Result name of the percentage of time the generator spent waiting for free sender threads.
+    */
+   public static final String GENERATOR_IDLE_TAG = "GeneratorIdle";
+
+   /**
+    * Result name of the number of sender tasks waiting in the generator queue.
+    */
+   public static final String QUEUE_DEPTH_TAG = "QueueDepth";
+
+   /**
+    * Result name of the CPU usage of the generator thread in percent of a single CPU core.
+    */
+   public static final String GENERATOR_CPU_TAG = "GeneratorCpu";
+
+   /**
+    * Result name of the number of measurement units waiting to be processed by the reporters.
+    */
+   public static final String REPORTING_BACKLOG_TAG = "ReportingBacklog";
+
+   /**
+    * Result name of the time in milliseconds the measurement units waited to be passed to the reporters.
+    */
+   public static final String REPORTING_LAG_TAG = "ReportingLag";
+
    /**
     * Result name of the user tags.
     */
@@ -276,6 +368,11 @@ public final class PerfCakeConst {
     */
    public static final int ERR_PRINT_HELP = 8;
 
+   /**
+    * Exit code when a distributed test failed.
+    */
+   public static final int ERR_DISTRIBUTED_EXECUTION = 9;
+
    /**
     * There should be no instance of a utility class.
     */
@@ -19,6 +19,8 @@
  */
 package org.perfcake;
 
+import org.perfcake.scenario.DistributedCoordinator;
+import org.perfcake.scenario.DistributedWorker;
 import org.perfcake.scenario.ReplayResults;
 import org.perfcake.scenario.Scenario;
 import org.perfcake.scenario.ScenarioLoader;
@@ -72,6 +74,11 @@ public class ScenarioExecution {
     */
    private Scenario scenario;
 
+   /**
+    * The user properties specified at the command line and in the properties file.
+    */
+   private final Properties userProperties = new Properties();
+
    /**
     * Parses command line arguments and creates this class to take care of the Scenario execution.
     *
@@ -86,7 +93,10 @@ public class ScenarioExecution {
       log.info(String.format(PerfCakeConst.WELCOME, PerfCakeConst.VERSION));
 
       Utils.initDebugAgent();
-      loadScenario();
+
+      if (Utils.getProperty(PerfCakeConst.COORDINATOR_PROPERTY) == null && Utils.getProperty(PerfCakeConst.WORKER_PROPERTY) == null) {
+         loadScenario();
+      }
    }
 
    /**
@@ -101,7 +111,11 @@ public class ScenarioExecution {
       // Print system properties
       se.printTraceInformation();
 
-      if (Utils.getProperty(PerfCakeConst.REPLAY_PROPERTY) == null) {
+      if (Utils.getProperty(PerfCakeConst.WORKER_PROPERTY) != null) {
+         se.runWorker();
+      } else if (Utils.getProperty(PerfCakeConst.COORDINATOR_PROPERTY) != null) {
+         se.coordinateScenario();
+      } else if (Utils.getProperty(PerfCakeConst.REPLAY_PROPERTY) == null) {
          se.executeScenario();
       } else {
          se.replayScenario();
@@ -179,6 +193,7 @@ public class ScenarioExecution {
       }
 
       props.putAll(commandLine.getOptionProperties("D"));
+      userProperties.putAll(props);
 
       for (final Entry<Object, Object> entry : props.entrySet()) {
          System.setProperty(entry.getKey().toString(), entry.getValue().toString());
@@ -206,6 +221,9 @@ public class ScenarioExecution {
       options.addOption(Option.builder("r").longOpt(PerfCakeConst.REPLAY_OPT).desc("raw file to be replayed").hasArg().argName("RAW_FILE").build());
       options.addOption(Option.builder("d").longOpt(PerfCakeConst.DEBUG_OPT).desc("start debug JMX agent for external monitoring").build());
       options.addOption(Option.builder("dn").longOpt(PerfCakeConst.DEBUG_AGENT_NAME_OPT).desc("debug agent name in the JMX tree").hasArg().argName("AGENT_NAME").build());
+      options.addOption(Option.builder("co").longOpt(PerfCakeConst.COORDINATOR_OPT).desc("coordinate a distributed test listening on the given port").hasArg().argName("PORT").build());
+      options.addOption(Option.builder("wn").longOpt(PerfCakeConst.WORKERS_OPT).desc("number of workers in a distributed test").hasArg().argName("WORKERS").build());
+      options.addOption(Option.builder("wo").longOpt(PerfCakeConst.WORKER_OPT).desc("run as a worker of a distributed test").hasArg().argName("HOST:PORT").build());
       options.addOption(Option.builder("skip").longOpt(PerfCakeConst.SKIP_TIMER_BENCHMARK_OPT).desc("skip system timer benchmark").build());
       options.addOption(Option.builder("D").argName("property=value").numberOfArgs(2).valueSeparator().desc("system properties").build());
 
@@ -228,7 +246,7 @@ public class ScenarioExecution {
 
       if (commandLine.hasOption(PerfCakeConst.SCENARIO_OPT)) {
          System.setProperty(PerfCakeConst.SCENARIO_PROPERTY, commandLine.getOptionValue(PerfCakeConst.SCENARIO_OPT));
-      } else {
+      } else if (!commandLine.hasOption(PerfCakeConst.WORKER_OPT)) { // workers receive the scenario from the coordinator
          formatter.printHelp(PerfCakeConst.USAGE_HELP, options);
          System.exit(PerfCakeConst.ERR_NO_SCENARIO);
          return;
@@ -248,6 +266,9 @@ public class ScenarioExecution {
       parseParameter(PerfCakeConst.PROPERTIES_FILE_OPT, PerfCakeConst.PROPERTIES_FILE_PROPERTY, null);
       parseParameter(PerfCakeConst.LOGGING_LEVEL_OPT, PerfCakeConst.LOGGING_LEVEL_PROPERTY, null);
       parseParameter(PerfCakeConst.REPLAY_OPT, PerfCakeConst.REPLAY_PROPERTY, null);
+      parseParameter(PerfCakeConst.COORDINATOR_OPT, PerfCakeConst.COORDINATOR_PROPERTY, null);
+      parseParameter(PerfCakeConst.WORKERS_OPT, PerfCakeConst.WORKERS_PROPERTY, "1");
+      parseParameter(PerfCakeConst.WORKER_OPT, PerfCakeConst.WORKER_PROPERTY, null);
       parseParameter(PerfCakeConst.DEBUG_AGENT_NAME_OPT, PerfCakeConst.DEBUG_AGENT_NAME_PROPERTY, PerfCakeConst.DEBUG_AGENT_DEFAULT_NAME);
       if (Utils.getProperty(PerfCakeConst.LOGGING_LEVEL_PROPERTY, null) != null) {
          Utils.setLoggingLevel(Level.toLevel(Utils.getProperty(PerfCakeConst.LOGGING_LEVEL_PROPERTY), Level.INFO));
@@ -338,6 +359,47 @@ public class ScenarioExecution {
       }
    }
 
+   /**
+    * Coordinates the scenario executed by the distributed workers.
+    */
+   private void coordinateScenario() {
+      final String scenarioFile = Utils.getProperty(PerfCakeConst.SCENARIO_PROPERTY);
+
+      try {
+         final DistributedCoordinator coordinator = new DistributedCoordinator(scenarioFile, Integer.parseInt(Utils.getProperty(PerfCakeConst.COORDINATOR_PROPERTY)),
+               Integer.parseInt(Utils.getProperty(PerfCakeConst.WORKERS_PROPERTY)));
+         coordinator.setProperties(userProperties).execute();
+      } catch (final NumberFormatException nfe) {
+         log.fatal("Invalid coordinator port or number of workers: ", nfe);
+         System.exit(PerfCakeConst.ERR_PARAMETERS);
+      } catch (final PerfCakeException e) {
+         log.fatal("Error coordinating distributed scenario: ", e);
+         System.exit(PerfCakeConst.ERR_DISTRIBUTED_EXECUTION);
+      }
+   }
+
+   /**
+    * Executes the share of a distributed scenario sent by the coordinator.
+    */
+   private void runWorker() {
+      final String coordinator = Utils.getProperty(PerfCakeConst.WORKER_PROPERTY);
+      final int colon = coordinator.lastIndexOf(':');
+
+      try {
+         if (colon < 1) {
+            throw new NumberFormatException("The coordinator address must be in the form of host:port.");
+         }
+
+         new DistributedWorker(coordinator.substring(0, colon), Integer.parseInt(coordinator.substring(colon + 1))).run();
+      } catch (final NumberFormatException nfe) {
+         log.fatal(String.format("Invalid coordinator address '%s': ", coordinator), nfe);
+         System.exit(PerfCakeConst.ERR_PARAMETERS);
+      } catch (final PerfCakeException e) {
+         log.fatal("Error running distributed worker: ", e);
+         System.exit(PerfCakeConst.ERR_DISTRIBUTED_EXECUTION);
+      }
+   }
+
    /**
     * Replays the previously recorded raw results.
     */
@@ -0,0 +1,166 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message;
+
+import org.perfcake.util.Utils;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Message payload backed by a memory-mapped file. The content is never read to the heap, the senders that support it
+ * write the mapped region directly to their channels. Only the pages actually being sent are resident in the memory
+ * and the operating system can reclaim them at any time.
+ *
+ * <p>Instances are obtained from {@link MappedContentStore} which maps each location only once. A content whose location contains
+ * message attribute placeholders is just a template, the actual content is looked up when the message is rendered.
+ * When serialized, only the location is stored and the content is mapped again on deserialization.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public final class MappedContent implements Serializable {
+
+   private static final long serialVersionUID = -2930419285167823015L;
+
+   /**
+    * The original location of the content.
+    */
+   private final String location;
+
+   /**
+    * The read-only mapped region, null for a location template.
+    */
+   private final transient ByteBuffer buffer;
+
+   /**
+    * Creates a new mapped content.
+    *
+    * @param location
+    *       The original location of the content.
+    * @param buffer
+    *       The mapped region, null for a location template.
+    */
+   MappedContent(final String location, final ByteBuffer buffer) {
+      this.location = location;
+      this.buffer = buffer;
+   }
+
+   /**
+    * Gets the location of the content as it was specified in the scenario.
+    *
+    * @return The location of the content.
+    */
+   public String getLocation() {
+      return location;
+   }
+
+   /**
+    * Checks whether this is just a location template without any content.
+    *
+    * @return True if and only if the location contains message attribute placeholders.
+    */
+   public boolean isTemplate() {
+      return buffer == null;
+   }
+
+   /**
+    * Gets the size of the content.
+    *
+    * @return The size of the content in bytes.
+    */
+   public long getSize() {
+      return buffer == null ? 0 : buffer.capacity();
+   }
+
+   /**
+    * Gets a read-only view of the mapped content. Each call returns a new view with its own position, so the content
+    * can be sent by multiple threads at the same time. Nothing is copied.
+    *
+    * @return The view of the content.
+    */
+   public ByteBuffer getBuffer() {
+      return buffer == null ? ByteBuffer.allocate(0) : buffer.duplicate();
+   }
+
+   /**
+    * Transfers the content to the given channel. The mapped region is written directly, it is not copied to the heap
+    * and no file needs to be opened. The content can be transferred by multiple threads at the same time.
+    *
+    * @param target
+    *       The channel to write the content to.
+    * @return The number of bytes transferred.
+    * @throws IOException
+    *       When it was not possible to transfer the content.
+    */
+   public long transferTo(final WritableByteChannel target) throws IOException {
+      final ByteBuffer view = getBuffer();
+      long written = 0;
+
+      while (view.hasRemaining()) {
+         written = written + target.write(view);
+      }
+
+      return written;
+   }
+
+   /**
+    * Copies the content to a new byte array. This is a fallback for the senders that cannot write the mapped region directly.
+    *
+    * @return The content copied to a byte array.
+    */
+   public byte[] toByteArray() {
+      final byte[] bytes = new byte[(int) getSize()];
+      getBuffer().get(bytes);
+
+      return bytes;
+   }
+
+   /**
+    * Decodes the content as a string in the default encoding. This copies the whole content to the heap.
+    *
+    * @return The content decoded as a string.
+    */
+   @Override
+   public String toString() {
+      return new String(toByteArray(), Charset.forName(Utils.getDefaultEncoding()));
+   }
+
+   /**
+    * Maps the content again after deserialization.
+    *
+    * @return The content mapped by the local {@link MappedContentStore}.
+    * @throws ObjectStreamException
+    *       When it was not possible to map the content.
+    */
+   private Object readResolve() throws ObjectStreamException {
+      try {
+         return MappedContentStore.get(location);
+      } catch (final IOException e) {
+         final InvalidObjectException ioe = new InvalidObjectException("Unable to map the content of " + location + ": " + e.getMessage());
+         ioe.initCause(e);
+         throw ioe;
+      }
+   }
+}
@@ -0,0 +1,147 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message;
+
+import org.perfcake.PerfCakeConst;
+import org.perfcake.util.StringTemplate;
+import org.perfcake.util.Utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory-mapped store of message content. Each location is mapped only once and the index of mapped regions is shared
+ * by all the messages, so a large corpus of documents can be replayed without reading it to the heap.
+ * The locations are resolved the same way as message URIs in the scenario.
+ *
+ * <p>The index keeps only the file mappings, the data stay in the operating system's file cache. The mapped files
+ * must not be modified or truncated during the test execution.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public final class MappedContentStore {
+
+   /**
+    * The store's logger.
+    */
+   private static final Logger log = LogManager.getLogger(MappedContentStore.class);
+
+   /**
+    * The index of mapped contents by their locations.
+    */
+   private static final Map<String, MappedContent> index = new ConcurrentHashMap<>();
+
+   /**
+    * This is a static class with no instances.
+    */
+   private MappedContentStore() {
+   }
+
+   /**
+    * Gets the content of the given location. The location is mapped on the first call, further calls return the same instance.
+    * When the location contains message attribute placeholders, a content template is returned that is resolved
+    * later by {@link MessageTemplate}.
+    *
+    * @param location
+    *       The location of the content, either a file URL or a file name in the messages directory.
+    * @return The mapped content.
+    * @throws IOException
+    *       When it was not possible to map the location.
+    */
+   public static MappedContent get(final String location) throws IOException {
+      final MappedContent content = index.get(location);
+      if (content != null) {
+         return content;
+      }
+
+      try {
+         return index.computeIfAbsent(location, MappedContentStore::map);
+      } catch (final UncheckedIOException e) {
+         throw e.getCause();
+      }
+   }
+
+   /**
+    * Maps the given location.
+    *
+    * @param location
+    *       The location of the content.
+    * @return The new mapped content.
+    */
+   private static MappedContent map(final String location) {
+      if (new StringTemplate(location).hasDynamicPlaceholders()) {
+         return new MappedContent(location, null);
+      }
+
+      try {
+         final URL url = Utils.locationToUrl(location, PerfCakeConst.MESSAGES_DIR_PROPERTY, Utils.determineDefaultLocation("messages"), "");
+         if (!"file".equals(url.getProtocol())) {
+            throw new IOException("Only local files can be memory-mapped: " + url);
+         }
+
+         final Path path = Paths.get(url.toURI());
+         try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+               throw new IOException("File is too large to be memory-mapped: " + path);
+            }
+
+            if (log.isDebugEnabled()) {
+               log.debug("Mapping " + size + " bytes of " + path);
+            }
+
+            // the mapping stays valid after the channel is closed, no file descriptor is kept per mapped file
+            return new MappedContent(location, channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asReadOnlyBuffer());
+         }
+      } catch (final IOException e) {
+         throw new UncheckedIOException(e);
+      } catch (final URISyntaxException e) {
+         throw new UncheckedIOException(new IOException("Invalid location: " + location, e));
+      }
+   }
+
+   /**
+    * Gets the number of mapped locations.
+    *
+    * @return The number of locations in the index.
+    */
+   public static int size() {
+      return index.size();
+   }
+
+   /**
+    * Forgets all the mapped locations. The mappings are released once the messages using them are garbage collected.
+    * This is called when a scenario is closed, so that the mappings do not leak to the next scenario.
+    */
+   public static void clear() {
+      index.clear();
+   }
+}
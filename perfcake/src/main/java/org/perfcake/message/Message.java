@@ -20,6 +20,9 @@
 package org.perfcake.message;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Properties;
 
 /**
@@ -48,6 +51,16 @@ public class Message implements Serializable {
     */
    private Serializable payload = null;
 
+   /**
+    * The payload encoded by {@link #getEncodedPayload(Charset)}, null when not encoded yet.
+    */
+   private transient byte[] encodedPayload = null;
+
+   /**
+    * The character set of the encoded payload.
+    */
+   private transient Charset encodedCharset = null;
+
    /**
     * Creates an empty message.
     */
@@ -67,6 +80,22 @@ public class Message implements Serializable {
       this.payload = payload;
    }
 
+   /**
+    * Creates a message with the given payload, headers and properties. The headers and properties are not copied.
+    *
+    * @param payload
+    *       Message payload.
+    * @param headers
+    *       Message headers.
+    * @param properties
+    *       Message properties.
+    */
+   Message(final Serializable payload, final Properties headers, final Properties properties) {
+      this.payload = payload;
+      this.headers = headers;
+      this.properties = properties;
+   }
+
    /**
     * Gets message properties.
     *
@@ -139,6 +168,153 @@ public class Message implements Serializable {
     */
    public void setPayload(final Serializable payload) {
       this.payload = payload;
+      this.encodedPayload = null;
+      this.encodedCharset = null;
+   }
+
+   /**
+    * Gets the message payload encoded to bytes. Binary payloads are returned as they are, any other payload is converted
+    * to a string and encoded using the given character set. The result is cached, so the payload can be encoded in advance
+    * outside of the sending thread. The returned array must not be modified.
+    *
+    * <p>A {@link MappedContent} payload is copied to a new array on each call and the copy is not cached. Senders that can write
+    * a buffer should use {@link #getPayloadBuffer(Charset)} instead.</p>
+    *
+    * @param charset
+    *       The character set used to encode the payload.
+    * @return The encoded payload, or null when there is no payload.
+    */
+   public byte[] getEncodedPayload(final Charset charset) {
+      if (payload == null) {
+         return null;
+      }
+
+      if (payload instanceof byte[]) {
+         return (byte[]) payload;
+      }
+
+      if (payload instanceof MappedContent) {
+         return ((MappedContent) payload).toByteArray();
+      }
+
+      if (encodedPayload == null || !charset.equals(encodedCharset)) {
+         encodedPayload = payload.toString().getBytes(charset);
+         encodedCharset = charset;
+      }
+
+      return encodedPayload;
+   }
+
+   /**
+    * Gets the message payload encoded to bytes as a buffer. A {@link MappedContent} payload is returned as a read-only view
+    * of the mapped region without copying it to the heap, any other payload is wrapped as returned by {@link #getEncodedPayload(Charset)}.
+    * Each call returns a new buffer with its own position.
+    *
+    * @param charset
+    *       The character set used to encode the payload.
+    * @return The encoded payload, or null when there is no payload.
+    */
+   public ByteBuffer getPayloadBuffer(final Charset charset) {
+      if (payload instanceof MappedContent) {
+         return ((MappedContent) payload).getBuffer();
+      }
+
+      final byte[] encoded = getEncodedPayload(charset);
+      return encoded == null ? null : ByteBuffer.wrap(encoded);
+   }
+
+   /**
+    * Checks whether the message carries a binary payload. Binary payloads are passed to the senders as they are,
+    * without any conversion to a string and back.
+    *
+    * @return True if and only if the payload is a byte array or a {@link MappedContent}.
+    */
+   public boolean isBinary() {
+      return payload instanceof byte[] || payload instanceof MappedContent;
+   }
+
+   /**
+    * Gets the memory-mapped payload that senders can write directly from the mapped region.
+    *
+    * @return The mapped payload, or null when the payload is not mapped.
+    */
+   public MappedContent getMappedPayload() {
+      return payload instanceof MappedContent ? (MappedContent) payload : null;
+   }
+
+   /**
+    * Gets the size of the payload in bytes as it is sent over the wire in the given character set.
+    * Binary payloads and payloads already encoded by {@link #getEncodedPayload(Charset)} are not encoded again.
+    *
+    * @param charset
+    *       The character set used to encode the payload.
+    * @return The payload size in bytes, 0 when there is no payload.
+    */
+   public long getPayloadSize(final Charset charset) {
+      if (encodedPayload != null && charset.equals(encodedCharset)) {
+         return encodedPayload.length;
+      }
+
+      return sizeOf(payload, charset);
+   }
+
+   /**
+    * Gets the size of the given payload in bytes. Byte arrays and mapped contents are measured directly, the size of strings in UTF-8 is computed
+    * without encoding them, any other payload is converted to a string and encoded using the given character set.
+    *
+    * @param payload
+    *       The payload to measure.
+    * @param charset
+    *       The character set used to encode the payload.
+    * @return The payload size in bytes, 0 when the payload is null.
+    */
+   public static long sizeOf(final Serializable payload, final Charset charset) {
+      if (payload == null) {
+         return 0;
+      }
+
+      if (payload instanceof byte[]) {
+         return ((byte[]) payload).length;
+      }
+
+      if (payload instanceof MappedContent) {
+         return ((MappedContent) payload).getSize();
+      }
+
+      final String str = payload.toString();
+      if (StandardCharsets.UTF_8.equals(charset)) {
+         return utf8Length(str);
+      }
+
+      return str.getBytes(charset).length;
+   }
+
+   /**
+    * Computes the number of bytes of the string encoded in UTF-8 without actually encoding it.
+    *
+    * @param str
+    *       The string to measure.
+    * @return The number of bytes in UTF-8.
+    */
+   private static long utf8Length(final CharSequence str) {
+      final int len = str.length();
+      long size = len;
+
+      for (int i = 0; i < len; i++) {
+         final char c = str.charAt(i);
+         if (c >= 0x80) {
+            if (c < 0x800) {
+               size = size + 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+               size = size + 2; // 4 bytes for the pair of 2 chars
+               i++;
+            } else if (!Character.isSurrogate(c)) { // unpaired surrogates are replaced by a single byte
+               size = size + 2;
+            }
+         }
+      }
+
+      return size;
    }
 
    /**
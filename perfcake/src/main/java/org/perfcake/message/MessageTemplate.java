@@ -21,7 +21,9 @@ package org.perfcake.message;
 
 import org.perfcake.util.StringTemplate;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Properties;
 
@@ -51,6 +53,16 @@ public class MessageTemplate implements Serializable {
     */
    private final List<String> validatorIds;
 
+   /**
+    * The name of the template, templates with the same name form a group that is sent together in the weighted selection mode.
+    */
+   private final String name;
+
+   /**
+    * The weight of the template in the weighted selection mode, negative when not set.
+    */
+   private final double weight;
+
    /**
     * True when the original message contains anything to be replaced.
     */
@@ -77,6 +89,25 @@ public class MessageTemplate implements Serializable {
     *       List of validators to validate a response.
     */
    public MessageTemplate(final Message message, final long multiplicity, final List<String> validatorIds) {
+      this(message, multiplicity, validatorIds, null, -1);
+   }
+
+   /**
+    * Creates a new named template based on the message sample with a weight for the weighted selection of messages.
+    *
+    * @param message
+    *       A sample message.
+    * @param multiplicity
+    *       How many times the message should be sent in one iteration.
+    * @param validatorIds
+    *       List of validators to validate a response.
+    * @param name
+    *       The name of the template, null when not set.
+    * @param weight
+    *       The weight of the template, negative when not set.
+    * @see WeightedMessageSelector
+    */
+   public MessageTemplate(final Message message, final long multiplicity, final List<String> validatorIds, final String name, final double weight) {
       this.message = new Message();
       this.message.setPayload(message.getPayload());
       this.message.setHeaders(templatize(message.getHeaders()));
@@ -85,9 +116,43 @@ public class MessageTemplate implements Serializable {
       this.isStringMessage = message.getPayload() instanceof String;
       if (isStringMessage) {
          prepareTemplate();
+      } else {
+         prepareLocationTemplate();
       }
       this.multiplicity = multiplicity;
       this.validatorIds = validatorIds;
+      this.name = name;
+      this.weight = weight;
+   }
+
+   /**
+    * Creates a copy of the template with a different multiplicity. The copy shares the message sample and the prepared template with the original.
+    *
+    * @param original
+    *       The template to be copied.
+    * @param multiplicity
+    *       How many times the message should be sent in one iteration.
+    */
+   private MessageTemplate(final MessageTemplate original, final long multiplicity) {
+      this.message = original.message;
+      this.isStringMessage = original.isStringMessage;
+      this.template = original.template;
+      this.hasTemplates = original.hasTemplates;
+      this.validatorIds = original.validatorIds;
+      this.name = original.name;
+      this.weight = original.weight;
+      this.multiplicity = multiplicity;
+   }
+
+   /**
+    * Gets a copy of this template that is sent the given number of times in one iteration.
+    *
+    * @param multiplicity
+    *       How many times the message should be sent in one iteration.
+    * @return The copy of this template with the given multiplicity, or this template when the multiplicity is the same.
+    */
+   public MessageTemplate withMultiplicity(final long multiplicity) {
+      return multiplicity == this.multiplicity ? this : new MessageTemplate(this, multiplicity);
    }
 
    /**
@@ -140,6 +205,36 @@ public class MessageTemplate implements Serializable {
       return result;
    }
 
+   /**
+    * Checks whether the given message attribute is used when the message is rendered, be it in the payload, the headers or the properties.
+    *
+    * @param name
+    *       The name of the attribute.
+    * @return True if and only if the attribute is used when rendering the message.
+    */
+   public boolean usesAttribute(final String name) {
+      return (template != null && template.usesProperty(name)) || usesAttribute(message.getHeaders(), name) || usesAttribute(message.getProperties(), name);
+   }
+
+   /**
+    * Checks whether the given message attribute is used in the templates among the given properties.
+    *
+    * @param input
+    *       The properties to be checked.
+    * @param name
+    *       The name of the attribute.
+    * @return True if and only if the attribute is used in any of the property templates.
+    */
+   private static boolean usesAttribute(final Properties input, final String name) {
+      for (final Object value : input.values()) {
+         if (value instanceof StringTemplate && ((StringTemplate) value).usesProperty(name)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
    /**
     * Gets the original sample message.
     *
@@ -150,12 +245,18 @@ public class MessageTemplate implements Serializable {
    }
 
    /**
-    * Gets a new message instance.
+    * Gets a new message instance. The headers and properties are used directly without copying.
     *
+    * @param payload
+    *       Message payload.
+    * @param headers
+    *       Message headers.
+    * @param properties
+    *       Message properties.
     * @return A new message.
     */
-   private static Message newMessage() {
-      return new Message();
+   private static Message newMessage(final Serializable payload, final Properties headers, final Properties properties) {
+      return new Message(payload, headers, properties);
    }
 
    /**
@@ -166,29 +267,42 @@ public class MessageTemplate implements Serializable {
     * @return A new message instance with the rendered payload.
     */
    public Message getFilteredMessage(final Properties properties) {
-      if (isStringMessage && hasTemplates) {
-         final Message newMessage = newMessage();
-
-         if (template != null) {
-            newMessage.setPayload(template.toString(properties));
-         } else {
-            newMessage.setPayload(message.getPayload());
-         }
-
-         newMessage.setHeaders(untemplatize(message.getHeaders(), properties));
-         newMessage.setProperties(untemplatize(message.getProperties(), properties));
-
-         return newMessage;
+      if (template != null && !isStringMessage) { // the location of a mapped content is rendered
+         return newMessage(getMappedContent(template.toString(properties)), untemplatize(message.getHeaders(), properties), untemplatize(message.getProperties(), properties));
+      } else if (isStringMessage && hasTemplates) {
+         return newMessage(template != null ? template.toString(properties) : message.getPayload(),
+               untemplatize(message.getHeaders(), properties), untemplatize(message.getProperties(), properties));
       } else {
-         final Message newMessage = newMessage();
-         newMessage.setPayload(message.getPayload());
-         newMessage.setHeaders((Properties) message.getHeaders().clone());
-         newMessage.setProperties((Properties) message.getProperties().clone());
+         return newMessage(message.getPayload(), copy(message.getHeaders()), copy(message.getProperties()));
+      }
+   }
 
-         return newMessage;
+   /**
+    * Gets the mapped content of the rendered location.
+    *
+    * @param location
+    *       The rendered location.
+    * @return The mapped content.
+    */
+   private static MappedContent getMappedContent(final String location) {
+      try {
+         return MappedContentStore.get(location);
+      } catch (final IOException e) {
+         throw new UncheckedIOException("Unable to map message content: ", e);
       }
    }
 
+   /**
+    * Copies the properties. Cloning empty properties would needlessly allocate the internal hash table.
+    *
+    * @param input
+    *       The properties to be copied.
+    * @return A copy of the properties.
+    */
+   private static Properties copy(final Properties input) {
+      return input.isEmpty() ? new Properties() : (Properties) input.clone();
+   }
+
    private void prepareTemplate() {
       // find out if there are any attributes in the text message to be replaced
       final StringTemplate tmpTemplate = new StringTemplate((String) message.getPayload());
@@ -202,6 +316,16 @@ public class MessageTemplate implements Serializable {
       }
    }
 
+   /**
+    * Prepares the template of the location when the message is a {@link MappedContent} with placeholders in its location.
+    */
+   private void prepareLocationTemplate() {
+      if (message.getPayload() instanceof MappedContent && ((MappedContent) message.getPayload()).isTemplate()) {
+         this.template = new StringTemplate(((MappedContent) message.getPayload()).getLocation());
+         hasTemplates = true;
+      }
+   }
+
    /**
     * How many times the message should be sent in one iteration?
     *
@@ -220,11 +344,31 @@ public class MessageTemplate implements Serializable {
       return validatorIds;
    }
 
+   /**
+    * Gets the name of the template.
+    *
+    * @return The name of the template, null when not set.
+    */
+   public String getName() {
+      return name;
+   }
+
+   /**
+    * Gets the weight of the template in the weighted selection mode.
+    *
+    * @return The weight of the template, negative when not set.
+    */
+   public double getWeight() {
+      return weight;
+   }
+
    // fill in the transient field
    private void readObject(final java.io.ObjectInputStream stream) throws java.io.IOException, ClassNotFoundException {
       stream.defaultReadObject();
       if (isStringMessage) {
          prepareTemplate();
+      } else {
+         prepareLocationTemplate();
       }
    }
 }
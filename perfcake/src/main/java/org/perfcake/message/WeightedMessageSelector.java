@@ -0,0 +1,233 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>Selects a single message template, or a group of templates, for each iteration according to the weights of the templates.
+ * The templates with the same name form a group, the weight of the group is the sum of the weights of its members.
+ * A group where none of the templates has a weight set gets the weight of 1. Templates without a name form a group on their own.
+ * For example, three templates named read, write and search with the weights of 70, 25 and 5 reproduce a mix of 70 % reads,
+ * 25 % writes and 5 % searches in a single scenario.</p>
+ *
+ * <p>The selection takes constant time regardless of the number of groups as it uses the Walker's alias method.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class WeightedMessageSelector {
+
+   /**
+    * The groups of templates to select from.
+    */
+   private final List<List<MessageTemplate>> groups = new ArrayList<>();
+
+   /**
+    * The names of the groups, null for groups without a name.
+    */
+   private final List<String> names = new ArrayList<>();
+
+   /**
+    * The probability of each group normalized to the sum of 1.
+    */
+   private final double[] probabilities;
+
+   /**
+    * The probability to keep the group selected in the first step of the alias method.
+    */
+   private final double[] keep;
+
+   /**
+    * The alternative group when the group selected in the first step of the alias method is not kept.
+    */
+   private final int[] alias;
+
+   /**
+    * Creates a new selector for the given templates.
+    *
+    * @param messageStore
+    *       The templates to select from.
+    */
+   public WeightedMessageSelector(final List<MessageTemplate> messageStore) {
+      final Map<String, List<MessageTemplate>> named = new LinkedHashMap<>();
+      final List<Double> weights = new ArrayList<>();
+
+      for (final MessageTemplate template : messageStore) {
+         if (template.getName() == null) {
+            groups.add(Collections.singletonList(template));
+            names.add(null);
+            weights.add(template.getWeight() < 0 ? 1d : template.getWeight());
+         } else {
+            List<MessageTemplate> group = named.get(template.getName());
+            if (group == null) {
+               group = new ArrayList<>();
+               named.put(template.getName(), group);
+               groups.add(group);
+               names.add(template.getName());
+               weights.add(-1d);
+            }
+            group.add(template);
+
+            if (template.getWeight() >= 0) {
+               final int index = groups.indexOf(group);
+               weights.set(index, Math.max(weights.get(index), 0d) + template.getWeight());
+            }
+         }
+      }
+
+      final int n = groups.size();
+      probabilities = new double[n];
+      keep = new double[n];
+      alias = new int[n];
+
+      double total = 0;
+      for (int i = 0; i < n; i++) {
+         if (weights.get(i) < 0) { // a named group without any weight
+            weights.set(i, 1d);
+         }
+         total = total + weights.get(i);
+      }
+
+      if (n > 0 && total <= 0) {
+         throw new IllegalArgumentException("At least one message must have a positive weight.");
+      }
+
+      for (int i = 0; i < n; i++) {
+         probabilities[i] = weights.get(i) / total;
+      }
+
+      buildAliasTable();
+   }
+
+   /**
+    * Prepares the tables of the alias method using the Vose's algorithm.
+    */
+   private void buildAliasTable() {
+      final int n = probabilities.length;
+      final double[] scaled = new double[n];
+      final int[] small = new int[n];
+      final int[] large = new int[n];
+      int smallCount = 0;
+      int largeCount = 0;
+
+      for (int i = 0; i < n; i++) {
+         scaled[i] = probabilities[i] * n;
+         if (scaled[i] < 1) {
+            small[smallCount++] = i;
+         } else {
+            large[largeCount++] = i;
+         }
+      }
+
+      while (smallCount > 0 && largeCount > 0) {
+         final int less = small[--smallCount];
+         final int more = large[--largeCount];
+
+         keep[less] = scaled[less];
+         alias[less] = more;
+
+         scaled[more] = scaled[more] + scaled[less] - 1;
+         if (scaled[more] < 1) {
+            small[smallCount++] = more;
+         } else {
+            large[largeCount++] = more;
+         }
+      }
+
+      while (largeCount > 0) {
+         keep[large[--largeCount]] = 1;
+      }
+
+      while (smallCount > 0) { // can happen only due to rounding errors
+         keep[small[--smallCount]] = 1;
+      }
+   }
+
+   /**
+    * Selects the index of the next group to be sent.
+    *
+    * @return The index of the selected group.
+    */
+   public int nextIndex() {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final int column = random.nextInt(keep.length);
+
+      return random.nextDouble() < keep[column] ? column : alias[column];
+   }
+
+   /**
+    * Gets the number of groups to select from.
+    *
+    * @return The number of groups.
+    */
+   public int getGroupCount() {
+      return groups.size();
+   }
+
+   /**
+    * Gets the templates in the given group.
+    *
+    * @param index
+    *       The index of the group.
+    * @return The templates in the group.
+    */
+   public List<MessageTemplate> getGroup(final int index) {
+      return groups.get(index);
+   }
+
+   /**
+    * Gets the name of the given group.
+    *
+    * @param index
+    *       The index of the group.
+    * @return The name of the group, null when the templates in the group do not have a name.
+    */
+   public String getName(final int index) {
+      return names.get(index);
+   }
+
+   /**
+    * Gets the probability of the given group to be selected.
+    *
+    * @param index
+    *       The index of the group.
+    * @return The probability of the group to be selected.
+    */
+   public double getProbability(final int index) {
+      return probabilities[index];
+   }
+
+   /**
+    * Checks whether any of the templates has a weight set. The weighted selection is used only in such a case,
+    * otherwise all the templates are sent in each iteration.
+    *
+    * @param messageStore
+    *       The templates to check.
+    * @return True if and only if there is a template with a weight set.
+    */
+   public static boolean isWeighted(final List<MessageTemplate> messageStore) {
+      return messageStore != null && messageStore.stream().anyMatch(template -> template.getWeight() >= 0);
+   }
+}
@@ -23,6 +23,7 @@ import org.perfcake.PerfCakeConst;
 import org.perfcake.PerfCakeException;
 import org.perfcake.RunInfo;
 import org.perfcake.message.MessageTemplate;
+import org.perfcake.message.WeightedMessageSelector;
 import org.perfcake.message.correlator.Correlator;
 import org.perfcake.message.sender.MessageSender;
 import org.perfcake.message.sender.MessageSenderManager;
@@ -72,6 +73,11 @@ public abstract class AbstractMessageGenerator implements MessageGenerator {
     */
    protected List<MessageTemplate> messageStore;
 
+   /**
+    * Selects the messages for each iteration when the messages have weights, null when all the messages are sent in each iteration.
+    */
+   protected WeightedMessageSelector messageSelector = null;
+
    /**
     * The executor service used to run the threads.
     */
@@ -117,6 +123,14 @@ public abstract class AbstractMessageGenerator implements MessageGenerator {
       failFast = Boolean.parseBoolean(Utils.getProperty(PerfCakeConst.FAIL_FAST_PROPERTY, "false"));
 
       this.messageStore = messageStore;
+      if (WeightedMessageSelector.isWeighted(messageStore)) {
+         messageSelector = new WeightedMessageSelector(messageStore);
+         if (log.isInfoEnabled()) {
+            for (int i = 0; i < messageSelector.getGroupCount(); i++) {
+               log.info(String.format("Message %s will be sent in %.2f%% of iterations.", messageSelector.getName(i) != null ? messageSelector.getName(i) : "#" + i, messageSelector.getProbability(i) * 100));
+            }
+         }
+      }
       this.messageSenderManager = messageSenderManager;
       this.messageSenderManager.init();
    }
@@ -139,6 +153,7 @@ public abstract class AbstractMessageGenerator implements MessageGenerator {
       final SenderTask task = new SenderTask(this);
 
       task.setMessageStore(messageStore);
+      task.setMessageSelector(messageSelector);
       task.setReportManager(reportManager);
       task.setSenderManager(messageSenderManager);
       task.setValidationManager(validationManager);
@@ -0,0 +1,498 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.PerfCakeException;
+import org.perfcake.message.MessageTemplate;
+import org.perfcake.message.sender.MessageSenderManager;
+
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * <p>Generates maximal load with the number of threads tuned automatically according to the response time of the tested system,
+ * similarly to the TCP congestion control. The aim is to keep the tested system at its maximal throughput without queueing the requests in it,
+ * which is useful for long soak tests.</p>
+ *
+ * <p>The response times and failures are watched in periods set by the {@link #adjustPeriod} property. At the end of each period, the new
+ * number of threads is computed by the configured {@link Algorithm}. The number of threads stays between the {@link #minThreads} property
+ * and the <code>threads</code> attribute of the generator. The test starts with the number of threads set by the {@link #initialThreads} property.
+ * The message senders are created on demand as the number of threads grows. Each adjustment is logged.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class AdaptiveConcurrencyGenerator extends DefaultMessageGenerator {
+
+   /**
+    * The generator's logger.
+    */
+   private static final Logger log = LogManager.getLogger(AdaptiveConcurrencyGenerator.class);
+
+   /**
+    * The algorithm computing the number of threads.
+    */
+   public enum Algorithm {
+      /**
+       * Additive increase, multiplicative decrease. The number of threads grows by the increment while the response time is below the latency limit
+       * and it is multiplied by the backoff ratio otherwise.
+       */
+      AIMD,
+
+      /**
+       * The number of threads follows the gradient of the response time, i.e. the ratio of the minimal observed response time
+       * and the current response time. A small headroom of the square root of the number of threads is added to probe for more capacity.
+       */
+      GRADIENT
+   }
+
+   /**
+    * The algorithm computing the number of threads.
+    */
+   private Algorithm algorithm = Algorithm.GRADIENT;
+
+   /**
+    * The minimal number of threads.
+    */
+   private int minThreads = 1;
+
+   /**
+    * The initial number of threads, -1 to start with the minimal number of threads.
+    */
+   private int initialThreads = -1;
+
+   /**
+    * The maximal number of threads, it is equal to the threads attribute of the generator.
+    */
+   private int maxThreads;
+
+   /**
+    * The period of the adjustments in milliseconds.
+    */
+   private long adjustPeriod = 1000;
+
+   /**
+    * The percentile of the response time used by the algorithm.
+    */
+   private double percentile = 90;
+
+   /**
+    * The maximal response time at the percentile in milliseconds. The number of threads is always reduced when exceeded.
+    */
+   private double latencyLimit = Double.MAX_VALUE;
+
+   /**
+    * The maximal percentage of failed messages. The number of threads is always reduced when exceeded.
+    */
+   private double errorRateLimit = 1;
+
+   /**
+    * The number of threads added in each period by the {@link Algorithm#AIMD} algorithm.
+    */
+   private int increment = 1;
+
+   /**
+    * The ratio by which the number of threads is multiplied when the tested system is overloaded.
+    */
+   private double backoffRatio = 0.9;
+
+   /**
+    * The ratio of the current and minimal response time tolerated by the {@link Algorithm#GRADIENT} algorithm before reducing the number of threads.
+    */
+   private double tolerance = 1.5;
+
+   /**
+    * The weight of the new value when smoothing the number of threads in the {@link Algorithm#GRADIENT} algorithm.
+    */
+   private double smoothing = 0.2;
+
+   /**
+    * Watches the response times.
+    */
+   private final ResponseTimeProbe probe = new ResponseTimeProbe();
+
+   /**
+    * The current limit of the number of threads as computed by the algorithm.
+    */
+   private double limit;
+
+   /**
+    * The minimal observed response time in milliseconds.
+    */
+   private double minLatency = Double.MAX_VALUE;
+
+   /**
+    * The time of the last adjustment in nanoseconds.
+    */
+   private long lastAdjustment = -1;
+
+   /**
+    * The number of completed messages at the last adjustment.
+    */
+   private long lastCompleted = 0;
+
+   /**
+    * The number of failed messages at the last adjustment.
+    */
+   private long lastFailed = 0;
+
+   @Override
+   public void init(final MessageSenderManager messageSenderManager, final List<MessageTemplate> messageStore) throws PerfCakeException {
+      maxThreads = super.getThreads();
+      minThreads = Math.max(1, Math.min(minThreads, maxThreads));
+      initialThreads = initialThreads <= 0 ? minThreads : Math.max(minThreads, Math.min(initialThreads, maxThreads));
+      messageSenderManager.setSenderPoolSize(maxThreads);
+
+      super.init(messageSenderManager, messageStore);
+   }
+
+   @Override
+   public void generate() throws Exception {
+      limit = initialThreads;
+      minLatency = Double.MAX_VALUE;
+      lastAdjustment = -1;
+      setThreads(initialThreads);
+      reportManager.registerReporter(probe);
+
+      try {
+         super.generate();
+      } finally {
+         reportManager.unregisterReporter(probe);
+      }
+   }
+
+   @Override
+   protected boolean prepareTask() throws InterruptedException {
+      final long now = System.nanoTime();
+      if (lastAdjustment == -1) {
+         lastAdjustment = now;
+         lastCompleted = probe.getCompleted();
+         lastFailed = probe.getFailed();
+         probe.getHistogram(); // forget the results before the start
+      } else if (now - lastAdjustment >= adjustPeriod * 1_000_000) {
+         adjust(now);
+      }
+
+      return super.prepareTask();
+   }
+
+   /**
+    * Computes the new number of threads from the response times of the last period and resizes the executor service.
+    *
+    * @param now
+    *       The current time in nanoseconds.
+    */
+   private void adjust(final long now) {
+      final Histogram histogram = probe.getHistogram();
+      final long completed = probe.getCompleted();
+      final long failed = probe.getFailed();
+
+      // the counters are restarted by a reset of the reporters after the warm-up period
+      final long periodCompleted = completed >= lastCompleted ? completed - lastCompleted : completed;
+      final long periodFailed = failed >= lastFailed ? failed - lastFailed : failed;
+      final double duration = (now - lastAdjustment) / 1_000_000_000d;
+
+      lastAdjustment = now;
+      lastCompleted = completed;
+      lastFailed = failed;
+
+      if (histogram.getTotalCount() == 0) { // nothing to decide about
+         return;
+      }
+
+      final double latency = histogram.getValueAtPercentile(percentile) / 1000d;
+      final double errorRate = periodCompleted == 0 ? 0d : 100d * periodFailed / periodCompleted;
+      limit = Math.max(minThreads, Math.min(maxThreads, computeLimit(limit, latency, errorRate)));
+
+      final int threads = (int) Math.round(limit);
+      if (threads != getThreads()) {
+         if (log.isInfoEnabled()) {
+            log.info(String.format("Changing the number of threads from %d to %d (response time %.3f ms, minimal %.3f ms, error rate %.2f%%, throughput %.1f messages per second).",
+                  getThreads(), threads, latency, minLatency, errorRate, periodCompleted / duration));
+         }
+
+         setThreads(threads);
+         resizeExecutorService(threads);
+      }
+   }
+
+   /**
+    * Computes the new limit of the number of threads.
+    *
+    * @param limit
+    *       The current limit.
+    * @param latency
+    *       The response time at the percentile in the last period in milliseconds.
+    * @param errorRate
+    *       The percentage of failed messages in the last period.
+    * @return The new limit.
+    */
+   double computeLimit(final double limit, final double latency, final double errorRate) {
+      minLatency = Math.min(minLatency, latency);
+
+      if (errorRate > errorRateLimit || latency > latencyLimit) {
+         return limit * backoffRatio;
+      }
+
+      if (algorithm == Algorithm.AIMD) {
+         return limit + increment;
+      }
+
+      final double gradient = Math.max(0.5, Math.min(1d, tolerance * Math.max(minLatency, 0.001) / Math.max(latency, 0.001)));
+      final double newLimit = limit * gradient + Math.sqrt(limit);
+
+      return (1 - smoothing) * limit + smoothing * newLimit;
+   }
+
+   /**
+    * Gets the algorithm computing the number of threads.
+    *
+    * @return The algorithm.
+    */
+   public Algorithm getAlgorithm() {
+      return algorithm;
+   }
+
+   /**
+    * Sets the algorithm computing the number of threads.
+    *
+    * @param algorithm
+    *       The algorithm.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setAlgorithm(final Algorithm algorithm) {
+      this.algorithm = algorithm;
+      return this;
+   }
+
+   /**
+    * Gets the minimal number of threads.
+    *
+    * @return The minimal number of threads.
+    */
+   public int getMinThreads() {
+      return minThreads;
+   }
+
+   /**
+    * Sets the minimal number of threads.
+    *
+    * @param minThreads
+    *       The minimal number of threads.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setMinThreads(final int minThreads) {
+      this.minThreads = minThreads;
+      return this;
+   }
+
+   /**
+    * Gets the initial number of threads.
+    *
+    * @return The initial number of threads, -1 to start with the minimal number of threads.
+    */
+   @Override
+   public int getInitialThreads() {
+      return initialThreads;
+   }
+
+   /**
+    * Sets the initial number of threads.
+    *
+    * @param initialThreads
+    *       The initial number of threads, -1 to start with the minimal number of threads.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setInitialThreads(final int initialThreads) {
+      this.initialThreads = initialThreads;
+      return this;
+   }
+
+   /**
+    * Gets the period of the adjustments.
+    *
+    * @return The period in milliseconds.
+    */
+   public long getAdjustPeriod() {
+      return adjustPeriod;
+   }
+
+   /**
+    * Sets the period of the adjustments. It should be long enough to collect enough response times.
+    *
+    * @param adjustPeriod
+    *       The period in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setAdjustPeriod(final long adjustPeriod) {
+      this.adjustPeriod = adjustPeriod;
+      return this;
+   }
+
+   /**
+    * Gets the percentile of the response time used by the algorithm.
+    *
+    * @return The percentile.
+    */
+   public double getPercentile() {
+      return percentile;
+   }
+
+   /**
+    * Sets the percentile of the response time used by the algorithm.
+    *
+    * @param percentile
+    *       The percentile, e.g. 99.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setPercentile(final double percentile) {
+      this.percentile = percentile;
+      return this;
+   }
+
+   /**
+    * Gets the maximal response time at the percentile. The number of threads is always reduced when exceeded.
+    *
+    * @return The latency limit in milliseconds.
+    */
+   public double getLatencyLimit() {
+      return latencyLimit;
+   }
+
+   /**
+    * Sets the maximal response time at the percentile. The number of threads is always reduced when exceeded.
+    * It is mandatory for the {@link Algorithm#AIMD} algorithm, which otherwise keeps increasing the number of threads.
+    *
+    * @param latencyLimit
+    *       The latency limit in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setLatencyLimit(final double latencyLimit) {
+      this.latencyLimit = latencyLimit;
+      return this;
+   }
+
+   /**
+    * Gets the maximal percentage of failed messages. The number of threads is always reduced when exceeded.
+    *
+    * @return The error rate limit in percent.
+    */
+   public double getErrorRateLimit() {
+      return errorRateLimit;
+   }
+
+   /**
+    * Sets the maximal percentage of failed messages. The number of threads is always reduced when exceeded.
+    *
+    * @param errorRateLimit
+    *       The error rate limit in percent.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setErrorRateLimit(final double errorRateLimit) {
+      this.errorRateLimit = errorRateLimit;
+      return this;
+   }
+
+   /**
+    * Gets the number of threads added in each period by the {@link Algorithm#AIMD} algorithm.
+    *
+    * @return The increment.
+    */
+   public int getIncrement() {
+      return increment;
+   }
+
+   /**
+    * Sets the number of threads added in each period by the {@link Algorithm#AIMD} algorithm.
+    *
+    * @param increment
+    *       The increment.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setIncrement(final int increment) {
+      this.increment = increment;
+      return this;
+   }
+
+   /**
+    * Gets the ratio by which the number of threads is multiplied when the tested system is overloaded.
+    *
+    * @return The backoff ratio.
+    */
+   public double getBackoffRatio() {
+      return backoffRatio;
+   }
+
+   /**
+    * Sets the ratio by which the number of threads is multiplied when the tested system is overloaded.
+    *
+    * @param backoffRatio
+    *       The backoff ratio between 0 and 1.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setBackoffRatio(final double backoffRatio) {
+      this.backoffRatio = backoffRatio;
+      return this;
+   }
+
+   /**
+    * Gets the ratio of the current and minimal response time tolerated by the {@link Algorithm#GRADIENT} algorithm.
+    *
+    * @return The tolerance.
+    */
+   public double getTolerance() {
+      return tolerance;
+   }
+
+   /**
+    * Sets the ratio of the current and minimal response time tolerated by the {@link Algorithm#GRADIENT} algorithm before reducing the number of threads.
+    *
+    * @param tolerance
+    *       The tolerance, at least 1.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setTolerance(final double tolerance) {
+      this.tolerance = tolerance;
+      return this;
+   }
+
+   /**
+    * Gets the weight of the new value when smoothing the number of threads in the {@link Algorithm#GRADIENT} algorithm.
+    *
+    * @return The smoothing weight.
+    */
+   public double getSmoothing() {
+      return smoothing;
+   }
+
+   /**
+    * Sets the weight of the new value when smoothing the number of threads in the {@link Algorithm#GRADIENT} algorithm.
+    *
+    * @param smoothing
+    *       The smoothing weight between 0 and 1.
+    * @return Instance of this to support fluent API.
+    */
+   public AdaptiveConcurrencyGenerator setSmoothing(final double smoothing) {
+      this.smoothing = smoothing;
+      return this;
+   }
+}
@@ -0,0 +1,349 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.PerfCakeConst;
+import org.perfcake.PerfCakeException;
+import org.perfcake.common.PeriodType;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Generates the load according to an open workload model. Each iteration gets its intended start time computed
+ * on a nanosecond schedule from the desired speed, no matter how fast the tested system responds.</p>
+ *
+ * <p>Unlike in {@link ConstantSpeedMessageGenerator}, the offered load does not drop when all the sender threads are busy.
+ * The iterations wait in the sender task queue instead, and their service time is measured from the intended start time.
+ * This makes the queueing delay part of the results. The number of iterations that started late and the lateness
+ * are reported at the end of the test. Configure {@link #setSenderTaskQueueSize(int)} large enough to hold the expected backlog.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class ArrivalRateMessageGenerator extends DefaultMessageGenerator {
+
+   /**
+    * The generator's logger.
+    */
+   private static final Logger log = LogManager.getLogger(ArrivalRateMessageGenerator.class);
+
+   /**
+    * When we are closer to the intended time than this number of nanoseconds, we do not park the thread anymore
+    * as the parking is not precise enough.
+    */
+   private static final long SPIN_THRESHOLD = 50_000;
+
+   /**
+    * The desired arrival rate in iterations per second.
+    */
+   private double speed = 5000;
+
+   /**
+    * Iterations that start more than this number of milliseconds after their intended time are considered late.
+    */
+   private double lateThreshold = 1;
+
+   /**
+    * The intended time of the first iteration in the current schedule in nanoseconds.
+    */
+   private long scheduleStart = -1;
+
+   /**
+    * The number of iterations planned in the current schedule.
+    */
+   private long scheduled = 0;
+
+   /**
+    * The intended time of the last planned iteration in nanoseconds.
+    */
+   private long lastIntendedTime = -1;
+
+   /**
+    * The number of iterations that were started.
+    */
+   private final LongAdder startedCount = new LongAdder();
+
+   /**
+    * The number of iterations that were started late.
+    */
+   private final LongAdder lateCount = new LongAdder();
+
+   /**
+    * The sum of lateness of all late iterations in nanoseconds.
+    */
+   private final LongAdder totalLateness = new LongAdder();
+
+   /**
+    * The maximal lateness observed in nanoseconds.
+    */
+   private final LongAccumulator maxLateness = new LongAccumulator(Long::max, 0);
+
+   @Override
+   public void generate() throws Exception {
+      if (speed <= 0) {
+         throw new PerfCakeException("The speed of " + getClass().getSimpleName() + " must be a positive number.");
+      }
+
+      log.info("Starting to generate...");
+      executorService = newExecutorService(getThreads());
+      runInfo.setThreads(getThreads());
+      setStartTime();
+      resetSchedule(System.nanoTime());
+
+      boolean wasWarmUp = false;
+      if (runInfo.getDuration().getPeriodType() == PeriodType.ITERATION) { // for iterations, we need a precise number of messages
+         long i = 0;
+         final long max = runInfo.getDuration().getPeriod();
+
+         while (i < max && runInfo.isStarted()) {
+            final boolean warmUpTag = runInfo.hasTag(PerfCakeConst.WARM_UP_TAG);
+
+            if (wasWarmUp && !warmUpTag) { // if we were in the warmUp phase and it ended, we start counting from 0 again
+               i = 0;
+               resetLateness();
+            }
+
+            if (scheduleTask()) {
+               i = i + 1; // long does not work with i++
+            }
+
+            wasWarmUp = warmUpTag;
+         }
+      } else {
+         while (runInfo.isRunning()) { // for time controlled run, we just go until the time is over
+            final boolean warmUpTag = runInfo.hasTag(PerfCakeConst.WARM_UP_TAG);
+
+            if (wasWarmUp && !warmUpTag) {
+               resetLateness();
+            }
+
+            scheduleTask();
+            wasWarmUp = warmUpTag;
+         }
+      }
+
+      log.info("Reached test end. All messages were prepared to be sent.");
+      shutdown();
+      logLateness();
+   }
+
+   /**
+    * Waits for the intended time of the next iteration and submits a new {@link SenderTask} for it.
+    *
+    * @return True if and only if the task has been successfully submitted.
+    * @throws InterruptedException
+    *       When the generator was interrupted while waiting.
+    */
+   private boolean scheduleTask() throws InterruptedException {
+      final long intendedTime = nextIntendedTime();
+      final long waitStart = System.nanoTime();
+      waitUntil(intendedTime);
+      recordPacingTime(waitStart, System.nanoTime());
+
+      if (!runInfo.isRunning()) {
+         return false;
+      }
+
+      final SenderTask task = newSenderTask();
+      task.setIntendedTime(intendedTime);
+
+      final Runnable timedTask = () -> {
+         recordStart(intendedTime);
+         task.run();
+      };
+
+      while (!handOff(timedTask)) { // the schedule keeps going, the delay is recorded as lateness
+         if (!runInfo.isRunning()) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Computes the intended start time of the next iteration and moves the schedule forward.
+    * The time is always derived from the schedule start to prevent accumulation of rounding errors.
+    *
+    * @return The intended start time of the next iteration in nanoseconds.
+    */
+   protected long nextIntendedTime() {
+      lastIntendedTime = scheduleStart + (long) (scheduled * (1_000_000_000d / speed));
+      scheduled = scheduled + 1;
+
+      return lastIntendedTime;
+   }
+
+   /**
+    * Starts a new schedule at the given time.
+    *
+    * @param start
+    *       The intended time of the first iteration of the new schedule in nanoseconds.
+    */
+   private void resetSchedule(final long start) {
+      scheduleStart = start;
+      scheduled = 0;
+   }
+
+   /**
+    * Waits until the given time. The thread is parked for the most of the time and it yields the CPU
+    * for the last few microseconds to hit the time precisely.
+    *
+    * @param time
+    *       The time to wait for in nanoseconds.
+    * @throws InterruptedException
+    *       When the thread was interrupted while waiting.
+    */
+   private static void waitUntil(final long time) throws InterruptedException {
+      long remaining = time - System.nanoTime();
+      while (remaining > 0) {
+         if (remaining > SPIN_THRESHOLD) {
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+         } else {
+            Thread.yield();
+         }
+
+         if (Thread.interrupted()) {
+            throw new InterruptedException("Interrupted while waiting for the next intended iteration time.");
+         }
+
+         remaining = time - System.nanoTime();
+      }
+   }
+
+   /**
+    * Records the actual start of an iteration and checks its lateness.
+    *
+    * @param intendedTime
+    *       The intended start time of the iteration in nanoseconds.
+    */
+   private void recordStart(final long intendedTime) {
+      final long lateness = System.nanoTime() - intendedTime;
+
+      startedCount.increment();
+      if (lateness > lateThreshold * 1_000_000) {
+         lateCount.increment();
+         totalLateness.add(lateness);
+         maxLateness.accumulate(lateness);
+      }
+   }
+
+   /**
+    * Forgets the lateness statistics. It is used after the warm-up period.
+    */
+   private void resetLateness() {
+      startedCount.reset();
+      lateCount.reset();
+      totalLateness.reset();
+      maxLateness.reset();
+   }
+
+   /**
+    * Logs the summary of the lateness statistics.
+    */
+   private void logLateness() {
+      if (log.isInfoEnabled()) {
+         final long started = startedCount.longValue();
+         log.info(String.format("%d of %d iterations (%.2f%%) started more than %.3f ms after their intended time, average lateness %.3f ms, maximal lateness %.3f ms.",
+               getLateCount(), started, started == 0 ? 0d : 100d * getLateCount() / started, lateThreshold, getAverageLateness(), getMaxLateness()));
+      }
+   }
+
+   /**
+    * Gets the number of iterations that started later than {@link #getLateThreshold()} after their intended time.
+    *
+    * @return The number of late iterations.
+    */
+   public long getLateCount() {
+      return lateCount.longValue();
+   }
+
+   /**
+    * Gets the average lateness of the late iterations.
+    *
+    * @return The average lateness in milliseconds.
+    */
+   public double getAverageLateness() {
+      final long late = lateCount.longValue();
+      return late == 0 ? 0d : totalLateness.longValue() / 1_000_000d / late;
+   }
+
+   /**
+    * Gets the maximal lateness of an iteration.
+    *
+    * @return The maximal lateness in milliseconds.
+    */
+   public double getMaxLateness() {
+      return maxLateness.get() / 1_000_000d;
+   }
+
+   /**
+    * Gets the desired arrival rate in iterations per second.
+    *
+    * @return The speed.
+    */
+   public double getSpeed() {
+      return speed;
+   }
+
+   /**
+    * Sets the desired arrival rate in iterations per second. When changed during the test execution, the new schedule
+    * continues from the intended time of the last planned iteration.
+    *
+    * @param speed
+    *       The speed in iterations per second.
+    * @return Instance of this to support fluent API.
+    */
+   public ArrivalRateMessageGenerator setSpeed(final double speed) {
+      this.speed = speed;
+
+      if (lastIntendedTime != -1) {
+         resetSchedule(lastIntendedTime);
+         scheduled = 1; // the last iteration was already planned
+      }
+
+      return this;
+   }
+
+   /**
+    * Gets the threshold after which an iteration is considered late.
+    *
+    * @return The threshold in milliseconds.
+    */
+   public double getLateThreshold() {
+      return lateThreshold;
+   }
+
+   /**
+    * Sets the threshold after which an iteration is considered late.
+    *
+    * @param lateThreshold
+    *       The threshold in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public ArrivalRateMessageGenerator setLateThreshold(final double lateThreshold) {
+      this.lateThreshold = lateThreshold;
+      return this;
+   }
+}
@@ -0,0 +1,561 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Searches for the maximal throughput of the tested system that meets a service level objective (SLO). The generator offers
+ * a constant load in steps of a given duration and watches the response time at the given percentile, the error rate and the achieved throughput
+ * of each step. Between the steps, it waits for all the messages of the step to be processed.</p>
+ *
+ * <p>In the {@link SearchMode#STEP} mode, the speed is increased by the increment after each passed step until the SLO is violated or the maximal
+ * speed is reached. In the {@link SearchMode#BISECT} mode, the speed is bisected between the start speed and the maximal speed until
+ * the interval is narrower than the resolution.</p>
+ *
+ * <p>At the end of the search, the sustainable throughput (the highest throughput of a passed step), the knee point (the step with the highest ratio
+ * of throughput and response time) and a summary of all the steps are logged. The search is also limited by the run duration of the scenario,
+ * which should be long enough to accommodate all the steps.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class CapacitySearchGenerator extends ConstantSpeedMessageGenerator {
+
+   /**
+    * The generator's logger.
+    */
+   private static final Logger log = LogManager.getLogger(CapacitySearchGenerator.class);
+
+   /**
+    * How the generator searches for the maximal throughput.
+    */
+   public enum SearchMode {
+      /**
+       * Increases the speed in constant steps until the SLO is violated.
+       */
+      STEP,
+
+      /**
+       * Bisects the speed between the start and maximal speed.
+       */
+      BISECT
+   }
+
+   /**
+    * The search mode.
+    */
+   private SearchMode mode = SearchMode.STEP;
+
+   /**
+    * The speed of the first step in messages per second.
+    */
+   private double startSpeed = 100;
+
+   /**
+    * The maximal speed to be tried in messages per second.
+    */
+   private double maxSpeed = 10_000;
+
+   /**
+    * The speed increment between the steps in the {@link SearchMode#STEP} mode in messages per second.
+    */
+   private double increment = 100;
+
+   /**
+    * The bisection stops when the interval of the possible maximal throughput is narrower than this resolution in messages per second.
+    */
+   private double resolution = 10;
+
+   /**
+    * The duration of a single step in milliseconds.
+    */
+   private long stepDuration = 10_000;
+
+   /**
+    * The percentile of the response time that is checked against the latency limit.
+    */
+   private double percentile = 99;
+
+   /**
+    * The maximal response time at the given percentile in milliseconds.
+    */
+   private double latencyLimit = 200;
+
+   /**
+    * The maximal percentage of failed messages.
+    */
+   private double errorRateLimit = 1;
+
+   /**
+    * The maximal percentage by which the achieved throughput can be lower than the offered load.
+    */
+   private double throughputTolerance = 10;
+
+   /**
+    * Watches the results of the steps.
+    */
+   private final ResponseTimeProbe probe = new ResponseTimeProbe();
+
+   /**
+    * The results of all the steps performed.
+    */
+   private final List<CapacityStep> steps = new ArrayList<>();
+
+   @Override
+   public void generate() throws Exception {
+      log.info("Starting to search for the maximal throughput...");
+      steps.clear();
+      reportManager.registerReporter(probe);
+      executorService = newExecutorService(getThreads());
+      runInfo.setThreads(getThreads());
+      setSpeed(startSpeed);
+      setStartTime();
+
+      try {
+         if (mode == SearchMode.STEP) {
+            searchSteps();
+         } else {
+            searchBisect();
+         }
+      } finally {
+         log.info("Reached test end. All messages were prepared to be sent.");
+         try {
+            shutdown();
+         } finally {
+            reportManager.unregisterReporter(probe);
+         }
+      }
+
+      logSummary();
+   }
+
+   /**
+    * Increases the speed in constant steps until the SLO is violated.
+    *
+    * @throws InterruptedException
+    *       When the generator was interrupted.
+    */
+   private void searchSteps() throws InterruptedException {
+      double speed = startSpeed;
+
+      while (speed <= maxSpeed && runInfo.isRunning()) {
+         final CapacityStep step = runStep(speed);
+         if (step == null || !step.isPassed()) {
+            return;
+         }
+         speed = speed + increment;
+      }
+   }
+
+   /**
+    * Bisects the speed between the start and maximal speed.
+    *
+    * @throws InterruptedException
+    *       When the generator was interrupted.
+    */
+   private void searchBisect() throws InterruptedException {
+      final CapacityStep first = runStep(startSpeed);
+      if (first == null || !first.isPassed()) {
+         return;
+      }
+
+      final CapacityStep last = runStep(maxSpeed);
+      if (last == null || last.isPassed()) {
+         return;
+      }
+
+      double low = startSpeed;
+      double high = maxSpeed;
+      while (high - low > resolution && runInfo.isRunning()) {
+         final double speed = (low + high) / 2;
+         final CapacityStep step = runStep(speed);
+
+         if (step == null) {
+            return;
+         } else if (step.isPassed()) {
+            low = speed;
+         } else {
+            high = speed;
+         }
+      }
+   }
+
+   /**
+    * Waits for the messages of the previous step to be processed, offers the given load for the step duration,
+    * waits for the messages to be processed and evaluates the step.
+    *
+    * @param speed
+    *       The speed of the step in messages per second.
+    * @return The step result, null when the test ended during the step.
+    * @throws InterruptedException
+    *       When the generator was interrupted.
+    */
+   private CapacityStep runStep(final double speed) throws InterruptedException {
+      while (getTasksInQueue() > 0) { // the messages of the previous step must not influence this one
+         if (!runInfo.isRunning()) {
+            return null;
+         }
+         pause();
+      }
+
+      setSpeed(speed);
+      final long length = TimeUnit.MILLISECONDS.toNanos(stepDuration);
+      probe.startInterval(length);
+
+      final long start = System.nanoTime();
+      final long end = start + length;
+      long submitted = 0;
+
+      while (System.nanoTime() < end) {
+         if (!runInfo.isRunning()) {
+            return null;
+         }
+
+         if (prepareTask()) {
+            submitted++;
+         }
+      }
+
+      final boolean drained = drain(submitted);
+      final Histogram histogram = probe.getHistogram();
+      final long completed = probe.getCompleted();
+
+      // the drain time grows with the response time, so only the messages started within the step are related to its duration
+      final double throughput = probe.getStarted() * 1_000_000_000d / length;
+      final double latency = histogram.getTotalCount() == 0 ? 0d : histogram.getValueAtPercentile(percentile) / 1000d;
+      final double errorRate = completed == 0 ? 0d : 100d * probe.getFailed() / completed;
+      final boolean passed = drained && latency <= latencyLimit && errorRate <= errorRateLimit && throughput >= speed * (1 - throughputTolerance / 100);
+
+      final CapacityStep step = new CapacityStep(speed, throughput, latency, errorRate, passed);
+      steps.add(step);
+      log.info("Capacity search step " + steps.size() + ": " + step);
+
+      return step;
+   }
+
+   /**
+    * Waits for all the messages of the current step to be reported. We wait for at most one step duration.
+    *
+    * @param submitted
+    *       The number of messages submitted in the step.
+    * @return True if and only if all the messages were reported.
+    * @throws InterruptedException
+    *       When the generator was interrupted while waiting.
+    */
+   private boolean drain(final long submitted) throws InterruptedException {
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stepDuration);
+
+      while (probe.getCompleted() < submitted) {
+         if (System.nanoTime() > deadline || !runInfo.isStarted()) {
+            log.warn(String.format("Only %d of %d messages were processed after the capacity search step.", probe.getCompleted(), submitted));
+            return false;
+         }
+         pause();
+      }
+
+      return true;
+   }
+
+   /**
+    * Waits for a millisecond between the steps. The time is recorded as the generator pacing time.
+    *
+    * @throws InterruptedException
+    *       When the generator was interrupted while waiting.
+    */
+   private void pause() throws InterruptedException {
+      final long waitStart = System.nanoTime();
+      Thread.sleep(1);
+      recordPacingTime(waitStart, System.nanoTime());
+   }
+
+   /**
+    * Logs the sustainable throughput, the knee point and the summary of all the steps.
+    */
+   private void logSummary() {
+      if (log.isInfoEnabled()) {
+         final StringBuilder summary = new StringBuilder("Capacity search finished after ").append(steps.size()).append(" steps:");
+         for (int i = 0; i < steps.size(); i++) {
+            summary.append("\n   ").append(i + 1).append(": ").append(steps.get(i));
+         }
+         log.info(summary.toString());
+
+         final CapacityStep sustainable = getSustainableStep();
+         final CapacityStep knee = getKneeStep();
+         log.info(String.format("Sustainable throughput: %s, knee point: %s.",
+               sustainable == null ? "none (the SLO was violated at the start speed)" : String.format("%.1f messages per second at speed %.1f", sustainable.getThroughput(), sustainable.getSpeed()),
+               knee == null ? "none" : String.format("%.1f messages per second at %.3f ms", knee.getThroughput(), knee.getLatency())));
+      }
+   }
+
+   /**
+    * Gets the results of all the steps performed in the order of their execution.
+    *
+    * @return The results of the steps.
+    */
+   public List<CapacityStep> getSteps() {
+      return Collections.unmodifiableList(steps);
+   }
+
+   /**
+    * Gets the passed step with the highest throughput.
+    *
+    * @return The step with the sustainable throughput, null when no step passed.
+    */
+   public CapacityStep getSustainableStep() {
+      return steps.stream().filter(CapacityStep::isPassed).max((a, b) -> Double.compare(a.getThroughput(), b.getThroughput())).orElse(null);
+   }
+
+   /**
+    * Gets the highest throughput that met the SLO.
+    *
+    * @return The sustainable throughput in messages per second, 0 when no step passed.
+    */
+   public double getSustainableThroughput() {
+      final CapacityStep step = getSustainableStep();
+      return step == null ? 0d : step.getThroughput();
+   }
+
+   /**
+    * Gets the knee point of the throughput-latency curve, i.e. the step with the highest ratio of throughput and response time.
+    *
+    * @return The knee point step, null when there were no steps.
+    */
+   public CapacityStep getKneeStep() {
+      return steps.stream().max((a, b) -> Double.compare(a.getPower(), b.getPower())).orElse(null);
+   }
+
+   /**
+    * Gets the search mode.
+    *
+    * @return The search mode.
+    */
+   public SearchMode getMode() {
+      return mode;
+   }
+
+   /**
+    * Sets the search mode.
+    *
+    * @param mode
+    *       The search mode.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setMode(final SearchMode mode) {
+      this.mode = mode;
+      return this;
+   }
+
+   /**
+    * Gets the speed of the first step.
+    *
+    * @return The speed of the first step in messages per second.
+    */
+   public double getStartSpeed() {
+      return startSpeed;
+   }
+
+   /**
+    * Sets the speed of the first step.
+    *
+    * @param startSpeed
+    *       The speed of the first step in messages per second.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setStartSpeed(final double startSpeed) {
+      this.startSpeed = startSpeed;
+      return this;
+   }
+
+   /**
+    * Gets the maximal speed to be tried.
+    *
+    * @return The maximal speed in messages per second.
+    */
+   public double getMaxSpeed() {
+      return maxSpeed;
+   }
+
+   /**
+    * Sets the maximal speed to be tried.
+    *
+    * @param maxSpeed
+    *       The maximal speed in messages per second.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setMaxSpeed(final double maxSpeed) {
+      this.maxSpeed = maxSpeed;
+      return this;
+   }
+
+   /**
+    * Gets the speed increment between the steps in the {@link SearchMode#STEP} mode.
+    *
+    * @return The speed increment in messages per second.
+    */
+   public double getIncrement() {
+      return increment;
+   }
+
+   /**
+    * Sets the speed increment between the steps in the {@link SearchMode#STEP} mode.
+    *
+    * @param increment
+    *       The speed increment in messages per second.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setIncrement(final double increment) {
+      this.increment = increment;
+      return this;
+   }
+
+   /**
+    * Gets the resolution of the bisection.
+    *
+    * @return The resolution in messages per second.
+    */
+   public double getResolution() {
+      return resolution;
+   }
+
+   /**
+    * Sets the resolution of the bisection. The bisection stops when the interval of the possible maximal throughput is narrower.
+    *
+    * @param resolution
+    *       The resolution in messages per second.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setResolution(final double resolution) {
+      this.resolution = resolution;
+      return this;
+   }
+
+   /**
+    * Gets the duration of a single step.
+    *
+    * @return The step duration in milliseconds.
+    */
+   public long getStepDuration() {
+      return stepDuration;
+   }
+
+   /**
+    * Sets the duration of a single step.
+    *
+    * @param stepDuration
+    *       The step duration in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setStepDuration(final long stepDuration) {
+      this.stepDuration = stepDuration;
+      return this;
+   }
+
+   /**
+    * Gets the percentile of the response time that is checked against the latency limit.
+    *
+    * @return The percentile.
+    */
+   public double getPercentile() {
+      return percentile;
+   }
+
+   /**
+    * Sets the percentile of the response time that is checked against the latency limit.
+    *
+    * @param percentile
+    *       The percentile, e.g. 99.9.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setPercentile(final double percentile) {
+      this.percentile = percentile;
+      return this;
+   }
+
+   /**
+    * Gets the maximal response time at the given percentile.
+    *
+    * @return The latency limit in milliseconds.
+    */
+   public double getLatencyLimit() {
+      return latencyLimit;
+   }
+
+   /**
+    * Sets the maximal response time at the given percentile.
+    *
+    * @param latencyLimit
+    *       The latency limit in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setLatencyLimit(final double latencyLimit) {
+      this.latencyLimit = latencyLimit;
+      return this;
+   }
+
+   /**
+    * Gets the maximal percentage of failed messages.
+    *
+    * @return The error rate limit in percent.
+    */
+   public double getErrorRateLimit() {
+      return errorRateLimit;
+   }
+
+   /**
+    * Sets the maximal percentage of failed messages.
+    *
+    * @param errorRateLimit
+    *       The error rate limit in percent.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setErrorRateLimit(final double errorRateLimit) {
+      this.errorRateLimit = errorRateLimit;
+      return this;
+   }
+
+   /**
+    * Gets the maximal percentage by which the achieved throughput can be lower than the offered load.
+    *
+    * @return The throughput tolerance in percent.
+    */
+   public double getThroughputTolerance() {
+      return throughputTolerance;
+   }
+
+   /**
+    * Sets the maximal percentage by which the achieved throughput can be lower than the offered load. A lower throughput means that
+    * the sender threads could not keep up with the offered load.
+    *
+    * @param throughputTolerance
+    *       The throughput tolerance in percent.
+    * @return Instance of this to support fluent API.
+    */
+   public CapacitySearchGenerator setThroughputTolerance(final double throughputTolerance) {
+      this.throughputTolerance = throughputTolerance;
+      return this;
+   }
+}
@@ -0,0 +1,137 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import java.util.Locale;
+
+/**
+ * Carries the results of a single step of {@link CapacitySearchGenerator}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public final class CapacityStep {
+
+   /**
+    * The offered load in messages per second.
+    */
+   private final double speed;
+
+   /**
+    * The achieved throughput in messages per second.
+    */
+   private final double throughput;
+
+   /**
+    * The response time at the SLO percentile in milliseconds.
+    */
+   private final double latency;
+
+   /**
+    * The percentage of failed messages.
+    */
+   private final double errorRate;
+
+   /**
+    * True iff the step met the SLO.
+    */
+   private final boolean passed;
+
+   /**
+    * Creates an immutable step result.
+    *
+    * @param speed
+    *       The offered load in messages per second.
+    * @param throughput
+    *       The achieved throughput in messages per second.
+    * @param latency
+    *       The response time at the SLO percentile in milliseconds.
+    * @param errorRate
+    *       The percentage of failed messages.
+    * @param passed
+    *       True if and only if the step met the SLO.
+    */
+   public CapacityStep(final double speed, final double throughput, final double latency, final double errorRate, final boolean passed) {
+      this.speed = speed;
+      this.throughput = throughput;
+      this.latency = latency;
+      this.errorRate = errorRate;
+      this.passed = passed;
+   }
+
+   /**
+    * Gets the offered load.
+    *
+    * @return The offered load in messages per second.
+    */
+   public double getSpeed() {
+      return speed;
+   }
+
+   /**
+    * Gets the achieved throughput.
+    *
+    * @return The achieved throughput in messages per second.
+    */
+   public double getThroughput() {
+      return throughput;
+   }
+
+   /**
+    * Gets the response time at the SLO percentile.
+    *
+    * @return The response time in milliseconds.
+    */
+   public double getLatency() {
+      return latency;
+   }
+
+   /**
+    * Gets the percentage of failed messages.
+    *
+    * @return The error rate in percent.
+    */
+   public double getErrorRate() {
+      return errorRate;
+   }
+
+   /**
+    * Gets whether the step met the SLO.
+    *
+    * @return True if and only if the step met the SLO.
+    */
+   public boolean isPassed() {
+      return passed;
+   }
+
+   /**
+    * Gets the power of the step, i.e. the throughput divided by the response time. The step with the highest power is the knee point
+    * of the throughput-latency curve.
+    *
+    * @return The power of the step.
+    */
+   public double getPower() {
+      return throughput / Math.max(latency, 0.001);
+   }
+
+   @Override
+   public String toString() {
+      return String.format(Locale.US, "speed=%.1f, throughput=%.1f, latency=%.3f ms, errors=%.2f%%, %s", speed, throughput, latency, errorRate, passed ? "passed" : "FAILED");
+   }
+}
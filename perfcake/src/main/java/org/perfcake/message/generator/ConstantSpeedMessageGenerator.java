@@ -19,50 +19,58 @@
  */
 package org.perfcake.message.generator;
 
+import org.perfcake.PerfCakeException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * A generator that tries to achieve given speed of messages per second.
  * Uses the underlying buffer of {@link SenderTask SenderTasks} in {@link DefaultMessageGenerator}.
  * This buffer smoothens the changes in the speed. If you need the generator to change its speed
  * more aggressively, configure {@link DefaultMessageGenerator#setSenderTaskQueueSize(int)}.
  *
+ * The speed is controlled by a {@link GcraPacer} on a nanosecond scale, so fractional as well as very high speeds are supported
+ * with a constant memory footprint. The burst property allows to send several messages at once after the generator was
+ * held back. The jitter of the intervals between the messages is reported at the end of the test.
+ *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
 public class ConstantSpeedMessageGenerator extends DefaultMessageGenerator {
 
    /**
-    * The desired constant speed in messages per second.
+    * The generator's logger.
     */
-   private double speed = 5000;
+   private static final Logger log = LogManager.getLogger(ConstantSpeedMessageGenerator.class);
 
    /**
-    * Buffer of recent times when a task was added. Its size is equal to the speed, so the smallest
-    * time in the buffer (the oldest record) should be around 1000ms from now. Smaller time difference
-    * means that we are too fast. Larger time difference means we are too slow.
+    * When we are closer to the next allowed time than this number of nanoseconds, we do not park the thread anymore
+    * as the parking is not precise enough.
     */
-   private long[] buffer;
+   private static final long SPIN_THRESHOLD = 50_000;
 
    /**
-    * Pointer to the buffer - we use it as a circular buffer.
+    * The longest time we park the thread for at once in nanoseconds, so that the speed changes and the test end are noticed soon.
     */
-   private int pointer = 0;
+   private static final long MAX_PARK = TimeUnit.MILLISECONDS.toNanos(10);
 
    /**
-    * Duration of a break between two submitted tasks in case the speed is lower than 1000 messages per second.
+    * The desired constant speed in messages per second.
     */
-   private int breakDuration;
-
-   private long getSmallest() {
-      return buffer[(pointer + 1) % (int) Math.round(Math.ceil(speed))];
-   }
+   private double speed = 5000;
 
-   private long getLast() {
-      return buffer[pointer];
-   }
+   /**
+    * How many messages can be sent at once after the generator was held back.
+    */
+   private int burst = 1;
 
-   private void addTime(final long time) {
-      pointer = (pointer + 1) % (int) Math.round(Math.ceil(speed));
-      buffer[pointer] = time;
-   }
+   /**
+    * Paces the messages to the desired speed, null until the generator starts or a positive speed is set.
+    */
+   private GcraPacer pacer;
 
    /**
     * Gets the desired constant speed in messages per second.
@@ -74,7 +82,7 @@ public class ConstantSpeedMessageGenerator extends DefaultMessageGenerator {
    }
 
    /**
-    * Sets the desired constant speed in messages per second.
+    * Sets the desired constant speed in messages per second. The value of -1 means unlimited speed, zero pauses the generator.
     *
     * @param speed
     *       The speed in messages per second.
@@ -83,39 +91,136 @@ public class ConstantSpeedMessageGenerator extends DefaultMessageGenerator {
    public ConstantSpeedMessageGenerator setSpeed(final double speed) {
       this.speed = speed;
 
-      if (speed > 0) { // -1 = unlimited speed
-         buffer = new long[(int) Math.round(Math.ceil(speed))];
-         pointer = 0;
-
-         for (int i = 0; i < (int) Math.round(Math.ceil(speed)); i++) {
-            buffer[i] = 0;
+      if (speed > 0) {
+         if (pacer == null) {
+            pacer = new GcraPacer(speed, burst);
+         } else {
+            pacer.setRate(speed);
          }
+      }
+
+      return this;
+   }
+
+   /**
+    * Gets how many messages can be sent at once after the generator was held back.
+    *
+    * @return The burst size.
+    */
+   public int getBurst() {
+      return burst;
+   }
+
+   /**
+    * Sets how many messages can be sent at once after the generator was held back. The default value of 1 keeps
+    * the intervals between the messages as regular as possible.
+    *
+    * @param burst
+    *       The burst size.
+    * @return Instance of this for fluent API.
+    */
+   public ConstantSpeedMessageGenerator setBurst(final int burst) {
+      this.burst = Math.max(1, burst);
 
-         breakDuration = (int) Math.round(1000 / speed); // will be 0 for speed > 1000
+      if (pacer != null) {
+         pacer.setBurst(this.burst);
       }
 
       return this;
    }
 
+   /**
+    * Gets the average interval between two submitted messages.
+    *
+    * @return The average interval in milliseconds.
+    */
+   public double getAverageInterval() {
+      return pacer == null ? 0d : pacer.getAverageInterval();
+   }
+
+   /**
+    * Gets the jitter of the intervals between the submitted messages computed as their standard deviation.
+    *
+    * @return The jitter in milliseconds.
+    */
+   public double getJitter() {
+      return pacer == null ? 0d : pacer.getJitter();
+   }
+
+   /**
+    * Gets the maximal interval between two submitted messages.
+    *
+    * @return The maximal interval in milliseconds.
+    */
+   public double getMaxInterval() {
+      return pacer == null ? 0d : pacer.getMaxInterval();
+   }
+
+   /**
+    * Gets the interval between the message that has just been submitted and the next one. The interval is derived from the speed
+    * by default, subclasses can override it to follow a different arrival process.
+    *
+    * @param now
+    *       The time when the message was submitted in nanoseconds as obtained from {@link System#nanoTime()}.
+    * @return The interval to the next message in nanoseconds.
+    */
+   protected double getNextInterval(final long now) {
+      return 1_000_000_000d / speed;
+   }
+
+   @Override
+   protected void setStartTime() {
+      super.setStartTime();
+
+      if (pacer != null) {
+         pacer.reset();
+      } else if (speed > 0) { // the default speed was kept
+         pacer = new GcraPacer(speed, burst);
+      }
+   }
+
    @Override
    protected boolean prepareTask() throws InterruptedException {
       if (speed == -1) {
          return super.prepareTask();
       }
 
-      long currentTime = System.currentTimeMillis();
+      final long delay = pacer != null && speed > 0 ? pacer.getDelay(System.nanoTime()) : MAX_PARK;
 
-      // the size of the buffer = speed, so the smallest time should be around one second old
-      // in case of a non-zero breakDuration, we cannot submit a task before the break passed
-      if (currentTime - getSmallest() > 1000 && (!(breakDuration > 0) || currentTime - breakDuration >= getLast())) {
-         boolean res = super.prepareTask();
+      if (delay <= 0) {
+         final boolean res = super.prepareTask();
          if (res) {
-            addTime(currentTime);
+            final long now = System.nanoTime();
+            pacer.onEvent(now, getNextInterval(now));
          }
 
          return res;
       }
 
+      // wait for the next allowed time instead of spinning, the remaining time is rechecked by the caller
+      final long waitStart = System.nanoTime();
+      if (delay > SPIN_THRESHOLD) {
+         LockSupport.parkNanos(Math.min(delay - SPIN_THRESHOLD, MAX_PARK));
+      } else {
+         Thread.yield();
+      }
+      recordPacingTime(waitStart, System.nanoTime());
+
+      if (Thread.interrupted()) {
+         throw new InterruptedException("Interrupted while waiting for the next message to be sent.");
+      }
+
       return false;
    }
+
+   @Override
+   protected void shutdown() throws InterruptedException, PerfCakeException {
+      super.shutdown();
+
+      if (pacer != null && log.isInfoEnabled()) {
+         final double average = pacer.getAverageInterval();
+         log.info(String.format("Achieved %.3f messages per second on average (target %.3f), inter-send jitter %.3f ms, maximal interval %.3f ms.",
+               average > 0 ? 1000d / average : 0d, speed, pacer.getJitter(), pacer.getMaxInterval()));
+      }
+   }
 }
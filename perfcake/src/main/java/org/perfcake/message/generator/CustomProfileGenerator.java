@@ -21,6 +21,7 @@ package org.perfcake.message.generator;
 
 import org.perfcake.common.Period;
 import org.perfcake.common.PeriodType;
+import org.perfcake.message.generator.profile.ArrivalProfile;
 import org.perfcake.message.generator.profile.Profile;
 import org.perfcake.message.generator.profile.ProfileRequest;
 import org.perfcake.util.properties.MandatoryProperty;
@@ -30,6 +31,8 @@ import org.apache.logging.log4j.Logger;
 
 /**
  * Generates the messages according to provided custom profile.
+ * When the profile is an {@link ArrivalProfile}, the intervals between the messages follow its arrival process
+ * and the speed of the profile is the mean rate.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -61,6 +64,16 @@ public class CustomProfileGenerator extends ConstantSpeedMessageGenerator {
     */
    private Profile profile;
 
+   /**
+    * The profile when it is an arrival profile, null otherwise.
+    */
+   private ArrivalProfile arrivalProfile;
+
+   /**
+    * The start of the arrival process in nanoseconds.
+    */
+   private long arrivalStart;
+
    /**
     * When did we reconfigured the generator for the last time.
     */
@@ -87,6 +100,7 @@ public class CustomProfileGenerator extends ConstantSpeedMessageGenerator {
       profile = (Profile) Class.forName(profileClass).newInstance();
       profile.init(profileSource);
       profile.setAutoReplay(autoReplay);
+      arrivalProfile = profile instanceof ArrivalProfile ? (ArrivalProfile) profile : null;
 
       super.generate();
    }
@@ -102,6 +116,17 @@ public class CustomProfileGenerator extends ConstantSpeedMessageGenerator {
       return super.prepareTask();
    }
 
+   @Override
+   protected void setStartTime() {
+      super.setStartTime();
+      arrivalStart = System.nanoTime();
+   }
+
+   @Override
+   protected double getNextInterval(final long now) {
+      return arrivalProfile != null ? arrivalProfile.nextInterval(now - arrivalStart) : super.getNextInterval(now);
+   }
+
    /**
     * Reconfigures the generator according to the latest profile request.
     *
@@ -110,11 +135,10 @@ public class CustomProfileGenerator extends ConstantSpeedMessageGenerator {
     */
    private void reconfigure(final ProfileRequest request) {
       if (request != null) {
-         if (lastThreads != request.getThreads()) {
+         if (request.getThreads() > 0 && lastThreads != request.getThreads()) {
             lastThreads = request.getThreads();
             setThreads(request.getThreads());
-            executorService.setCorePoolSize(request.getThreads());
-            executorService.setMaximumPoolSize(request.getThreads());
+            resizeExecutorService(request.getThreads());
          }
 
          if (lastSpeed != request.getSpeed()) {
@@ -20,14 +20,24 @@
 package org.perfcake.message.generator;
 
 import org.perfcake.PerfCakeConst;
+import org.perfcake.PerfCakeException;
 import org.perfcake.common.PeriodType;
+import org.perfcake.message.MessageTemplate;
+import org.perfcake.message.sender.MessageSenderManager;
 import org.perfcake.reporting.ReportManager;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -48,7 +58,12 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
    private static final Logger log = LogManager.getLogger(DefaultMessageGenerator.class);
 
    /**
-    * The period in milliseconds in which the thread queue is filled with new tasks.
+    * The maximal time in milliseconds the generator waits for a free slot in the sender task queue before it checks the test state again.
+    */
+   private static final long MAX_HANDOFF_WAIT = 10;
+
+   /**
+    * The period in milliseconds in which the thread queue is filled with new tasks. The generator idle time percentage is computed for this period.
     */
    protected long monitoringPeriod = 1000; // default 1s
 
@@ -64,6 +79,205 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
     */
    protected int senderTaskQueueSize = 1000;
 
+   /**
+    * The type of threads executing the sender tasks. The default value is {@link ThreadType#PLATFORM}.
+    */
+   protected ThreadType threadType = ThreadType.PLATFORM;
+
+   /**
+    * When true, each sender thread keeps using the same sender instance (see {@link MessageSenderManager#setThreadAffinity(boolean)}).
+    */
+   protected boolean senderAffinity = false;
+
+   /**
+    * The maximal number of senders initialized in parallel (see {@link MessageSenderManager#setInitConcurrency(int)}).
+    */
+   protected int senderInitConcurrency = 1;
+
+   /**
+    * When true, only the senders for the initial number of threads are created before the test starts, the rest is created on demand.
+    */
+   protected boolean lazySenderInit = false;
+
+   /**
+    * The maximal number of requests in flight per sender instance when the sender supports asynchronous sending
+    * (see {@link org.perfcake.message.sender.AsyncMessageSender}). The default value 0 disables asynchronous sending.
+    */
+   protected int asyncWindow = 0;
+
+   /**
+    * When true, the sender tasks are returned to a pool after their measurement units have been reported and they are reused
+    * together with their measurement units and message attributes. This reduces the garbage produced by each iteration.
+    */
+   protected boolean recycling = false;
+
+   /**
+    * The number of iterations whose messages are rendered in advance in a background thread. The default value 0 disables the pre-rendering.
+    */
+   protected int prerenderedIterations = 0;
+
+   /**
+    * Renders the messages in advance, null when the pre-rendering is disabled.
+    */
+   private PayloadPrerenderer prerenderer = null;
+
+   /**
+    * The task that could not be handed over to the sender threads yet, it is retried by the next call to {@link #prepareTask()}.
+    * Must be accessed from the generator thread only.
+    */
+   private SenderTask pendingTask = null;
+
+   /**
+    * The pool of sender tasks ready for reuse, null when the tasks are not recycled.
+    */
+   private BlockingQueue<SenderTask> recycledTasks = null;
+
+   /**
+    * Permits for the requests in flight, null when asynchronous sending is not used.
+    */
+   private Semaphore asyncPermits = null;
+
+   /**
+    * The maximal number of requests in flight in total.
+    */
+   private int asyncLimit = 0;
+
+   /**
+    * The time in nanoseconds when the generator started generating the load.
+    */
+   private long generatorStart = 0;
+
+   /**
+    * The time in nanoseconds when the generator stopped producing the load, 0 while still running.
+    */
+   private long generatorStop = 0;
+
+   /**
+    * The total time in nanoseconds the generator spent waiting for free sender threads.
+    */
+   private long idleTime = 0;
+
+   /**
+    * The total time in nanoseconds the generator spent waiting to keep the configured pace.
+    */
+   private long pacingTime = 0;
+
+   /**
+    * The start of the current monitoring period in nanoseconds.
+    */
+   private long periodStart = 0;
+
+   /**
+    * The time in nanoseconds the generator spent waiting for free sender threads in the current monitoring period.
+    */
+   private long periodIdleTime = 0;
+
+   /**
+    * The time in nanoseconds the generator spent waiting to keep the configured pace in the current monitoring period.
+    */
+   private long periodPacingTime = 0;
+
+   /**
+    * The percentage of time the generator spent waiting for free sender threads in the last monitoring period.
+    */
+   private volatile double idlePercentage = 0;
+
+   /**
+    * What to do when the generator itself limits the throughput.
+    */
+   protected SaturationPolicy saturationPolicy = SaturationPolicy.WARN;
+
+   /**
+    * The generator is considered saturated in a monitoring period when its idle time drops under this percentage
+    * while some of the sender threads have nothing to do.
+    */
+   protected double saturationIdleThreshold = 5;
+
+   /**
+    * The generator is considered saturated in a monitoring period when there are more measurement units than this waiting to be reported.
+    */
+   protected int maxReportingBacklog = 10_000;
+
+   /**
+    * When true, the saturation results are attached to each measurement unit and passed to the reporters.
+    * They are not reported by default as they would add new columns to the output of all the reporters.
+    */
+   protected boolean reportSaturation = false;
+
+   /**
+    * The maximal percentage of saturated monitoring periods tolerated with {@link SaturationPolicy#FAIL}.
+    */
+   protected double saturationTolerance = 10;
+
+   /**
+    * The number of sender tasks waiting in the queue at the end of the last monitoring period.
+    */
+   private volatile int queueDepth = -1;
+
+   /**
+    * The CPU usage of the generator thread in the last monitoring period.
+    */
+   private volatile double cpuPercentage = -1;
+
+   /**
+    * Measures the CPU time of the generator thread, null when not supported by the JVM.
+    */
+   private ThreadMXBean threadBean = null;
+
+   /**
+    * The CPU time of the generator thread at the start of the current monitoring period in nanoseconds.
+    */
+   private long periodCpuStart = 0;
+
+   /**
+    * The number of monitoring periods that have been evaluated.
+    */
+   private long monitoredPeriods = 0;
+
+   /**
+    * The number of monitoring periods in which the generator limited the throughput.
+    */
+   private long saturatedPeriods = 0;
+
+   /**
+    * The type of threads executing the sender tasks.
+    */
+   public enum ThreadType {
+
+      /**
+       * Ordinary platform threads. Each sender thread occupies an operating system thread.
+       */
+      PLATFORM,
+
+      /**
+       * Virtual threads (requires Java 21 or newer). Sender threads blocked on I/O do not occupy an operating system thread,
+       * so the number of threads can be raised to tens of thousands. The number of threads still limits the number of iterations in progress.
+       */
+      VIRTUAL
+   }
+
+   /**
+    * What to do when the generator itself limits the throughput. That happens when the sender threads are starving for new tasks
+    * while the generator is busy all the time, or when the reporters cannot keep up with the reported measurement units.
+    */
+   public enum SaturationPolicy {
+
+      /**
+       * The saturation is still measured and reported in the results but no warning is issued.
+       */
+      IGNORE,
+
+      /**
+       * A warning is logged when the saturation is detected for the first time and a summary is logged at the end of the test.
+       */
+      WARN,
+
+      /**
+       * Like {@link #WARN}, and the test fails when the generator was saturated in more than {@link #getSaturationTolerance()} percent of the monitoring periods.
+       */
+      FAIL
+   }
+
    /**
     * Gets the shutdown period.
     * During a shutdown, the thread queue is regularly checked for the threads finishing their work.
@@ -94,6 +308,60 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
       super.setReportManager(reportManager);
    }
 
+   @Override
+   public void init(final MessageSenderManager messageSenderManager, final List<MessageTemplate> messageStore) throws PerfCakeException {
+      messageSenderManager.setThreadAffinity(senderAffinity);
+      messageSenderManager.setGrowOnDemand(true); // the number of threads can be changed during the test
+      messageSenderManager.setInitConcurrency(senderInitConcurrency);
+      if (lazySenderInit) {
+         messageSenderManager.setInitialPoolSize(getInitialThreads());
+      }
+      super.init(messageSenderManager, messageStore);
+
+      asyncPermits = null;
+      if (asyncWindow > 0) {
+         if (messageSenderManager.isAsyncSupported()) {
+            asyncLimit = asyncWindow * messageSenderManager.getSenderPoolSize();
+            asyncPermits = new Semaphore(asyncLimit);
+
+            if (log.isInfoEnabled()) {
+               log.info(String.format("Sending messages asynchronously with up to %d requests in flight.", asyncLimit));
+            }
+         } else {
+            log.warn("The configured sender does not support asynchronous sending. Messages will be sent synchronously.");
+         }
+      }
+
+      // tasks that do not fit in the pool are simply left to the garbage collector
+      recycledTasks = recycling ? new ArrayBlockingQueue<>(getThreads() + senderTaskQueueSize + asyncLimit) : null;
+
+      prerenderer = prerenderedIterations > 0 ? new PayloadPrerenderer(messageStore, messageSelector, sequenceManager, prerenderedIterations) : null;
+   }
+
+   @Override
+   public void close() throws PerfCakeException {
+      stopPrerenderer();
+      super.close();
+   }
+
+   @Override
+   protected SenderTask newSenderTask() {
+      if (recycledTasks != null) {
+         final SenderTask recycledTask = recycledTasks.poll();
+         if (recycledTask != null) {
+            recycledTask.reset();
+            return recycledTask;
+         }
+      }
+
+      final SenderTask task = super.newSenderTask();
+      task.setAsyncPermits(asyncPermits);
+      task.setRecycledTasks(recycledTasks);
+      task.setPrerenderer(prerenderer);
+
+      return task;
+   }
+
    /**
     * Assigns nice names to threads that send messages and increases their default priority slightly.
     * All threads are set at daemon by default for PerfCake to be able to finish even if some of then hung up.
@@ -118,22 +386,279 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
       }
    }
 
+   /**
+    * Creates virtual threads for sending messages. Virtual threads are always daemon threads.
+    * The factory is obtained reflectively for PerfCake to be able to run on older Java versions where virtual threads do not exist.
+    */
+   static class VirtualThreadFactory implements ThreadFactory {
+      private static final AtomicInteger poolNumber = new AtomicInteger(1);
+      private final ThreadFactory factory;
+
+      VirtualThreadFactory() throws PerfCakeException {
+         try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builderClass.getMethod("name", String.class, long.class).invoke(builder, "PerfCake-" + poolNumber.getAndIncrement() + "-virtual-sender-thread-", 1L);
+            factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+         } catch (final ReflectiveOperationException e) {
+            throw new PerfCakeException("Virtual threads are not supported by the current JVM, Java 21 or newer is required: ", e);
+         }
+      }
+
+      public Thread newThread(final Runnable r) {
+         return factory.newThread(r);
+      }
+   }
+
+   /**
+    * Blocks the generator when the sender task queue is full until there is a free slot in the queue, or until a short timeout elapses
+    * so that the generator can check the test state. The task is rejected when the timeout elapses or when the executor has been shut down.
+    */
+   static class BlockingHandOffPolicy implements RejectedExecutionHandler {
+
+      @Override
+      public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+         if (!executor.isShutdown()) {
+            try {
+               if (executor.getQueue().offer(r, MAX_HANDOFF_WAIT, TimeUnit.MILLISECONDS)) {
+                  return;
+               }
+            } catch (final InterruptedException e) {
+               Thread.currentThread().interrupt(); // handed over to the generator
+            }
+         }
+
+         throw new RejectedExecutionException("There is no free slot in the sender task queue.");
+      }
+   }
+
+   /**
+    * Creates a new executor service with the given number of threads of the configured {@link ThreadType}.
+    * The number of threads limits the number of sender tasks executed at the same time.
+    *
+    * @param threads
+    *       The number of threads.
+    * @return The new executor service.
+    * @throws PerfCakeException
+    *       When it was not possible to create threads of the configured type.
+    */
+   protected ThreadPoolExecutor newExecutorService(final int threads) throws PerfCakeException {
+      final ThreadFactory threadFactory = threadType == ThreadType.VIRTUAL ? new VirtualThreadFactory() : new DaemonThreadFactory();
+
+      // the array based queue does not allocate a node for each task but it allocates all the slots upfront
+      final BlockingQueue<Runnable> queue = recycling ? new ArrayBlockingQueue<>(getSenderTaskQueueSize()) : new LinkedBlockingQueue<>(getSenderTaskQueueSize());
+
+      return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, threadFactory, new BlockingHandOffPolicy());
+   }
+
+   /**
+    * Changes the number of threads of the executor service. New threads are started as new tasks arrive.
+    *
+    * @param threads
+    *       The new number of threads.
+    */
+   protected void resizeExecutorService(final int threads) {
+      if (threads > executorService.getMaximumPoolSize()) {
+         executorService.setMaximumPoolSize(threads);
+         executorService.setCorePoolSize(threads);
+      } else {
+         executorService.setCorePoolSize(threads);
+         executorService.setMaximumPoolSize(threads);
+      }
+   }
+
    /**
     * Places a new {@link SenderTask} implementing the message sending to an internal thread queue.
+    * When the queue is full, the generator waits for a free slot without consuming CPU. A task that could not be placed
+    * before the waiting timed out is kept and placed by the next call instead of creating a new one.
     *
     * @return True if and only if the task has been successfully submitted.
     * @throws java.lang.InterruptedException
-    *       When it was not possible to place another task because the queue was empty.
+    *       When the generator was interrupted while waiting for a free slot in the queue.
     */
    protected boolean prepareTask() throws InterruptedException {
-      if (executorService.getQueue().remainingCapacity() > 0) {
-         executorService.submit(newSenderTask());
+      if (pendingTask == null) {
+         pendingTask = newSenderTask();
+      }
+
+      if (handOff(pendingTask)) {
+         pendingTask = null;
          return true;
       }
 
       return false;
    }
 
+   /**
+    * Hands a task over to the sender threads. When the sender task queue is full, the calling thread is blocked until there is a free slot,
+    * or until a short timeout elapses so that the caller can check the test state. The time spent waiting is recorded as the generator idle time.
+    *
+    * @param task
+    *       The task to be executed.
+    * @return True if and only if the task has been placed to the queue.
+    * @throws InterruptedException
+    *       When interrupted while waiting for a free slot in the queue.
+    */
+   protected boolean handOff(final Runnable task) throws InterruptedException {
+      final long waitStart = System.nanoTime();
+      boolean submitted = true;
+      try {
+         executorService.execute(task); // blocks in BlockingHandOffPolicy while the queue is full
+      } catch (final RejectedExecutionException e) {
+         submitted = false;
+      }
+      recordIdleTime(waitStart, System.nanoTime());
+
+      if (!submitted && Thread.interrupted()) {
+         throw new InterruptedException("Interrupted while waiting for a free slot in the sender task queue.");
+      }
+
+      return submitted;
+   }
+
+   /**
+    * Records the time the generator spent waiting for free sender threads. Must be called from the generator thread only.
+    *
+    * @param waitStart
+    *       The time in nanoseconds when the waiting started.
+    * @param waitEnd
+    *       The time in nanoseconds when the waiting ended.
+    */
+   protected void recordIdleTime(final long waitStart, final long waitEnd) {
+      idleTime = idleTime + (waitEnd - waitStart);
+      periodIdleTime = periodIdleTime + (waitEnd - waitStart);
+      checkMonitoringPeriod(waitEnd);
+   }
+
+   /**
+    * Records the time the generator spent waiting to keep the configured pace, e.g. for the next intended time of a message.
+    * Unlike the idle time, it does not say anything about the sender threads. Must be called from the generator thread only.
+    *
+    * @param waitStart
+    *       The time in nanoseconds when the waiting started.
+    * @param waitEnd
+    *       The time in nanoseconds when the waiting ended.
+    */
+   protected void recordPacingTime(final long waitStart, final long waitEnd) {
+      pacingTime = pacingTime + (waitEnd - waitStart);
+      periodPacingTime = periodPacingTime + (waitEnd - waitStart);
+      checkMonitoringPeriod(waitEnd);
+   }
+
+   /**
+    * Closes the current monitoring period when it is over. Must be called from the generator thread only.
+    *
+    * @param now
+    *       The current time in nanoseconds.
+    */
+   private void checkMonitoringPeriod(final long now) {
+      final long period = now - periodStart;
+      if (period >= TimeUnit.MILLISECONDS.toNanos(monitoringPeriod)) {
+         idlePercentage = 100d * periodIdleTime / period;
+         monitorSaturation(period);
+         periodStart = now;
+         periodIdleTime = 0;
+         periodPacingTime = 0;
+      }
+   }
+
+   /**
+    * Samples the sender task queue depth, the generator thread CPU usage and the reporting backlog at the end of a monitoring period
+    * and checks whether the generator limited the throughput in the period. Must be called from the generator thread only.
+    *
+    * @param period
+    *       The length of the monitoring period in nanoseconds.
+    */
+   private void monitorSaturation(final long period) {
+      queueDepth = executorService != null ? executorService.getQueue().size() : 0;
+
+      if (threadBean != null) {
+         final long cpu = threadBean.getCurrentThreadCpuTime();
+         cpuPercentage = 100d * (cpu - periodCpuStart) / period;
+         periodCpuStart = cpu;
+      }
+
+      final int backlog = reportManager != null ? reportManager.getReportingBacklog() : 0;
+      // a paced generator waits by design, it is saturated only when it hardly waits at all
+      final double waitingPercentage = 100d * (periodIdleTime + periodPacingTime) / period;
+      // the task just handed off is still likely to be in the queue, the idle sender threads tell us more
+      final boolean starving = waitingPercentage < saturationIdleThreshold && executorService != null && executorService.getActiveCount() < executorService.getCorePoolSize();
+      final boolean reportingLag = backlog > maxReportingBacklog;
+
+      monitoredPeriods = monitoredPeriods + 1;
+      if (starving || reportingLag) {
+         saturatedPeriods = saturatedPeriods + 1;
+
+         if (saturatedPeriods == 1 && saturationPolicy != SaturationPolicy.IGNORE && log.isWarnEnabled()) {
+            if (starving) {
+               log.warn(String.format("The load generator is saturated, it was waiting for %.2f%% of time (CPU usage %.2f%%) while the sender threads were waiting for new tasks. "
+                     + "The results are limited by PerfCake, not by the tested system.", waitingPercentage, cpuPercentage));
+            } else {
+               log.warn(String.format("The reporting is saturated, %d measurement units are waiting to be reported. The results are limited by PerfCake, not by the tested system.", backlog));
+            }
+         }
+      }
+   }
+
+   /**
+    * Stops rendering the messages in advance.
+    */
+   private void stopPrerenderer() {
+      if (prerenderer != null) {
+         try {
+            prerenderer.stop();
+         } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+
+   /**
+    * Summarizes the saturation of the generator at the end of the test.
+    *
+    * @throws PerfCakeException
+    *       When the generator limited the throughput for too long and the {@link SaturationPolicy#FAIL} policy is used.
+    */
+   private void checkSaturation() throws PerfCakeException {
+      if (saturationPolicy == SaturationPolicy.IGNORE || saturatedPeriods == 0) {
+         return;
+      }
+
+      final double saturated = getSaturatedPercentage();
+      log.warn(String.format("The load generator limited the throughput in %d of %d monitoring periods (%.2f%%).", saturatedPeriods, monitoredPeriods, saturated));
+
+      if (saturationPolicy == SaturationPolicy.FAIL && saturated > saturationTolerance) {
+         throw new PerfCakeException(String.format("The load generator limited the throughput in %.2f%% of the test, which is more than the tolerated %.2f%%. "
+               + "Use more generator instances, lower the reporting load or optimize the scenario.", saturated, saturationTolerance));
+      }
+   }
+
+   @Override
+   protected void setStartTime() {
+      generatorStart = System.nanoTime();
+      generatorStop = 0;
+      periodStart = generatorStart;
+      idleTime = 0;
+      pacingTime = 0;
+      periodIdleTime = 0;
+      periodPacingTime = 0;
+      idlePercentage = 0;
+      queueDepth = -1;
+      cpuPercentage = -1;
+      monitoredPeriods = 0;
+      saturatedPeriods = 0;
+
+      final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      threadBean = bean.isCurrentThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled() ? bean : null;
+      periodCpuStart = threadBean != null ? threadBean.getCurrentThreadCpuTime() : 0;
+
+      if (prerenderer != null) {
+         prerenderer.start();
+      }
+
+      super.setStartTime();
+   }
+
    /**
     * Adaptively terminates active sender tasks. Waits for tasks to be finished. While they are some tasks remaining and some of them get terminated, keep waiting.
     *
@@ -170,6 +695,34 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
       if (active > 0) {
          log.warn("Cannot terminate all sender tasks. Set higher shutdownPeriod for the generator in your scenario. Remaining tasks/threads active: {}/{}", uncomplete, active);
       }
+
+      awaitAsyncRequests();
+   }
+
+   /**
+    * Waits for the asynchronous requests in flight to be completed. While some requests remain in flight and some of them get completed, keep waiting.
+    *
+    * @throws InterruptedException
+    *       When interrupted during awaiting the requests completion.
+    */
+   private void awaitAsyncRequests() throws InterruptedException {
+      if (asyncPermits == null) {
+         return;
+      }
+
+      int inFlight = getAsyncRequestsInFlight();
+      int lastInFlight = 0;
+      while (inFlight > 0 && lastInFlight != inFlight) {
+         lastInFlight = inFlight;
+         if (asyncPermits.tryAcquire(asyncLimit, shutdownPeriod, TimeUnit.MILLISECONDS)) {
+            asyncPermits.release(asyncLimit);
+         }
+         inFlight = getAsyncRequestsInFlight();
+      }
+
+      if (inFlight > 0) {
+         log.warn("Cannot complete all asynchronous requests. Set higher shutdownPeriod for the generator in your scenario. Remaining requests in flight: {}", inFlight);
+      }
    }
 
    /**
@@ -177,8 +730,12 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
     *
     * @throws java.lang.InterruptedException
     *       When waiting for the termination was interrupted.
+    * @throws PerfCakeException
+    *       When the generator limited the throughput for too long and the {@link SaturationPolicy#FAIL} policy is used.
     */
-   protected void shutdown() throws InterruptedException {
+   protected void shutdown() throws InterruptedException, PerfCakeException {
+      generatorStop = System.nanoTime();
+
       if (runInfo.getDuration().getPeriodType() == PeriodType.ITERATION) { // in case of iterations, we wait for the tasks to be finished first
          log.info("Waiting for all messages to be sent...");
          adaptiveTermination();
@@ -190,12 +747,29 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
       }
 
       executorService.shutdownNow();
+      stopPrerenderer();
+
+      if (pendingTask != null) { // the last task that did not make it to the queue
+         if (recycledTasks != null) {
+            recycledTasks.offer(pendingTask);
+         }
+         pendingTask = null;
+      }
+
+      if (log.isInfoEnabled() && generatorStart > 0) {
+         final long total = generatorStop - generatorStart;
+         log.info(String.format("The generator spent %.3f s (%.2f%%) waiting for free sender threads, %.3f s (%.2f%%) keeping the configured pace and %.3f s producing the load.",
+               idleTime / 1_000_000_000d, total == 0 ? 0d : 100d * idleTime / total, pacingTime / 1_000_000_000d, total == 0 ? 0d : 100d * pacingTime / total,
+               (total - idleTime - pacingTime) / 1_000_000_000d));
+      }
+
+      checkSaturation();
    }
 
    @Override
    public void generate() throws Exception {
       log.info("Starting to generate...");
-      executorService = new ThreadPoolExecutor(getThreads(), getThreads(), 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(getSenderTaskQueueSize()), new DaemonThreadFactory());
+      executorService = newExecutorService(getThreads());
       runInfo.setThreads(getThreads());
       setStartTime();
 
@@ -227,6 +801,61 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
       shutdown();
    }
 
+   @Override
+   public double getIdlePercentage() {
+      return idlePercentage;
+   }
+
+   @Override
+   public int getQueueDepth() {
+      return queueDepth;
+   }
+
+   @Override
+   public double getCpuPercentage() {
+      return cpuPercentage;
+   }
+
+   /**
+    * Gets the percentage of the monitoring periods in which the generator limited the throughput.
+    *
+    * @return The percentage of saturated monitoring periods.
+    */
+   public double getSaturatedPercentage() {
+      return monitoredPeriods == 0 ? 0d : 100d * saturatedPeriods / monitoredPeriods;
+   }
+
+   /**
+    * Gets the total time the generator spent waiting for free sender threads.
+    *
+    * @return The idle time in milliseconds.
+    */
+   public double getIdleTime() {
+      return idleTime / 1_000_000d;
+   }
+
+   /**
+    * Gets the total time the generator spent waiting to keep the configured pace.
+    *
+    * @return The pacing time in milliseconds.
+    */
+   public double getPacingTime() {
+      return pacingTime / 1_000_000d;
+   }
+
+   /**
+    * Gets the total time the generator spent generating the load, i.e. the time it was neither waiting for free sender threads nor keeping the pace.
+    *
+    * @return The busy time in milliseconds.
+    */
+   public double getBusyTime() {
+      if (generatorStart == 0) {
+         return 0d;
+      }
+
+      return ((generatorStop == 0 ? System.nanoTime() : generatorStop) - generatorStart - idleTime - pacingTime) / 1_000_000d;
+   }
+
    /**
     * Gets a monitoring period in which the sender task queue is filled with new tasks.
     *
@@ -278,6 +907,289 @@ public class DefaultMessageGenerator extends AbstractMessageGenerator {
       return this;
    }
 
+   /**
+    * Gets the type of threads executing the sender tasks.
+    *
+    * @return The type of threads.
+    */
+   public ThreadType getThreadType() {
+      return threadType;
+   }
+
+   /**
+    * Sets the type of threads executing the sender tasks.
+    *
+    * @param threadType
+    *       The type of threads.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setThreadType(final ThreadType threadType) {
+      this.threadType = threadType;
+      return this;
+   }
+
+   /**
+    * Gets whether the sender tasks are recycled.
+    *
+    * @return True if and only if the sender tasks are recycled.
+    */
+   public boolean isRecycling() {
+      return recycling;
+   }
+
+   /**
+    * Sets whether the sender tasks are recycled. A recycled task is returned to a pool after its measurement unit has been reported
+    * and it is reused in a later iteration together with its measurement unit and message attributes (the attributes are not
+    * reused when the validation is enabled). This lowers the pressure on the garbage collector at high message rates.
+    * Reporters must not keep references to the measurement units after they have been reported when the recycling is enabled.
+    *
+    * @param recycling
+    *       True to recycle the sender tasks.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setRecycling(final boolean recycling) {
+      this.recycling = recycling;
+      return this;
+   }
+
+   /**
+    * Gets the number of iterations whose messages are rendered in advance.
+    *
+    * @return The number of pre-rendered iterations, 0 when the pre-rendering is disabled.
+    */
+   public int getPrerenderedIterations() {
+      return prerenderedIterations;
+   }
+
+   /**
+    * Sets the number of iterations whose messages are rendered in advance. A background thread takes the sequence values, renders
+    * the message templates and encodes the payloads, so the sender threads only pick the prepared messages up. This helps when
+    * rendering large templates costs more than sending them. The sender threads render the messages themselves when the background
+    * thread cannot keep up. The messages using the iteration number are never rendered in advance. The value 0 disables the pre-rendering.
+    *
+    * @param prerenderedIterations
+    *       The number of pre-rendered iterations.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setPrerenderedIterations(final int prerenderedIterations) {
+      this.prerenderedIterations = prerenderedIterations;
+      return this;
+   }
+
+   /**
+    * Gets whether each sender thread keeps using the same sender instance.
+    *
+    * @return True if and only if the sender affinity is enabled.
+    */
+   public boolean isSenderAffinity() {
+      return senderAffinity;
+   }
+
+   /**
+    * Sets whether each sender thread keeps using the same sender instance. This avoids contention on the shared pool of senders
+    * with high numbers of threads and keeps the sender's state in a single thread. Threads without their own sender
+    * steal idle senders of other threads.
+    *
+    * @param senderAffinity
+    *       True to enable the sender affinity.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setSenderAffinity(final boolean senderAffinity) {
+      this.senderAffinity = senderAffinity;
+      return this;
+   }
+
+   /**
+    * Gets the number of threads used at the beginning of the test. Only this number of senders is created before the test
+    * when the lazy sender initialization is enabled.
+    *
+    * @return The initial number of threads.
+    */
+   protected int getInitialThreads() {
+      return getThreads();
+   }
+
+   /**
+    * Gets the maximal number of senders initialized in parallel.
+    *
+    * @return The maximal number of senders initialized in parallel.
+    */
+   public int getSenderInitConcurrency() {
+      return senderInitConcurrency;
+   }
+
+   /**
+    * Sets the maximal number of senders initialized in parallel. Senders that connect to the target during their initialization
+    * (e.g. JMS, JDBC or MQTT senders) can significantly shorten the test startup this way.
+    *
+    * @param senderInitConcurrency
+    *       The maximal number of senders initialized in parallel.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setSenderInitConcurrency(final int senderInitConcurrency) {
+      this.senderInitConcurrency = senderInitConcurrency;
+      return this;
+   }
+
+   /**
+    * Gets whether the senders are created lazily.
+    *
+    * @return True if and only if only the senders for the initial number of threads are created before the test starts.
+    */
+   public boolean isLazySenderInit() {
+      return lazySenderInit;
+   }
+
+   /**
+    * Sets whether the senders are created lazily. When enabled, only the senders for the initial number of threads are created
+    * before the test starts. Additional senders are created once they are needed, which means the first iterations
+    * of new threads include the sender initialization.
+    *
+    * @param lazySenderInit
+    *       True to create the senders lazily.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setLazySenderInit(final boolean lazySenderInit) {
+      this.lazySenderInit = lazySenderInit;
+      return this;
+   }
+
+   /**
+    * Gets the maximal number of requests in flight per sender instance when the sender supports asynchronous sending.
+    *
+    * @return The maximal number of requests in flight per sender, 0 when asynchronous sending is disabled.
+    */
+   public int getAsyncWindow() {
+      return asyncWindow;
+   }
+
+   /**
+    * Sets the maximal number of requests in flight per sender instance when the sender supports asynchronous sending
+    * (see {@link org.perfcake.message.sender.AsyncMessageSender}). The generator threads do not wait for the responses then,
+    * so a few threads can keep many requests in flight. The total number of requests in flight is limited to the window size
+    * multiplied by the number of sender instances. The value 0 disables asynchronous sending.
+    *
+    * @param asyncWindow
+    *       The maximal number of requests in flight per sender.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setAsyncWindow(final int asyncWindow) {
+      this.asyncWindow = asyncWindow;
+      return this;
+   }
+
+   /**
+    * Gets the number of asynchronous requests currently in flight.
+    *
+    * @return The number of requests in flight, 0 when asynchronous sending is not used.
+    */
+   public int getAsyncRequestsInFlight() {
+      return asyncPermits == null ? 0 : asyncLimit - asyncPermits.availablePermits();
+   }
+
+   /**
+    * Gets what to do when the generator itself limits the throughput.
+    *
+    * @return The saturation policy.
+    */
+   public SaturationPolicy getSaturationPolicy() {
+      return saturationPolicy;
+   }
+
+   /**
+    * Sets what to do when the generator itself limits the throughput.
+    *
+    * @param saturationPolicy
+    *       The saturation policy.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setSaturationPolicy(final SaturationPolicy saturationPolicy) {
+      this.saturationPolicy = saturationPolicy;
+      return this;
+   }
+
+   @Override
+   public boolean isReportSaturation() {
+      return reportSaturation;
+   }
+
+   /**
+    * Specifies whether the results showing whether the generator itself limits the throughput are attached to each measurement unit.
+    * These are the scheduling lag, the generator idle time, the queue depth, the generator CPU usage, the reporting backlog and the reporting lag.
+    * The saturation is detected regardless of this setting.
+    *
+    * @param reportSaturation
+    *       True to report the saturation results.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setReportSaturation(final boolean reportSaturation) {
+      this.reportSaturation = reportSaturation;
+      return this;
+   }
+
+   /**
+    * Gets the generator idle time percentage under which the generator is considered saturated when some of the sender threads have nothing to do.
+    *
+    * @return The idle time threshold in percent.
+    */
+   public double getSaturationIdleThreshold() {
+      return saturationIdleThreshold;
+   }
+
+   /**
+    * Sets the generator idle time percentage under which the generator is considered saturated when some of the sender threads have nothing to do.
+    *
+    * @param saturationIdleThreshold
+    *       The idle time threshold in percent.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setSaturationIdleThreshold(final double saturationIdleThreshold) {
+      this.saturationIdleThreshold = saturationIdleThreshold;
+      return this;
+   }
+
+   /**
+    * Gets the number of measurement units waiting to be reported above which the reporting is considered saturated.
+    *
+    * @return The maximal reporting backlog.
+    */
+   public int getMaxReportingBacklog() {
+      return maxReportingBacklog;
+   }
+
+   /**
+    * Sets the number of measurement units waiting to be reported above which the reporting is considered saturated.
+    *
+    * @param maxReportingBacklog
+    *       The maximal reporting backlog.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setMaxReportingBacklog(final int maxReportingBacklog) {
+      this.maxReportingBacklog = maxReportingBacklog;
+      return this;
+   }
+
+   /**
+    * Gets the maximal percentage of saturated monitoring periods tolerated with {@link SaturationPolicy#FAIL}.
+    *
+    * @return The tolerated percentage of saturated monitoring periods.
+    */
+   public double getSaturationTolerance() {
+      return saturationTolerance;
+   }
+
+   /**
+    * Sets the maximal percentage of saturated monitoring periods tolerated with {@link SaturationPolicy#FAIL}.
+    *
+    * @param saturationTolerance
+    *       The tolerated percentage of saturated monitoring periods.
+    * @return Instance of this to support fluent API.
+    */
+   public DefaultMessageGenerator setSaturationTolerance(final double saturationTolerance) {
+      this.saturationTolerance = saturationTolerance;
+      return this;
+   }
+
    @Override
    protected void validateRunInfo() {
       if (runInfo.getDuration().getPeriodType() == PeriodType.PERCENTAGE) {
@@ -0,0 +1,250 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+/**
+ * <p>Paces events to a constant rate using the Generic Cell Rate Algorithm (GCRA), which is an equivalent of a token bucket
+ * that needs only a constant amount of memory regardless of the rate.</p>
+ *
+ * <p>The pacer keeps the theoretical arrival time (TAT) of the next event on a nanosecond scale. An event conforms when it
+ * does not come earlier than the TAT minus the burst tolerance. Each conforming event moves the TAT forward by the emission
+ * interval. When the events come more than one interval late, the TAT is moved to the current time, so the pacer never sends
+ * more than the burst size to catch up. Fractional parts of the emission interval are carried over, so fractional and very
+ * high rates are paced precisely.</p>
+ *
+ * <p>The pacer also measures the intervals between the conforming events to report the jitter of the achieved rate.
+ * The pacer is not thread-safe, it is supposed to be used by a single generator thread.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class GcraPacer {
+
+   /**
+    * The interval between two events in nanoseconds.
+    */
+   private double emissionInterval;
+
+   /**
+    * How many events can be sent at once after a period of inactivity.
+    */
+   private int burst;
+
+   /**
+    * The theoretical arrival time of the next event in nanoseconds, -1 before the first event.
+    */
+   private long tat = -1;
+
+   /**
+    * The fractional part of the emission intervals not yet added to the theoretical arrival time.
+    */
+   private double carry = 0;
+
+   /**
+    * The time of the last conforming event in nanoseconds, -1 before the first event.
+    */
+   private long lastEvent = -1;
+
+   /**
+    * The number of measured intervals between events.
+    */
+   private long intervals = 0;
+
+   /**
+    * The mean of the measured intervals in nanoseconds.
+    */
+   private double intervalMean = 0;
+
+   /**
+    * The sum of squared differences from the mean of the measured intervals (as in Welford's algorithm).
+    */
+   private double intervalM2 = 0;
+
+   /**
+    * The maximal measured interval in nanoseconds.
+    */
+   private long maxInterval = 0;
+
+   /**
+    * Creates a new pacer.
+    *
+    * @param rate
+    *       The rate in events per second.
+    * @param burst
+    *       How many events can be sent at once after a period of inactivity.
+    */
+   public GcraPacer(final double rate, final int burst) {
+      setRate(rate);
+      setBurst(burst);
+   }
+
+   /**
+    * Gets the time to wait until the next event conforms to the rate.
+    *
+    * @param now
+    *       The current time in nanoseconds as obtained from {@link System#nanoTime()}.
+    * @return The time to wait in nanoseconds, zero or a negative number when the event can be sent right now.
+    */
+   public long getDelay(final long now) {
+      if (tat == -1) {
+         return 0;
+      }
+
+      return tat - (long) ((burst - 1) * emissionInterval) - now;
+   }
+
+   /**
+    * Records an event that has been sent. The event should conform to the rate, i.e. {@link #getDelay(long)} should have returned zero or a negative number.
+    *
+    * @param now
+    *       The time of the event in nanoseconds as obtained from {@link System#nanoTime()}.
+    */
+   public void onEvent(final long now) {
+      onEvent(now, emissionInterval);
+   }
+
+   /**
+    * Records an event that has been sent and schedules the next event after the given interval instead of the emission interval.
+    * This allows the pacer to follow stochastic arrival processes with the rate being their mean rate.
+    *
+    * @param now
+    *       The time of the event in nanoseconds as obtained from {@link System#nanoTime()}.
+    * @param interval
+    *       The interval between this and the next event in nanoseconds.
+    */
+   public void onEvent(final long now, final double interval) {
+      carry = carry + interval;
+      final long whole = (long) carry;
+      carry = carry - whole;
+
+      // events late by less than one emission interval keep the schedule, so that the imprecise wake-ups do not lower the rate,
+      // but never by more than the next interval, otherwise a short interval after a long one would be caught up at once
+      final long base = tat != -1 && now - tat < Math.min(emissionInterval, interval) ? tat : now;
+      tat = base + whole;
+
+      if (lastEvent != -1) {
+         recordInterval(now - lastEvent);
+      }
+      lastEvent = now;
+   }
+
+   /**
+    * Adds a measured interval to the statistics.
+    *
+    * @param interval
+    *       The interval in nanoseconds.
+    */
+   private void recordInterval(final long interval) {
+      intervals = intervals + 1;
+      final double delta = interval - intervalMean;
+      intervalMean = intervalMean + delta / intervals;
+      intervalM2 = intervalM2 + delta * (interval - intervalMean);
+      maxInterval = Math.max(maxInterval, interval);
+   }
+
+   /**
+    * Forgets the history of events. The next event is sent immediately and the statistics start from scratch.
+    */
+   public void reset() {
+      tat = -1;
+      carry = 0;
+      lastEvent = -1;
+      intervals = 0;
+      intervalMean = 0;
+      intervalM2 = 0;
+      maxInterval = 0;
+   }
+
+   /**
+    * Gets the rate.
+    *
+    * @return The rate in events per second.
+    */
+   public double getRate() {
+      return 1_000_000_000d / emissionInterval;
+   }
+
+   /**
+    * Sets the rate. The change takes effect after the next event.
+    *
+    * @param rate
+    *       The rate in events per second, must be a positive number.
+    */
+   public void setRate(final double rate) {
+      if (!(rate > 0)) {
+         throw new IllegalArgumentException("The rate must be a positive number.");
+      }
+      emissionInterval = 1_000_000_000d / rate;
+   }
+
+   /**
+    * Gets how many events can be sent at once after a period of inactivity.
+    *
+    * @return The burst size.
+    */
+   public int getBurst() {
+      return burst;
+   }
+
+   /**
+    * Sets how many events can be sent at once after a period of inactivity.
+    *
+    * @param burst
+    *       The burst size, at least 1.
+    */
+   public void setBurst(final int burst) {
+      this.burst = Math.max(1, burst);
+   }
+
+   /**
+    * Gets the number of measured intervals between events.
+    *
+    * @return The number of measured intervals.
+    */
+   public long getIntervalCount() {
+      return intervals;
+   }
+
+   /**
+    * Gets the average measured interval between events.
+    *
+    * @return The average interval in milliseconds.
+    */
+   public double getAverageInterval() {
+      return intervalMean / 1_000_000d;
+   }
+
+   /**
+    * Gets the jitter of the measured intervals between events computed as their standard deviation.
+    *
+    * @return The jitter in milliseconds.
+    */
+   public double getJitter() {
+      return intervals < 2 ? 0d : Math.sqrt(intervalM2 / (intervals - 1)) / 1_000_000d;
+   }
+
+   /**
+    * Gets the maximal measured interval between events.
+    *
+    * @return The maximal interval in milliseconds.
+    */
+   public double getMaxInterval() {
+      return maxInterval / 1_000_000d;
+   }
+}
@@ -0,0 +1,604 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.PerfCakeConst;
+import org.perfcake.PerfCakeException;
+import org.perfcake.common.PeriodType;
+import org.perfcake.message.MessageTemplate;
+import org.perfcake.message.sender.MessageSenderManager;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Simulates virtual users that go through a journey of several steps, e.g. login, browsing and checkout.
+ * Each message in the scenario is a step of the journey, a message with the multiplicity of N is sent as N consecutive steps.
+ * Between the steps, the users think for a time given by the configured distribution. Each step is an iteration.</p>
+ *
+ * <p>Every user has its own message attributes that are kept between the steps. Values can be extracted from the responses
+ * into the attributes using regular expressions (see {@link #setExtract(String)}) and used in the following steps as <code>@{name}</code>.
+ * The attributes also contain {@link PerfCakeConst#SESSION_ID_PROPERTY} with the number of the user and {@link PerfCakeConst#MESSAGE_NAME_PROPERTY}
+ * with the name of the current step. Senders that support sessions (e.g. {@link org.perfcake.message.sender.HttpSender} with the stored cookies)
+ * keep the session state in the attributes as well. When a user finishes the journey, it starts a new one with empty attributes
+ * unless {@link #setRepeat(boolean)} is disabled.</p>
+ *
+ * <p>The users do not occupy any thread while thinking, they wait in a delay queue. The number of threads only limits the number of steps
+ * being executed at the same time. This makes it possible to keep a large number of mostly idle sessions open with just a few threads.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class JourneyMessageGenerator extends DefaultMessageGenerator {
+
+   /**
+    * The generator's logger.
+    */
+   private static final Logger log = LogManager.getLogger(JourneyMessageGenerator.class);
+
+   /**
+    * The longest time in milliseconds the generator waits for a user to become ready before checking the test state.
+    */
+   private static final long MAX_USER_WAIT = 100;
+
+   /**
+    * Distributions of the think time.
+    */
+   public enum ThinkTime {
+      /**
+       * Always the mean think time.
+       */
+      CONSTANT,
+
+      /**
+       * Uniformly distributed in the mean think time plus or minus the deviation.
+       */
+      UNIFORM,
+
+      /**
+       * Exponentially distributed with the mean think time, typical for independent users.
+       */
+      EXPONENTIAL,
+
+      /**
+       * Normally distributed with the mean think time and the deviation as the standard deviation, negative values are cut to zero.
+       */
+      NORMAL
+   }
+
+   /**
+    * The number of virtual users.
+    */
+   private int users = 100;
+
+   /**
+    * The mean think time between two steps in milliseconds.
+    */
+   private double thinkTime = 1000;
+
+   /**
+    * The distribution of the think time.
+    */
+   private ThinkTime thinkTimeDistribution = ThinkTime.CONSTANT;
+
+   /**
+    * The deviation of the think time in milliseconds, its meaning depends on the distribution.
+    */
+   private double thinkTimeDeviation = 0;
+
+   /**
+    * The time in milliseconds over which the users start their journeys, negative to use the mean think time.
+    */
+   private long rampUp = -1;
+
+   /**
+    * Whether the users start a new journey after they finish the previous one.
+    */
+   private boolean repeat = true;
+
+   /**
+    * The definition of the values extracted from the responses.
+    */
+   private String extract = null;
+
+   /**
+    * The patterns to extract values from the responses by the attribute name.
+    */
+   private final Map<String, Pattern> extractors = new LinkedHashMap<>();
+
+   /**
+    * The steps of the journey, each in a message store of its own.
+    */
+   private final List<List<MessageTemplate>> steps = new ArrayList<>();
+
+   /**
+    * The users waiting for their next step.
+    */
+   private final DelayQueue<VirtualUser> idleUsers = new DelayQueue<>();
+
+   /**
+    * The number of users that did not leave yet.
+    */
+   private final AtomicInteger activeUsers = new AtomicInteger();
+
+   /**
+    * The number of finished journeys.
+    */
+   private final LongAdder completedJourneys = new LongAdder();
+
+   @Override
+   public void init(final MessageSenderManager messageSenderManager, final List<MessageTemplate> messageStore) throws PerfCakeException {
+      if (asyncWindow > 0) {
+         log.warn("Asynchronous sending is not supported in journeys as the responses are needed for the next steps. Messages will be sent synchronously.");
+         asyncWindow = 0;
+      }
+
+      if (prerenderedIterations > 0) {
+         log.warn("Messages cannot be rendered in advance in journeys as they depend on the previous responses. Messages will be rendered by the sender threads.");
+         prerenderedIterations = 0;
+      }
+
+      super.init(messageSenderManager, messageStore);
+
+      if (messageStore == null || messageStore.isEmpty()) {
+         throw new PerfCakeException("There must be at least one message to define a journey.");
+      }
+
+      if (messageSelector != null) {
+         log.warn("Message weights are ignored in journeys, all the messages are sent in order.");
+         messageSelector = null;
+      }
+
+      steps.clear();
+      for (final MessageTemplate template : messageStore) {
+         final List<MessageTemplate> step = Collections.singletonList(template.withMultiplicity(1));
+         for (long i = 0; i < template.getMultiplicity(); i++) {
+            steps.add(step);
+         }
+      }
+
+      extractors.clear();
+      if (extract != null) {
+         for (final String definition : extract.split(";")) {
+            final int eq = definition.indexOf('=');
+            if (eq < 1) {
+               throw new PerfCakeException(String.format("Invalid extraction definition '%s', it must be in the form of name=regex.", definition));
+            }
+            extractors.put(definition.substring(0, eq).trim(), Pattern.compile(definition.substring(eq + 1)));
+         }
+      }
+   }
+
+   @Override
+   public void generate() throws Exception {
+      log.info(String.format("Starting %d virtual users on a journey of %d steps...", users, steps.size()));
+      executorService = newExecutorService(getThreads());
+      runInfo.setThreads(getThreads());
+      setStartTime();
+      startUsers(System.nanoTime());
+
+      if (runInfo.getDuration().getPeriodType() == PeriodType.ITERATION) {
+         long i = 0;
+         final long max = runInfo.getDuration().getPeriod();
+         boolean wasWarmUp = false;
+
+         while (i < max && activeUsers.get() > 0 && runInfo.isStarted()) {
+            final boolean warmUpTag = runInfo.hasTag(PerfCakeConst.WARM_UP_TAG);
+
+            if (wasWarmUp && !warmUpTag) { // if we were in the warmUp phase and it ended, we start counting from 0 again
+               i = 0;
+            }
+
+            if (nextStep()) {
+               i = i + 1; // long does not work with i++
+            }
+
+            wasWarmUp = warmUpTag;
+         }
+      } else {
+         while (runInfo.isRunning() && activeUsers.get() > 0) {
+            nextStep();
+         }
+      }
+
+      log.info("Reached test end. All steps were prepared to be executed.");
+      shutdown();
+      log.info(String.format("%d journeys completed, %d of %d virtual users still active.", getCompletedJourneys(), getActiveUsers(), users));
+   }
+
+   /**
+    * Creates the virtual users and schedules their first steps evenly over the ramp-up period.
+    *
+    * @param start
+    *       The time of the first step in nanoseconds.
+    */
+   private void startUsers(final long start) {
+      idleUsers.clear();
+      completedJourneys.reset();
+      activeUsers.set(users);
+
+      final double spread = TimeUnit.MILLISECONDS.toNanos(rampUp < 0 ? (long) thinkTime : rampUp);
+      for (int i = 0; i < users; i++) {
+         final VirtualUser user = new VirtualUser(i);
+         user.dueTime = start + (long) (spread * i / users);
+         idleUsers.add(user);
+      }
+   }
+
+   /**
+    * Waits for a user that finished thinking and hands its next step over to the sender threads.
+    *
+    * @return True if and only if a step has been submitted.
+    * @throws InterruptedException
+    *       When interrupted while waiting.
+    */
+   private boolean nextStep() throws InterruptedException {
+      final long waitStart = System.nanoTime();
+      final VirtualUser user = idleUsers.poll(MAX_USER_WAIT, TimeUnit.MILLISECONDS);
+      recordPacingTime(waitStart, System.nanoTime());
+
+      if (user == null) {
+         return false;
+      }
+
+      final List<MessageTemplate> step = steps.get(user.step);
+      final String name = step.get(0).getName();
+      if (name != null) {
+         user.attributes.setProperty(PerfCakeConst.MESSAGE_NAME_PROPERTY, name);
+      } else {
+         user.attributes.remove(PerfCakeConst.MESSAGE_NAME_PROPERTY);
+      }
+
+      final SenderTask task = newSenderTask();
+      task.setMessageStore(step);
+      task.setMessageSelector(null);
+      task.setInitialAttributes(user.attributes);
+      task.setResponseListener(user);
+
+      final Runnable stepTask = () -> {
+         try {
+            task.run();
+         } finally {
+            completeStep(user);
+         }
+      };
+
+      while (!handOff(stepTask)) {
+         if (!runInfo.isStarted()) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Moves the user to the next step and lets it think before the step.
+    *
+    * @param user
+    *       The user that completed a step.
+    */
+   private void completeStep(final VirtualUser user) {
+      user.step = user.step + 1;
+
+      if (user.step >= steps.size()) {
+         completedJourneys.increment();
+
+         if (!repeat) {
+            activeUsers.decrementAndGet();
+            return;
+         }
+
+         user.restart();
+      }
+
+      user.dueTime = System.nanoTime() + (long) (nextThinkTime() * 1_000_000);
+      idleUsers.add(user);
+   }
+
+   /**
+    * Gets a random think time according to the configured distribution.
+    *
+    * @return The think time in milliseconds.
+    */
+   double nextThinkTime() {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+      switch (thinkTimeDistribution) {
+         case UNIFORM:
+            return Math.max(0, thinkTime + (2 * random.nextDouble() - 1) * thinkTimeDeviation);
+         case EXPONENTIAL:
+            return -Math.log(1 - random.nextDouble()) * thinkTime;
+         case NORMAL:
+            return Math.max(0, thinkTime + random.nextGaussian() * thinkTimeDeviation);
+         case CONSTANT:
+         default:
+            return thinkTime;
+      }
+   }
+
+   /**
+    * A virtual user with its own message attributes waiting for its next step.
+    */
+   private class VirtualUser implements Delayed, BiConsumer<Serializable, Properties> {
+
+      /**
+       * The number of the user.
+       */
+      private final String id;
+
+      /**
+       * The message attributes kept between the steps.
+       */
+      private final Properties attributes = new Properties();
+
+      /**
+       * The index of the next step.
+       */
+      private int step = 0;
+
+      /**
+       * The time of the next step in nanoseconds.
+       */
+      private long dueTime;
+
+      /**
+       * Creates a new user.
+       *
+       * @param id
+       *       The number of the user.
+       */
+      private VirtualUser(final int id) {
+         this.id = String.valueOf(id);
+         restart();
+      }
+
+      /**
+       * Forgets the state of the previous journey.
+       */
+      private void restart() {
+         step = 0;
+         attributes.clear();
+         attributes.setProperty(PerfCakeConst.SESSION_ID_PROPERTY, id);
+      }
+
+      /**
+       * Extracts the values from the response and keeps the session state of the sender.
+       *
+       * @param response
+       *       The received response.
+       * @param stepAttributes
+       *       The message attributes of the step.
+       */
+      @Override
+      public void accept(final Serializable response, final Properties stepAttributes) {
+         final String cookies = stepAttributes.getProperty(PerfCakeConst.SESSION_COOKIES_PROPERTY);
+         if (cookies != null) {
+            attributes.setProperty(PerfCakeConst.SESSION_COOKIES_PROPERTY, cookies);
+         }
+
+         if (response != null && !extractors.isEmpty()) {
+            final String text = response.toString();
+
+            extractors.forEach((name, pattern) -> {
+               final Matcher matcher = pattern.matcher(text);
+               if (matcher.find()) {
+                  attributes.setProperty(name, matcher.groupCount() > 0 ? matcher.group(1) : matcher.group());
+               }
+            });
+         }
+      }
+
+      @Override
+      public long getDelay(final TimeUnit unit) {
+         return unit.convert(dueTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+      }
+
+      @Override
+      public int compareTo(final Delayed other) {
+         return Long.compare(dueTime, ((VirtualUser) other).dueTime);
+      }
+   }
+
+   /**
+    * Gets the number of virtual users that did not leave yet.
+    *
+    * @return The number of active users.
+    */
+   public int getActiveUsers() {
+      return activeUsers.get();
+   }
+
+   /**
+    * Gets the number of completed journeys.
+    *
+    * @return The number of completed journeys.
+    */
+   public long getCompletedJourneys() {
+      return completedJourneys.longValue();
+   }
+
+   /**
+    * Gets the number of virtual users.
+    *
+    * @return The number of virtual users.
+    */
+   public int getUsers() {
+      return users;
+   }
+
+   /**
+    * Sets the number of virtual users.
+    *
+    * @param users
+    *       The number of virtual users.
+    * @return Instance of this to support fluent API.
+    */
+   public JourneyMessageGenerator setUsers(final int users) {
+      this.users = users;
+      return this;
+   }
+
+   /**
+    * Gets the mean think time between two steps.
+    *
+    * @return The mean think time in milliseconds.
+    */
+   public double getThinkTime() {
+      return thinkTime;
+   }
+
+   /**
+    * Sets the mean think time between two steps.
+    *
+    * @param thinkTime
+    *       The mean think time in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public JourneyMessageGenerator setThinkTime(final double thinkTime) {
+      this.thinkTime = thinkTime;
+      return this;
+   }
+
+   /**
+    * Gets the distribution of the think time.
+    *
+    * @return The distribution of the think time.
+    */
+   public ThinkTime getThinkTimeDistribution() {
+      return thinkTimeDistribution;
+   }
+
+   /**
+    * Sets the distribution of the think time.
+    *
+    * @param thinkTimeDistribution
+    *       The distribution of the think time.
+    * @return Instance of this to support fluent API.
+    */
+   public JourneyMessageGenerator setThinkTimeDistribution(final ThinkTime thinkTimeDistribution) {
+      this.thinkTimeDistribution = thinkTimeDistribution;
+      return this;
+   }
+
+   /**
+    * Gets the deviation of the think time.
+    *
+    * @return The deviation of the think time in milliseconds.
+    */
+   public double getThinkTimeDeviation() {
+      return thinkTimeDeviation;
+   }
+
+   /**
+    * Sets the deviation of the think time. It is the maximal difference from the mean for the uniform distribution
+    * and the standard deviation for the normal distribution. It is not used by the other distributions.
+    *
+    * @param thinkTimeDeviation
+    *       The deviation of the think time in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public JourneyMessageGenerator setThinkTimeDeviation(final double thinkTimeDeviation) {
+      this.thinkTimeDeviation = thinkTimeDeviation;
+      return this;
+   }
+
+   /**
+    * Gets the time over which the users start their journeys.
+    *
+    * @return The ramp-up time in milliseconds, negative when the mean think time is used.
+    */
+   public long getRampUp() {
+      return rampUp;
+   }
+
+   /**
+    * Sets the time over which the users start their journeys. The users start evenly over this time.
+    *
+    * @param rampUp
+    *       The ramp-up time in milliseconds, negative to use the mean think time.
+    * @return Instance of this to support fluent API.
+    */
+   public JourneyMessageGenerator setRampUp(final long rampUp) {
+      this.rampUp = rampUp;
+      return this;
+   }
+
+   /**
+    * Gets whether the users start a new journey after they finish the previous one.
+    *
+    * @return True if and only if the users repeat their journeys.
+    */
+   public boolean isRepeat() {
+      return repeat;
+   }
+
+   /**
+    * Sets whether the users start a new journey after they finish the previous one. When disabled, the test ends
+    * once all the users finish their journeys.
+    *
+    * @param repeat
+    *       True to repeat the journeys.
+    * @return Instance of this to support fluent API.
+    */
+   public JourneyMessageGenerator setRepeat(final boolean repeat) {
+      this.repeat = repeat;
+      return this;
+   }
+
+   /**
+    * Gets the definition of the values extracted from the responses.
+    *
+    * @return The definition of the extracted values.
+    */
+   public String getExtract() {
+      return extract;
+   }
+
+   /**
+    * Sets the definition of the values extracted from the responses in the form of <code>name=regex;name2=regex2</code>.
+    * The first group of the regular expression (or the whole match when there is no group) found in a response is stored
+    * in the attribute of the given name of the user. Use <code>\x3B</code> for a semicolon in the regular expression.
+    *
+    * @param extract
+    *       The definition of the extracted values.
+    * @return Instance of this to support fluent API.
+    */
+   public JourneyMessageGenerator setExtract(final String extract) {
+      this.extract = extract;
+      return this;
+   }
+}
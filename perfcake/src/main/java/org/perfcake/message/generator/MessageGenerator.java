@@ -154,6 +154,50 @@ public interface MessageGenerator {
     */
    long getTasksInQueue();
 
+   /**
+    * Gets the percentage of time the generator spent waiting for free sender threads recently. The time a rate controlled generator
+    * spends waiting to keep the configured pace is not included. Values close to 100 mean that the sender threads cannot keep up
+    * with the generator, i.e. the tested system (or the number of threads) is the bottleneck. Values close to 0 mean that the sender
+    * threads took the tasks right away, which is expected for a paced generator and which means that the generator itself is not able
+    * to produce the load fast enough otherwise.
+    *
+    * @return The percentage of idle time of the generator, or -1 when the generator does not measure it.
+    */
+   default double getIdlePercentage() {
+      return -1;
+   }
+
+   /**
+    * Gets the number of sender tasks that were waiting in the sender task queue recently. The value is sampled by the generator
+    * once in a while. A queue that is empty most of the time while the generator is not idle means that the sender threads
+    * are starving and the generator limits the throughput.
+    *
+    * @return The number of sender tasks waiting in the queue, or -1 when the generator does not measure it.
+    */
+   default int getQueueDepth() {
+      return -1;
+   }
+
+   /**
+    * Gets the recent CPU usage of the thread generating the load. Values close to 100 mean that the generator thread
+    * fully occupies a CPU core and it is likely to limit the throughput.
+    *
+    * @return The CPU usage of the generator thread in percent of a single CPU core, or -1 when the generator does not measure it.
+    */
+   default double getCpuPercentage() {
+      return -1;
+   }
+
+   /**
+    * Tells whether the measurement units should carry the results showing whether the generator itself limits the throughput,
+    * i.e. the scheduling lag, the generator idle time, the queue depth, the generator CPU usage, the reporting backlog and the reporting lag.
+    *
+    * @return True if and only if the saturation results are attached to each measurement unit.
+    */
+   default boolean isReportSaturation() {
+      return false;
+   }
+
    /**
     * Sets a {@link Correlator} to match requests and responses when a separate message channel is used for receiving responses.
     * Null means that no correlator and no receiver is used.
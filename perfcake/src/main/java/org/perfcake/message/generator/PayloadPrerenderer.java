@@ -0,0 +1,356 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.PerfCakeConst;
+import org.perfcake.message.Message;
+import org.perfcake.message.MessageTemplate;
+import org.perfcake.message.WeightedMessageSelector;
+import org.perfcake.message.sequence.Sequence;
+import org.perfcake.message.sequence.SequenceManager;
+import org.perfcake.message.sequence.SequenceSnapshot;
+import org.perfcake.util.BoundedRing;
+import org.perfcake.util.Utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Renders the messages of the upcoming iterations in a background thread, so that the sender threads do not spend time
+ * on the templates. Each prepared iteration consists of a snapshot of the sequences, the selected messages rendered with it
+ * and their payloads already encoded to bytes (memory-mapped payloads are only resolved, they are never copied). The iterations wait in a bounded lock-free ring. When the ring is empty,
+ * the sender task renders the messages itself as usual.
+ *
+ * Messages using the {@link PerfCakeConst#ITERATION_NUMBER_PROPERTY} are always rendered in the sender thread as the iteration number
+ * is not known in advance. The same holds for the messages using sequences bound to the current thread or time (see {@link Sequence#isEager()}),
+ * these sequences are also published again by the sender thread when it takes the prepared iteration.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+class PayloadPrerenderer {
+
+   /**
+    * The prerenderer's logger.
+    */
+   private static final Logger log = LogManager.getLogger(PayloadPrerenderer.class);
+
+   /**
+    * How long the background thread waits when the ring is full.
+    */
+   private static final long FULL_RING_WAIT = TimeUnit.MICROSECONDS.toNanos(100);
+
+   /**
+    * All the messages in the scenario.
+    */
+   private final List<MessageTemplate> messageStore;
+
+   /**
+    * Selects the messages by their weights, null when all the messages are sent in each iteration.
+    */
+   private final WeightedMessageSelector messageSelector;
+
+   /**
+    * Provides the message attributes.
+    */
+   private final SequenceManager sequenceManager;
+
+   /**
+    * The ids of the sequences bound to the current thread or time, the messages using them are rendered in the sender thread.
+    */
+   private final List<String> eagerSequenceIds;
+
+   /**
+    * The iterations prepared to be sent.
+    */
+   private final BoundedRing<PreparedIteration> ring;
+
+   /**
+    * The character set used to encode the payloads.
+    */
+   private final Charset charset = Charset.forName(Utils.getDefaultEncoding());
+
+   /**
+    * The number of iterations taken from the ring.
+    */
+   private final LongAdder hits = new LongAdder();
+
+   /**
+    * The number of iterations that found the ring empty.
+    */
+   private final LongAdder misses = new LongAdder();
+
+   /**
+    * The background rendering thread, null when not running.
+    */
+   private Thread thread = null;
+
+   /**
+    * True while the background thread should keep rendering.
+    */
+   private volatile boolean running = false;
+
+   /**
+    * An iteration rendered in advance.
+    */
+   static class PreparedIteration {
+
+      /**
+       * The message attributes the messages were rendered with.
+       */
+      private final Properties attributes;
+
+      /**
+       * The messages selected for the iteration.
+       */
+      private final List<MessageTemplate> templates;
+
+      /**
+       * The rendered messages in the order of the templates, null for the messages to be rendered in the sender thread.
+       */
+      private final Message[] messages;
+
+      /**
+       * Creates a new prepared iteration.
+       *
+       * @param attributes
+       *       The message attributes.
+       * @param templates
+       *       The messages selected for the iteration.
+       */
+      private PreparedIteration(final Properties attributes, final List<MessageTemplate> templates) {
+         this.attributes = attributes;
+         this.templates = templates;
+         this.messages = new Message[templates.size()];
+      }
+
+      /**
+       * Gets the message attributes the messages were rendered with.
+       *
+       * @return The message attributes.
+       */
+      Properties getAttributes() {
+         return attributes;
+      }
+
+      /**
+       * Gets the messages selected for the iteration.
+       *
+       * @return The message templates.
+       */
+      List<MessageTemplate> getTemplates() {
+         return templates;
+      }
+
+      /**
+       * Gets the rendered message.
+       *
+       * @param index
+       *       The index of the message among {@link #getTemplates()}.
+       * @return The rendered message, or null when it must be rendered in the sender thread.
+       */
+      Message getMessage(final int index) {
+         return messages[index];
+      }
+   }
+
+   /**
+    * Creates a new prerenderer.
+    *
+    * @param messageStore
+    *       All the messages in the scenario.
+    * @param messageSelector
+    *       Selects the messages by their weights, null when all the messages are sent in each iteration.
+    * @param sequenceManager
+    *       Provides the message attributes, can be null.
+    * @param capacity
+    *       The maximal number of iterations prepared in advance.
+    */
+   PayloadPrerenderer(final List<MessageTemplate> messageStore, final WeightedMessageSelector messageSelector, final SequenceManager sequenceManager, final int capacity) {
+      this.messageStore = messageStore;
+      this.messageSelector = messageSelector;
+      this.sequenceManager = sequenceManager;
+      this.eagerSequenceIds = sequenceManager != null ? sequenceManager.getEagerSequenceIds() : Collections.emptyList();
+      this.ring = new BoundedRing<>(capacity);
+   }
+
+   /**
+    * Starts the background rendering thread unless it is already running.
+    */
+   synchronized void start() {
+      if (thread != null) {
+         return;
+      }
+
+      running = true;
+      thread = new Thread(this::renderLoop, "PerfCake-payload-prerenderer");
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   /**
+    * Stops the background rendering thread and forgets the prepared iterations.
+    *
+    * @throws InterruptedException
+    *       When interrupted while waiting for the thread to finish.
+    */
+   synchronized void stop() throws InterruptedException {
+      if (thread == null) {
+         return;
+      }
+
+      running = false;
+      LockSupport.unpark(thread);
+      thread.join();
+      thread = null;
+
+      while (ring.poll() != null) {
+         // the remaining iterations are never sent
+      }
+
+      if (log.isDebugEnabled()) {
+         log.debug(String.format("%d iterations were sent with pre-rendered messages, %d had to be rendered by the sender threads.", hits.longValue(), misses.longValue()));
+      }
+   }
+
+   /**
+    * Keeps filling the ring with prepared iterations. Waits when the ring is full.
+    */
+   private void renderLoop() {
+      PreparedIteration next = null;
+
+      while (running) {
+         if (next == null) {
+            try {
+               next = prepare();
+            } catch (final RuntimeException e) {
+               log.error("Unable to pre-render messages, the sender threads will render them: ", e);
+               running = false;
+               return;
+            }
+         }
+
+         if (ring.offer(next)) {
+            next = null;
+         } else {
+            LockSupport.parkNanos(FULL_RING_WAIT);
+         }
+      }
+   }
+
+   /**
+    * Prepares a single iteration.
+    *
+    * @return The prepared iteration.
+    */
+   private PreparedIteration prepare() {
+      final Properties attributes = sequenceManager != null ? sequenceManager.getSnapshot() : new Properties();
+      final PreparedIteration iteration = new PreparedIteration(attributes, SenderTask.selectMessages(messageStore, messageSelector, attributes));
+
+      for (int i = 0; i < iteration.messages.length; i++) {
+         final MessageTemplate template = iteration.templates.get(i);
+         if (canRenderInAdvance(template)) {
+            final Message message = template.getFilteredMessage(attributes);
+            if (message.getMappedPayload() == null) { // mapped payloads are written directly from the mapped region, never encoded
+               message.getEncodedPayload(charset);
+            }
+            iteration.messages[i] = message;
+         }
+      }
+
+      return iteration;
+   }
+
+   /**
+    * Checks whether the message can be rendered in the background thread, i.e. whether it does not depend on the iteration number,
+    * the sender thread or the time of sending.
+    *
+    * @param template
+    *       The message template.
+    * @return True if and only if the message can be rendered in advance.
+    */
+   private boolean canRenderInAdvance(final MessageTemplate template) {
+      if (template.usesAttribute(PerfCakeConst.ITERATION_NUMBER_PROPERTY)) {
+         return false;
+      }
+
+      for (final String id : eagerSequenceIds) {
+         if (template.usesAttribute(id)) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Takes the next prepared iteration. The sequences bound to the current thread or time are published again by the calling thread.
+    *
+    * @return The prepared iteration, or null when there is none ready.
+    */
+   PreparedIteration poll() {
+      final PreparedIteration iteration = ring.poll();
+      if (iteration == null) {
+         misses.increment();
+      } else {
+         hits.increment();
+
+         if (!eagerSequenceIds.isEmpty() && iteration.attributes instanceof SequenceSnapshot) {
+            ((SequenceSnapshot) iteration.attributes).republishEager();
+         }
+      }
+
+      return iteration;
+   }
+
+   /**
+    * Gets the number of iterations prepared in advance that wait to be sent.
+    *
+    * @return The number of prepared iterations.
+    */
+   int getReady() {
+      return ring.size();
+   }
+
+   /**
+    * Gets the number of iterations sent with pre-rendered messages.
+    *
+    * @return The number of iterations taken from the ring.
+    */
+   long getHits() {
+      return hits.longValue();
+   }
+
+   /**
+    * Gets the number of iterations whose messages had to be rendered in the sender thread because no prepared iteration was available.
+    *
+    * @return The number of iterations that found the ring empty.
+    */
+   long getMisses() {
+      return misses.longValue();
+   }
+}
@@ -29,9 +29,6 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Generates maximal load using a variable number of threads.
@@ -143,10 +140,15 @@ public class RampUpDownGenerator extends DefaultMessageGenerator {
       }
    }
 
+   @Override
+   protected int getInitialThreads() {
+      return preThreadCount > 0 ? preThreadCount : super.getThreads();
+   }
+
    @Override
    public void generate() throws Exception {
       log.info("Starting to generate...");
-      executorService = new ThreadPoolExecutor(preThreadCount, preThreadCount, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(getSenderTaskQueueSize()), new DaemonThreadFactory());
+      executorService = newExecutorService(preThreadCount);
       currentPhase = Phase.PRE;
       boolean phaseChanged = true;
       setThreads(preThreadCount);
@@ -243,11 +245,6 @@ public class RampUpDownGenerator extends DefaultMessageGenerator {
 
    }
 
-   private void resizeExecutorService(final int threads) throws InterruptedException {
-      executorService.setCorePoolSize(threads);
-      executorService.setMaximumPoolSize(threads);
-   }
-
    /**
     * Gets an initial number of threads - the number of threads in the {@link org.perfcake.message.generator.RampUpDownGenerator.Phase#PRE PRE} phase.
     *
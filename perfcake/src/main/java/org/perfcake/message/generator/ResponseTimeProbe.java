@@ -0,0 +1,163 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.common.PeriodType;
+import org.perfcake.reporting.MeasurementUnit;
+import org.perfcake.reporting.ReportingException;
+import org.perfcake.reporting.destination.Destination;
+import org.perfcake.reporting.reporter.AbstractReporter;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches the response times and failures of the sender tasks in consecutive intervals for the generators that control
+ * the load based on them, like {@link CapacitySearchGenerator} and {@link AdaptiveConcurrencyGenerator}.
+ * It is registered with the report manager by the generator, so it sees the same measurement units as any other reporter.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+class ResponseTimeProbe extends AbstractReporter {
+
+   /**
+    * The response times in microseconds.
+    */
+   private final Recorder recorder = new Recorder(3);
+
+   /**
+    * The number of reported measurement units in the current interval.
+    */
+   private final LongAdder completed = new LongAdder();
+
+   /**
+    * The number of reported measurement units in the current interval that started within the interval length.
+    */
+   private final LongAdder started = new LongAdder();
+
+   /**
+    * The number of failed sender tasks in the current interval.
+    */
+   private final LongAdder failed = new LongAdder();
+
+   /**
+    * The start of the current interval in nanoseconds, the measurement units started before are ignored.
+    */
+   private volatile long intervalStart = System.nanoTime();
+
+   /**
+    * The length of the current interval in nanoseconds, the measurement units started later are not counted as started in the interval.
+    */
+   private volatile long intervalLength = Long.MAX_VALUE;
+
+   @Override
+   protected void doReset() {
+      startInterval();
+   }
+
+   @Override
+   protected void doReport(final MeasurementUnit measurementUnit) throws ReportingException {
+      if (measurementUnit.getStartTime() - intervalStart < 0) { // a late result of the previous interval
+         return;
+      }
+
+      recorder.recordValue(Math.max(0, Math.round(measurementUnit.getTotalTime() * 1000)));
+      completed.increment();
+
+      if (measurementUnit.getStartTime() - intervalStart < intervalLength) {
+         started.increment();
+      }
+
+      if (measurementUnit.getFailure() != null) {
+         failed.increment();
+      }
+   }
+
+   @Override
+   protected boolean checkStart() {
+      return true; // there are no destinations, the generator reads the results directly
+   }
+
+   @Override
+   public void publishResult(final PeriodType periodType, final Destination destination) throws ReportingException {
+      // nothing to publish
+   }
+
+   /**
+    * Forgets all the results and starts a new interval.
+    */
+   void startInterval() {
+      startInterval(Long.MAX_VALUE);
+   }
+
+   /**
+    * Forgets all the results and starts a new interval of the given length. The measurement units started after the interval
+    * are still reported as completed but not as started in the interval.
+    *
+    * @param length
+    *       The length of the interval in nanoseconds.
+    */
+   void startInterval(final long length) {
+      intervalLength = length;
+      intervalStart = System.nanoTime();
+      recorder.reset();
+      completed.reset();
+      started.reset();
+      failed.reset();
+   }
+
+   /**
+    * Gets the number of measurement units reported in the current interval.
+    *
+    * @return The number of reported measurement units.
+    */
+   long getCompleted() {
+      return completed.longValue();
+   }
+
+   /**
+    * Gets the number of measurement units reported in the current interval that started within the interval length.
+    *
+    * @return The number of reported measurement units started within the interval length.
+    */
+   long getStarted() {
+      return started.longValue();
+   }
+
+   /**
+    * Gets the number of failed sender tasks in the current interval.
+    *
+    * @return The number of failed sender tasks.
+    */
+   long getFailed() {
+      return failed.longValue();
+   }
+
+   /**
+    * Gets the histogram of the response times recorded since the start of the current interval or since the last call to this method.
+    *
+    * @return The histogram of the response times in microseconds.
+    */
+   Histogram getHistogram() {
+      return recorder.getIntervalHistogram();
+   }
+}
@@ -23,14 +23,18 @@ import org.perfcake.PerfCakeConst;
 import org.perfcake.PerfCakeException;
 import org.perfcake.message.Message;
 import org.perfcake.message.MessageTemplate;
+import org.perfcake.message.WeightedMessageSelector;
 import org.perfcake.message.ReceivedMessage;
 import org.perfcake.message.correlator.Correlator;
+import org.perfcake.message.sender.AsyncMessageSender;
 import org.perfcake.message.sender.MessageSender;
 import org.perfcake.message.sender.MessageSenderManager;
 import org.perfcake.message.sequence.SequenceManager;
 import org.perfcake.reporting.MeasurementUnit;
 import org.perfcake.reporting.ReportManager;
 import org.perfcake.reporting.ReportingException;
+import org.perfcake.reporting.StandardResult;
+import org.perfcake.util.Utils;
 import org.perfcake.validation.ValidationManager;
 import org.perfcake.validation.ValidationTask;
 
@@ -38,11 +42,15 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.Serializable;
-import java.util.Iterator;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * Executes a single task of sending messages from the message store
@@ -76,6 +84,21 @@ public class SenderTask implements Runnable {
     */
    private List<MessageTemplate> messageStore;
 
+   /**
+    * Selects the messages to be sent in each iteration, null when all the messages from the message store are sent.
+    */
+   private WeightedMessageSelector messageSelector = null;
+
+   /**
+    * The attributes copied to the message attributes of the iteration before the sequence values are added, null when not used.
+    */
+   private Properties initialAttributes = null;
+
+   /**
+    * Gets notified of each received response together with the message attributes of the iteration, null when not used.
+    */
+   private BiConsumer<Serializable, Properties> responseListener = null;
+
    /**
     * Reference to a report manager.
     */
@@ -101,6 +124,11 @@ public class SenderTask implements Runnable {
     */
    private long enqueueTime = System.nanoTime();
 
+   /**
+    * The time when the task was supposed to be started according to the generator's schedule, -1 when the task is not scheduled.
+    */
+   private long intendedTime = -1;
+
    /**
     * Correlator to correlate message received from a separate channel.
     */
@@ -117,6 +145,41 @@ public class SenderTask implements Runnable {
     */
    private Semaphore waitForResponse;
 
+   /**
+    * Permits for the asynchronous requests in flight. When set, the messages are sent asynchronously without waiting for the responses.
+    */
+   private Semaphore asyncPermits = null;
+
+   /**
+    * The pool where this task returns after its measurement unit has been reported, null when the task is not recycled.
+    */
+   private Queue<SenderTask> recycledTasks = null;
+
+   /**
+    * Returns this task to the pool of recycled tasks.
+    */
+   private Runnable recycler = null;
+
+   /**
+    * The measurement unit that is reused by the recycled task.
+    */
+   private MeasurementUnit recycledUnit = null;
+
+   /**
+    * The message attributes that are reused by the recycled task.
+    */
+   private Properties recycledAttributes = null;
+
+   /**
+    * Provides the messages rendered in advance, null when the messages are rendered by the task.
+    */
+   private PayloadPrerenderer prerenderer = null;
+
+   /**
+    * The character set used to compute the request and response sizes in bytes.
+    */
+   private final Charset charset = Charset.forName(Utils.getDefaultEncoding());
+
    /**
     * Creates a new task to send a message.
     * There is a communication channel established that allows and requires the sender task to report the task completion and any possible error.
@@ -179,6 +242,158 @@ public class SenderTask implements Runnable {
       return result;
    }
 
+   /**
+    * Sends a message using an asynchronous sender. The measurement is stopped when the response is received.
+    *
+    * @param sender
+    *       The asynchronous sender.
+    * @param messageToSend
+    *       The template of the message being sent, null when there is no message.
+    * @param message
+    *       The message to be sent.
+    * @param messageAttributes
+    *       The message attributes.
+    * @param mu
+    *       The measurement unit of the current iteration.
+    * @return A future completed with the size of the response once it has been received and submitted for validation.
+    */
+   private CompletableFuture<Long> sendMessageAsync(final AsyncMessageSender sender, final MessageTemplate messageToSend, final Message message, final Properties messageAttributes, final MeasurementUnit mu) {
+      CompletableFuture<Serializable> response;
+
+      mu.startMeasure();
+      try {
+         response = sender.sendAsync(message, messageAttributes, mu).toCompletableFuture();
+      } catch (final Exception e) {
+         response = new CompletableFuture<>();
+         response.completeExceptionally(e);
+      }
+
+      return response.handle((result, throwable) -> {
+         mu.stopMeasure();
+
+         if (throwable != null) {
+            final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            final Exception e = cause instanceof Exception ? (Exception) cause : new PerfCakeException("Unable to send a message: ", cause);
+            mu.setFailure(e);
+            if (log.isErrorEnabled()) {
+               log.error("Unable to send a message: ", e);
+            }
+            reportSenderError(e);
+         }
+
+         final Serializable received = throwable == null ? result : null;
+         submitValidationTask(received, messageToSend, message, messageAttributes);
+
+         return Message.sizeOf(received, charset);
+      });
+   }
+
+   /**
+    * Sends all the messages of the current iteration using an asynchronous sender. The calling thread does not wait for the responses,
+    * the measurement unit is reported after the last response has been received. The sender is returned to the pool immediately
+    * as asynchronous senders are shared by all the requests in flight.
+    *
+    * @param mu
+    *       The measurement unit of the current iteration.
+    * @param messageAttributes
+    *       The message attributes.
+    * @param prepared
+    *       The iteration rendered in advance, null when the messages are rendered by this task.
+    * @throws PerfCakeException
+    *       When it was not possible to obtain a sender.
+    * @throws InterruptedException
+    *       When interrupted while waiting for a free slot in the in-flight window.
+    */
+   private void runAsync(final MeasurementUnit mu, final Properties messageAttributes, final PayloadPrerenderer.PreparedIteration prepared) throws PerfCakeException, InterruptedException {
+      asyncPermits.acquire();
+
+      CompletableFuture<Long> responseSize = CompletableFuture.completedFuture(0L);
+      long requestSize = 0;
+      try {
+         final AsyncMessageSender sender = (AsyncMessageSender) senderManager.acquireSender();
+         try {
+            final List<MessageTemplate> messages = prepared != null ? prepared.getTemplates() : selectMessages(messageAttributes);
+            if (!messages.isEmpty()) {
+               for (int m = 0; m < messages.size(); m++) {
+                  final MessageTemplate messageToSend = messages.get(m);
+                  final Message currentMessage = renderMessage(prepared, m, messageToSend, messageAttributes);
+                  final long multiplicity = messageToSend.getMultiplicity();
+                  requestSize = requestSize + (currentMessage.getPayloadSize(charset) * multiplicity);
+
+                  for (int i = 0; i < multiplicity; i++) { // the messages of a single iteration are sent one after another
+                     responseSize = responseSize.thenCompose(size -> sendMessageAsync(sender, messageToSend, currentMessage, messageAttributes, mu).thenApply(s -> size + s));
+                  }
+               }
+            } else {
+               responseSize = sendMessageAsync(sender, null, null, messageAttributes, mu);
+            }
+         } finally {
+            senderManager.releaseSender(sender);
+         }
+      } catch (RuntimeException | PerfCakeException e) {
+         asyncPermits.release();
+         throw e;
+      }
+
+      final long totalRequestSize = requestSize;
+      final Semaphore permits = asyncPermits; // the task can be recycled as soon as the measurement unit is reported
+      responseSize.whenComplete((size, throwable) -> {
+         try {
+            if (throwable != null) {
+               log.error("Error sending message: ", throwable);
+            }
+
+            mu.setResult(StandardResult.REQUEST_SIZE, totalRequestSize);
+            mu.setResult(StandardResult.RESPONSE_SIZE, size == null ? 0L : size);
+
+            reportManager.report(mu, recycler);
+         } catch (final ReportingException e) {
+            log.error("Error reporting results: ", e);
+         } finally {
+            permits.release();
+         }
+      });
+   }
+
+   /**
+    * Selects the messages to be sent in the current iteration. These are either all the messages in the message store,
+    * or a single group of messages chosen according to their weights. In the latter case, the name of the group is stored
+    * in the message attributes so that the results can be classified by it.
+    *
+    * @param messageAttributes
+    *       The message attributes.
+    * @return The messages to be sent in the current iteration.
+    */
+   private List<MessageTemplate> selectMessages(final Properties messageAttributes) {
+      return selectMessages(messageStore, messageSelector, messageAttributes);
+   }
+
+   /**
+    * Selects the messages to be sent in an iteration.
+    *
+    * @param messageStore
+    *       All the messages in the scenario.
+    * @param messageSelector
+    *       Selects the messages by their weights, null to send all the messages.
+    * @param messageAttributes
+    *       The message attributes.
+    * @return The messages to be sent in the iteration.
+    * @see #selectMessages(Properties)
+    */
+   static List<MessageTemplate> selectMessages(final List<MessageTemplate> messageStore, final WeightedMessageSelector messageSelector, final Properties messageAttributes) {
+      if (messageSelector == null) {
+         return messageStore;
+      }
+
+      final int group = messageSelector.nextIndex();
+      final String name = messageSelector.getName(group);
+      if (name != null) {
+         messageAttributes.setProperty(PerfCakeConst.MESSAGE_NAME_PROPERTY, name);
+      }
+
+      return messageSelector.getGroup(group);
+   }
+
    /**
     * Executes the scheduled sender task. This is supposed to be controlled by an enclosing thread.
     */
@@ -186,34 +401,44 @@ public class SenderTask implements Runnable {
    public void run() {
       assert messageStore != null && reportManager != null && validationManager != null && senderManager != null : "SenderTask was not properly initialized.";
 
-      final Properties messageAttributes = sequenceManager != null ? sequenceManager.getSnapshot() : new Properties();
+      final PayloadPrerenderer.PreparedIteration prepared = prerenderer != null && initialAttributes == null ? prerenderer.poll() : null;
+      final Properties messageAttributes = prepared != null ? prepared.getAttributes() : newMessageAttributes();
 
       MessageSender sender = null;
-      ReceivedMessage receivedMessage;
+      Serializable response;
       try {
-         final MeasurementUnit mu = reportManager.newMeasurementUnit();
+         final MeasurementUnit mu = newMeasurementUnit();
          long requestSize = 0;
          long responseSize = 0;
 
          if (mu != null) {
-            mu.setEnqueueTime(enqueueTime);
+            // the service time must be measured from the moment the iteration should have started
+            mu.setEnqueueTime(intendedTime != -1 ? intendedTime : enqueueTime);
 
             if (messageAttributes != null) {
-               mu.appendResult(PerfCakeConst.ATTRIBUTES_TAG, messageAttributes);
+               mu.setAttributes(messageAttributes);
                messageAttributes.put(PerfCakeConst.ITERATION_NUMBER_PROPERTY, String.valueOf(mu.getIteration()));
             }
-            mu.appendResult(PerfCakeConst.THREADS_TAG, reportManager.getRunInfo().getThreads());
+            mu.setResult(StandardResult.THREADS, reportManager.getRunInfo().getThreads());
+
+            if (messageGenerator.isReportSaturation()) {
+               setSaturationResults(mu);
+            }
+
+            if (asyncPermits != null && correlator == null) {
+               runAsync(mu, messageAttributes, prepared);
+               return;
+            }
 
             sender = senderManager.acquireSender();
 
-            final Iterator<MessageTemplate> iterator = messageStore.iterator();
-            if (iterator.hasNext()) {
-               while (iterator.hasNext()) {
+            final List<MessageTemplate> messages = prepared != null ? prepared.getTemplates() : selectMessages(messageAttributes);
+            if (!messages.isEmpty()) {
+               for (int m = 0; m < messages.size(); m++) {
 
-                  final MessageTemplate messageToSend = iterator.next();
-                  final Message currentMessage = messageToSend.getFilteredMessage(messageAttributes);
+                  final MessageTemplate messageToSend = messages.get(m);
+                  final Message currentMessage = renderMessage(prepared, m, messageToSend, messageAttributes);
                   final long multiplicity = messageToSend.getMultiplicity();
-                  requestSize = requestSize + (currentMessage.getPayload().toString().length() * multiplicity);
 
                   for (int i = 0; i < multiplicity; i++) {
                      if (correlator != null) {
@@ -221,19 +446,24 @@ public class SenderTask implements Runnable {
                         sendMessage(sender, currentMessage, messageAttributes, mu);
                         waitForResponse.acquire(); // the only line throwing InterruptedException here
                         mu.stopMeasure();
-                        receivedMessage = new ReceivedMessage(correlatedResponse, messageToSend, currentMessage, messageAttributes);
+                        response = correlatedResponse;
                      } else {
-                        receivedMessage = new ReceivedMessage(sendMessage(sender, currentMessage, messageAttributes, mu), messageToSend, currentMessage, messageAttributes);
+                        response = sendMessage(sender, currentMessage, messageAttributes, mu);
                      }
 
-                     if (receivedMessage.getResponse() != null) {
-                        responseSize = responseSize + receivedMessage.getResponse().toString().length();
+                     if (response != null) {
+                        responseSize = responseSize + Message.sizeOf(response, charset);
                      }
 
-                     if (validationManager.isEnabled()) {
-                        validationManager.submitValidationTask(new ValidationTask(Thread.currentThread().getName(), receivedMessage));
+                     if (responseListener != null) {
+                        responseListener.accept(response, messageAttributes);
                      }
+
+                     submitValidationTask(response, messageToSend, currentMessage, messageAttributes);
                   }
+
+                  // measured after sending to reuse the payload encoded by the sender
+                  requestSize = requestSize + (currentMessage.getPayloadSize(charset) * multiplicity);
                }
             } else {
                if (correlator != null) {
@@ -241,35 +471,36 @@ public class SenderTask implements Runnable {
                   log.error(error);
                   reportSenderError(new PerfCakeException(error));
                } else {
-                  receivedMessage = new ReceivedMessage(sendMessage(sender, null, messageAttributes, mu), null, null, messageAttributes);
+                  response = sendMessage(sender, null, messageAttributes, mu);
 
-                  if (receivedMessage.getResponse() != null) {
-                     responseSize = responseSize + receivedMessage.getResponse().toString().length();
+                  if (response != null) {
+                     responseSize = responseSize + Message.sizeOf(response, charset);
                   }
 
-                  if (validationManager.isEnabled()) {
-                     validationManager.submitValidationTask(new ValidationTask(Thread.currentThread().getName(), receivedMessage));
-                  }
+                  submitValidationTask(response, null, null, messageAttributes);
                }
             }
 
             senderManager.releaseSender(sender); // !!! important !!!
             sender = null;
 
-            mu.appendResult(PerfCakeConst.REQUEST_SIZE_TAG, requestSize);
-            mu.appendResult(PerfCakeConst.RESPONSE_SIZE_TAG, responseSize);
+            mu.setResult(StandardResult.REQUEST_SIZE, requestSize);
+            mu.setResult(StandardResult.RESPONSE_SIZE, responseSize);
 
-            reportManager.report(mu);
+            reportManager.report(mu, recycler); // the task can be recycled right after this call
          }
       } catch (RuntimeException | InterruptedException | PerfCakeException e) {
-         if (e instanceof InterruptedException) { // there is just one line of code that can throw this exception above
+         if (e instanceof InterruptedException) { // waiting for a response from a receiver or for a slot in the in-flight window
             if (interruptWarningDisplayed.getAndIncrement() == 0) {
-               log.warn("Test execution interrupted while waiting for a response message from a receiver.");
+               log.warn("Test execution interrupted while waiting for a response message from a receiver or for a free slot in the in-flight window.");
             }
          } else {
             log.error("Error sending message: ", e);
             reportSenderError(e);
          }
+      } catch (final Error e) { // the error is fatal, the executor replaces the sender thread
+         log.error("Unexpected error sending message: ", e);
+         throw e;
       } finally {
          if (sender != null) {
             senderManager.releaseSender(sender);
@@ -277,6 +508,110 @@ public class SenderTask implements Runnable {
       }
    }
 
+   /**
+    * Attaches the results showing whether the generator itself limits the throughput to the measurement unit.
+    *
+    * @param mu
+    *       The measurement unit of the current iteration with the enqueue time already set.
+    */
+   private void setSaturationResults(final MeasurementUnit mu) {
+      mu.setResult(StandardResult.SCHEDULE_LAG, (System.nanoTime() - mu.getEnqueueTime()) / 1_000_000d);
+
+      final double generatorIdle = messageGenerator.getIdlePercentage();
+      if (generatorIdle >= 0) {
+         mu.setResult(StandardResult.GENERATOR_IDLE, generatorIdle);
+      }
+
+      final int queueDepth = messageGenerator.getQueueDepth();
+      if (queueDepth >= 0) {
+         mu.setResult(StandardResult.QUEUE_DEPTH, queueDepth);
+      }
+
+      final double generatorCpu = messageGenerator.getCpuPercentage();
+      if (generatorCpu >= 0) {
+         mu.setResult(StandardResult.GENERATOR_CPU, generatorCpu);
+      }
+
+      mu.setResult(StandardResult.REPORTING_BACKLOG, reportManager.getReportingBacklog());
+      mu.setResult(StandardResult.REPORTING_LAG, reportManager.getReportingLag());
+   }
+
+   /**
+    * Gets the message to be sent, either rendered in advance or rendered right now.
+    *
+    * @param prepared
+    *       The iteration rendered in advance, null when the messages are rendered by this task.
+    * @param index
+    *       The index of the message in the current iteration.
+    * @param messageTemplate
+    *       The message template.
+    * @param messageAttributes
+    *       The message attributes.
+    * @return The rendered message.
+    */
+   private static Message renderMessage(final PayloadPrerenderer.PreparedIteration prepared, final int index, final MessageTemplate messageTemplate, final Properties messageAttributes) {
+      final Message message = prepared != null ? prepared.getMessage(index) : null;
+      return message != null ? message : messageTemplate.getFilteredMessage(messageAttributes);
+   }
+
+   /**
+    * Gets the message attributes for the current iteration. A recycled task reuses its attributes unless the validation is enabled
+    * because the validation tasks keep referencing the attributes after the iteration has been reported.
+    *
+    * @return The message attributes with the current snapshot of sequence values.
+    */
+   private Properties newMessageAttributes() {
+      if (initialAttributes != null) {
+         final Properties attributes = sequenceManager != null ? sequenceManager.getSnapshot() : new Properties();
+         attributes.putAll(initialAttributes);
+         return attributes;
+      }
+
+      if (recycledTasks == null || validationManager.isEnabled()) {
+         return sequenceManager != null ? sequenceManager.getSnapshot() : new Properties();
+      }
+
+      if (recycledAttributes == null) {
+         recycledAttributes = sequenceManager != null ? sequenceManager.getSnapshot() : new Properties();
+      } else {
+         recycledAttributes.clear(); // the sequences are published again lazily
+      }
+
+      return recycledAttributes;
+   }
+
+   /**
+    * Gets the measurement unit for the current iteration. A recycled task reuses its measurement unit.
+    *
+    * @return The measurement unit, or null if the measurement is not running.
+    */
+   private MeasurementUnit newMeasurementUnit() {
+      if (recycledTasks == null) {
+         return reportManager.newMeasurementUnit();
+      }
+
+      recycledUnit = reportManager.newMeasurementUnit(recycledUnit);
+      return recycledUnit;
+   }
+
+   /**
+    * Submits the received response for validation. Nothing is allocated when the validation is disabled.
+    *
+    * @param response
+    *       The received response.
+    * @param messageTemplate
+    *       The template of the message that was sent, null when there was no message.
+    * @param sentMessage
+    *       The message that was sent.
+    * @param messageAttributes
+    *       The message attributes.
+    */
+   private void submitValidationTask(final Serializable response, final MessageTemplate messageTemplate, final Message sentMessage, final Properties messageAttributes) {
+      if (validationManager.isEnabled()) {
+         validationManager.submitValidationTask(new ValidationTask(Thread.currentThread().getName(), new ReceivedMessage(response, messageTemplate, sentMessage, messageAttributes)));
+      }
+   }
+
    /**
     * Notifies the sender task of receiving a response from a separate message channel.
     * This is called from {@link org.perfcake.message.correlator.Correlator} when {@link org.perfcake.message.receiver.Receiver} is used.
@@ -309,6 +644,48 @@ public class SenderTask implements Runnable {
       this.messageStore = messageStore;
    }
 
+   /**
+    * Configures the selector of the messages to be sent in each iteration.
+    *
+    * @param messageSelector
+    *       The selector to be used by the sender task, null to send all the messages from the message store.
+    */
+   protected void setMessageSelector(final WeightedMessageSelector messageSelector) {
+      this.messageSelector = messageSelector;
+   }
+
+   /**
+    * Sets the attributes that are copied to the message attributes of the iteration. The sequence values are added to the copy.
+    * This allows to keep a state between iterations without sharing the message attributes with the reporters.
+    *
+    * @param initialAttributes
+    *       The attributes to be copied, null to start with empty message attributes.
+    */
+   protected void setInitialAttributes(final Properties initialAttributes) {
+      this.initialAttributes = initialAttributes;
+   }
+
+   /**
+    * Configures the source of the messages rendered in advance. The prerenderer is not used when the initial attributes are set.
+    *
+    * @param prerenderer
+    *       The prerenderer, null to render the messages in the sender task.
+    */
+   protected void setPrerenderer(final PayloadPrerenderer prerenderer) {
+      this.prerenderer = prerenderer;
+   }
+
+   /**
+    * Sets the listener that gets notified of each received response together with the message attributes of the iteration.
+    * The listener is called in the sender thread before the response is submitted for validation. Asynchronous sending does not call the listener.
+    *
+    * @param responseListener
+    *       The listener, null when not needed.
+    */
+   protected void setResponseListener(final BiConsumer<Serializable, Properties> responseListener) {
+      this.responseListener = responseListener;
+   }
+
    /**
     * Configures a {@link org.perfcake.reporting.ReportManager} for the sender task.
     *
@@ -346,7 +723,62 @@ public class SenderTask implements Runnable {
     *       The correlator to be used.
     */
    public void setCorrelator(final Correlator correlator) {
-      waitForResponse = new Semaphore(0);
+      if (correlator != null && waitForResponse == null) {
+         waitForResponse = new Semaphore(0);
+      }
       this.correlator = correlator;
    }
+
+   /**
+    * Sets the permits for the asynchronous requests in flight. When set and the task does not use a correlator,
+    * the messages are sent asynchronously using {@link AsyncMessageSender#sendAsync(Message, Properties, MeasurementUnit)}.
+    *
+    * @param asyncPermits
+    *       The permits limiting the number of requests in flight, null to send the messages synchronously.
+    */
+   protected void setAsyncPermits(final Semaphore asyncPermits) {
+      this.asyncPermits = asyncPermits;
+   }
+
+   /**
+    * Sets the pool where this task returns after its measurement unit has been reported. The task then reuses its measurement unit
+    * and message attributes in the next iteration. The task must be prepared for the next iteration by {@link #reset()}.
+    *
+    * @param recycledTasks
+    *       The pool of the recycled tasks, null to disable recycling.
+    */
+   protected void setRecycledTasks(final Queue<SenderTask> recycledTasks) {
+      this.recycledTasks = recycledTasks;
+      recycler = recycledTasks == null ? null : () -> recycledTasks.offer(this);
+   }
+
+   /**
+    * Prepares a recycled task for another iteration.
+    */
+   protected void reset() {
+      enqueueTime = System.nanoTime();
+      intendedTime = -1;
+      correlatedResponse = null;
+   }
+
+   /**
+    * Sets the time when the task was supposed to start according to the generator's schedule.
+    * The service time of the iteration is then measured from this time instead of the enqueue time
+    * and the schedule lag is reported as part of the measurement unit.
+    *
+    * @param intendedTime
+    *       The intended start time in nanoseconds as obtained from {@link System#nanoTime()}.
+    */
+   protected void setIntendedTime(final long intendedTime) {
+      this.intendedTime = intendedTime;
+   }
+
+   /**
+    * Gets the time when the task was supposed to start according to the generator's schedule.
+    *
+    * @return The intended start time in nanoseconds, -1 when the task is not scheduled.
+    */
+   protected long getIntendedTime() {
+      return intendedTime;
+   }
 }
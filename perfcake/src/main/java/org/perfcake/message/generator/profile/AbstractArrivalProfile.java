@@ -0,0 +1,211 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator.profile;
+
+import org.perfcake.PerfCakeException;
+import org.perfcake.common.Period;
+import org.perfcake.util.ObjectFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * Facilitates development of stochastic arrival profiles. The profile source is a list of the profile properties
+ * in the format <code>&lt;name&gt;=&lt;value&gt;;&lt;name&gt;=&lt;value&gt;...</code>, e.g. <code>rate=1000;seed=42</code>.
+ * Common properties are the mean rate in messages per second, the number of threads (keeps the generator's setting when not specified)
+ * and the seed of the random number generator. When the seed is not specified, a random one is used and logged, so that the test
+ * can be reproduced.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public abstract class AbstractArrivalProfile implements ArrivalProfile {
+
+   /**
+    * The profile's logger.
+    */
+   private static final Logger log = LogManager.getLogger(AbstractArrivalProfile.class);
+
+   /**
+    * The mean rate of the messages in messages per second.
+    */
+   private double rate = 100;
+
+   /**
+    * The number of threads, -1 keeps the setting of the generator.
+    */
+   private int threads = -1;
+
+   /**
+    * The seed of the random number generator, null for a random seed.
+    */
+   private Long seed = null;
+
+   /**
+    * The random number generator.
+    */
+   private SplittableRandom random;
+
+   /**
+    * The profile request returned for all periods.
+    */
+   private ProfileRequest request;
+
+   @Override
+   public void init(final String profileSource) throws PerfCakeException {
+      if (profileSource != null) {
+         final Properties properties = new Properties();
+
+         for (final String item : profileSource.split(";")) {
+            if (!item.trim().isEmpty()) {
+               final String[] pair = item.split("=", 2);
+               if (pair.length != 2) {
+                  throw new PerfCakeException(String.format("Invalid profile property '%s' in %s, the expected format is <name>=<value>.", item, getClass().getSimpleName()));
+               }
+               properties.setProperty(pair[0].trim(), pair[1].trim());
+            }
+         }
+
+         try {
+            ObjectFactory.setPropertiesOnObject(this, properties);
+         } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new PerfCakeException("Unable to configure " + getClass().getSimpleName() + ": ", e);
+         }
+      }
+
+      if (!(rate > 0)) {
+         throw new PerfCakeException("The rate of " + getClass().getSimpleName() + " must be a positive number.");
+      }
+
+      if (seed == null) {
+         seed = System.nanoTime();
+      }
+      log.info(String.format("%s uses seed %d.", getClass().getSimpleName(), seed));
+      random = new SplittableRandom(seed);
+      request = new ProfileRequest(threads, rate);
+
+      doInit();
+   }
+
+   /**
+    * Validates the profile properties and initializes the arrival process.
+    *
+    * @throws PerfCakeException
+    *       When the profile is not configured correctly.
+    */
+   protected void doInit() throws PerfCakeException {
+   }
+
+   @Override
+   public void setAutoReplay(final boolean autoReplay) {
+      // the arrival processes do not end
+   }
+
+   @Override
+   public ProfileRequest getProfile(final Period period) {
+      return request;
+   }
+
+   /**
+    * Draws an exponentially distributed interval, i.e. the interval between two arrivals of a Poisson process.
+    *
+    * @param rate
+    *       The rate of the Poisson process in messages per second.
+    * @return The interval in nanoseconds.
+    */
+   protected double exponential(final double rate) {
+      return -Math.log(1d - random.nextDouble()) * 1_000_000_000d / rate;
+   }
+
+   /**
+    * Gets a uniformly distributed random number from the interval [0, 1).
+    *
+    * @return The random number.
+    */
+   protected double uniform() {
+      return random.nextDouble();
+   }
+
+   /**
+    * Gets the mean rate of the messages.
+    *
+    * @return The mean rate in messages per second.
+    */
+   public double getRate() {
+      return rate;
+   }
+
+   /**
+    * Sets the mean rate of the messages.
+    *
+    * @param rate
+    *       The mean rate in messages per second.
+    * @return Instance of this to support fluent API.
+    */
+   public AbstractArrivalProfile setRate(final double rate) {
+      this.rate = rate;
+      return this;
+   }
+
+   /**
+    * Gets the number of threads.
+    *
+    * @return The number of threads, -1 when the setting of the generator is kept.
+    */
+   public int getThreads() {
+      return threads;
+   }
+
+   /**
+    * Sets the number of threads.
+    *
+    * @param threads
+    *       The number of threads, -1 to keep the setting of the generator.
+    * @return Instance of this to support fluent API.
+    */
+   public AbstractArrivalProfile setThreads(final int threads) {
+      this.threads = threads;
+      return this;
+   }
+
+   /**
+    * Gets the seed of the random number generator.
+    *
+    * @return The seed, null before initialization when no seed was set.
+    */
+   public Long getSeed() {
+      return seed;
+   }
+
+   /**
+    * Sets the seed of the random number generator. The same seed produces the same sequence of intervals.
+    *
+    * @param seed
+    *       The seed.
+    * @return Instance of this to support fluent API.
+    */
+   public AbstractArrivalProfile setSeed(final Long seed) {
+      this.seed = seed;
+      return this;
+   }
+}
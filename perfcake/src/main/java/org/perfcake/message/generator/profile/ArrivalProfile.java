@@ -0,0 +1,38 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator.profile;
+
+/**
+ * A message generation profile that follows an arrival process. Besides the mean speed provided in {@link #getProfile(org.perfcake.common.Period)},
+ * it decides about the interval between each two consecutive messages.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public interface ArrivalProfile extends Profile {
+
+   /**
+    * Gets the interval between the message that has just been sent and the next message.
+    *
+    * @param time
+    *       The time elapsed since the start of the test in nanoseconds.
+    * @return The interval to the next message in nanoseconds.
+    */
+   double nextInterval(final long time);
+}
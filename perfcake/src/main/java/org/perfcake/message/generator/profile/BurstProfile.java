@@ -0,0 +1,167 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator.profile;
+
+import org.perfcake.PerfCakeException;
+
+/**
+ * Generates the messages as a Markov-modulated Poisson process with two states. In the calm state, the messages arrive
+ * as a Poisson process of the calm rate, in the burst state, they arrive as a Poisson process of the burst rate. The durations of both the states
+ * are exponentially distributed with the given means. The rate is the mean rate over both the states like for the other profiles,
+ * the calm rate is derived from it so that the bursts together with the calm periods keep the mean rate.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class BurstProfile extends AbstractArrivalProfile {
+
+   /**
+    * The rate of the messages during a burst in messages per second.
+    */
+   private double burstRate = 1000;
+
+   /**
+    * The mean duration of a burst in milliseconds.
+    */
+   private double burstDuration = 100;
+
+   /**
+    * The mean duration of the calm state between the bursts in milliseconds.
+    */
+   private double calmDuration = 1000;
+
+   /**
+    * The rate of the messages in the calm state in messages per second.
+    */
+   private double calmRate;
+
+   /**
+    * True iff we are in the burst state.
+    */
+   private boolean inBurst = false;
+
+   /**
+    * The time of the next state change in nanoseconds since the start of the test.
+    */
+   private double nextSwitch = -1;
+
+   @Override
+   protected void doInit() throws PerfCakeException {
+      if (!(burstRate > 0) || !(burstDuration > 0) || !(calmDuration > 0)) {
+         throw new PerfCakeException("The burst rate and the durations of " + getClass().getSimpleName() + " must be positive numbers.");
+      }
+
+      calmRate = (getRate() * (calmDuration + burstDuration) - burstRate * burstDuration) / calmDuration;
+      if (!(calmRate > 0)) {
+         throw new PerfCakeException(String.format("The bursts of %s alone exceed the mean rate %.3f, increase the rate or lower the burst rate or duration.",
+               getClass().getSimpleName(), getRate()));
+      }
+   }
+
+   @Override
+   public double nextInterval(final long time) {
+      if (nextSwitch < 0) {
+         nextSwitch = time + exponential(1000d / calmDuration);
+      }
+
+      // the intervals are memoryless, so we can draw a new one from the state change
+      double arrival = time;
+      double interval = exponential(inBurst ? burstRate : calmRate);
+      while (arrival + interval > nextSwitch) {
+         arrival = nextSwitch;
+         inBurst = !inBurst;
+         nextSwitch = nextSwitch + exponential(1000d / (inBurst ? burstDuration : calmDuration));
+         interval = exponential(inBurst ? burstRate : calmRate);
+      }
+
+      return arrival + interval - time;
+   }
+
+   /**
+    * Gets the rate of the messages in the calm state derived from the mean rate.
+    *
+    * @return The calm rate in messages per second, valid after initialization.
+    */
+   public double getCalmRate() {
+      return calmRate;
+   }
+
+   /**
+    * Gets the rate of the messages during a burst.
+    *
+    * @return The burst rate in messages per second.
+    */
+   public double getBurstRate() {
+      return burstRate;
+   }
+
+   /**
+    * Sets the rate of the messages during a burst.
+    *
+    * @param burstRate
+    *       The burst rate in messages per second.
+    * @return Instance of this to support fluent API.
+    */
+   public BurstProfile setBurstRate(final double burstRate) {
+      this.burstRate = burstRate;
+      return this;
+   }
+
+   /**
+    * Gets the mean duration of a burst.
+    *
+    * @return The mean duration of a burst in milliseconds.
+    */
+   public double getBurstDuration() {
+      return burstDuration;
+   }
+
+   /**
+    * Sets the mean duration of a burst.
+    *
+    * @param burstDuration
+    *       The mean duration of a burst in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public BurstProfile setBurstDuration(final double burstDuration) {
+      this.burstDuration = burstDuration;
+      return this;
+   }
+
+   /**
+    * Gets the mean duration of the calm state between the bursts.
+    *
+    * @return The mean duration of the calm state in milliseconds.
+    */
+   public double getCalmDuration() {
+      return calmDuration;
+   }
+
+   /**
+    * Sets the mean duration of the calm state between the bursts.
+    *
+    * @param calmDuration
+    *       The mean duration of the calm state in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public BurstProfile setCalmDuration(final double calmDuration) {
+      this.calmDuration = calmDuration;
+      return this;
+   }
+}
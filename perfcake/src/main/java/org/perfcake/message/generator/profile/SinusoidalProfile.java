@@ -0,0 +1,170 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator.profile;
+
+import org.perfcake.PerfCakeException;
+
+/**
+ * Generates the messages with a rate following a sine wave around the mean rate, e.g. to simulate a daily traffic pattern
+ * in a compressed time. By default, the messages arrive as a non-homogeneous Poisson process (generated by thinning),
+ * they can also be sent in regular intervals following the current rate.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class SinusoidalProfile extends AbstractArrivalProfile {
+
+   /**
+    * The amplitude of the rate in messages per second, must not be larger than the mean rate.
+    */
+   private double amplitude = 50;
+
+   /**
+    * The period of the sine wave in milliseconds.
+    */
+   private long period = 86_400_000;
+
+   /**
+    * The phase shift of the sine wave in milliseconds.
+    */
+   private long phase = 0;
+
+   /**
+    * True iff the messages arrive as a Poisson process, false for regular intervals.
+    */
+   private boolean poisson = true;
+
+   @Override
+   protected void doInit() throws PerfCakeException {
+      if (amplitude < 0 || amplitude > getRate() || period <= 0) {
+         throw new PerfCakeException("The amplitude of " + getClass().getSimpleName() + " must be between 0 and the rate, and the period must be a positive number.");
+      }
+   }
+
+   /**
+    * Gets the rate at the given time.
+    *
+    * @param time
+    *       The time since the start of the test in nanoseconds.
+    * @return The rate in messages per second.
+    */
+   public double getRateAt(final double time) {
+      return getRate() + amplitude * Math.sin(2 * Math.PI * (time / 1_000_000d + phase) / period);
+   }
+
+   @Override
+   public double nextInterval(final long time) {
+      if (!poisson) {
+         return 1_000_000_000d / Math.max(getRateAt(time), getRate() / 1000d); // do not stop completely for a zero rate
+      }
+
+      // thinning - draw arrivals with the maximal rate and accept them with the probability of current rate / maximal rate
+      final double maxRate = getRate() + amplitude;
+      double arrival = time;
+      do {
+         arrival = arrival + exponential(maxRate);
+      } while (uniform() * maxRate > getRateAt(arrival));
+
+      return arrival - time;
+   }
+
+   /**
+    * Gets the amplitude of the rate.
+    *
+    * @return The amplitude in messages per second.
+    */
+   public double getAmplitude() {
+      return amplitude;
+   }
+
+   /**
+    * Sets the amplitude of the rate. It must not be larger than the mean rate.
+    *
+    * @param amplitude
+    *       The amplitude in messages per second.
+    * @return Instance of this to support fluent API.
+    */
+   public SinusoidalProfile setAmplitude(final double amplitude) {
+      this.amplitude = amplitude;
+      return this;
+   }
+
+   /**
+    * Gets the period of the sine wave.
+    *
+    * @return The period in milliseconds.
+    */
+   public long getPeriod() {
+      return period;
+   }
+
+   /**
+    * Sets the period of the sine wave. The default is one day.
+    *
+    * @param period
+    *       The period in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public SinusoidalProfile setPeriod(final long period) {
+      this.period = period;
+      return this;
+   }
+
+   /**
+    * Gets the phase shift of the sine wave.
+    *
+    * @return The phase shift in milliseconds.
+    */
+   public long getPhase() {
+      return phase;
+   }
+
+   /**
+    * Sets the phase shift of the sine wave, e.g. to start the test at the rate peak.
+    *
+    * @param phase
+    *       The phase shift in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public SinusoidalProfile setPhase(final long phase) {
+      this.phase = phase;
+      return this;
+   }
+
+   /**
+    * Gets whether the messages arrive as a Poisson process.
+    *
+    * @return True if and only if the messages arrive as a Poisson process, false for regular intervals.
+    */
+   public boolean isPoisson() {
+      return poisson;
+   }
+
+   /**
+    * Sets whether the messages arrive as a Poisson process.
+    *
+    * @param poisson
+    *       True if and only if the messages should arrive as a Poisson process, false for regular intervals.
+    * @return Instance of this to support fluent API.
+    */
+   public SinusoidalProfile setPoisson(final boolean poisson) {
+      this.poisson = poisson;
+      return this;
+   }
+}
@@ -94,6 +94,20 @@ public abstract class AbstractSender implements MessageSender {
       }
    }
 
+   /**
+    * Makes sure the message can be sent by a sender that only transfers text payloads.
+    *
+    * @param message
+    *       Message to be sent.
+    * @throws PerfCakeException
+    *       When the message carries a binary payload.
+    */
+   protected void checkTextPayload(final Message message) throws PerfCakeException {
+      if (message != null && message.isBinary()) {
+         throw new PerfCakeException(String.format("%s cannot send binary messages, use a sender supporting binary payloads or remove the binary attribute of the message.", getClass().getSimpleName()));
+      }
+   }
+
    /**
     * Actually performs the send operation. Should be overridden by specific implementations.
     *
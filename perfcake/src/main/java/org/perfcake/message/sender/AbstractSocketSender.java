@@ -123,6 +123,7 @@ public abstract class AbstractSocketSender extends AbstractSender {
 
    @Override
    public void preSend(final Message message, final Properties messageAttributes) throws Exception {
+      checkTextPayload(message);
       super.preSend(message, messageAttributes);
       openSocket();
       openStreams();
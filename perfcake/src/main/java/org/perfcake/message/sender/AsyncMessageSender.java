@@ -0,0 +1,67 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.sender;
+
+import org.perfcake.message.Message;
+import org.perfcake.reporting.MeasurementUnit;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * An optional contract of a message sender that is able to send messages without blocking the calling thread.
+ *
+ * When the generator is configured with an in-flight window (see {@link org.perfcake.message.generator.DefaultMessageGenerator#setAsyncWindow(int)}),
+ * a single sender instance is shared by many requests in flight at the same time. The sender must therefore be thread-safe and
+ * it must not keep any per-request state in its fields. For the same reason, {@link #preSend(Message, Properties)} and {@link #postSend(Message)}
+ * are not called for the asynchronous requests and {@link #sendAsync(Message, Properties, MeasurementUnit)} must do all the work needed.
+ *
+ * The measurement of the request is stopped once the returned completion stage is completed.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public interface AsyncMessageSender extends MessageSender {
+
+   /**
+    * Gets whether the sender is able to send messages asynchronously in its current configuration.
+    * When false, the sender is used in the standard blocking way.
+    *
+    * @return True if and only if the asynchronous sending can be used.
+    */
+   default boolean isAsyncSupported() {
+      return true;
+   }
+
+   /**
+    * Sends a message without waiting for the response.
+    *
+    * @param message
+    *       Message to be sent.
+    * @param messageAttributes
+    *       Attributes that can be used to replace placeholders in message and or target.
+    * @param measurementUnit
+    *       Measurement unit that carries the current send iteration information.
+    * @return A completion stage that is completed with the received response, or completed exceptionally when the send operation failed.
+    * @throws java.lang.Exception
+    *       When it was not possible to start the send operation.
+    */
+   CompletionStage<Serializable> sendAsync(final Message message, final Properties messageAttributes, final MeasurementUnit measurementUnit) throws Exception;
+}
@@ -20,11 +20,15 @@
 package org.perfcake.message.sender;
 
 import org.perfcake.PerfCakeException;
+import org.perfcake.message.MappedContent;
 import org.perfcake.message.Message;
 
+import java.io.IOException;
+import java.io.Serializable;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.Charset;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Properties;
 
 /**
@@ -64,22 +68,54 @@ public abstract class ChannelSender extends AbstractSender {
    public void preSend(final Message message, final Properties messageAttributes) throws Exception {
       super.preSend(message, messageAttributes);
 
-      // Encode message payload into buffer
-      if (message != null && message.getPayload() != null) {
-         final CharBuffer c = CharBuffer.wrap(message.getPayload().toString());
-         final Charset charset = Charset.forName("UTF-8");
-         messageBuffer = charset.encode(c);
-      } else {
-         messageBuffer = null;
-      }
+      // Wrap the message payload into buffer, binary and mapped payloads are not copied
+      messageBuffer = message == null ? null : message.getPayloadBuffer(StandardCharsets.UTF_8);
 
-      if (maxResponseSize == -1 && messageBuffer == null) {
+      if (!awaitResponse || (maxResponseSize == -1 && messageBuffer == null)) {
          responseBuffer = null;
       } else {
          responseBuffer = ByteBuffer.allocate(maxResponseSize == -1 ? messageBuffer.capacity() : maxResponseSize);
       }
    }
 
+   /**
+    * Writes the message buffer to the channel. Memory-mapped payloads are transferred directly from the file system cache.
+    *
+    * @param message
+    *       The message being sent.
+    * @param channel
+    *       The channel to write to.
+    * @throws IOException
+    *       When it was not possible to write to the channel.
+    */
+   protected void writeMessage(final Message message, final WritableByteChannel channel) throws IOException {
+      final MappedContent mapped = message != null ? message.getMappedPayload() : null;
+
+      if (mapped != null) {
+         mapped.transferTo(channel);
+      } else {
+         while (messageBuffer.hasRemaining()) {
+            channel.write(messageBuffer);
+         }
+      }
+   }
+
+   /**
+    * Gets the response read into the response buffer. The response to a binary message is returned as a byte array
+    * of the received bytes, otherwise the whole buffer is decoded as a string in UTF-8.
+    *
+    * @param message
+    *       The message that was sent.
+    * @return The response.
+    */
+   protected Serializable getResponse(final Message message) {
+      if (message != null && message.isBinary()) {
+         return Arrays.copyOf(responseBuffer.array(), responseBuffer.position());
+      }
+
+      return new String(responseBuffer.array(), StandardCharsets.UTF_8);
+   }
+
    @Override
    public void postSend(final Message message) throws Exception {
       super.postSend(message);
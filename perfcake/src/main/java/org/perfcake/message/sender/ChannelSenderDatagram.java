@@ -28,7 +28,6 @@ import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.channels.DatagramChannel;
-import java.nio.charset.Charset;
 import java.util.Properties;
 
 /**
@@ -85,7 +84,7 @@ public class ChannelSenderDatagram extends ChannelSender {
                } catch (final IOException e) {
                   throw new PerfCakeException("Problem while reading from the datagram channel: ", e);
                }
-               return new String(responseBuffer.array(), Charset.forName("UTF-8"));
+               return getResponse(message);
             } else {
                throw new PerfCakeException("Cannot read response with automatic buffer size configuration for an empty message.");
             }
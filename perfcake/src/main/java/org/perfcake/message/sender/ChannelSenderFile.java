@@ -27,7 +27,6 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.channels.FileChannel;
-import java.nio.charset.Charset;
 import java.util.Properties;
 
 /**
@@ -61,12 +60,12 @@ public class ChannelSenderFile extends ChannelSender {
    @Override
    public Serializable doSend(final Message message, final MeasurementUnit measurementUnit) throws Exception {
       if (messageBuffer != null) {
-         fileChannel.write(messageBuffer);
+         writeMessage(message, fileChannel);
 
          if (awaitResponse) {
             if (responseBuffer != null) {
                fileChannel.read(responseBuffer);
-               return new String(responseBuffer.array(), Charset.forName("UTF-8"));
+               return getResponse(message);
             } else {
                throw new PerfCakeException("Cannot read response with automatic buffer size configuration for an empty message.");
             }
@@ -28,7 +28,6 @@ import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
-import java.nio.charset.Charset;
 import java.util.Properties;
 
 /**
@@ -80,9 +79,7 @@ public class ChannelSenderSocket extends ChannelSender {
       if (messageBuffer != null) {
          // write the message into channel
          try {
-            while (messageBuffer.hasRemaining()) {
-               socketChannel.write(messageBuffer);
-            }
+            writeMessage(message, socketChannel);
          } catch (final IOException e) {
             throw new PerfCakeException("Problem while writing to the socket channel: ", e);
          }
@@ -96,7 +93,7 @@ public class ChannelSenderSocket extends ChannelSender {
                   throw new PerfCakeException("Problem while reading from the socket channel: ", e);
                }
 
-               return new String(responseBuffer.array(), Charset.forName("UTF-8"));
+               return getResponse(message);
             } else {
                throw new PerfCakeException("Cannot read response with automatic buffer size configuration for an empty message.");
             }
@@ -95,6 +95,9 @@ public class CoapSender extends AbstractSender {
 
    @Override
    public void preSend(final Message message, final Properties messageAttributes) throws Exception {
+      if (method == CoapMethod.POST || method == CoapMethod.PUT) {
+         checkTextPayload(message);
+      }
       super.preSend(message, messageAttributes);
    }
 
@@ -19,19 +19,29 @@
  */
 package org.perfcake.message.sender;
 
+import org.perfcake.PerfCakeConst;
 import org.perfcake.PerfCakeException;
+import org.perfcake.message.MappedContent;
 import org.perfcake.message.Message;
 import org.perfcake.reporting.MeasurementUnit;
 import org.perfcake.util.StringTemplate;
 import org.perfcake.util.Utils;
 
+import io.netty.buffer.Unpooled;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpMethod;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
@@ -39,21 +49,32 @@ import java.net.HttpCookie;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * Sends messages via HTTP protocol.
  *
+ * When used asynchronously (see {@link AsyncMessageSender}), each sender instance uses its own event loop thread and a pool of HTTP connections.
+ * Asynchronous requests require the connection to be kept and they do not support storing cookies as the cookies are bound to the sending thread.
+ *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
-public class HttpSender extends AbstractSender {
+public class HttpSender extends AbstractSender implements AsyncMessageSender {
 
    /**
     * The sender's logger.
@@ -95,6 +116,16 @@ public class HttpSender extends AbstractSender {
       GET, POST, HEAD, OPTIONS, PUT, DELETE, TRACE
    }
 
+   /**
+    * All the HTTP methods to look up the dynamic method without creating new arrays.
+    */
+   private static final Method[] METHODS = Method.values();
+
+   /**
+    * The buffers of the individual threads to render the dynamic method to. The asynchronous requests can be sent from multiple threads at once.
+    */
+   private static final ThreadLocal<StringBuilder> dynamicMethodBuffers = ThreadLocal.withInitial(StringBuilder::new);
+
    /**
     * The list of response codes that are expected to be returned by HTTP response.
     */
@@ -121,15 +152,60 @@ public class HttpSender extends AbstractSender {
    private static ThreadLocal<CookieManager> localCookieManager = new ThreadLocal<>();
 
    /**
-    * The request payload.
+    * The message attributes of the current request when the cookies are stored per virtual user session, null otherwise.
     */
-   private String payload;
+   private Properties sessionAttributes = null;
 
    /**
-    * The request payload length.
+    * The character set used to encode the request payloads.
+    */
+   private Charset charset;
+
+   /**
+    * The encoded request payload.
+    */
+   private byte[] payload;
+
+   /**
+    * The request payload length in bytes.
     */
    private int payloadLength;
 
+   /**
+    * The memory-mapped request payload written directly from the mapped region, null when the payload is not mapped.
+    */
+   private MappedContent mappedPayload;
+
+   /**
+    * The maximal number of connections to a single host opened by the HTTP client for asynchronous requests.
+    */
+   private int asyncMaxConnections = 100;
+
+   /**
+    * Guards the HTTP client for asynchronous requests shared by all the sender instances.
+    */
+   private static final Object sharedClientLock = new Object();
+
+   /**
+    * Vert.x instance providing the event loops for asynchronous requests, created with the first asynchronous request of any sender instance.
+    */
+   private static Vertx sharedVertx = null;
+
+   /**
+    * HTTP client for asynchronous requests shared by all the sender instances.
+    */
+   private static HttpClient sharedHttpClient = null;
+
+   /**
+    * The number of sender instances using the shared HTTP client, the client is closed when the last of them is closed.
+    */
+   private static int sharedClientUsers = 0;
+
+   /**
+    * The shared HTTP client acquired by this sender instance, null when the sender has not sent any asynchronous request yet.
+    */
+   private volatile HttpClient httpClient = null;
+
    @Override
    public void doInit(final Properties messageAttributes) throws PerfCakeException {
       final String targetUrl = safeGetTarget(messageAttributes);
@@ -141,11 +217,17 @@ public class HttpSender extends AbstractSender {
       } catch (MalformedURLException e) {
          throw new PerfCakeException(String.format("Cannot initialize HTTP connection, invalid URL %s: ", targetUrl), e);
       }
+      charset = Charset.forName(Utils.getDefaultEncoding());
    }
 
    @Override
    public void doClose() {
-      // nop
+      synchronized (this) {
+         if (httpClient != null) {
+            httpClient = null;
+            releaseSharedClient();
+         }
+      }
    }
 
    /**
@@ -219,18 +301,25 @@ public class HttpSender extends AbstractSender {
    public void preSend(final Message message, final Properties messageAttributes) throws Exception {
       super.preSend(message, messageAttributes);
 
-      if (storeCookies && localCookieManager.get() == null) {
+      // in the journey mode, the cookies belong to the virtual user session and travel with its attributes
+      sessionAttributes = storeCookies && messageAttributes != null && messageAttributes.getProperty(PerfCakeConst.SESSION_ID_PROPERTY) != null ? messageAttributes : null;
+
+      if (storeCookies && sessionAttributes == null && localCookieManager.get() == null) {
          localCookieManager.set(new CookieManager(null, CookiePolicy.ACCEPT_ALL));
       }
 
       currentMethod = getDynamicMethod(messageAttributes);
 
       payloadLength = 0;
+      mappedPayload = message == null ? null : message.getMappedPayload();
       if (message == null) {
          payload = null;
-      } else if (message.getPayload() != null) {
-         payload = message.getPayload().toString();
-         payloadLength = payload.length();
+      } else if (mappedPayload != null) {
+         payload = null;
+         payloadLength = (int) mappedPayload.getSize();
+      } else {
+         payload = message.getEncodedPayload(charset); // already encoded when the payloads are pre-rendered
+         payloadLength = payload == null ? 0 : payload.length;
       }
 
       requestConnection = (HttpURLConnection) url.openConnection();
@@ -238,8 +327,11 @@ public class HttpSender extends AbstractSender {
       requestConnection.setDoInput(true);
       if (currentMethod == Method.POST || currentMethod == Method.PUT) {
          requestConnection.setDoOutput(true);
+         if (mappedPayload != null) { // do not let the connection buffer the whole content in memory
+            requestConnection.setFixedLengthStreamingMode(mappedPayload.getSize());
+         }
       }
-      requestConnection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+      requestConnection.setRequestProperty("Content-Type", getContentType(message));
       if (payloadLength > 0) {
          requestConnection.setRequestProperty("Content-Length", Integer.toString(payloadLength));
       }
@@ -287,22 +379,24 @@ public class HttpSender extends AbstractSender {
    public Serializable doSend(final Message message, final MeasurementUnit measurementUnit) throws Exception {
       int respCode;
       requestConnection.connect();
-      if (payload != null && (currentMethod == Method.POST || currentMethod == Method.PUT)) {
-         final OutputStreamWriter out = new OutputStreamWriter(requestConnection.getOutputStream(), Utils.getDefaultEncoding());
-         out.write(payload, 0, payloadLength);
+      if ((payload != null || mappedPayload != null) && (currentMethod == Method.POST || currentMethod == Method.PUT)) {
+         final OutputStream out = requestConnection.getOutputStream();
+         if (mappedPayload != null) {
+            final ByteBuffer buffer = mappedPayload.getBuffer();
+            final WritableByteChannel channel = Channels.newChannel(out);
+            while (buffer.hasRemaining()) {
+               channel.write(buffer);
+            }
+         } else {
+            out.write(payload, 0, payloadLength);
+         }
          out.flush();
          out.close();
-         requestConnection.getOutputStream().close();
       }
 
       respCode = requestConnection.getResponseCode();
       if (!checkResponseCode(respCode)) {
-         final StringBuilder errorMess = new StringBuilder();
-         errorMess.append("The server returned an unexpected HTTP response code: ").append(respCode).append(" ").append("\"").append(requestConnection.getResponseMessage()).append("\". Expected HTTP codes are ");
-         for (final int code : expectedResponseCodeList) {
-            errorMess.append(Integer.toString(code)).append(", ");
-         }
-         throw new PerfCakeException(errorMess.substring(0, errorMess.length() - 2) + ".");
+         throw new PerfCakeException(getUnexpectedResponseCodeMessage(respCode, requestConnection.getResponseMessage()));
       }
       InputStream rcis;
       if (respCode < 400) {
@@ -330,6 +424,144 @@ public class HttpSender extends AbstractSender {
       return payload;
    }
 
+   /**
+    * Creates the error message about an unexpected HTTP response code.
+    *
+    * @param respCode
+    *       The received response code.
+    * @param respMessage
+    *       The received response message.
+    * @return The error message.
+    */
+   private String getUnexpectedResponseCodeMessage(final int respCode, final String respMessage) {
+      final StringBuilder errorMess = new StringBuilder();
+      errorMess.append("The server returned an unexpected HTTP response code: ").append(respCode).append(" ").append("\"").append(respMessage).append("\". Expected HTTP codes are ");
+      for (final int code : expectedResponseCodeList) {
+         errorMess.append(Integer.toString(code)).append(", ");
+      }
+
+      return errorMess.substring(0, errorMess.length() - 2) + ".";
+   }
+
+   @Override
+   public boolean isAsyncSupported() {
+      return keepConnection && !storeCookies;
+   }
+
+   @Override
+   public CompletionStage<Serializable> sendAsync(final Message message, final Properties messageAttributes, final MeasurementUnit measurementUnit) throws Exception {
+      final CompletableFuture<Serializable> result = new CompletableFuture<>();
+      final Method requestMethod = getDynamicMethod(messageAttributes);
+      final HttpClientRequest request = getHttpClient().requestAbs(HttpMethod.valueOf(requestMethod.name()), url.toString(), response -> {
+         response.exceptionHandler(result::completeExceptionally);
+         response.bodyHandler(body -> {
+            if (checkResponseCode(response.statusCode())) {
+               result.complete(body.toString(Utils.getDefaultEncoding()));
+            } else {
+               result.completeExceptionally(new PerfCakeException(getUnexpectedResponseCodeMessage(response.statusCode(), response.statusMessage())));
+            }
+         });
+      });
+      request.exceptionHandler(result::completeExceptionally);
+      request.putHeader("Content-Type", getContentType(message));
+
+      if (message != null) {
+         for (final Entry<Object, Object> property : message.getProperties().entrySet()) {
+            request.putHeader(property.getKey().toString(), property.getValue().toString());
+         }
+         for (final Entry<Object, Object> header : message.getHeaders().entrySet()) {
+            request.putHeader(header.getKey().toString(), header.getValue().toString());
+         }
+      }
+
+      if (message != null && message.getPayload() != null && (requestMethod == Method.POST || requestMethod == Method.PUT)) {
+         if (message.getMappedPayload() != null) {
+            request.end(Buffer.buffer(Unpooled.wrappedBuffer(message.getMappedPayload().getBuffer())));
+         } else {
+            request.end(Buffer.buffer(message.getEncodedPayload(charset)));
+         }
+      } else {
+         request.end();
+      }
+
+      return result;
+   }
+
+   /**
+    * Gets the default content type of the request. It can be overridden by a message property or header.
+    *
+    * @param message
+    *       The message to be sent.
+    * @return The content type for binary messages is application/octet-stream, text/plain otherwise.
+    */
+   private static String getContentType(final Message message) {
+      return message != null && message.isBinary() ? "application/octet-stream" : "text/plain; charset=utf-8";
+   }
+
+   /**
+    * Gets the HTTP client for asynchronous requests. The shared client is acquired on the first call.
+    *
+    * @return The HTTP client.
+    */
+   private HttpClient getHttpClient() {
+      if (httpClient == null) {
+         synchronized (this) {
+            if (httpClient == null) {
+               httpClient = acquireSharedClient(asyncMaxConnections);
+            }
+         }
+      }
+
+      return httpClient;
+   }
+
+   /**
+    * Gets the HTTP client shared by all the sender instances and registers a new user of it.
+    * The client and its event loops are created by the first user, so its maximal number of connections applies.
+    *
+    * @param maxConnections
+    *       The maximal number of connections to a single host when the client is created.
+    * @return The shared HTTP client.
+    */
+   private static HttpClient acquireSharedClient(final int maxConnections) {
+      synchronized (sharedClientLock) {
+         if (sharedHttpClient == null) {
+            sharedVertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(Runtime.getRuntime().availableProcessors()));
+            sharedHttpClient = sharedVertx.createHttpClient(new HttpClientOptions().setKeepAlive(true).setMaxPoolSize(maxConnections).setMaxWaitQueueSize(-1));
+         }
+         sharedClientUsers++;
+
+         return sharedHttpClient;
+      }
+   }
+
+   /**
+    * Unregisters a user of the shared HTTP client. The client and its event loops are closed when the last user is gone.
+    */
+   private static void releaseSharedClient() {
+      synchronized (sharedClientLock) {
+         sharedClientUsers--;
+
+         if (sharedClientUsers == 0) {
+            sharedHttpClient.close();
+            sharedHttpClient = null;
+            sharedVertx.close();
+            sharedVertx = null;
+         }
+      }
+   }
+
+   /**
+    * Gets the number of sender instances using the shared HTTP client for asynchronous requests.
+    *
+    * @return The number of sender instances using the shared HTTP client.
+    */
+   static int getSharedClientUsers() {
+      synchronized (sharedClientLock) {
+         return sharedClientUsers;
+      }
+   }
+
    @Override
    public void postSend(final Message message) throws Exception {
       super.postSend(message);
@@ -348,18 +580,59 @@ public class HttpSender extends AbstractSender {
       final Map<String, List<String>> headerFields = requestConnection.getHeaderFields();
       final List<String> cookiesHeader = headerFields.get(COOKIES_HEADER);
 
-      if (cookiesHeader != null) {
+      if (cookiesHeader != null && sessionAttributes != null) {
+         sessionAttributes.setProperty(PerfCakeConst.SESSION_COOKIES_PROPERTY, mergeCookies(sessionAttributes.getProperty(PerfCakeConst.SESSION_COOKIES_PROPERTY), cookiesHeader));
+      } else if (cookiesHeader != null) {
          for (String cookie : cookiesHeader) {
             localCookieManager.get().getCookieStore().add(null, HttpCookie.parse(cookie).get(0));
          }
       }
    }
 
+   /**
+    * Merges the received cookies with the cookies of the virtual user session.
+    *
+    * @param cookies
+    *       The current cookies of the session in the form of the Cookie request header, null when there are none.
+    * @param received
+    *       The values of the received Set-Cookie headers.
+    * @return The merged cookies in the form of the Cookie request header.
+    */
+   static String mergeCookies(final String cookies, final List<String> received) {
+      final Map<String, String> merged = new LinkedHashMap<>();
+
+      if (cookies != null) {
+         for (final String cookie : cookies.split(";")) {
+            final int eq = cookie.indexOf('=');
+            if (eq > 0) {
+               merged.put(cookie.substring(0, eq).trim(), cookie.substring(eq + 1).trim());
+            }
+         }
+      }
+
+      for (final String cookie : received) {
+         for (final HttpCookie httpCookie : HttpCookie.parse(cookie)) {
+            if (httpCookie.hasExpired()) {
+               merged.remove(httpCookie.getName());
+            } else {
+               merged.put(httpCookie.getName(), httpCookie.getValue());
+            }
+         }
+      }
+
+      return merged.entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue()).collect(Collectors.joining("; "));
+   }
+
    /**
     * Sets the stored cookies to the request connection.
     */
    private void popCookies() {
-      if (localCookieManager.get().getCookieStore().getCookies().size() > 0) {
+      if (sessionAttributes != null) {
+         final String cookies = sessionAttributes.getProperty(PerfCakeConst.SESSION_COOKIES_PROPERTY);
+         if (cookies != null && !cookies.isEmpty()) {
+            requestConnection.setRequestProperty("Cookie", cookies);
+         }
+      } else if (localCookieManager.get().getCookieStore().getCookies().size() > 0) {
          requestConnection.setRequestProperty("Cookie",
                StringUtils.join(localCookieManager.get().getCookieStore().getCookies(), ";"));
       }
@@ -413,10 +686,43 @@ public class HttpSender extends AbstractSender {
       if (dynamicMethod == null) {
          return this.method;
       } else {
-         return Method.valueOf(dynamicMethod.toString(placeholders));
+         final StringBuilder dynamicMethodBuffer = dynamicMethodBuffers.get();
+         dynamicMethodBuffer.setLength(0);
+         dynamicMethod.render(placeholders, dynamicMethodBuffer);
+
+         for (final Method m : METHODS) {
+            if (m.name().contentEquals(dynamicMethodBuffer)) {
+               return m;
+            }
+         }
+
+         return Method.valueOf(dynamicMethodBuffer.toString()); // reports the invalid method name
       }
    }
 
+   /**
+    * Gets the maximal number of connections to a single host opened for asynchronous requests.
+    *
+    * @return The maximal number of connections.
+    */
+   public int getAsyncMaxConnections() {
+      return asyncMaxConnections;
+   }
+
+   /**
+    * Sets the maximal number of connections to a single host opened for asynchronous requests.
+    * Requests exceeding this limit wait for a free connection. All the sender instances share one HTTP client,
+    * the value of the instance sending the first asynchronous request applies.
+    *
+    * @param asyncMaxConnections
+    *       The maximal number of connections.
+    * @return Instance of this to support fluent API.
+    */
+   public HttpSender setAsyncMaxConnections(final int asyncMaxConnections) {
+      this.asyncMaxConnections = asyncMaxConnections;
+      return this;
+   }
+
    /**
     * Gets whether the sender will store cookies between requests.
     *
@@ -428,6 +734,7 @@ public class HttpSender extends AbstractSender {
 
    /**
     * Sets whether the sender will store cookies between requests.
+    * The cookies are kept per sender thread, or per virtual user session when the messages are sent by {@link org.perfcake.message.generator.JourneyMessageGenerator}.
     *
     * @param storeCookies
     *       True if and only if the cookies should be stored between requests.
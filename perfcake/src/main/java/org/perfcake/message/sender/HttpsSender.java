@@ -58,6 +58,16 @@ public class HttpsSender extends HttpSender {
       ((HttpsURLConnection) requestConnection).setSSLSocketFactory(sslFactory);
    }
 
+   /**
+    * Asynchronous sending is not supported by this sender as it would not use the SSL socket factory.
+    *
+    * @return Always false.
+    */
+   @Override
+   public boolean isAsyncSupported() {
+      return false;
+   }
+
    /**
     * Gets the SSL key store.
     *
@@ -101,6 +101,7 @@ public class JdbcSender extends AbstractSender {
 
    @Override
    public void preSend(final Message message, final Properties messageAttributes) throws Exception {
+      checkTextPayload(message);
       super.preSend(message, messageAttributes);
       statement = connection.createStatement();
    }
@@ -161,6 +161,9 @@ public class Jms11Sender extends AbstractJmsSender {
    @SuppressWarnings("Duplicates") // false positive with JmsSender
    @Override
    public void preSend(final org.perfcake.message.Message message, final Properties messageAttributes) throws Exception {
+      if (messageType != MessageType.OBJECT) {
+         checkTextPayload(message);
+      }
       super.preSend(message, messageAttributes);
       switch (messageType) {
          case STRING:
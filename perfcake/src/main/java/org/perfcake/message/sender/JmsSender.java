@@ -144,6 +144,9 @@ public class JmsSender extends AbstractJmsSender {
    @SuppressWarnings("Duplicates") // false positive with Jms11Sender
    @Override
    public void preSend(final org.perfcake.message.Message message, final Properties messageAttributes) throws Exception {
+      if (messageType != MessageType.OBJECT) {
+         checkTextPayload(message);
+      }
       super.preSend(message, messageAttributes);
       switch (messageType) {
          case STRING:
@@ -24,20 +24,41 @@ package org.perfcake.message.sender;
 import org.perfcake.PerfCakeException;
 import org.perfcake.util.ObjectFactory;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages concurrent friendly pool of senders.
  *
+ * <p>By default, all the senders are kept in a single shared queue. In the thread affinity mode, each thread keeps using the same sender
+ * as long as it is available, which avoids contention on the shared queue and keeps the sender's state (connections, buffers) in the same thread.
+ * A thread without its own sender takes one of the senders not used by any thread yet, or steals an idle sender of another thread.</p>
+ *
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
 public class MessageSenderManager {
 
+   /**
+    * The manager's logger.
+    */
+   private static final Logger log = LogManager.getLogger(MessageSenderManager.class);
+
    /**
     * Number of available senders ready to send the message. Internally configured to reflect number of threads configured in a generator.
     */
@@ -61,7 +82,42 @@ public class MessageSenderManager {
    /**
     * All the senders created including those actually busy.
     */
-   private final List<MessageSender> allSenders = new ArrayList<>();
+   private final List<MessageSender> allSenders = new CopyOnWriteArrayList<>();
+
+   /**
+    * Leases of all the senders used in the thread affinity mode.
+    */
+   private final Map<MessageSender, SenderLease> leases = new ConcurrentHashMap<>();
+
+   /**
+    * The lease of the sender last used by the current thread in the thread affinity mode.
+    */
+   private final ThreadLocal<SenderLease> threadLease = new ThreadLocal<>();
+
+   /**
+    * When true, each thread keeps using the same sender.
+    */
+   private boolean threadAffinity = false;
+
+   /**
+    * When true, a new sender is created when there is no sender available instead of failing.
+    */
+   private boolean growOnDemand = false;
+
+   /**
+    * The number of senders created during the initialization, -1 to create all {@link #senderPoolSize} senders.
+    */
+   private int initialPoolSize = -1;
+
+   /**
+    * The maximal number of senders initialized in parallel.
+    */
+   private int initConcurrency = 1;
+
+   /**
+    * The time in nanoseconds spent in the initialization of senders.
+    */
+   private long initTime = 0;
 
    /**
     * Sets a message sender property.
@@ -100,24 +156,121 @@ public class MessageSenderManager {
    }
 
    /**
-    * Initializes the message sender by creating all the message sender instances.
+    * Initializes the message sender by creating all the message sender instances. When the initial pool size is set,
+    * only this number of senders is created and the rest is created on demand. The senders are initialized in parallel
+    * according to the configured init concurrency.
     *
     * @throws PerfCakeException
     *       When it was not possible to create the instances.
     */
    public void init() throws PerfCakeException {
       availableSenders.clear();
-      for (int i = 0; i < senderPoolSize; i++) {
 
-         try {
-            final MessageSender sender = (MessageSender) ObjectFactory.summonInstance(senderClass, messageSenderProperties);
-            addSenderInstance(sender);
-         } catch (Exception e) {
-            throw new PerfCakeException("Unable to instantiate sender class: ", e);
+      final long start = System.nanoTime();
+      final int count = initialPoolSize >= 0 ? Math.min(initialPoolSize, senderPoolSize) : senderPoolSize;
+      final List<MessageSender> senders = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+         senders.add(newSenderInstance());
+      }
+
+      if (initConcurrency > 1 && count > 1) {
+         initInParallel(senders);
+      } else {
+         for (final MessageSender sender : senders) {
+            initSender(sender);
+         }
+      }
+
+      for (final MessageSender sender : senders) {
+         registerSender(sender);
+         availableSenders.add(sender);
+      }
+      initTime = System.nanoTime() - start;
+
+      if (log.isInfoEnabled()) {
+         log.info(String.format("Initialized %d of %d message senders in %.3f s.", count, senderPoolSize, initTime / 1_000_000_000d));
+      }
+   }
+
+   /**
+    * Initializes the senders using a pool of threads of the size given by {@link #getInitConcurrency()}.
+    *
+    * @param senders
+    *       The senders to be initialized.
+    * @throws PerfCakeException
+    *       When it was not possible to initialize any of the senders.
+    */
+   private void initInParallel(final List<MessageSender> senders) throws PerfCakeException {
+      final AtomicInteger threadNumber = new AtomicInteger(1);
+      final ExecutorService initializers = Executors.newFixedThreadPool(Math.min(initConcurrency, senders.size()), runnable -> {
+         final Thread t = new Thread(runnable, "PerfCake-sender-init-" + threadNumber.getAndIncrement());
+         t.setDaemon(true);
+         return t;
+      });
+
+      try {
+         final List<Future<?>> results = new ArrayList<>(senders.size());
+         for (final MessageSender sender : senders) {
+            results.add(initializers.submit(() -> {
+               initSender(sender);
+               return null;
+            }));
          }
+
+         for (final Future<?> result : results) {
+            result.get();
+         }
+      } catch (final ExecutionException e) {
+         throw e.getCause() instanceof PerfCakeException ? (PerfCakeException) e.getCause() : new PerfCakeException("Unable to instantiate sender class: ", e.getCause());
+      } catch (final InterruptedException e) {
+         throw new PerfCakeException("Interrupted while initializing message senders: ", e);
+      } finally {
+         initializers.shutdownNow();
       }
    }
 
+   /**
+    * Creates a new instance of the configured sender class with the configured properties.
+    *
+    * @return The new sender.
+    * @throws PerfCakeException
+    *       When it was not possible to create the sender.
+    */
+   private MessageSender newSenderInstance() throws PerfCakeException {
+      try {
+         return (MessageSender) ObjectFactory.summonInstance(senderClass, messageSenderProperties);
+      } catch (Exception e) {
+         throw new PerfCakeException("Unable to instantiate sender class: ", e);
+      }
+   }
+
+   /**
+    * Initializes the sender.
+    *
+    * @param sender
+    *       The sender to be initialized.
+    * @throws PerfCakeException
+    *       When the initialization of the sender fails.
+    */
+   private static void initSender(final MessageSender sender) throws PerfCakeException {
+      try {
+         sender.init();
+      } catch (Exception e) {
+         throw new PerfCakeException("Unable to instantiate sender class: ", e);
+      }
+   }
+
+   /**
+    * Registers an initialized sender with this manager without making it available.
+    *
+    * @param sender
+    *       The sender to be registered.
+    */
+   private void registerSender(final MessageSender sender) {
+      leases.put(sender, new SenderLease(sender));
+      allSenders.add(sender);
+   }
+
    /**
     * Adds {@link MessageSender} into available senders and initializes it.
     *
@@ -128,8 +281,8 @@ public class MessageSenderManager {
     */
    public void addSenderInstance(final MessageSender sender) throws PerfCakeException {
       sender.init();
+      registerSender(sender);
       availableSenders.add(sender);
-      allSenders.add(sender);
    }
 
    /**
@@ -137,25 +290,104 @@ public class MessageSenderManager {
     *
     * @return A sender that is ready to send a message.
     * @throws org.perfcake.PerfCakeException
-    *       When the pool is empty.
+    *       When the pool is empty and it cannot grow.
     */
    public MessageSender acquireSender() throws PerfCakeException {
+      if (threadAffinity) {
+         return acquireThreadSender();
+      }
+
       final MessageSender ms = availableSenders.poll();
       if (ms != null) {
          return ms;
       } else {
+         return growPool();
+      }
+   }
+
+   /**
+    * Gets a free sender in the thread affinity mode. The sender used by the current thread previously is preferred.
+    * Then a sender that was not used by any thread yet is taken. As the last resort, an idle sender of another thread is stolen.
+    *
+    * @return A sender that is ready to send a message.
+    * @throws org.perfcake.PerfCakeException
+    *       When the pool is empty and it cannot grow.
+    */
+   private MessageSender acquireThreadSender() throws PerfCakeException {
+      SenderLease lease = threadLease.get();
+      if (lease != null && lease.tryAcquire()) {
+         return lease.sender;
+      }
+
+      MessageSender ms;
+      while ((ms = availableSenders.poll()) != null) {
+         lease = leases.get(ms);
+         if (lease.tryAcquire()) { // the sender might have been stolen by another thread meanwhile
+            threadLease.set(lease);
+            return ms;
+         }
+      }
+
+      for (final SenderLease idleLease : leases.values()) {
+         if (idleLease.tryAcquire()) {
+            threadLease.set(idleLease);
+            return idleLease.sender;
+         }
+      }
+
+      ms = growPool();
+      lease = leases.get(ms);
+      lease.tryAcquire();
+      threadLease.set(lease);
+
+      return ms;
+   }
+
+   /**
+    * Creates a new sender when the pool is allowed to grow.
+    *
+    * @return The newly created sender.
+    * @throws org.perfcake.PerfCakeException
+    *       When the pool cannot grow or it was not possible to create the sender.
+    */
+   private MessageSender growPool() throws PerfCakeException {
+      if (!growOnDemand || senderClass == null) {
          throw new PerfCakeException("MessageSender pool is empty.");
       }
+
+      final MessageSender sender;
+      synchronized (allSenders) {
+         final long start = System.nanoTime();
+         sender = newSenderInstance();
+         initSender(sender);
+         registerSender(sender);
+         initTime = initTime + (System.nanoTime() - start);
+      }
+
+      if (log.isInfoEnabled()) {
+         log.info("There was no free sender available, the pool of senders has grown to " + allSenders.size() + " senders.");
+      }
+
+      return sender;
    }
 
    /**
     * Returns a sender that has been already used to the pool of available senders for later reuse.
+    * In the thread affinity mode, the sender stays with the thread that used it but it can be stolen by other threads.
     *
     * @param messageSender
     *       The sender to be returned to the pool.
     */
    public void releaseSender(final MessageSender messageSender) {
-      availableSenders.offer(messageSender);
+      if (threadAffinity) {
+         SenderLease lease = threadLease.get();
+         if (lease == null || lease.sender != messageSender) {
+            lease = leases.get(messageSender);
+         }
+         lease.release();
+      } else {
+         availableSenders.offer(messageSender);
+      }
    }
 
    /**
@@ -163,6 +395,7 @@ public class MessageSenderManager {
     */
    public void releaseAllSenders() {
       for (final MessageSender ms : allSenders) {
+         leases.get(ms).release();
          if (!availableSenders.contains(ms)) {
             availableSenders.offer(ms);
          }
@@ -175,9 +408,28 @@ public class MessageSenderManager {
     * @return The number of available senders in the pool.
     */
    public int availableSenderCount() {
+      if (threadAffinity) {
+         return (int) leases.values().stream().filter(lease -> !lease.busy.get()).count();
+      }
+
       return availableSenders.size();
    }
 
+   /**
+    * Gets whether the managed senders are able to send messages asynchronously.
+    * Such senders can be shared by multiple requests in flight.
+    *
+    * @return True if and only if the senders implement {@link AsyncMessageSender} and support asynchronous sending in their current configuration.
+    */
+   public boolean isAsyncSupported() {
+      if (allSenders.isEmpty()) {
+         return false;
+      }
+
+      final MessageSender sender = allSenders.get(0);
+      return sender instanceof AsyncMessageSender && ((AsyncMessageSender) sender).isAsyncSupported();
+   }
+
    /**
     * Finalizes the message sender manager and disconnects all message senders from their target.
     *
@@ -228,4 +480,135 @@ public class MessageSenderManager {
       this.senderClass = senderClass;
    }
 
+   /**
+    * Gets whether each thread keeps using the same sender.
+    *
+    * @return True if and only if the thread affinity mode is enabled.
+    */
+   public boolean isThreadAffinity() {
+      return threadAffinity;
+   }
+
+   /**
+    * Sets whether each thread keeps using the same sender. It must be set before any sender is acquired.
+    *
+    * @param threadAffinity
+    *       True to enable the thread affinity mode.
+    */
+   public void setThreadAffinity(final boolean threadAffinity) {
+      this.threadAffinity = threadAffinity;
+   }
+
+   /**
+    * Gets whether a new sender is created when there is no sender available.
+    *
+    * @return True if and only if the pool of senders can grow.
+    */
+   public boolean isGrowOnDemand() {
+      return growOnDemand;
+   }
+
+   /**
+    * Sets whether a new sender is created when there is no sender available. Otherwise, {@link #acquireSender()} fails.
+    * This is useful when the number of threads changes during the test execution.
+    *
+    * @param growOnDemand
+    *       True to allow the pool of senders to grow.
+    */
+   public void setGrowOnDemand(final boolean growOnDemand) {
+      this.growOnDemand = growOnDemand;
+   }
+
+   /**
+    * Gets the number of senders created during the initialization.
+    *
+    * @return The number of senders created during the initialization, -1 when all {@link #getSenderPoolSize()} senders are created.
+    */
+   public int getInitialPoolSize() {
+      return initialPoolSize;
+   }
+
+   /**
+    * Sets the number of senders created during the initialization. The remaining senders are created on demand
+    * when the pool is allowed to grow (see {@link #setGrowOnDemand(boolean)}).
+    *
+    * @param initialPoolSize
+    *       The number of senders created during the initialization, -1 to create all {@link #getSenderPoolSize()} senders.
+    */
+   public void setInitialPoolSize(final int initialPoolSize) {
+      this.initialPoolSize = initialPoolSize;
+   }
+
+   /**
+    * Gets the maximal number of senders initialized in parallel.
+    *
+    * @return The maximal number of senders initialized in parallel.
+    */
+   public int getInitConcurrency() {
+      return initConcurrency;
+   }
+
+   /**
+    * Sets the maximal number of senders initialized in parallel. Senders that open a connection to the target during
+    * the initialization can significantly speed up the test startup this way. The default value 1 initializes the senders
+    * one after another.
+    *
+    * @param initConcurrency
+    *       The maximal number of senders initialized in parallel.
+    */
+   public void setInitConcurrency(final int initConcurrency) {
+      this.initConcurrency = initConcurrency;
+   }
+
+   /**
+    * Gets the total time spent in the initialization of senders including those created on demand.
+    *
+    * @return The initialization time in milliseconds.
+    */
+   public double getInitTime() {
+      return initTime / 1_000_000d;
+   }
+
+   /**
+    * Tracks whether a sender is in use in the thread affinity mode.
+    */
+   private static class SenderLease {
+
+      /**
+       * The leased sender.
+       */
+      private final MessageSender sender;
+
+      /**
+       * True while the sender is in use.
+       */
+      private final AtomicBoolean busy = new AtomicBoolean(false);
+
+      /**
+       * Creates a new lease of the given sender.
+       *
+       * @param sender
+       *       The sender to be leased.
+       */
+      private SenderLease(final MessageSender sender) {
+         this.sender = sender;
+      }
+
+      /**
+       * Marks the sender as busy if it was not used.
+       *
+       * @return True if and only if the sender was free and it is marked as busy now.
+       */
+      private boolean tryAcquire() {
+         return !busy.get() && busy.compareAndSet(false, true);
+      }
+
+      /**
+       * Marks the sender as free.
+       */
+      private void release() {
+         busy.set(false);
+      }
+   }
+
 }
@@ -26,6 +26,8 @@ import org.perfcake.util.StringTemplate;
 import org.perfcake.util.Utils;
 
 import org.fusesource.mqtt.client.BlockingConnection;
+import org.fusesource.mqtt.client.Callback;
+import org.fusesource.mqtt.client.FutureConnection;
 import org.fusesource.mqtt.client.MQTT;
 import org.fusesource.mqtt.client.QoS;
 import org.fusesource.mqtt.client.Topic;
@@ -33,21 +35,32 @@ import org.fusesource.mqtt.client.Topic;
 import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Sends messages to an MQTT endpoint using Fusesource MQTT client.
  *
+ * When used asynchronously (see {@link AsyncMessageSender}), the messages are published without blocking the calling thread
+ * and the responses (if expected) are received in the order of their arrival.
+ *
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
-public class MqttSender extends AbstractSender {
+public class MqttSender extends AbstractSender implements AsyncMessageSender {
 
    /**
     * MQTT connection.
     */
    private BlockingConnection mqttConnection;
 
+   /**
+    * Non-blocking view of the MQTT connection used for asynchronous sending.
+    */
+   private FutureConnection mqttFutureConnection;
+
    /**
     * Name of topic where to send messages.
     */
@@ -68,6 +81,11 @@ public class MqttSender extends AbstractSender {
     */
    private BlockingConnection mqttResponseConnection = null;
 
+   /**
+    * Non-blocking view of the MQTT connection for responses used for asynchronous sending.
+    */
+   private FutureConnection mqttResponseFutureConnection = null;
+
    /**
     * Required quality of service.
     */
@@ -103,8 +121,14 @@ public class MqttSender extends AbstractSender {
     */
    private String responsePassword = null;
 
+   /**
+    * The character set used to encode text payloads.
+    */
+   private Charset charset;
+
    @Override
    public void doInit(Properties messageAttributes) throws PerfCakeException {
+      charset = Charset.forName(Utils.getDefaultEncoding());
       try {
          final URI targetUri = new URI(safeGetTarget(messageAttributes));
          final String protocol = targetUri.getScheme();
@@ -123,7 +147,8 @@ public class MqttSender extends AbstractSender {
             if (password != null) {
                mqttClient.setPassword(password);
             }
-            mqttConnection = mqttClient.blockingConnection();
+            mqttFutureConnection = mqttClient.futureConnection();
+            mqttConnection = new BlockingConnection(mqttFutureConnection);
             mqttConnection.connect();
 
             if (responseTarget != null) {
@@ -150,10 +175,12 @@ public class MqttSender extends AbstractSender {
                   if (responsePassword != null) {
                      mqttResponseClient.setPassword(responsePassword);
                   }
-                  mqttResponseConnection = mqttResponseClient.blockingConnection();
+                  mqttResponseFutureConnection = mqttResponseClient.futureConnection();
+                  mqttResponseConnection = new BlockingConnection(mqttResponseFutureConnection);
                   mqttResponseConnection.connect();
                } else {
                   responseTopicName = safeResponseTarget;
+                  mqttResponseFutureConnection = mqttFutureConnection;
                   mqttResponseConnection = mqttConnection;
                }
                final Topic[] responseTopic = { new Topic(responseTopicName, QoS.valueOf(responseQos)) };
@@ -178,7 +205,7 @@ public class MqttSender extends AbstractSender {
    @Override
    public Serializable doSend(Message message, MeasurementUnit measurementUnit) throws Exception {
       String response = null;
-      mqttConnection.publish(topicName, message.getPayload().toString().getBytes(Utils.getDefaultEncoding()), QoS.valueOf(qos.toUpperCase()), false);
+      mqttConnection.publish(topicName, message.getEncodedPayload(charset), QoS.valueOf(qos.toUpperCase()), false);
       if (isResponseExpected) {
          mqttResponse = mqttResponseConnection.receive();
          if (mqttResponse != null) {
@@ -188,6 +215,59 @@ public class MqttSender extends AbstractSender {
       return response;
    }
 
+   @Override
+   public boolean isAsyncSupported() {
+      return keepConnection;
+   }
+
+   @Override
+   public CompletionStage<Serializable> sendAsync(final Message message, final Properties messageAttributes, final MeasurementUnit measurementUnit) throws Exception {
+      final CompletableFuture<Serializable> result = new CompletableFuture<>();
+
+      mqttFutureConnection.publish(topicName, message.getEncodedPayload(charset), QoS.valueOf(qos.toUpperCase()), false).then(new Callback<Void>() {
+         @Override
+         public void onSuccess(final Void value) {
+            if (isResponseExpected) {
+               receiveAsync(result);
+            } else {
+               result.complete(null);
+            }
+         }
+
+         @Override
+         public void onFailure(final Throwable throwable) {
+            result.completeExceptionally(throwable);
+         }
+      });
+
+      return result;
+   }
+
+   /**
+    * Receives the next response without blocking the calling thread.
+    *
+    * @param result
+    *       The future to be completed with the response.
+    */
+   private void receiveAsync(final CompletableFuture<Serializable> result) {
+      mqttResponseFutureConnection.receive().then(new Callback<org.fusesource.mqtt.client.Message>() {
+         @Override
+         public void onSuccess(final org.fusesource.mqtt.client.Message response) {
+            try {
+               response.ack();
+               result.complete(new String(response.getPayload(), Utils.getDefaultEncoding()));
+            } catch (final Exception e) {
+               result.completeExceptionally(e);
+            }
+         }
+
+         @Override
+         public void onFailure(final Throwable throwable) {
+            result.completeExceptionally(throwable);
+         }
+      });
+   }
+
    @Override
    public void postSend(final Message message) throws Exception {
       super.postSend(message);
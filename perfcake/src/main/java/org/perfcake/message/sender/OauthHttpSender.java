@@ -118,6 +118,16 @@ public class OauthHttpSender extends HttpSender {
       }
    }
 
+   /**
+    * Asynchronous sending is not supported by this sender as it would not use the OAuth token.
+    *
+    * @return Always false.
+    */
+   @Override
+   public boolean isAsyncSupported() {
+      return false;
+   }
+
    @Override
    public void preSend(final Message message, final Properties messageAttributes) throws Exception {
       super.preSend(message, messageAttributes);
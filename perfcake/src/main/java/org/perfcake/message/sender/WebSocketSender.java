@@ -32,7 +32,10 @@ import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.websocket.ClientEndpoint;
 import javax.websocket.CloseReason;
 import javax.websocket.ContainerProvider;
@@ -42,21 +45,31 @@ import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
 import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
 
 /**
  * Sends a simple messages via websocket protocol to a remote websocket server endpoint.
  *
+ * When used asynchronously (see {@link AsyncMessageSender}), the asynchronous remote endpoint is always used regardless of the remote endpoint type setting.
+ * The web socket session permits just a single outstanding write, so the messages of the requests in flight are written one after another
+ * without blocking the calling threads.
+ *
  * @author Jiří Sviták
  */
-public class WebSocketSender extends AbstractSender {
+public class WebSocketSender extends AbstractSender implements AsyncMessageSender {
 
    private static final Logger logger = LogManager.getLogger(WebSocketSender.class);
 
    private WebSocketContainer container;
    private Session session;
 
+   /**
+    * The last asynchronous write. Each asynchronous write starts when the previous one is finished.
+    */
+   private CompletableFuture<Serializable> lastAsyncSend = CompletableFuture.completedFuture(null);
+
    /**
     * Remote endpoint type.
     *
@@ -79,6 +92,11 @@ public class WebSocketSender extends AbstractSender {
 
    private PayloadType payloadType = PayloadType.TEXT;
 
+   /**
+    * The character set used to encode text messages sent as binary payloads.
+    */
+   private Charset charset;
+
    /**
     * Sets remote endpoint type.
     *
@@ -123,6 +141,7 @@ public class WebSocketSender extends AbstractSender {
 
    @Override
    public void doInit(final Properties messageAttributes) throws PerfCakeException {
+      charset = Charset.forName(Utils.getDefaultEncoding());
       container = ContainerProvider.getWebSocketContainer();
       try {
          final String safeTarget = safeGetTarget(messageAttributes);
@@ -149,6 +168,14 @@ public class WebSocketSender extends AbstractSender {
       }
    }
 
+   @Override
+   public void preSend(final Message message, final Properties messageAttributes) throws Exception {
+      if (payloadType == PayloadType.TEXT) {
+         checkTextPayload(message);
+      }
+      super.preSend(message, messageAttributes);
+   }
+
    @Override
    public Serializable doSend(final Message message, final MeasurementUnit measurementUnit) throws Exception {
       RemoteEndpoint endpoint;
@@ -172,19 +199,75 @@ public class WebSocketSender extends AbstractSender {
             break;
          case BINARY:
             if (endpoint instanceof RemoteEndpoint.Basic) {
-               ((RemoteEndpoint.Basic) endpoint).sendBinary(ByteBuffer.wrap(message.getPayload().toString().getBytes(Utils.getDefaultEncoding())));
+               ((RemoteEndpoint.Basic) endpoint).sendBinary(message.getPayloadBuffer(charset));
             } else {
-               ((RemoteEndpoint.Async) endpoint).sendBinary(ByteBuffer.wrap(message.getPayload().toString().getBytes(Utils.getDefaultEncoding())));
+               ((RemoteEndpoint.Async) endpoint).sendBinary(message.getPayloadBuffer(charset));
             }
             break;
          case PING:
-            endpoint.sendPing(ByteBuffer.wrap(message.getPayload().toString().getBytes(Utils.getDefaultEncoding())));
+            endpoint.sendPing(message.getPayloadBuffer(charset));
             break;
       }
 
       return null;
    }
 
+   @Override
+   public boolean isAsyncSupported() {
+      return keepConnection;
+   }
+
+   @Override
+   public CompletionStage<Serializable> sendAsync(final Message message, final Properties messageAttributes, final MeasurementUnit measurementUnit) throws Exception {
+      final CompletableFuture<Serializable> result = new CompletableFuture<>();
+      final CompletableFuture<Serializable> previous;
+
+      synchronized (this) {
+         previous = lastAsyncSend;
+         lastAsyncSend = result;
+      }
+
+      previous.whenComplete((response, throwable) -> writeAsync(message, result));
+
+      return result;
+   }
+
+   /**
+    * Writes the message to the asynchronous remote endpoint.
+    *
+    * @param message
+    *       Message to be sent.
+    * @param result
+    *       The future to be completed when the write is finished.
+    */
+   private void writeAsync(final Message message, final CompletableFuture<Serializable> result) {
+      try {
+         final RemoteEndpoint.Async endpoint = session.getAsyncRemote();
+         final SendHandler handler = sendResult -> {
+            if (sendResult.isOK()) {
+               result.complete(null);
+            } else {
+               result.completeExceptionally(sendResult.getException());
+            }
+         };
+
+         switch (payloadType) {
+            case TEXT:
+               endpoint.sendText(message.getPayload().toString(), handler);
+               break;
+            case BINARY:
+               endpoint.sendBinary(message.getPayloadBuffer(charset), handler);
+               break;
+            case PING:
+               endpoint.sendPing(message.getPayloadBuffer(charset));
+               result.complete(null);
+               break;
+         }
+      } catch (final Exception e) {
+         result.completeExceptionally(e);
+      }
+   }
+
    /**
     * Represents web socket client endpoint.
     *
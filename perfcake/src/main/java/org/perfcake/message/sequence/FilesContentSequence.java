@@ -34,6 +34,8 @@ import java.util.stream.Collectors;
 
 /**
  * The individual sequence values are read from external files listed as separate lines in the provided index text file.
+ * The content is read to the heap, to replay a large corpus of documents, rather use {@link FileLinesSequence} with the file names
+ * and a memory-mapped message with the sequence placeholder in its URI (see {@link org.perfcake.message.MappedContentStore}).
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -22,11 +22,17 @@ package org.perfcake.message.sequence;
 import org.perfcake.PerfCakeException;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Simple sequence of numbers.
  * Can go in both directions, can specify boundaries and a step.
  *
+ * <p>The sequence is non-blocking. The threads increment a shared counter of issued values and compute the value from it,
+ * so they never wait for each other nor retry. When {@link #setBlockSize(int)} is larger than 1, each thread reserves a whole block of consecutive values at once and
+ * publishes them without touching the shared counter. This removes the contention at high thread counts at the price that
+ * the values from different threads are interleaved out of order. All the values are still published exactly once.</p>
+ *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
 public class NumberSequence implements Sequence {
@@ -47,63 +53,116 @@ public class NumberSequence implements Sequence {
    private long step = 1;
 
    /**
-    * Current sequence value.
+    * The number of values issued so far, the current value is computed from it. The threads just increment it, so they never wait for each other.
     */
-   private long value = 0;
+   private final AtomicLong issued = new AtomicLong(0);
 
    /**
     * True when we should cycle over from the beginning when we reached the end.
     */
    private boolean cycle = true;
 
+   /**
+    * The number of values reserved by a thread at once.
+    */
+   private int blockSize = 1;
+
+   /**
+    * The blocks of values reserved by the individual threads. A new instance is created on reset to forget all the reserved blocks.
+    */
+   private volatile ThreadLocal<Block> blocks = new ThreadLocal<>();
+
+   /**
+    * A block of consecutive sequence values reserved by a single thread.
+    */
+   private static final class Block {
+
+      /**
+       * The index of the next value to be published from the block.
+       */
+      private long next;
+
+      /**
+       * The number of values remaining in the block.
+       */
+      private int remaining;
+   }
+
    @Override
-   public final synchronized void publishNext(final String sequenceId, final Properties values) {
-      final long res = value;
-      final boolean internalCycle = isCycle();
-
-      long newValue = value + step;
-
-      if (step > 0) {
-         if (newValue < value && end > Long.MIN_VALUE) { // overflow
-            if (!internalCycle) {
-               newValue = Long.MAX_VALUE;
-            }
-         }
-
-         value = newValue;
-
-         if (end > Long.MIN_VALUE && value > end) {
-            if (internalCycle) {
-               value = start;
-            } else {
-               value = end;
-            }
-         }
-      } else {
-         if (newValue > value && end < Long.MAX_VALUE) { // underflow
-            if (!internalCycle) {
-               newValue = Long.MIN_VALUE;
-            }
-         }
-
-         value = newValue;
-
-         if (end < Long.MAX_VALUE && value < end) {
-            if (internalCycle) {
-               value = start;
-            } else {
-               value = end;
-            }
-         }
+   public final void publishNext(final String sequenceId, final Properties values) {
+      values.setProperty(sequenceId, Long.toString(valueAt(blockSize > 1 ? nextFromBlock() : issued.getAndIncrement())));
+   }
+
+   /**
+    * Gets the index of the next value from the block reserved by the current thread. A new block is reserved when the current one is exhausted.
+    *
+    * @return The index of the next value in the sequence.
+    */
+   private long nextFromBlock() {
+      final ThreadLocal<Block> threadBlocks = blocks;
+      Block block = threadBlocks.get();
+      if (block == null) {
+         block = new Block();
+         threadBlocks.set(block);
+      }
+
+      if (block.remaining == 0) {
+         block.next = issued.getAndAdd(blockSize);
+         block.remaining = blockSize;
+      }
+
+      block.remaining--;
+
+      return block.next++;
+   }
+
+   /**
+    * Computes the value at the given index of the sequence. It takes care of the boundaries, cycling over, and overflows.
+    * A step overflowing a bounded sequence is handled the same way as a step past its last value.
+    *
+    * @param index
+    *       The index of the value, treated as an unsigned number.
+    * @return The value at the given index.
+    */
+   private long valueAt(final long index) {
+      if (index == 0) {
+         return start;
+      }
 
+      if (step == 0) { // the value does not move, only the check of the last value applies
+         return end < Long.MAX_VALUE && start < end ? (isCycle() ? start : end) : start;
       }
 
-      values.setProperty(sequenceId, Long.toString(res));
+      final boolean ascending = step > 0;
+      if (ascending ? end == Long.MIN_VALUE : end == Long.MAX_VALUE) { // the last value is not checked
+         return start + index * step;
+      }
+
+      if (ascending ? start > end : start < end) { // the very first step is past the last value
+         return isCycle() ? start : end;
+      }
+
+      // the number of steps that fit between the start and the last value, the distance and the step are unsigned
+      final long steps = Long.divideUnsigned(ascending ? end - start : start - end, ascending ? step : -step);
+
+      if (isCycle()) {
+         final long period = steps + 1;
+         return period == 0 ? start + index * step : start + Long.remainderUnsigned(index, period) * step; // zero period covers all longs
+      } else {
+         return Long.compareUnsigned(index, steps) <= 0 ? start + index * step : end;
+      }
+   }
+
+   @Override
+   public void reset() throws PerfCakeException {
+      blocks = new ThreadLocal<>();
+      issued.set(0);
    }
 
    @Override
-   public synchronized void reset() throws PerfCakeException {
-      value = getStart();
+   public void partition(final int index, final int count) {
+      start = start + index * step;
+      step = step * count;
    }
 
    /**
@@ -196,4 +255,26 @@ public class NumberSequence implements Sequence {
       this.cycle = cycle;
       return this;
    }
+
+   /**
+    * Gets the number of values reserved by a thread at once.
+    *
+    * @return The number of values reserved by a thread at once.
+    */
+   public int getBlockSize() {
+      return blockSize;
+   }
+
+   /**
+    * Sets the number of values reserved by a thread at once. The default value of 1 keeps the values published in the order of the sequence
+    * over all threads. Larger blocks reduce the contention among threads but the values are not published in order any more.
+    *
+    * @param blockSize
+    *       The number of values reserved by a thread at once.
+    * @return Instance of this to support fluent API.
+    */
+   public NumberSequence setBlockSize(final int blockSize) {
+      this.blockSize = Math.max(1, blockSize);
+      return this;
+   }
 }
@@ -33,9 +33,25 @@ public class PrimitiveNumberSequence implements Sequence {
 
    private AtomicLong number = new AtomicLong(0);
 
+   /**
+    * The first value of the sequence, it is non-zero only when the sequence is partitioned among several workers.
+    */
+   private long offset = 0;
+
+   /**
+    * The difference between two consecutive values, it is larger than one only when the sequence is partitioned among several workers.
+    */
+   private long stride = 1;
+
    @Override
    public final void publishNext(final String sequenceId, final Properties values) {
-      values.setProperty(sequenceId, Long.toString(number.getAndIncrement()));
+      values.setProperty(sequenceId, Long.toString(offset + stride * number.getAndIncrement()));
+   }
+
+   @Override
+   public void partition(final int index, final int count) {
+      offset = index;
+      stride = count;
    }
 
    @Override
@@ -22,10 +22,12 @@ package org.perfcake.message.sequence;
 import org.perfcake.PerfCakeException;
 
 import java.util.Properties;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Sequence of random numbers in the given range &lt;min, max).
+ * Each thread uses its own random number generator split from a common root generator, so the threads never contend for it.
+ * When a seed is set, each run of a single thread produces the same numbers.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -42,18 +44,38 @@ public class RandomSequence implements Sequence {
    private int max = 100;
 
    /**
-    * Random number generator.
+    * The seed of the root random number generator, null for a random seed.
     */
-   private Random rnd = new Random();
+   private Long seed = null;
+
+   /**
+    * The root random number generator from which the generators of the individual threads are split.
+    */
+   private SplittableRandom root = new SplittableRandom();
+
+   /**
+    * Random number generators of the individual threads. A new instance is created on reset to start with new generators.
+    */
+   private volatile ThreadLocal<SplittableRandom> rnd = ThreadLocal.withInitial(this::split);
 
    @Override
    public final void publishNext(final String sequenceId, final Properties values) {
-      values.setProperty(sequenceId, String.valueOf(rnd.nextInt(max - min) + min));
+      values.setProperty(sequenceId, String.valueOf(rnd.get().nextInt(min, max)));
+   }
+
+   /**
+    * Creates a new random number generator for the current thread.
+    *
+    * @return A new random number generator.
+    */
+   private synchronized SplittableRandom split() {
+      return root.split();
    }
 
    @Override
-   public void reset() throws PerfCakeException {
-      // we could create a new instance of random, but it does not make much sense
+   public synchronized void reset() throws PerfCakeException {
+      root = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+      rnd = ThreadLocal.withInitial(this::split);
    }
 
    /**
@@ -97,4 +119,25 @@ public class RandomSequence implements Sequence {
       this.max = max;
       return this;
    }
+
+   /**
+    * Gets the seed of the random number generator.
+    *
+    * @return The seed, null when a random seed is used.
+    */
+   public Long getSeed() {
+      return seed;
+   }
+
+   /**
+    * Sets the seed of the random number generator. The seed is used since the next reset of the sequence.
+    *
+    * @param seed
+    *       The seed, null to use a random seed.
+    * @return Instance of this to support fluent API.
+    */
+   public RandomSequence setSeed(final Long seed) {
+      this.seed = seed;
+      return this;
+   }
 }
@@ -40,6 +40,29 @@ public interface Sequence {
     */
    void publishNext(final String sequenceId, final Properties values);
 
+   /**
+    * Whether the sequence must publish its next value right when the snapshot of sequence values is taken,
+    * instead of lazily when the value is used for the first time. This is needed for sequences whose value depends
+    * on the thread or the moment of publishing, because the value can be first used by another thread later (e.g. by a reporter).
+    *
+    * @return True if and only if the value must be published when the snapshot is taken.
+    * @see SequenceSnapshot
+    */
+   default boolean isEager() {
+      return false;
+   }
+
+   /**
+    * Whether the sequence publishes more values than just the one under its id. The values of such sequences are published
+    * whenever an attribute that is not known yet is looked up, because it might be one of them.
+    *
+    * @return True if and only if the sequence can publish values under other names than its id.
+    * @see SequenceSnapshot
+    */
+   default boolean isMultiValued() {
+      return false;
+   }
+
    /**
     * Resets the sequence.
     * This method is called at the very beginning, so it can be used to perform any initialization steps as well.
@@ -49,4 +72,17 @@ public interface Sequence {
     */
    default void reset() throws PerfCakeException {
    }
+
+   /**
+    * Restricts the sequence to a part of its values when the load is generated by several distributed workers,
+    * so that the workers do not produce the same values. Sequences without ordered values ignore this.
+    * The sequence is reset after this call.
+    *
+    * @param index
+    *       The index of the worker starting from 0.
+    * @param count
+    *       The total number of workers.
+    */
+   default void partition(final int index, final int count) {
+   }
 }
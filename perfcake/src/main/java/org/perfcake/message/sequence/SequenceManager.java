@@ -21,7 +21,10 @@ package org.perfcake.message.sequence;
 
 import org.perfcake.PerfCakeException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -31,6 +34,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 /**
  * Keeps a registry of existing sequences.
@@ -42,7 +46,12 @@ public class SequenceManager {
    /**
     * Registry of sequences.
     */
-   private Map<String, Sequence> sequences = new HashMap<>();
+   private Map<String, Sequence> sequences = new LinkedHashMap<>();
+
+   /**
+    * The sequences compiled to arrays for the snapshots.
+    */
+   private CompiledSequences compiled = new CompiledSequences(sequences);
 
    /**
     * Registers a new sequence in the registry.
@@ -56,20 +65,197 @@ public class SequenceManager {
     */
    public void addSequence(final String id, final Sequence sequence) throws PerfCakeException {
       sequences.put(id, sequence);
+      compiled = new CompiledSequences(sequences);
       sequence.reset();
    }
 
    /**
-    * Gets a snapshot of current next values of all sequences in the registry using {@link Sequence#publishNext(String, Properties)}.
+    * Gets a snapshot of next values of all sequences in the registry. The sequences are asked for their next values
+    * using {@link Sequence#publishNext(String, Properties)} lazily, only when the values are actually used.
+    * The snapshot can be reused for the next iteration after calling {@link SequenceSnapshot#clear()}.
     *
     * @return Snapshot of the values as properties in the form sequence name -&gt; sequence next value.
+    * @see SequenceSnapshot
+    */
+   public SequenceSnapshot getSnapshot() {
+      return new SequenceSnapshot(compiled);
+   }
+
+   /**
+    * Gets the ids of the sequences whose values depend on the thread or the moment of publishing.
+    *
+    * @return The ids of the eager sequences.
+    * @see Sequence#isEager()
+    */
+   public List<String> getEagerSequenceIds() {
+      final List<String> ids = new ArrayList<>();
+      for (final int i : compiled.getEager()) {
+         ids.add(compiled.getId(i));
+      }
+
+      return ids;
+   }
+
+   /**
+    * Immutable arrays of the registered sequences and their ids with an index to look up the sequences by id.
     */
-   public Properties getSnapshot() {
-      final Properties snapshot = new Properties();
+   static final class CompiledSequences {
+
+      /**
+       * The sequence ids.
+       */
+      private final String[] ids;
+
+      /**
+       * The sequences in the same order as their ids.
+       */
+      private final Sequence[] sequences;
+
+      /**
+       * The indexes of the sequences that must be published eagerly.
+       */
+      private final int[] eager;
+
+      /**
+       * Whether the sequence with the given index publishes more values than the one under its id.
+       */
+      private final boolean[] multiValued;
+
+      /**
+       * The number of sequences publishing more values than the one under their id.
+       */
+      private final int multiValuedCount;
 
-      sequences.forEach((k, v) -> v.publishNext(k, snapshot));
+      /**
+       * The index of the sequences by their ids.
+       */
+      private final Map<String, Integer> index = new HashMap<>();
 
-      return snapshot;
+      /**
+       * Compiles the given sequences.
+       *
+       * @param registry
+       *       The registry of sequences.
+       */
+      private CompiledSequences(final Map<String, Sequence> registry) {
+         ids = new String[registry.size()];
+         sequences = new Sequence[registry.size()];
+
+         int i = 0;
+         for (final Map.Entry<String, Sequence> sequence : registry.entrySet()) {
+            ids[i] = sequence.getKey();
+            sequences[i] = sequence.getValue();
+            index.put(ids[i], i);
+            i++;
+         }
+
+         eager = IntStream.range(0, sequences.length).filter(s -> sequences[s].isEager()).toArray();
+
+         multiValued = new boolean[sequences.length];
+         int count = 0;
+         for (int s = 0; s < sequences.length; s++) {
+            multiValued[s] = sequences[s].isMultiValued();
+            count = count + (multiValued[s] ? 1 : 0);
+         }
+         multiValuedCount = count;
+      }
+
+      /**
+       * Gets the number of sequences.
+       *
+       * @return The number of sequences.
+       */
+      int size() {
+         return ids.length;
+      }
+
+      /**
+       * Gets the id of the sequence with the given index.
+       *
+       * @param i
+       *       The index of the sequence.
+       * @return The sequence id.
+       */
+      String getId(final int i) {
+         return ids[i];
+      }
+
+      /**
+       * Gets the sequence with the given index.
+       *
+       * @param i
+       *       The index of the sequence.
+       * @return The sequence.
+       */
+      Sequence getSequence(final int i) {
+         return sequences[i];
+      }
+
+      /**
+       * Gets the indexes of the sequences that must be published when the snapshot is taken.
+       *
+       * @return The indexes of the eager sequences.
+       * @see Sequence#isEager()
+       */
+      int[] getEager() {
+         return eager;
+      }
+
+      /**
+       * Checks whether the sequence with the given index publishes more values than the one under its id.
+       *
+       * @param i
+       *       The index of the sequence.
+       * @return True if and only if the sequence is multi-valued.
+       * @see Sequence#isMultiValued()
+       */
+      boolean isMultiValued(final int i) {
+         return multiValued[i];
+      }
+
+      /**
+       * Gets the number of sequences publishing more values than the one under their id.
+       *
+       * @return The number of multi-valued sequences.
+       * @see Sequence#isMultiValued()
+       */
+      int getMultiValuedCount() {
+         return multiValuedCount;
+      }
+
+      /**
+       * Gets the index of the sequence with the given id.
+       *
+       * @param id
+       *       The sequence id.
+       * @return The index of the sequence, or -1 when there is no such sequence.
+       */
+      int indexOf(final Object id) {
+         if (ids.length == 0) {
+            return -1;
+         }
+
+         final Integer i = index.get(id);
+         return i == null ? -1 : i;
+      }
+   }
+
+   /**
+    * Restricts all the sequences to a part of their values when the load is generated by several distributed workers.
+    *
+    * @param index
+    *       The index of the worker starting from 0.
+    * @param count
+    *       The total number of workers.
+    * @throws PerfCakeException
+    *       When it was not possible to reset any of the sequences.
+    * @see Sequence#partition(int, int)
+    */
+   public void partition(final int index, final int count) throws PerfCakeException {
+      for (final Sequence sequence : sequences.values()) {
+         sequence.partition(index, count);
+         sequence.reset();
+      }
    }
 
 }
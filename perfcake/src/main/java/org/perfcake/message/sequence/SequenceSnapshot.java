@@ -0,0 +1,514 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.sequence;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Message attributes with the values of sequences published lazily. A sequence is asked for its next value only when the value
+ * is actually used for the first time, e.g. when a message template or a sender target with the sequence placeholder is rendered.
+ * Sequences that are not referenced anywhere are not advanced at all. The published values are kept in an array indexed by
+ * the order of the sequences in {@link SequenceManager}, so there is no hash table update per sequence and iteration.
+ *
+ * <p>Any operation that works with all the attributes (e.g. iterating over them, copying them or getting their count) publishes
+ * the remaining sequences first and then behaves exactly as ordinary properties. This is needed for the senders passing all the attributes
+ * to the target system. When an unknown attribute is looked up, only the sequences publishing more values than just the one under their id
+ * (see {@link Sequence#isMultiValued()}) are published, because the attribute might be one of their values.</p>
+ *
+ * <p>Sequences whose values depend on the thread or the moment of publishing (see {@link Sequence#isEager()}) are published
+ * right when the snapshot is created or cleared.</p>
+ *
+ * <p>The snapshot is filled and read by the thread processing the iteration. Other threads (e.g. the validation) can read it after
+ * the iteration has been handed over to them.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class SequenceSnapshot extends Properties {
+
+   private static final long serialVersionUID = 6413985471028397551L;
+
+   /**
+    * The compiled sequences of the sequence manager.
+    */
+   private final transient SequenceManager.CompiledSequences sequences;
+
+   /**
+    * The published sequence values indexed by the sequence index.
+    */
+   private final transient Object[] values;
+
+   /**
+    * Whether the sequence with the given index was already asked for its next value.
+    */
+   private final transient boolean[] published;
+
+   /**
+    * The number of sequences publishing more values than the one under their id that were not published yet.
+    */
+   private transient int unpublishedMultiValued;
+
+   /**
+    * True when all the values were moved to the underlying properties and the snapshot behaves as ordinary properties.
+    */
+   private transient boolean materialized = false;
+
+   /**
+    * Creates a new empty snapshot of the given sequences.
+    *
+    * @param sequences
+    *       The compiled sequences of the sequence manager.
+    */
+   SequenceSnapshot(final SequenceManager.CompiledSequences sequences) {
+      this.sequences = sequences;
+      this.values = new Object[sequences.size()];
+      this.published = new boolean[sequences.size()];
+      this.unpublishedMultiValued = sequences.getMultiValuedCount();
+      publishEager();
+   }
+
+   /**
+    * Publishes the sequences that cannot wait until their values are used.
+    *
+    * @see Sequence#isEager()
+    */
+   private void publishEager() {
+      for (final int index : sequences.getEager()) {
+         publish(index);
+      }
+   }
+
+   /**
+    * Asks the sequences whose values depend on the thread or the moment of publishing for their next values again in the current thread.
+    * This is needed when the snapshot was taken in advance by another thread.
+    *
+    * @see Sequence#isEager()
+    */
+   public synchronized void republishEager() {
+      for (final int index : sequences.getEager()) {
+         sequences.getSequence(index).publishNext(sequences.getId(index), this);
+      }
+   }
+
+   /**
+    * Gets the value of the sequence with the given index. The sequence is asked for its next value on the first call.
+    *
+    * @param index
+    *       The index of the sequence.
+    * @return The value of the sequence.
+    */
+   private Object valueOf(final int index) {
+      if (!published[index]) {
+         publish(index);
+      }
+
+      return values[index];
+   }
+
+   /**
+    * Asks the sequence with the given index for its next value unless it was already done.
+    *
+    * @param index
+    *       The index of the sequence.
+    */
+   private synchronized void publish(final int index) {
+      if (!published[index]) {
+         published[index] = true; // set first to store the value in the array in put()
+         onPublished(index);
+         sequences.getSequence(index).publishNext(sequences.getId(index), this);
+      }
+   }
+
+   /**
+    * Keeps track of the multi-valued sequences that were not published yet.
+    *
+    * @param index
+    *       The index of the sequence that was just marked as published.
+    */
+   private void onPublished(final int index) {
+      if (sequences.isMultiValued(index)) {
+         unpublishedMultiValued--;
+      }
+   }
+
+   /**
+    * Publishes the remaining sequences that publish more values than the one under their id.
+    *
+    * @see Sequence#isMultiValued()
+    */
+   private synchronized void publishMultiValued() {
+      for (int i = 0; i < values.length && unpublishedMultiValued > 0; i++) {
+         if (sequences.isMultiValued(i)) {
+            publish(i);
+         }
+      }
+   }
+
+   /**
+    * Publishes all the remaining sequences and moves all the values to the underlying properties.
+    * Since then, the snapshot behaves as ordinary properties.
+    */
+   private void materialize() {
+      if (!materialized) {
+         synchronized (this) {
+            if (!materialized) {
+               for (int i = 0; i < values.length; i++) {
+                  publish(i);
+               }
+
+               materialized = true;
+               for (int i = 0; i < values.length; i++) {
+                  if (values[i] != null) {
+                     super.put(sequences.getId(i), values[i]);
+                  }
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Finds the index of the sequence with the given id while the values are kept in the array.
+    *
+    * @param key
+    *       The attribute name.
+    * @return The index of the sequence, or -1 when the key is not a sequence id or the snapshot has already been materialized.
+    */
+   private int indexOf(final Object key) {
+      return materialized ? -1 : sequences.indexOf(key);
+   }
+
+   @Override
+   public String getProperty(final String key) {
+      final int index = indexOf(key);
+      if (index >= 0) {
+         final Object value = valueOf(index);
+         return value instanceof String ? (String) value : null;
+      }
+
+      final String value = super.getProperty(key);
+      if (value == null && unpublishedMultiValued > 0 && !materialized) { // a sequence might publish more than its own value
+         publishMultiValued();
+         return super.getProperty(key);
+      }
+
+      return value;
+   }
+
+   @Override
+   public String getProperty(final String key, final String defaultValue) {
+      final String value = getProperty(key);
+      return value == null ? defaultValue : value;
+   }
+
+   @Override
+   public Object get(final Object key) {
+      final int index = indexOf(key);
+      if (index >= 0) {
+         return valueOf(index);
+      }
+
+      final Object value = super.get(key);
+      if (value == null && unpublishedMultiValued > 0 && !materialized) {
+         publishMultiValued();
+         return super.get(key);
+      }
+
+      return value;
+   }
+
+   @Override
+   public boolean containsKey(final Object key) {
+      return get(key) != null;
+   }
+
+   @Override
+   public Object getOrDefault(final Object key, final Object defaultValue) {
+      final Object value = get(key);
+      return value == null ? defaultValue : value;
+   }
+
+   @Override
+   public synchronized Object setProperty(final String key, final String value) {
+      return put(key, value);
+   }
+
+   @Override
+   public synchronized Object put(final Object key, final Object value) {
+      final int index = indexOf(key);
+      if (index >= 0) {
+         if (value == null) {
+            throw new NullPointerException();
+         }
+
+         final Object previous = published[index] ? values[index] : null;
+         if (!published[index]) { // explicitly set values take precedence over the sequence
+            published[index] = true;
+            onPublished(index);
+         }
+         values[index] = value;
+
+         return previous;
+      }
+
+      return super.put(key, value);
+   }
+
+   @Override
+   public synchronized void putAll(final Map<?, ?> t) {
+      for (final Map.Entry<?, ?> entry : t.entrySet()) {
+         put(entry.getKey(), entry.getValue());
+      }
+   }
+
+   @Override
+   public synchronized void clear() {
+      super.clear();
+      for (int i = 0; i < values.length; i++) {
+         values[i] = null;
+         published[i] = false;
+      }
+      unpublishedMultiValued = sequences.getMultiValuedCount();
+      materialized = false;
+      publishEager();
+   }
+
+   @Override
+   public synchronized Object remove(final Object key) {
+      materialize();
+      return super.remove(key);
+   }
+
+   @Override
+   public synchronized boolean remove(final Object key, final Object value) {
+      materialize();
+      return super.remove(key, value);
+   }
+
+   @Override
+   public synchronized Object putIfAbsent(final Object key, final Object value) {
+      materialize();
+      return super.putIfAbsent(key, value);
+   }
+
+   @Override
+   public synchronized boolean replace(final Object key, final Object oldValue, final Object newValue) {
+      materialize();
+      return super.replace(key, oldValue, newValue);
+   }
+
+   @Override
+   public synchronized Object replace(final Object key, final Object value) {
+      materialize();
+      return super.replace(key, value);
+   }
+
+   @Override
+   public synchronized void replaceAll(final BiFunction<? super Object, ? super Object, ?> function) {
+      materialize();
+      super.replaceAll(function);
+   }
+
+   @Override
+   public synchronized Object computeIfAbsent(final Object key, final Function<? super Object, ?> mappingFunction) {
+      materialize();
+      return super.computeIfAbsent(key, mappingFunction);
+   }
+
+   @Override
+   public synchronized Object computeIfPresent(final Object key, final BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+      materialize();
+      return super.computeIfPresent(key, remappingFunction);
+   }
+
+   @Override
+   public synchronized Object compute(final Object key, final BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+      materialize();
+      return super.compute(key, remappingFunction);
+   }
+
+   @Override
+   public synchronized Object merge(final Object key, final Object value, final BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+      materialize();
+      return super.merge(key, value, remappingFunction);
+   }
+
+   @Override
+   public int size() {
+      materialize();
+      return super.size();
+   }
+
+   @Override
+   public boolean isEmpty() {
+      materialize();
+      return super.isEmpty();
+   }
+
+   @Override
+   public Enumeration<Object> keys() {
+      materialize();
+      return super.keys();
+   }
+
+   @Override
+   public Enumeration<Object> elements() {
+      materialize();
+      return super.elements();
+   }
+
+   @Override
+   public boolean contains(final Object value) {
+      materialize();
+      return super.contains(value);
+   }
+
+   @Override
+   public boolean containsValue(final Object value) {
+      materialize();
+      return super.containsValue(value);
+   }
+
+   @Override
+   public Enumeration<?> propertyNames() {
+      materialize();
+      return super.propertyNames();
+   }
+
+   @Override
+   public Set<String> stringPropertyNames() {
+      materialize();
+      return super.stringPropertyNames();
+   }
+
+   @Override
+   public Set<Object> keySet() {
+      materialize();
+      return super.keySet();
+   }
+
+   @Override
+   public Collection<Object> values() {
+      materialize();
+      return super.values();
+   }
+
+   @Override
+   public Set<Map.Entry<Object, Object>> entrySet() {
+      materialize();
+      return super.entrySet();
+   }
+
+   @Override
+   public synchronized void forEach(final BiConsumer<? super Object, ? super Object> action) {
+      materialize();
+      super.forEach(action);
+   }
+
+   @Override
+   public void list(final PrintStream out) {
+      materialize();
+      super.list(out);
+   }
+
+   @Override
+   public void list(final PrintWriter out) {
+      materialize();
+      super.list(out);
+   }
+
+   @Override
+   public void store(final Writer writer, final String comments) throws IOException {
+      materialize();
+      super.store(writer, comments);
+   }
+
+   @Override
+   public void store(final OutputStream out, final String comments) throws IOException {
+      materialize();
+      super.store(out, comments);
+   }
+
+   @Override
+   public void storeToXML(final OutputStream os, final String comment) throws IOException {
+      materialize();
+      super.storeToXML(os, comment);
+   }
+
+   @Override
+   public void storeToXML(final OutputStream os, final String comment, final String encoding) throws IOException {
+      materialize();
+      super.storeToXML(os, comment, encoding);
+   }
+
+   @Override
+   public synchronized String toString() {
+      materialize();
+      return super.toString();
+   }
+
+   @Override
+   public synchronized boolean equals(final Object o) {
+      materialize();
+      return super.equals(o);
+   }
+
+   @Override
+   public synchronized int hashCode() {
+      materialize();
+      return super.hashCode();
+   }
+
+   /**
+    * Creates a copy of all the attributes. The copy is an ordinary {@link Properties} instance.
+    *
+    * @return The copy of the attributes.
+    */
+   @Override
+   public synchronized Object clone() {
+      final Properties copy = new Properties();
+      copy.putAll(this);
+
+      return copy;
+   }
+
+   /**
+    * The snapshot is serialized as ordinary properties.
+    *
+    * @return The copy of the attributes.
+    * @throws ObjectStreamException
+    *       Never thrown, required by the serialization.
+    */
+   private Object writeReplace() throws ObjectStreamException {
+      return clone();
+   }
+}
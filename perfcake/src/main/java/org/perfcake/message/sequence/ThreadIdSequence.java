@@ -32,4 +32,9 @@ public class ThreadIdSequence implements Sequence {
    public final void publishNext(final String sequenceId, final Properties values) {
       values.setProperty(sequenceId, Long.toString(Thread.currentThread().getId()));
    }
+
+   @Override
+   public boolean isEager() {
+      return true;
+   }
 }
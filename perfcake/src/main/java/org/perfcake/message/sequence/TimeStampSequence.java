@@ -33,4 +33,9 @@ public class TimeStampSequence implements Sequence {
    public final void publishNext(final String sequenceId, final Properties values) {
       values.setProperty(sequenceId, Long.toString(System.currentTimeMillis()));
    }
+
+   @Override
+   public boolean isEager() {
+      return true;
+   }
 }
@@ -747,6 +747,14 @@ public class Scenario {
             protected String content;
             @XmlAttribute(name = "multiplicity")
             protected String multiplicity;
+            @XmlAttribute(name = "name")
+            protected String name;
+            @XmlAttribute(name = "weight")
+            protected String weight;
+            @XmlAttribute(name = "binary")
+            protected String binary;
+            @XmlAttribute(name = "mapped")
+            protected String mapped;
 
             /**
              * Gets the value of the header property.
@@ -907,6 +915,102 @@ public class Scenario {
                 this.multiplicity = value;
             }
 
+            /**
+             * Gets the value of the name property.
+             * 
+             * @return
+             *     possible object is
+             *     {@link String }
+             *     
+             */
+            public String getName() {
+                return name;
+            }
+
+            /**
+             * Sets the value of the name property.
+             * 
+             * @param value
+             *     allowed object is
+             *     {@link String }
+             *     
+             */
+            public void setName(String value) {
+                this.name = value;
+            }
+
+            /**
+             * Gets the value of the weight property.
+             * 
+             * @return
+             *     possible object is
+             *     {@link String }
+             *     
+             */
+            public String getWeight() {
+                return weight;
+            }
+
+            /**
+             * Sets the value of the weight property.
+             * 
+             * @param value
+             *     allowed object is
+             *     {@link String }
+             *     
+             */
+            public void setWeight(String value) {
+                this.weight = value;
+            }
+
+            /**
+             * Gets the value of the binary property.
+             * 
+             * @return
+             *     possible object is
+             *     {@link String }
+             *     
+             */
+            public String getBinary() {
+                return binary;
+            }
+
+            /**
+             * Sets the value of the binary property.
+             * 
+             * @param value
+             *     allowed object is
+             *     {@link String }
+             *     
+             */
+            public void setBinary(String value) {
+                this.binary = value;
+            }
+
+            /**
+             * Gets the value of the mapped property.
+             * 
+             * @return
+             *     possible object is
+             *     {@link String }
+             *     
+             */
+            public String getMapped() {
+                return mapped;
+            }
+
+            /**
+             * Sets the value of the mapped property.
+             * 
+             * @param value
+             *     allowed object is
+             *     {@link String }
+             *     
+             */
+            public void setMapped(String value) {
+                this.mapped = value;
+            }
+
 
             /**
              * <p>Java class for anonymous complex type.
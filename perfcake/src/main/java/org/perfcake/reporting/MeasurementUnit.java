@@ -20,10 +20,13 @@
 package org.perfcake.reporting;
 
 import org.perfcake.PerfCakeConst;
+import org.perfcake.PerfCakeException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -36,6 +39,8 @@ import java.util.Properties;
 /**
  * A result of the smallest measurement unit - an iteration.
  * One should obtain a new instance of a MeasurementUnit using {@link org.perfcake.reporting.ReportManager#newMeasurementUnit()}.
+ * The {@link StandardResult standard results} and the message attributes are kept in fixed fields, only the other custom results are stored in a map.
+ * The results can be still accessed by their names using {@link #getResult(String)} and {@link #getResults()}.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -48,10 +53,20 @@ public class MeasurementUnit implements Serializable {
     */
    private static final Logger log = LogManager.getLogger(MeasurementUnit.class);
 
+   /**
+    * All the standard results.
+    */
+   private static final StandardResult[] STANDARD_RESULTS = StandardResult.values();
+
+   /**
+    * The number of standard results that are always written in the fixed part of {@link #streamOut(ObjectOutputStream)}, the rest is written as custom results.
+    */
+   private static final int STREAMED_RESULTS = 4;
+
    /**
     * Iteration for which this unit was created.
     */
-   private final long iteration;
+   private long iteration;
 
    /**
     * Time when last measurement started. A unit may accumulate more measurements together.
@@ -73,6 +88,26 @@ public class MeasurementUnit implements Serializable {
     */
    private final Map<String, Object> measurementResults = new HashMap<>();
 
+   /**
+    * Read-only view of the custom results.
+    */
+   private final Map<String, Object> customResults = Collections.unmodifiableMap(measurementResults);
+
+   /**
+    * Values of the standard results indexed by {@link StandardResult#ordinal()}. Floating point values are stored as their raw long bits.
+    */
+   private final long[] standardResults = new long[STANDARD_RESULTS.length];
+
+   /**
+    * Bit mask of the standard results that were set.
+    */
+   private int presentResults = 0;
+
+   /**
+    * Message attributes of the iteration.
+    */
+   private Properties attributes = null;
+
    /**
     * When the measurement was first started in real time (timestamp value from {@link System#currentTimeMillis()}).
     */
@@ -96,11 +131,32 @@ public class MeasurementUnit implements Serializable {
     */
    protected MeasurementUnit(final long iteration) {
       this.iteration = iteration;
-      measurementResults.put(PerfCakeConst.FAILURES_TAG, 0L);
+      setResult(StandardResult.FAILURES, 0L);
    }
 
    /**
-    * Appends a custom result.
+    * Clears all the results and measured times so that the unit can be reused for another iteration.
+    * Use {@link org.perfcake.reporting.ReportManager#newMeasurementUnit(MeasurementUnit)} to recycle an already reported unit.
+    *
+    * @param iteration
+    *       The new iteration number.
+    */
+   protected void reset(final long iteration) {
+      this.iteration = iteration;
+      startTime = -1;
+      stopTime = -1;
+      totalTime = 0;
+      timeStarted = -1;
+      failure = null;
+      enqueueTime = System.nanoTime();
+      measurementResults.clear();
+      presentResults = 0;
+      attributes = null;
+      setResult(StandardResult.FAILURES, 0L);
+   }
+
+   /**
+    * Appends a custom result. The standard results and the message attributes are stored in their fixed fields.
     *
     * @param label
     *       The label of the result.
@@ -108,26 +164,183 @@ public class MeasurementUnit implements Serializable {
     *       The value of the result.
     */
    public void appendResult(final String label, final Object value) {
-      measurementResults.put(label, value);
+      if (PerfCakeConst.ATTRIBUTES_TAG.equals(label) && (value == null || value instanceof Properties)) {
+         attributes = (Properties) value;
+         return;
+      }
+
+      final StandardResult result = StandardResult.forTag(label);
+      if (result != null && value instanceof Number) {
+         if (result.isDecimal()) {
+            setResult(result, ((Number) value).doubleValue());
+         } else {
+            setResult(result, ((Number) value).longValue());
+         }
+         measurementResults.remove(label);
+      } else {
+         if (result != null) {
+            presentResults = presentResults & ~(1 << result.ordinal());
+         }
+         measurementResults.put(label, value);
+      }
+   }
+
+   /**
+    * Sets the value of a standard result.
+    *
+    * @param result
+    *       The standard result.
+    * @param value
+    *       The value of the result.
+    */
+   public void setResult(final StandardResult result, final long value) {
+      standardResults[result.ordinal()] = result.isDecimal() ? Double.doubleToRawLongBits(value) : value;
+      presentResults = presentResults | (1 << result.ordinal());
+   }
+
+   /**
+    * Sets the value of a standard result.
+    *
+    * @param result
+    *       The standard result.
+    * @param value
+    *       The value of the result.
+    */
+   public void setResult(final StandardResult result, final double value) {
+      standardResults[result.ordinal()] = result.isDecimal() ? Double.doubleToRawLongBits(value) : (long) value;
+      presentResults = presentResults | (1 << result.ordinal());
+   }
+
+   /**
+    * Checks whether the standard result was set.
+    *
+    * @param result
+    *       The standard result.
+    * @return True if and only if the result was set.
+    */
+   public boolean hasResult(final StandardResult result) {
+      return (presentResults & (1 << result.ordinal())) != 0;
+   }
+
+   /**
+    * Gets the value of a standard result as a long number.
+    *
+    * @param result
+    *       The standard result.
+    * @return The value of the result, 0 when the result was not set.
+    */
+   public long getLongResult(final StandardResult result) {
+      if (!hasResult(result)) {
+         return 0;
+      }
+
+      final long value = standardResults[result.ordinal()];
+      return result.isDecimal() ? (long) Double.longBitsToDouble(value) : value;
+   }
+
+   /**
+    * Gets the value of a standard result as a floating point number.
+    *
+    * @param result
+    *       The standard result.
+    * @return The value of the result, 0 when the result was not set.
+    */
+   public double getDoubleResult(final StandardResult result) {
+      if (!hasResult(result)) {
+         return 0;
+      }
+
+      final long value = standardResults[result.ordinal()];
+      return result.isDecimal() ? Double.longBitsToDouble(value) : value;
+   }
+
+   /**
+    * Gets the value of a standard result boxed in its type.
+    *
+    * @param result
+    *       The standard result.
+    * @return The value of the result, or null when the result was not set.
+    */
+   public Number getResult(final StandardResult result) {
+      if (!hasResult(result)) {
+         return null;
+      }
+
+      if (result.isDecimal()) {
+         return getDoubleResult(result);
+      } else if (result.getType() == Integer.class) {
+         return (int) getLongResult(result);
+      } else {
+         return getLongResult(result);
+      }
+   }
+
+   /**
+    * Gets the message attributes of the iteration.
+    *
+    * @return The message attributes, or null when there were no attributes.
+    */
+   public Properties getAttributes() {
+      return attributes;
    }
 
    /**
-    * Gets immutable map with all the custom results.
+    * Sets the message attributes of the iteration.
     *
-    * @return An immutable copy of the custom results map.
+    * @param attributes
+    *       The message attributes.
+    */
+   public void setAttributes(final Properties attributes) {
+      this.attributes = attributes;
+   }
+
+   /**
+    * Gets immutable map with all the results including the standard results and the message attributes.
+    * The map is created on each call, reporters processing each iteration should use the typed accessors and {@link #getCustomResults()} instead.
+    *
+    * @return An immutable copy of the results.
     */
    public Map<String, Object> getResults() {
-      return Collections.unmodifiableMap(measurementResults);
+      final Map<String, Object> results = new HashMap<>(measurementResults);
+      for (final StandardResult result : STANDARD_RESULTS) {
+         if (hasResult(result)) {
+            results.put(result.getTag(), getResult(result));
+         }
+      }
+
+      if (attributes != null) {
+         results.put(PerfCakeConst.ATTRIBUTES_TAG, attributes);
+      }
+
+      return Collections.unmodifiableMap(results);
+   }
+
+   /**
+    * Gets immutable view of the custom results that are not standard results nor the message attributes.
+    *
+    * @return An immutable view of the custom results.
+    */
+   public Map<String, Object> getCustomResults() {
+      return customResults;
    }
 
    /**
-    * Gets a custom result for the given label.
+    * Gets a result for the given label.
     *
     * @param label
-    *       The label of the custom result.
-    * @return The value for the given custom result.
+    *       The label of the result.
+    * @return The value for the given result.
     */
    public Object getResult(final String label) {
+      if (PerfCakeConst.ATTRIBUTES_TAG.equals(label) && attributes != null) {
+         return attributes;
+      }
+
+      final StandardResult result = StandardResult.forTag(label);
+      if (result != null && hasResult(result)) {
+         return getResult(result);
+      }
+
       return measurementResults.get(label);
    }
 
@@ -242,11 +455,7 @@ public class MeasurementUnit implements Serializable {
     *       The exception that happened or null to clear the failure flag.
     */
    public void setFailure(final Exception failure) {
-      if (failure != null) {
-         measurementResults.put(PerfCakeConst.FAILURES_TAG, 1L);
-      } else {
-         measurementResults.put(PerfCakeConst.FAILURES_TAG, 0L);
-      }
+      setResult(StandardResult.FAILURES, failure != null ? 1L : 0L);
       this.failure = failure;
    }
 
@@ -277,7 +486,7 @@ public class MeasurementUnit implements Serializable {
       result = 31 * result + (int) (stopTime ^ (stopTime >>> 32));
       long temp = Double.doubleToLongBits(totalTime);
       result = 31 * result + (int) (temp ^ (temp >>> 32));
-      result = 31 * result + measurementResults.hashCode();
+      result = 31 * result + getResults().hashCode();
       result = 31 * result + (int) (timeStarted ^ (timeStarted >>> 32));
       result = 31 * result + (int) (enqueueTime ^ (enqueueTime >>> 32));
       return result;
@@ -312,7 +521,7 @@ public class MeasurementUnit implements Serializable {
       if (Double.compare(that.totalTime, totalTime) != 0) {
          return false;
       }
-      if (!measurementResults.equals(that.measurementResults)) {
+      if (!getResults().equals(that.getResults())) {
          return false;
       }
 
@@ -327,7 +536,7 @@ public class MeasurementUnit implements Serializable {
             + ", startTime=" + startTime
             + ", stopTime=" + stopTime
             + ", totalTime=" + totalTime
-            + ", measurementResults=" + measurementResults
+            + ", measurementResults=" + getResults()
             + ", timeStarted=" + timeStarted
             + ']';
    }
@@ -341,69 +550,28 @@ public class MeasurementUnit implements Serializable {
     *       When there was an error writing the data.
     */
    public void streamOut(ObjectOutputStream oos) throws IOException {
-      oos.writeLong(iteration);
-      oos.writeLong(startTime);
-      oos.writeLong(stopTime);
-      oos.writeLong(timeStarted);
-      oos.writeLong(enqueueTime);
-      oos.writeDouble(totalTime);
-
-      // write FAILURES_TAG
-      final Long failures = (Long) measurementResults.get(PerfCakeConst.FAILURES_TAG);
-      oos.writeLong(failures == null ? 0 : failures);
-
-      // write THREADS_TAG
-      final Integer threads = (Integer) measurementResults.get(PerfCakeConst.THREADS_TAG);
-      oos.writeInt(threads == null ? 0 : threads);
-
-      // write REQUEST_SIZE_TAG
-      final Long requestSize = (Long) measurementResults.get(PerfCakeConst.REQUEST_SIZE_TAG);
-      oos.writeLong(requestSize == null ? 0 : requestSize);
-
-      // write RESPONSE_SIZE_TAG
-      final Long responseSize = (Long) measurementResults.get(PerfCakeConst.RESPONSE_SIZE_TAG);
-      oos.writeLong(responseSize == null ? 0 : responseSize);
-
-      // write all results from the map except for FAILURES_TAG and properties under ATTRIBUTES_TAG
-      int size = measurementResults.size() - (measurementResults.get(PerfCakeConst.ATTRIBUTES_TAG) != null ? 1 : 0)
-            - (failures != null ? 1 : 0) - (threads != null ? 1 : 0) - (requestSize != null ? 1 : 0) - (responseSize != null ? 1 : 0);
-      oos.writeInt(size);
+      writeFixedPart(oos);
+
+      // write all the other results
+      oos.writeInt(getStreamedResultsCount());
+
+      for (int i = STREAMED_RESULTS; i < STANDARD_RESULTS.length; i++) {
+         if (hasResult(STANDARD_RESULTS[i])) {
+            oos.writeUTF(STANDARD_RESULTS[i].getTag());
+            oos.writeObject(getResult(STANDARD_RESULTS[i]));
+         }
+      }
+
       measurementResults.forEach((key, value) -> {
-         if (!PerfCakeConst.ATTRIBUTES_TAG.equals(key) && !PerfCakeConst.FAILURES_TAG.equals(key) && !PerfCakeConst.THREADS_TAG.equals(key)
-               && !PerfCakeConst.REQUEST_SIZE_TAG.equals(key) && !PerfCakeConst.RESPONSE_SIZE_TAG.equals(key)) {
-            try {
-               oos.writeUTF(key);
-               oos.writeObject(value);
-            } catch (IOException e) {
-               log.warn("Unable to serialize Measurement Unit: ", e);
-            }
+         try {
+            oos.writeUTF(key);
+            oos.writeObject(value);
+         } catch (IOException e) {
+            log.warn("Unable to serialize Measurement Unit: ", e);
          }
       });
 
-      // write properties under ATTRIBUTES_TAG
-      final Properties props = (Properties) measurementResults.get(PerfCakeConst.ATTRIBUTES_TAG);
-      if (props == null) {
-         oos.writeLong(0);
-         oos.writeInt(0);
-      } else {
-
-         //write iteration number in the attributes
-         final String iteration = props.getProperty(PerfCakeConst.ITERATION_NUMBER_PROPERTY);
-         oos.writeLong(iteration == null ? 0 : Long.parseLong(iteration));
-
-         // write all remaining attributes
-         oos.writeInt(props.size() - (iteration != null ? 1 : 0));
-         props.forEach((key, value) -> {
-            if (!PerfCakeConst.ITERATION_NUMBER_PROPERTY.equals(key)) {
-               try {
-                  oos.writeUTF((String) key);
-                  oos.writeUTF((String) value);
-               } catch (IOException e) {
-                  log.warn("Unable to serialize Measurement Unit: ", e);
-               }
-            }
-         });
-      }
+      writeAttributes(oos);
 
       // write exception if it is stored
       oos.writeInt(failure == null ? 0 : 1);
@@ -412,6 +580,69 @@ public class MeasurementUnit implements Serializable {
       }
    }
 
+   /**
+    * Writes this instance in the same compact form as {@link #streamOut(ObjectOutputStream)} but without Java serialization.
+    * Only numbers, booleans and strings are written as they are, any other result is written as its string representation
+    * and the failure is written as its description. This is suitable for transferring the Measurement Units from untrusted sources.
+    *
+    * @param out
+    *       The output to write the data to.
+    * @throws IOException
+    *       When there was an error writing the data.
+    * @see #readFrom(DataInput)
+    */
+   public void writeTo(final DataOutput out) throws IOException {
+      writeFixedPart(out);
+
+      out.writeInt(getStreamedResultsCount());
+
+      for (int i = STREAMED_RESULTS; i < STANDARD_RESULTS.length; i++) {
+         if (hasResult(STANDARD_RESULTS[i])) {
+            out.writeUTF(STANDARD_RESULTS[i].getTag());
+            writeValue(out, getResult(STANDARD_RESULTS[i]));
+         }
+      }
+
+      for (final Map.Entry<String, Object> result : measurementResults.entrySet()) {
+         out.writeUTF(result.getKey());
+         writeValue(out, result.getValue());
+      }
+
+      writeAttributes(out);
+
+      out.writeBoolean(failure != null);
+      if (failure != null) {
+         out.writeUTF(failure.toString());
+      }
+   }
+
+   /**
+    * Reads the Measurement Unit written by {@link #writeTo(DataOutput)}. No objects are deserialized, the failure is restored
+    * as a {@link PerfCakeException} with the original description.
+    *
+    * @param in
+    *       The input to read the data from.
+    * @return The restored {@link MeasurementUnit}.
+    * @throws IOException
+    *       When there was an I/O error reading data or the data were malformed.
+    */
+   public static MeasurementUnit readFrom(final DataInput in) throws IOException {
+      final MeasurementUnit mu = readFixedPart(in);
+
+      final int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+         mu.appendResult(in.readUTF(), readValue(in));
+      }
+
+      readAttributes(in, mu);
+
+      if (in.readBoolean()) {
+         mu.failure = new PerfCakeException(in.readUTF());
+      }
+
+      return mu;
+   }
+
    /**
     * Reads the minimalistic serialization of Measurement Unit from the input stream.
     *
@@ -424,6 +655,56 @@ public class MeasurementUnit implements Serializable {
     *       When there was an I/O error reading data.
     */
    public static MeasurementUnit streamIn(ObjectInputStream in) throws ClassNotFoundException, IOException {
+      final MeasurementUnit mu = readFixedPart(in);
+
+      final int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+         mu.appendResult(in.readUTF(), in.readObject());
+      }
+
+      readAttributes(in, mu);
+
+      final int isFailure = in.readInt();
+      if (isFailure > 0) {
+         mu.failure = (Exception) in.readObject();
+      }
+
+      return mu;
+   }
+
+   /**
+    * Writes the times and the standard results that are always present.
+    *
+    * @param out
+    *       The output to write the data to.
+    * @throws IOException
+    *       When there was an error writing the data.
+    */
+   private void writeFixedPart(final DataOutput out) throws IOException {
+      out.writeLong(iteration);
+      out.writeLong(startTime);
+      out.writeLong(stopTime);
+      out.writeLong(timeStarted);
+      out.writeLong(enqueueTime);
+      out.writeDouble(totalTime);
+
+      // write the fixed standard results
+      out.writeLong(getLongResult(StandardResult.FAILURES));
+      out.writeInt((int) getLongResult(StandardResult.THREADS));
+      out.writeLong(getLongResult(StandardResult.REQUEST_SIZE));
+      out.writeLong(getLongResult(StandardResult.RESPONSE_SIZE));
+   }
+
+   /**
+    * Reads the times and the standard results written by {@link #writeFixedPart(DataOutput)}.
+    *
+    * @param in
+    *       The input to read the data from.
+    * @return A new Measurement Unit with the fixed part filled in.
+    * @throws IOException
+    *       When there was an I/O error reading data.
+    */
+   private static MeasurementUnit readFixedPart(final DataInput in) throws IOException {
       final MeasurementUnit mu = new MeasurementUnit(in.readLong());
       mu.startTime = in.readLong();
       mu.stopTime = in.readLong();
@@ -431,31 +712,142 @@ public class MeasurementUnit implements Serializable {
       mu.enqueueTime = in.readLong();
       mu.totalTime = in.readDouble();
 
-      mu.measurementResults.put(PerfCakeConst.FAILURES_TAG, in.readLong());
-      mu.measurementResults.put(PerfCakeConst.THREADS_TAG, in.readInt());
-      mu.measurementResults.put(PerfCakeConst.REQUEST_SIZE_TAG, in.readLong());
-      mu.measurementResults.put(PerfCakeConst.RESPONSE_SIZE_TAG, in.readLong());
+      mu.setResult(StandardResult.FAILURES, in.readLong());
+      mu.setResult(StandardResult.THREADS, in.readInt());
+      mu.setResult(StandardResult.REQUEST_SIZE, in.readLong());
+      mu.setResult(StandardResult.RESPONSE_SIZE, in.readLong());
 
-      int size = in.readInt();
-      for (int i = 0; i < size; i++) {
-         mu.measurementResults.put(in.readUTF(), in.readObject());
+      return mu;
+   }
+
+   /**
+    * Gets the number of results that are not written in the fixed part.
+    *
+    * @return The number of the other results.
+    */
+   private int getStreamedResultsCount() {
+      int size = measurementResults.size();
+      for (int i = STREAMED_RESULTS; i < STANDARD_RESULTS.length; i++) {
+         size = size + (hasResult(STANDARD_RESULTS[i]) ? 1 : 0);
       }
 
+      return size;
+   }
+
+   /**
+    * Writes the message attributes.
+    *
+    * @param out
+    *       The output to write the data to.
+    * @throws IOException
+    *       When there was an error writing the data.
+    */
+   private void writeAttributes(final DataOutput out) throws IOException {
+      final Properties props = attributes;
+      if (props == null) {
+         out.writeLong(0);
+         out.writeInt(0);
+      } else {
+
+         //write iteration number in the attributes
+         final String iteration = props.getProperty(PerfCakeConst.ITERATION_NUMBER_PROPERTY);
+         out.writeLong(iteration == null ? 0 : Long.parseLong(iteration));
+
+         // write all remaining attributes
+         out.writeInt(props.size() - (iteration != null ? 1 : 0));
+         props.forEach((key, value) -> {
+            if (!PerfCakeConst.ITERATION_NUMBER_PROPERTY.equals(key)) {
+               try {
+                  out.writeUTF((String) key);
+                  out.writeUTF((String) value);
+               } catch (IOException e) {
+                  log.warn("Unable to serialize Measurement Unit: ", e);
+               }
+            }
+         });
+      }
+   }
+
+   /**
+    * Reads the message attributes written by {@link #writeAttributes(DataOutput)}.
+    *
+    * @param in
+    *       The input to read the data from.
+    * @param mu
+    *       The Measurement Unit to store the attributes to.
+    * @throws IOException
+    *       When there was an I/O error reading data.
+    */
+   private static void readAttributes(final DataInput in, final MeasurementUnit mu) throws IOException {
       final Properties props = new Properties();
-      mu.measurementResults.put(PerfCakeConst.ATTRIBUTES_TAG, props);
+      mu.attributes = props;
 
       props.setProperty(PerfCakeConst.ITERATION_NUMBER_PROPERTY, String.valueOf(in.readLong()));
 
-      size = in.readInt();
+      final int size = in.readInt();
       for (int i = 0; i < size; i++) {
          props.setProperty(in.readUTF(), in.readUTF());
       }
+   }
 
-      final int isFailure = in.readInt();
-      if (isFailure > 0) {
-         mu.failure = (Exception) in.readObject();
+   /**
+    * Writes a result value with a tag of its type.
+    *
+    * @param out
+    *       The output to write the value to.
+    * @param value
+    *       The value to be written.
+    * @throws IOException
+    *       When there was an error writing the data.
+    */
+   private static void writeValue(final DataOutput out, final Object value) throws IOException {
+      if (value instanceof Long) {
+         out.writeByte('J');
+         out.writeLong((Long) value);
+      } else if (value instanceof Integer) {
+         out.writeByte('I');
+         out.writeInt((Integer) value);
+      } else if (value instanceof Double) {
+         out.writeByte('D');
+         out.writeDouble((Double) value);
+      } else if (value instanceof Float) {
+         out.writeByte('F');
+         out.writeFloat((Float) value);
+      } else if (value instanceof Boolean) {
+         out.writeByte('Z');
+         out.writeBoolean((Boolean) value);
+      } else {
+         out.writeByte('S');
+         out.writeUTF(String.valueOf(value));
       }
+   }
 
-      return mu;
+   /**
+    * Reads a result value written by {@link #writeValue(DataOutput, Object)}.
+    *
+    * @param in
+    *       The input to read the value from.
+    * @return The value.
+    * @throws IOException
+    *       When there was an I/O error reading data or the type of the value is unknown.
+    */
+   private static Object readValue(final DataInput in) throws IOException {
+      final byte type = in.readByte();
+      switch (type) {
+         case 'J':
+            return in.readLong();
+         case 'I':
+            return in.readInt();
+         case 'D':
+            return in.readDouble();
+         case 'F':
+            return in.readFloat();
+         case 'Z':
+            return in.readBoolean();
+         case 'S':
+            return in.readUTF();
+         default:
+            throw new IOException("Unknown type of a result value: " + type);
+      }
    }
-}
\ No newline at end of file
+}
@@ -33,10 +33,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Controls the reporting facilities.
@@ -71,16 +69,67 @@ public class ReportManager {
    private Thread periodicThread;
 
    /**
-    * Executor to synchronize reporting, for reporting not to need to be thread safe. All reporting is executed out of
+    * Pipeline to synchronize reporting, for reporting not to need to be thread safe. All reporting is executed out of
     * sender threads, in a separate thread.
     */
-   private ThreadPoolExecutor reportingTasks;
+   private volatile ReportingPipeline reportingPipeline;
+
+   /**
+    * The maximal number of measurement units waiting to be reported.
+    */
+   private int queueSize = 65_536;
+
+   /**
+    * What happens when the reporting queue is full.
+    */
+   private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+   /**
+    * Every n-th measurement unit is kept with {@link OverflowPolicy#SAMPLE} when the reporting queue is full.
+    */
+   private int sampleRate = 10;
+
+   /**
+    * Whether the measurement units should be passed to the reporters directly in the sender threads when all the reporters are concurrent.
+    */
+   private boolean concurrentReporting = false;
+
+   /**
+    * True when the measurement units are passed to the reporters directly in the sender threads and there is no reporting thread.
+    */
+   private volatile boolean directReporting = false;
+
+   /**
+    * The number of measurement units dropped in the last finished measurement.
+    */
+   private long droppedUnits = 0;
 
    /**
     * We need to be really fast.
     */
    private boolean isTraceEnabled = false;
 
+   /**
+    * What to do with a measurement unit when the reporting queue is full because the reporters cannot keep up with the load.
+    */
+   public enum OverflowPolicy {
+
+      /**
+       * The sender thread waits for a free place in the queue. No results are lost but the reporting slows down the measurement.
+       */
+      BLOCK,
+
+      /**
+       * The measurement unit is dropped and counted. The measurement is not affected but the results miss the dropped iterations.
+       */
+      DROP,
+
+      /**
+       * Only every {@link #getSampleRate()}-th measurement unit waits for a free place in the queue, the others are dropped and counted.
+       */
+      SAMPLE
+   }
+
    /**
     * Creates a new {@link org.perfcake.reporting.MeasurementUnit measurement unit} with a unique iteration number.
     *
@@ -94,6 +143,28 @@ public class ReportManager {
       return null;
    }
 
+   /**
+    * Recycles a {@link org.perfcake.reporting.MeasurementUnit measurement unit} that has been already reported and assigns it a new unique iteration number.
+    * The caller must make sure the unit is not referenced by any other component anymore, the best way is to use
+    * {@link #report(MeasurementUnit, Runnable)} and wait for its callback.
+    *
+    * @param measurementUnit
+    *       The measurement unit to be reused, null to create a new one.
+    * @return The recycled {@link org.perfcake.reporting.MeasurementUnit measurement unit} with a unique iteration number, or null if a measurement is not running or is already finished.
+    */
+   public MeasurementUnit newMeasurementUnit(final MeasurementUnit measurementUnit) {
+      if (measurementUnit == null) {
+         return newMeasurementUnit();
+      }
+
+      if (runInfo.isRunning()) {
+         measurementUnit.reset(runInfo.getNextIteration());
+         return measurementUnit;
+      }
+
+      return null;
+   }
+
    /**
     * Sets {@link org.perfcake.RunInfo} for the current measurement run.
     *
@@ -129,34 +200,67 @@ public class ReportManager {
     *       If reporting could not be done properly.
     */
    public void report(final MeasurementUnit measurementUnit) throws ReportingException {
-      if (reportingTasks != null) {
+      report(measurementUnit, null);
+   }
+
+   /**
+    * Reports a newly measured {@link MeasurementUnit}. Each Measurement Unit must be reported exactly once.
+    * The callback is invoked in the reporting thread (or in the calling thread with the concurrent reporting) once all the reporters processed the unit. Neither the unit nor
+    * its attributes are referenced by the reporting facilities after that and they can be reused. When the unit is dropped
+    * according to the {@link OverflowPolicy}, the callback is invoked immediately in the calling thread.
+    *
+    * @param measurementUnit
+    *       A MeasurementUnit to be reported.
+    * @param onReported
+    *       The callback to be invoked after the unit has been reported, null when not needed.
+    * @throws ReportingException
+    *       If reporting could not be done properly.
+    */
+   public void report(final MeasurementUnit measurementUnit, final Runnable onReported) throws ReportingException {
+      if (directReporting) {
          try {
-            reportingTasks.submit(() -> {
-               if (isTraceEnabled) {
-                  log.trace("Reporting a new measurement unit " + measurementUnit);
-               }
+            reportToReporters(measurementUnit);
+         } catch (final RuntimeException e) {
+            log.error("Error reporting a measurement unit " + measurementUnit, e);
+         }
 
-               if (runInfo.isStarted()) { // cannot use isRunning while we still want the last iteration to be reported
-                  for (final Reporter r : getReporters()) {
-                     try {
-                        r.report(measurementUnit);
-                     } catch (final ReportingException re) {
-                        log.error("Error reporting a measurement unit " + measurementUnit, re);
-                     }
-                  }
-               } else {
-                  if (log.isDebugEnabled()) {
-                     log.debug("Skipping the measurement unit (" + measurementUnit + ") because the ReportManager is not started.");
-                  }
-               }
-            });
-         } catch (RejectedExecutionException ree) {
-            // Nps, we are likely to be rejecting tasks because we ended the execution either in case of time bounded scenario or because we run out of the shutdown period.
-            // We could synchronize all incoming threads on an AtomicInteger inside of executor service. However, this would be a more disruptive way from the performance test point of view.
-            if (log.isDebugEnabled()) {
-               log.debug("Rejected measurement unit reporting because of the test shutdown in progress.");
+         if (onReported != null) {
+            onReported.run();
+         }
+
+         return;
+      }
+
+      final ReportingPipeline pipeline = reportingPipeline;
+
+      if (pipeline != null) {
+         pipeline.submit(measurementUnit, onReported);
+      }
+   }
+
+   /**
+    * Passes the measurement unit to all the registered reporters.
+    *
+    * @param measurementUnit
+    *       A MeasurementUnit to be reported.
+    */
+   private void reportToReporters(final MeasurementUnit measurementUnit) {
+      if (isTraceEnabled) {
+         log.trace("Reporting a new measurement unit " + measurementUnit);
+      }
+
+      if (runInfo.isStarted()) { // cannot use isRunning while we still want the last iteration to be reported
+         for (final Reporter r : getReporters()) {
+            try {
+               r.report(measurementUnit);
+            } catch (final ReportingException re) {
+               log.error("Error reporting a measurement unit " + measurementUnit, re);
             }
          }
+      } else {
+         if (log.isDebugEnabled()) {
+            log.debug("Skipping the measurement unit (" + measurementUnit + ") because the ReportManager is not started.");
+         }
       }
    }
 
@@ -178,16 +282,28 @@ public class ReportManager {
    }
 
    /**
-    * Resets the executor of reporting tasks.
+    * Resets the pipeline of reporting tasks.
     */
    private void resetReportingTasks() {
-      final ThreadPoolExecutor oldTasks = reportingTasks;
-      reportingTasks = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+      final ReportingPipeline oldPipeline = reportingPipeline;
+      directReporting = concurrentReporting && reporters.stream().allMatch(Reporter::isConcurrent);
+
+      if (directReporting) {
+         reportingPipeline = null;
+      } else {
+         final ReportingPipeline pipeline = new ReportingPipeline(queueSize, overflowPolicy, sampleRate, this::reportToReporters);
+         pipeline.start();
+         reportingPipeline = pipeline;
+      }
+
+      if (oldPipeline != null) {
+         oldPipeline.shutdownNow();
+         if (oldPipeline.isReportingThread()) { // the reset was requested by a reporter, the thread terminates once it returns
+            return;
+         }
 
-      if (oldTasks != null) {
-         oldTasks.shutdownNow();
          try {
-            oldTasks.awaitTermination(5, TimeUnit.SECONDS);
+            oldPipeline.awaitTermination(5, TimeUnit.SECONDS);
          } catch (InterruptedException ie) {
             log.info("Could not terminate pre-warmup reporting tasks.");
          }
@@ -245,6 +361,11 @@ public class ReportManager {
 
       resetReportingTasks();
 
+      if (concurrentReporting && !directReporting && log.isWarnEnabled()) {
+         log.warn("Concurrent reporting is not possible because some of the reporters cannot process measurement units from multiple threads: "
+               + reporters.stream().filter(r -> !r.isConcurrent()).map(r -> r.getClass().getSimpleName()).collect(Collectors.joining(", ")) + ". Using a single reporting thread.");
+      }
+
       runInfo.start(); // runInfo must be started first, otherwise the time monitoring thread in AbstractReporter dies immediately
 
       reporters.forEach(org.perfcake.reporting.reporter.Reporter::start);
@@ -366,25 +487,53 @@ public class ReportManager {
    }
 
    /**
-    * Gets the number of reporting tasks in the queue awaiting to be processed.
+    * Gets the number of measurement units reported by the sender tasks that still wait to be passed to the reporters.
+    * A growing backlog means that the reporters are not able to keep up with the load and the results are delayed.
+    *
+    * @return The number of measurement units waiting to be reported.
+    */
+   public int getReportingBacklog() {
+      final ReportingPipeline pipeline = reportingPipeline;
+      return pipeline == null ? 0 : pipeline.getBacklog();
+   }
+
+   /**
+    * Gets the time the measurement units waited to be passed to the reporters. It is measured for the last unit taken
+    * by the reporting thread and it drops to zero when there are no units waiting.
+    *
+    * @return The reporting lag in milliseconds.
+    */
+   public double getReportingLag() {
+      final ReportingPipeline pipeline = reportingPipeline;
+      return pipeline == null ? 0 : pipeline.getLag();
+   }
+
+   /**
+    * Gets the number of measurement units dropped since the last start or reset because the reporting queue was full.
     *
-    * @return The number of reporting tasks in the queue awaiting to be processed.
+    * @return The number of dropped measurement units.
     */
-   private long getTasksInQueue() {
-      return reportingTasks.getTaskCount() - reportingTasks.getCompletedTaskCount();
+   public long getDroppedUnits() {
+      final ReportingPipeline pipeline = reportingPipeline;
+      return pipeline == null ? droppedUnits : pipeline.getDropped();
    }
 
    /**
     * Shutdowns reporting task thread and waits for the reporting tasks to be finished.
     */
    private void waitForReportingTasks() {
+      directReporting = false; // the sender threads have already finished or the results are not wanted anymore
+      final ReportingPipeline pipeline = reportingPipeline;
+      if (pipeline == null) {
+         return;
+      }
+
       // in case of time bound execution, we do not want to see any more results
       if (runInfo.getDuration().getPeriodType() == PeriodType.TIME) {
-         reportingTasks.shutdown();
-         adaptiveTermination();
-         reportingTasks = null;
+         pipeline.shutdown();
+         pipeline.awaitDrained();
       } else {
-         adaptiveTermination();
+         pipeline.awaitDrained();
 
          if (periodicThread != null && periodicThread.isAlive()) { // give destinations a chance to complete
             try {
@@ -394,29 +543,104 @@ public class ReportManager {
             }
          }
 
-         reportingTasks.shutdown();
+         pipeline.shutdown();
+      }
+
+      droppedUnits = pipeline.getDropped();
+      reportingPipeline = null;
 
-         reportingTasks = null;
+      if (droppedUnits > 0) {
+         log.warn(String.format("%d measurement units were dropped because the reporting queue of %d units was full. "
+               + "The results do not include the dropped iterations. Use a larger queue size, fewer reporters or the BLOCK overflow policy.", droppedUnits, pipeline.getCapacity()));
       }
    }
 
    /**
-    * Waits for reporting tasks to be finished.
+    * Gets the maximal number of measurement units waiting to be reported.
+    *
+    * @return The size of the reporting queue.
     */
-   private void adaptiveTermination() {
-      long lastTasks = 0;
-      long tasks = getTasksInQueue();
+   public int getQueueSize() {
+      return queueSize;
+   }
 
-      while (tasks > 0 && tasks != lastTasks) {
-         lastTasks = tasks;
+   /**
+    * Sets the maximal number of measurement units waiting to be reported. The size is rounded up to the nearest power of two.
+    * It takes effect on the next start or reset of the reporting.
+    *
+    * @param queueSize
+    *       The size of the reporting queue.
+    * @return Instance of this to support fluent API.
+    */
+   public ReportManager setQueueSize(final int queueSize) {
+      this.queueSize = queueSize;
+      return this;
+   }
 
-         try {
-            reportingTasks.awaitTermination(1, TimeUnit.SECONDS);
-         } catch (InterruptedException ie) {
-            // no problem
-         }
+   /**
+    * Gets what happens when the reporting queue is full.
+    *
+    * @return The overflow policy.
+    */
+   public OverflowPolicy getOverflowPolicy() {
+      return overflowPolicy;
+   }
 
-         tasks = getTasksInQueue();
-      }
+   /**
+    * Sets what happens when the reporting queue is full. It takes effect on the next start or reset of the reporting.
+    *
+    * @param overflowPolicy
+    *       The overflow policy.
+    * @return Instance of this to support fluent API.
+    */
+   public ReportManager setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+      this.overflowPolicy = overflowPolicy;
+      return this;
+   }
+
+   /**
+    * Gets the rate of measurement units kept with {@link OverflowPolicy#SAMPLE} when the reporting queue is full.
+    *
+    * @return Every n-th unit is kept.
+    */
+   public int getSampleRate() {
+      return sampleRate;
+   }
+
+   /**
+    * Sets the rate of measurement units kept with {@link OverflowPolicy#SAMPLE} when the reporting queue is full.
+    * It takes effect on the next start or reset of the reporting.
+    *
+    * @param sampleRate
+    *       Every n-th unit is kept.
+    * @return Instance of this to support fluent API.
+    */
+   public ReportManager setSampleRate(final int sampleRate) {
+      this.sampleRate = sampleRate;
+      return this;
+   }
+
+   /**
+    * Gets whether the measurement units are passed to the reporters directly in the sender threads.
+    *
+    * @return True if and only if the concurrent reporting is enabled.
+    */
+   public boolean isConcurrentReporting() {
+      return concurrentReporting;
+   }
+
+   /**
+    * Sets whether the measurement units are passed to the reporters directly in the sender threads. The reporters then record
+    * the results into striped structures that are merged when the results are published, and there is no reporting thread to limit
+    * the throughput. It only takes effect when all the registered reporters are {@link Reporter#isConcurrent() concurrent},
+    * otherwise the units are still reported from a single reporting thread. It takes effect on the next start or reset of the reporting.
+    *
+    * @param concurrentReporting
+    *       True to report the measurement units directly in the sender threads.
+    * @return Instance of this to support fluent API.
+    */
+   public ReportManager setConcurrentReporting(final boolean concurrentReporting) {
+      this.concurrentReporting = concurrentReporting;
+      return this;
    }
 }
@@ -0,0 +1,460 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.reporting;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Passes the measurement units from the sender threads to a single reporting thread through a bounded ring of preallocated slots.
+ * The producers only contend on a compare-and-set of the claimed position, the reporting thread consumes all the published units
+ * in batches without any locking. What happens when the ring is full is driven by {@link ReportManager.OverflowPolicy}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+class ReportingPipeline {
+
+   /**
+    * Logger of the class.
+    */
+   private static final Logger log = LogManager.getLogger(ReportingPipeline.class);
+
+   /**
+    * The number of attempts in which a waiting thread only yields the CPU before it starts parking.
+    */
+   private static final int YIELD_ATTEMPTS = 100;
+
+   /**
+    * The longest time a waiting thread is parked in nanoseconds.
+    */
+   private static final long MAX_PARK_NANOS = 1_000_000;
+
+   /**
+    * The measurement units in the slots of the ring.
+    */
+   private final MeasurementUnit[] units;
+
+   /**
+    * The callbacks of the measurement units in the slots of the ring.
+    */
+   private final Runnable[] callbacks;
+
+   /**
+    * The times when the measurement units in the slots of the ring were published in nanoseconds.
+    */
+   private final long[] publishTimes;
+
+   /**
+    * The sequence numbers of the slots. They tell whether the slot is ready to be written or read in the current lap and
+    * they publish the plain slot contents between the threads.
+    */
+   private final AtomicLongArray sequences;
+
+   /**
+    * The mask to compute the slot index from a position, the capacity is always a power of two.
+    */
+   private final int mask;
+
+   /**
+    * The position of the next slot to be claimed by a producer.
+    */
+   private final AtomicLong tail = new AtomicLong(0);
+
+   /**
+    * The position of the next unit to be reported. It is only written by the reporting thread after the unit has been reported.
+    */
+   private final AtomicLong head = new AtomicLong(0);
+
+   /**
+    * Passes a single measurement unit to the reporters.
+    */
+   private final Consumer<MeasurementUnit> reporter;
+
+   /**
+    * What happens when the ring is full.
+    */
+   private final ReportManager.OverflowPolicy overflowPolicy;
+
+   /**
+    * Every n-th unit is kept with {@link ReportManager.OverflowPolicy#SAMPLE} when the ring is full.
+    */
+   private final int sampleRate;
+
+   /**
+    * Counts the units that hit the full ring to pick the sampled ones.
+    */
+   private final AtomicLong overflows = new AtomicLong(0);
+
+   /**
+    * The number of measurement units dropped because the ring was full.
+    */
+   private final LongAdder dropped = new LongAdder();
+
+   /**
+    * The time the last unit taken for reporting waited in the ring in nanoseconds.
+    */
+   private volatile long lag = 0;
+
+   /**
+    * True when no more units are accepted.
+    */
+   private volatile boolean closed = false;
+
+   /**
+    * True when the units remaining in the ring should not be reported anymore.
+    */
+   private volatile boolean discarding = false;
+
+   /**
+    * True when the reporting thread does not take any more units from the ring. A producer that passed the check for
+    * {@link #closed} before the reporting thread ended releases its unit on its own then.
+    */
+   private volatile boolean consumerStopped = false;
+
+   /**
+    * The reporting thread.
+    */
+   private final Thread consumerThread;
+
+   /**
+    * Creates a new pipeline. The reporting thread does not run until {@link #start()} is called.
+    *
+    * @param capacity
+    *       The minimal number of units waiting in the ring, it is rounded up to the nearest power of two.
+    * @param overflowPolicy
+    *       What happens when the ring is full.
+    * @param sampleRate
+    *       Every n-th unit is kept with {@link ReportManager.OverflowPolicy#SAMPLE} when the ring is full.
+    * @param reporter
+    *       Passes a single measurement unit to the reporters.
+    */
+   ReportingPipeline(final int capacity, final ReportManager.OverflowPolicy overflowPolicy, final int sampleRate, final Consumer<MeasurementUnit> reporter) {
+      if (capacity < 1 || capacity > (1 << 30)) {
+         throw new IllegalArgumentException("The reporting queue size must be between 1 and 2^30, was " + capacity + ".");
+      }
+
+      final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+      units = new MeasurementUnit[size];
+      callbacks = new Runnable[size];
+      publishTimes = new long[size];
+      sequences = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+         sequences.set(i, i);
+      }
+      mask = size - 1;
+
+      this.overflowPolicy = overflowPolicy;
+      this.sampleRate = Math.max(1, sampleRate);
+      this.reporter = reporter;
+
+      consumerThread = new Thread(this::consume, "PerfCake-reporting");
+      consumerThread.setDaemon(true); // allow the thread to die with JVM termination and do not block it
+   }
+
+   /**
+    * Starts the reporting thread.
+    */
+   void start() {
+      consumerThread.start();
+   }
+
+   /**
+    * Submits a measurement unit to be reported. When the unit is not going to be reported because it was dropped or
+    * the pipeline was already closed, the callback is invoked immediately in the calling thread.
+    *
+    * @param measurementUnit
+    *       The measurement unit to be reported.
+    * @param onReported
+    *       The callback to be invoked after the unit has been reported, null when not needed.
+    * @return True if and only if the unit was accepted for reporting.
+    */
+   boolean submit(final MeasurementUnit measurementUnit, final Runnable onReported) {
+      if (!closed && offer(measurementUnit, onReported)) {
+         return true;
+      }
+
+      if (!closed) {
+         if (overflowPolicy == ReportManager.OverflowPolicy.DROP
+               || (overflowPolicy == ReportManager.OverflowPolicy.SAMPLE && overflows.incrementAndGet() % sampleRate != 0)) {
+            dropped.increment();
+         } else {
+            int attempt = 0;
+            while (!closed) {
+               if (offer(measurementUnit, onReported)) {
+                  return true;
+               }
+               backOff(++attempt);
+            }
+         }
+      }
+
+      if (closed && log.isDebugEnabled()) {
+         // Nps, we are likely to be rejecting units because we ended the execution either in case of time bounded scenario or because we run out of the shutdown period.
+         log.debug("Rejected measurement unit reporting because of the test shutdown in progress.");
+      }
+
+      if (onReported != null) {
+         onReported.run();
+      }
+
+      return false;
+   }
+
+   /**
+    * Publishes a measurement unit in the next free slot.
+    *
+    * @param measurementUnit
+    *       The measurement unit to be reported.
+    * @param onReported
+    *       The callback to be invoked after the unit has been reported.
+    * @return True if and only if the unit was published, false when the ring was full.
+    */
+   private boolean offer(final MeasurementUnit measurementUnit, final Runnable onReported) {
+      long position = tail.get();
+
+      while (true) {
+         final int index = (int) position & mask;
+         final long difference = sequences.get(index) - position;
+
+         if (difference == 0) { // the slot is free in this lap
+            if (tail.compareAndSet(position, position + 1)) {
+               units[index] = measurementUnit;
+               callbacks[index] = onReported;
+               publishTimes[index] = System.nanoTime();
+               sequences.set(index, position + 1); // publishes the slot to the reporting thread
+
+               if (consumerStopped) { // the unit slipped in after the reporting thread ended, nobody else would release it
+                  discardRemaining();
+               }
+
+               return true;
+            }
+            position = tail.get();
+         } else if (difference < 0) { // the slot still holds a unit from the previous lap
+            return false;
+         } else { // another producer took the slot
+            position = tail.get();
+         }
+      }
+   }
+
+   /**
+    * The main loop of the reporting thread. It reports all the published units in a batch and waits for more when there are none.
+    */
+   private void consume() {
+      long position = head.get();
+      int idle = 0;
+
+      while (!discarding) {
+         int index = (int) position & mask;
+
+         if (sequences.get(index) == position + 1) {
+            do { // the batch goes on as long as there are published units
+               lag = System.nanoTime() - publishTimes[index];
+               final MeasurementUnit measurementUnit = units[index];
+               final Runnable onReported = callbacks[index];
+               units[index] = null;
+               callbacks[index] = null;
+
+               try {
+                  reporter.accept(measurementUnit);
+               } catch (final RuntimeException e) {
+                  log.error("Error reporting a measurement unit " + measurementUnit, e);
+               }
+
+               sequences.set(index, position + mask + 1); // frees the slot for the next lap
+               position = position + 1;
+               head.lazySet(position);
+
+               if (onReported != null) {
+                  onReported.run();
+               }
+
+               index = (int) position & mask;
+            } while (!discarding && sequences.get(index) == position + 1);
+
+            idle = 0;
+         } else if (closed && tail.get() == position) { // everything claimed before closing was reported
+            break;
+         } else {
+            if (idle == 0) { // nothing is waiting now
+               lag = 0;
+            }
+            backOff(++idle);
+         }
+      }
+
+      // either this thread sees the units published by the producers that passed the check for closing in the meantime,
+      // or the producers see that the reporting thread has stopped and release their units on their own
+      consumerStopped = true;
+      discardRemaining();
+   }
+
+   /**
+    * Releases the units that were not reported and invokes their callbacks. Called by the reporting thread when it ends
+    * and by the producers that published a unit after that.
+    */
+   private synchronized void discardRemaining() {
+      long position = head.get();
+      int index = (int) position & mask;
+
+      while (sequences.get(index) == position + 1) {
+         final Runnable onReported = callbacks[index];
+         units[index] = null;
+         callbacks[index] = null;
+         sequences.set(index, position + mask + 1);
+         position = position + 1;
+         head.lazySet(position);
+
+         if (onReported != null) {
+            onReported.run();
+         }
+
+         index = (int) position & mask;
+      }
+   }
+
+   /**
+    * Waits before another attempt to publish or consume a unit. The thread yields the CPU first and then it is parked
+    * for gradually longer periods.
+    *
+    * @param attempt
+    *       The number of the attempt in a row.
+    */
+   private static void backOff(final int attempt) {
+      if (attempt < YIELD_ATTEMPTS) {
+         Thread.yield();
+      } else {
+         LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1_000L << Math.min(attempt - YIELD_ATTEMPTS, 10)));
+      }
+   }
+
+   /**
+    * Stops accepting new units. The units already in the ring are still reported.
+    */
+   void shutdown() {
+      closed = true;
+   }
+
+   /**
+    * Stops accepting new units and stops reporting the units remaining in the ring.
+    */
+   void shutdownNow() {
+      closed = true;
+      discarding = true;
+   }
+
+   /**
+    * Checks whether the current thread is the reporting thread of this pipeline.
+    *
+    * @return True if and only if called from the reporting thread.
+    */
+   boolean isReportingThread() {
+      return Thread.currentThread() == consumerThread;
+   }
+
+   /**
+    * Waits for the reporting thread to terminate after a shutdown.
+    *
+    * @param timeout
+    *       The maximal time to wait.
+    * @param unit
+    *       The unit of the timeout.
+    * @return True if and only if the reporting thread has terminated.
+    * @throws InterruptedException
+    *       When interrupted while waiting.
+    */
+   boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+      consumerThread.join(Math.max(1, unit.toMillis(timeout)));
+      return !consumerThread.isAlive();
+   }
+
+   /**
+    * Waits until all the submitted units are reported. The waiting ends sooner when the number of pending units does not
+    * decrease for a second.
+    */
+   void awaitDrained() {
+      long lastPending = -1;
+      long pending = getPending();
+
+      while (pending > 0 && pending != lastPending && consumerThread.isAlive()) {
+         lastPending = pending;
+
+         final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+         while (getPending() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(MAX_PARK_NANOS);
+         }
+
+         pending = getPending();
+      }
+   }
+
+   /**
+    * Gets the number of units claimed by the producers that have not been reported yet, including the one being reported.
+    *
+    * @return The number of pending units.
+    */
+   private long getPending() {
+      return Math.max(0, tail.get() - head.get());
+   }
+
+   /**
+    * Gets the number of units waiting to be reported.
+    *
+    * @return The number of units waiting to be reported.
+    */
+   int getBacklog() {
+      return (int) Math.min(getPending(), mask + 1);
+   }
+
+   /**
+    * Gets the capacity of the ring.
+    *
+    * @return The maximal number of units waiting to be reported.
+    */
+   int getCapacity() {
+      return mask + 1;
+   }
+
+   /**
+    * Gets the time the last unit taken for reporting waited in the ring. It is zero when the ring is empty.
+    *
+    * @return The reporting lag in milliseconds.
+    */
+   double getLag() {
+      return lag / 1_000_000d;
+   }
+
+   /**
+    * Gets the number of units dropped because the ring was full.
+    *
+    * @return The number of dropped units.
+    */
+   long getDropped() {
+      return dropped.longValue();
+   }
+}
@@ -0,0 +1,153 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.reporting;
+
+import org.perfcake.PerfCakeConst;
+
+/**
+ * The standard results of each iteration that are stored in primitive fields of {@link MeasurementUnit} instead of its map of custom results.
+ * Reporters can read them directly without any hash lookups and boxing.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public enum StandardResult {
+
+   /**
+    * The number of failures in the iteration.
+    */
+   FAILURES(PerfCakeConst.FAILURES_TAG, Long.class),
+
+   /**
+    * The number of sender threads.
+    */
+   THREADS(PerfCakeConst.THREADS_TAG, Integer.class),
+
+   /**
+    * The size of the request in bytes.
+    */
+   REQUEST_SIZE(PerfCakeConst.REQUEST_SIZE_TAG, Long.class),
+
+   /**
+    * The size of the response in bytes.
+    */
+   RESPONSE_SIZE(PerfCakeConst.RESPONSE_SIZE_TAG, Long.class),
+
+   /**
+    * The delay between the intended and actual start of the iteration in milliseconds.
+    */
+   SCHEDULE_LAG(PerfCakeConst.SCHEDULE_LAG_TAG, Double.class),
+
+   /**
+    * The percentage of time the generator spent waiting for free sender threads.
+    */
+   GENERATOR_IDLE(PerfCakeConst.GENERATOR_IDLE_TAG, Double.class),
+
+   /**
+    * The number of sender tasks waiting for execution.
+    */
+   QUEUE_DEPTH(PerfCakeConst.QUEUE_DEPTH_TAG, Integer.class),
+
+   /**
+    * The CPU utilization of the generator thread in percent.
+    */
+   GENERATOR_CPU(PerfCakeConst.GENERATOR_CPU_TAG, Double.class),
+
+   /**
+    * The number of measurement units waiting to be reported.
+    */
+   REPORTING_BACKLOG(PerfCakeConst.REPORTING_BACKLOG_TAG, Integer.class),
+
+   /**
+    * The time the measurement units waited to be reported in milliseconds.
+    */
+   REPORTING_LAG(PerfCakeConst.REPORTING_LAG_TAG, Double.class);
+
+   /**
+    * All the standard results to avoid copying the array of values.
+    */
+   private static final StandardResult[] RESULTS = values();
+
+   /**
+    * The name of the result in the results map.
+    */
+   private final String tag;
+
+   /**
+    * The type of the result.
+    */
+   private final Class<? extends Number> type;
+
+   /**
+    * Creates a standard result.
+    *
+    * @param tag
+    *       The name of the result in the results map.
+    * @param type
+    *       The type of the result.
+    */
+   StandardResult(final String tag, final Class<? extends Number> type) {
+      this.tag = tag;
+      this.type = type;
+   }
+
+   /**
+    * Gets the name of the result in the results map.
+    *
+    * @return The name of the result.
+    */
+   public String getTag() {
+      return tag;
+   }
+
+   /**
+    * Gets the type of the result.
+    *
+    * @return The type of the result.
+    */
+   public Class<? extends Number> getType() {
+      return type;
+   }
+
+   /**
+    * Checks whether the result is a floating point number.
+    *
+    * @return True if and only if the result is a floating point number.
+    */
+   public boolean isDecimal() {
+      return type == Double.class;
+   }
+
+   /**
+    * Finds the standard result by its name.
+    *
+    * @param tag
+    *       The name of the result in the results map.
+    * @return The standard result, or null when there is no standard result with the given name.
+    */
+   public static StandardResult forTag(final String tag) {
+      for (final StandardResult result : RESULTS) {
+         if (result.tag.equals(tag)) {
+            return result;
+         }
+      }
+
+      return null;
+   }
+}
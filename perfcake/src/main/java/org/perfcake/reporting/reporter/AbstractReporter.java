@@ -28,6 +28,7 @@ import org.perfcake.reporting.Measurement;
 import org.perfcake.reporting.MeasurementUnit;
 import org.perfcake.reporting.ReportManager;
 import org.perfcake.reporting.ReportingException;
+import org.perfcake.reporting.StandardResult;
 import org.perfcake.reporting.destination.Destination;
 import org.perfcake.reporting.reporter.accumulator.Accumulator;
 import org.perfcake.reporting.reporter.accumulator.LastValueAccumulator;
@@ -41,7 +42,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
 /**
@@ -57,6 +59,17 @@ public abstract class AbstractReporter implements Reporter {
     */
    private static final Logger log = LogManager.getLogger(AbstractReporter.class);
 
+   /**
+    * All the standard results.
+    */
+   private static final StandardResult[] STANDARD_RESULTS = StandardResult.values();
+
+   /**
+    * Marks a standard result for which {@link #getAccumulator(String, Class)} did not provide any accumulator.
+    */
+   @SuppressWarnings("rawtypes")
+   private static final Accumulator NO_ACCUMULATOR = new LastValueAccumulator();
+
    /**
     * Set of periods bound to destinations. This is used to register destinations and requested reporting periods.
     */
@@ -75,18 +88,30 @@ public abstract class AbstractReporter implements Reporter {
    /**
     * Remembers the last observed percentage state of the measurement run. This is used to report change to this value only once.
     */
-   private long lastPercentage = -1L;
+   private volatile long lastPercentage = -1L;
+
+   /**
+    * Guards the reporting of percentage changes when the measurement units are reported from many threads.
+    */
+   private final Object percentageLock = new Object();
 
    /**
     * Accumulators to accumulate results from multiple {@link org.perfcake.reporting.MeasurementUnit Measurement Units}.
     */
    @SuppressWarnings("rawtypes")
-   private Map<String, Accumulator> accumulatedResults = new ConcurrentHashMap<>();
+   private final Map<String, Accumulator> accumulatedResults = new ConcurrentHashMap<>();
+
+   /**
+    * Accumulators of the standard results indexed by {@link StandardResult#ordinal()}. The same accumulators are registered in {@link #accumulatedResults}.
+    */
+   @SuppressWarnings("rawtypes")
+   private final AtomicReferenceArray<Accumulator> standardAccumulators = new AtomicReferenceArray<>(STANDARD_RESULTS.length);
 
    /**
-    * The count of reported iterations.
+    * The count of reported iterations. Each reported unit gets a unique value even when reported from many threads,
+    * so that each iteration based period is published exactly once.
     */
-   private LongAdder iterationCounter = new LongAdder();
+   private final AtomicLong iterationCounter = new AtomicLong();
 
    /**
     * Reports a single {@link org.perfcake.reporting.MeasurementUnit} to this reporter. This calls {@link #doReport(MeasurementUnit)} overridden by a child, accumulates results and reports iteration change and percentage change (if any).
@@ -97,37 +122,43 @@ public abstract class AbstractReporter implements Reporter {
          throw new ReportingException("RunInfo has not been set for this reporter.");
       }
 
-      reportIterationNumber(measurementUnit);
+      final long iteration = reportIterationNumber(measurementUnit);
 
       doReport(measurementUnit);
 
-      accumulateResults(measurementUnit.getResults());
+      accumulateResults(measurementUnit);
 
-      reportIterations(iterationCounter.longValue());
+      reportIterations(iteration);
 
-      reportAllPercentage((long) Math.floor(runInfo.getPercentage(iterationCounter.longValue())));
+      reportAllPercentage((long) Math.floor(runInfo.getPercentage(iteration)));
    }
 
    private void reportAllPercentage(final long percentage) throws ReportingException {
       // report each percentage value just once
       if (percentage > lastPercentage) {
-         while (percentage > lastPercentage + 1) { // we do not want to skip any percentage between prev. reporting and now
-            lastPercentage = lastPercentage + 1;
-            reportPercentage(lastPercentage);
+         synchronized (percentageLock) { // the lock is only taken when the percentage changes
+            if (percentage > lastPercentage) {
+               while (percentage > lastPercentage + 1) { // we do not want to skip any percentage between prev. reporting and now
+                  lastPercentage = lastPercentage + 1;
+                  reportPercentage(lastPercentage);
+               }
+               lastPercentage = percentage; // simply cover the last case (percentage = lastPercentage + 1), and or the case when percentage got lower after a reset
+               reportPercentage(percentage);
+            }
          }
-         lastPercentage = percentage; // simply cover the last case (percentage = lastPercentage + 1), and or the case when percentage got lower after a reset
-         reportPercentage(percentage);
       }
    }
 
    protected Long getMaxIteration() {
-      return iterationCounter.longValue();
+      return iterationCounter.get();
    }
 
-   private void reportIterationNumber(final MeasurementUnit mu) {
+   private long reportIterationNumber(final MeasurementUnit mu) {
       if (mu.startedAfter(runInfo.getStartTime() - 1)) { // only MUs from the current run should be taken into account
-         iterationCounter.increment();
+         return iterationCounter.incrementAndGet();
       }
+
+      return iterationCounter.get();
    }
 
    /**
@@ -136,7 +167,7 @@ public abstract class AbstractReporter implements Reporter {
     * @return The new measurement with current values from run info.
     */
    public Measurement newMeasurement() {
-      final Long iterations = iterationCounter.longValue();
+      final Long iterations = iterationCounter.get();
       final Measurement measurement = new Measurement(Math.round(runInfo.getPercentage(iterations)), runInfo.getRunTime(), iterations);
       measurement.set(PerfCakeConst.WARM_UP_TAG, runInfo.hasTag(PerfCakeConst.WARM_UP_TAG));
       return measurement;
@@ -170,14 +201,31 @@ public abstract class AbstractReporter implements Reporter {
    }
 
    /**
-    * For each key of the Measurement Unit's results map, ask for an accumulator and accumulate the value with the previous values. Childs can use this method to accumulate the main result as well (be it a total response time or anything else).
+    * For each result of the Measurement Unit, ask for an accumulator and accumulate the value with the previous values. Childs can use this method to accumulate the main result as well (be it a total response time or anything else).
+    * The standard results are passed to their accumulators directly from the primitive fields of the Measurement Unit.
     *
-    * @param results
-    *       The hash map with results to be accumulated.
+    * @param measurementUnit
+    *       The Measurement Unit with results to be accumulated.
     */
    @SuppressWarnings({ "unchecked", "rawtypes" })
-   private void accumulateResults(final Map<String, Object> results) {
-      results.forEach((key, value) -> {
+   private void accumulateResults(final MeasurementUnit measurementUnit) {
+      for (final StandardResult result : STANDARD_RESULTS) {
+         if (measurementUnit.hasResult(result)) {
+            final Accumulator accumulator = getStandardAccumulator(result);
+
+            if (accumulator != null) {
+               if (result.isDecimal()) {
+                  accumulator.addDouble(measurementUnit.getDoubleResult(result));
+               } else if (result.getType() == Long.class) {
+                  accumulator.addLong(measurementUnit.getLongResult(result));
+               } else {
+                  accumulator.add(measurementUnit.getResult(result));
+               }
+            }
+         }
+      }
+
+      measurementUnit.getCustomResults().forEach((key, value) -> {
          if (!PerfCakeConst.ATTRIBUTES_TAG.equals(key)) { // we don't want to accumulate attributes
             Accumulator accumulator = accumulatedResults.get(key);
 
@@ -194,6 +242,30 @@ public abstract class AbstractReporter implements Reporter {
       });
    }
 
+   /**
+    * Gets the accumulator of a standard result. The accumulator is obtained from {@link #getAccumulator(String, Class)} just once.
+    *
+    * @param result
+    *       The standard result.
+    * @return The accumulator, or null when the result should not be accumulated.
+    */
+   @SuppressWarnings("rawtypes")
+   private Accumulator getStandardAccumulator(final StandardResult result) {
+      Accumulator accumulator = standardAccumulators.get(result.ordinal());
+
+      if (accumulator == null) {
+         final Accumulator created = getAccumulator(result.getTag(), result.getType());
+         if (standardAccumulators.compareAndSet(result.ordinal(), null, created == null ? NO_ACCUMULATOR : created)) {
+            if (created != null) {
+               accumulatedResults.put(result.getTag(), created);
+            }
+         }
+         accumulator = standardAccumulators.get(result.ordinal());
+      }
+
+      return accumulator == NO_ACCUMULATOR ? null : accumulator;
+   }
+
    /**
     * Gets an appropriate accumulator for a given key from the Measurement Unit's results map and its class.
     * This should be overridden by the child classes. By default, last value accumulator is returned.
@@ -292,9 +364,15 @@ public abstract class AbstractReporter implements Reporter {
    @Override
    public final void reset() {
       lastPercentage = -1;
-      iterationCounter.reset();
-      iterationCounter.decrement();
-      accumulatedResults = new ConcurrentHashMap<>();
+      iterationCounter.set(-1);
+
+      // cleared in place so that the reporting threads keep working with the same instances, the standard accumulators go first
+      // so that an accumulator left in the results map by a concurrent report is replaced the next time it is needed
+      for (int i = 0; i < standardAccumulators.length(); i++) {
+         standardAccumulators.set(i, null);
+      }
+      accumulatedResults.clear();
+
       doReset();
    }
 
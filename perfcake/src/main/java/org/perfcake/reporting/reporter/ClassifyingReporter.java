@@ -23,6 +23,7 @@ import org.perfcake.PerfCakeConst;
 import org.perfcake.common.PeriodType;
 import org.perfcake.reporting.Measurement;
 import org.perfcake.reporting.MeasurementUnit;
+import org.perfcake.reporting.Quantity;
 import org.perfcake.reporting.ReportingException;
 import org.perfcake.reporting.destination.Destination;
 import org.perfcake.util.properties.MandatoryProperty;
@@ -30,10 +31,13 @@ import org.perfcake.util.properties.MandatoryProperty;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Counts of occurrences of individual values in the given message attribute.
+ * Counts of occurrences of individual values in the given message attribute. Optionally, the average response time
+ * of each class is reported as well. Together with the weighted messages and the {@link PerfCakeConst#MESSAGE_NAME_PROPERTY} attribute,
+ * this breaks down the results of a mixed workload per message.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -50,22 +54,41 @@ public class ClassifyingReporter extends AbstractReporter {
     */
    private String prefix = "class_";
 
+   /**
+    * True to report the average response time of each class.
+    */
+   private boolean responseTimeEnabled = false;
+
+   /**
+    * Suffix of the average response time results of the individual classes.
+    */
+   private static final String RESPONSE_TIME_SUFFIX = "_responseTime";
+
    private Map<String, LongAdder> classes = new ConcurrentHashMap<>();
 
+   /**
+    * Sums of the response times of the individual classes in milliseconds.
+    */
+   private Map<String, DoubleAdder> responseTimes = new ConcurrentHashMap<>();
+
    @Override
    protected void doReset() {
       classes = new ConcurrentHashMap<>();
+      responseTimes = new ConcurrentHashMap<>();
    }
 
    @Override
    protected void doReport(final MeasurementUnit measurementUnit) throws ReportingException {
-      final Properties messageAttributes = (Properties) measurementUnit.getResult(PerfCakeConst.ATTRIBUTES_TAG);
+      final Properties messageAttributes = measurementUnit.getAttributes();
 
       if (messageAttributes != null && attribute != null) {
          final String attributeClass = messageAttributes.getProperty(attribute);
          if (attributeClass != null) {
-            classes.computeIfAbsent(attributeClass, k -> new LongAdder());
-            classes.get(attributeClass).increment();
+            classes.computeIfAbsent(attributeClass, k -> new LongAdder()).increment();
+
+            if (responseTimeEnabled) {
+               responseTimes.computeIfAbsent(attributeClass, k -> new DoubleAdder()).add(measurementUnit.getTotalTime());
+            }
          }
       }
    }
@@ -77,6 +100,13 @@ public class ClassifyingReporter extends AbstractReporter {
 
       classes.forEach((key, value) -> m.set(prefix + key, value.longValue()));
 
+      if (responseTimeEnabled) {
+         responseTimes.forEach((key, value) -> {
+            final long count = classes.get(key).longValue();
+            m.set(prefix + key + RESPONSE_TIME_SUFFIX, new Quantity<>(count == 0 ? 0d : value.sum() / count, "ms"));
+         });
+      }
+
       destination.report(m);
    }
 
@@ -121,4 +151,25 @@ public class ClassifyingReporter extends AbstractReporter {
       this.prefix = prefix;
       return this;
    }
+
+   /**
+    * Checks whether the average response time of each class is reported.
+    *
+    * @return True if and only if the average response time of each class is reported.
+    */
+   public boolean isResponseTimeEnabled() {
+      return responseTimeEnabled;
+   }
+
+   /**
+    * Enables reporting of the average response time of each class. The results are named by the class with the <code>_responseTime</code> suffix.
+    *
+    * @param responseTimeEnabled
+    *       True to report the average response time of each class.
+    * @return Instance of this to support fluent API.
+    */
+   public ClassifyingReporter setResponseTimeEnabled(final boolean responseTimeEnabled) {
+      this.responseTimeEnabled = responseTimeEnabled;
+      return this;
+   }
 }
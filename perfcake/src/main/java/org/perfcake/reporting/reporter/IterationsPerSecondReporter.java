@@ -42,6 +42,11 @@ public class IterationsPerSecondReporter extends AbstractReporter {
       // nothing is needed here
    }
 
+   @Override
+   public boolean isConcurrent() {
+      return true;
+   }
+
    @Override
    public void publishResult(final PeriodType periodType, final Destination destination) throws ReportingException {
       final Measurement m = newMeasurement();
@@ -158,4 +158,16 @@ public interface Reporter {
     */
    Set<BoundPeriod<Destination>> getReportingPeriods();
 
+   /**
+    * Checks whether the reporter scales when the measurement units are reported from many sender threads at the same time.
+    * Such a reporter records the results into striped or thread-local structures and merges them only when the results are published.
+    * The {@link org.perfcake.reporting.ReportManager} passes the units directly from the sender threads when all the reporters support this
+    * and the concurrent reporting is enabled. Other reporters get all the units from a single reporting thread.
+    *
+    * @return True if and only if the reporter can be called from many threads at the same time without serializing them.
+    */
+   default boolean isConcurrent() {
+      return false;
+   }
+
 }
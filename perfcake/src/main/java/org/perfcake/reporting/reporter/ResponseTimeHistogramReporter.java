@@ -29,6 +29,7 @@ import org.perfcake.reporting.reporter.accumulator.AvgAccumulator;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramIterationValue;
 import org.HdrHistogram.PercentileIterator;
+import org.HdrHistogram.Recorder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -117,11 +118,22 @@ public class ResponseTimeHistogramReporter extends AbstractReporter {
     */
    private AvgAccumulator avg = new AvgAccumulator();
 
+   /**
+    * Records the response times without locking, so that the measurement units can be reported from many threads at the same time.
+    * The recorded values are moved to {@link #histogram} when the results are published.
+    */
+   private volatile Recorder recorder;
+
    /**
     * Histogram instance to store the data.
     */
    private Histogram histogram;
 
+   /**
+    * The histogram last taken from the recorder, it is recycled by the recorder in the next interval.
+    */
+   private Histogram intervalHistogram;
+
    /**
     * Format of the percentile expression.
     */
@@ -136,12 +148,27 @@ public class ResponseTimeHistogramReporter extends AbstractReporter {
    /**
     * Initializes a new histogram based on the configuration proeprties.
     */
-   private void initRecorder() {
+   private synchronized void initRecorder() {
       if (maxExpectedValue == -1) {
          histogram = new Histogram(precision);
+         recorder = new Recorder(precision);
       } else {
          histogram = new Histogram(maxExpectedValue, precision);
+         recorder = new Recorder(maxExpectedValue, precision);
       }
+      intervalHistogram = null;
+   }
+
+   /**
+    * Merges the values recorded since the last call to the histogram.
+    *
+    * @return A copy of the histogram with all the values recorded so far.
+    */
+   private synchronized Histogram collectHistogram() {
+      intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+      histogram.add(intervalHistogram);
+
+      return histogram.copy();
    }
 
    @Override
@@ -152,10 +179,15 @@ public class ResponseTimeHistogramReporter extends AbstractReporter {
       if (maxExpectedValue != -1 && responseTime > maxExpectedValue) {
          log.error(String.format("Reported response time (%d) exceeds maximal trackable value (%d). Ignoring the value. Results are tampered!", responseTime, maxExpectedValue));
       } else {
-         histogram.recordValue(responseTime);
+         recorder.recordValue(responseTime);
       }
    }
 
+   @Override
+   public boolean isConcurrent() {
+      return true;
+   }
+
    @Override
    public void publishResult(final PeriodType periodType, final Destination destination) throws ReportingException {
       final Measurement m = newMeasurement();
@@ -163,7 +195,7 @@ public class ResponseTimeHistogramReporter extends AbstractReporter {
 
       PercentileIterator pi;
 
-      Histogram localHistogram = histogram.copy();
+      Histogram localHistogram = collectHistogram();
 
       switch (correctionMode) {
          case AUTO:
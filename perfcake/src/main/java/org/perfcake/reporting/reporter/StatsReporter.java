@@ -251,6 +251,16 @@ public abstract class StatsReporter extends AbstractReporter {
       }
    }
 
+   /**
+    * The stats reporter is concurrent unless a sliding window is configured, the windows need to see the values in a single order.
+    *
+    * @return True if and only if no sliding window is configured.
+    */
+   @Override
+   public boolean isConcurrent() {
+      return windowSize == Integer.MAX_VALUE;
+   }
+
    @Override
    public void publishResult(final PeriodType periodType, final Destination destination) throws ReportingException {
       final Measurement m = newMeasurement();
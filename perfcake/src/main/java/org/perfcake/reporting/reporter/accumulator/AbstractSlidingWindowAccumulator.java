@@ -19,20 +19,26 @@
  */
 package org.perfcake.reporting.reporter.accumulator;
 
-import org.apache.commons.collections.Buffer;
-import org.apache.commons.collections.BufferUtils;
-import org.apache.commons.collections.buffer.CircularFifoBuffer;
-
 /**
  * Accumulates a value over a set of recently reported values in a sliding window.
  * The sliding window is a number of last values that are accumulated.
+ * Subclasses keep the values in primitive windows with running aggregates so that both adding a value and getting the result
+ * take a constant amortized time regardless of the window size.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
 public abstract class AbstractSlidingWindowAccumulator<T> implements Accumulator<T> {
 
-   protected final Buffer fifo;
+   /**
+    * Size of the sliding window.
+    */
+   protected final int windowSize;
+
+   /**
+    * Position of the next value in the stream of values reported since the last reset.
+    */
+   private long position = 0;
 
    /**
     * Creates a new accumulator with the sliding window of a given size.
@@ -41,17 +47,31 @@ public abstract class AbstractSlidingWindowAccumulator<T> implements Accumulator
     *       Size of the sliding window.
     */
    public AbstractSlidingWindowAccumulator(final int windowSize) {
-      fifo = BufferUtils.synchronizedBuffer(new CircularFifoBuffer(windowSize));
+      this.windowSize = windowSize;
    }
 
-   @SuppressWarnings("unchecked")
-   @Override
-   public void add(final T value) {
-      fifo.add(value);
+   /**
+    * Gets the position of a newly reported value. Must be called with the lock of this accumulator held.
+    *
+    * @return The position of the newly reported value.
+    */
+   protected long nextPosition() {
+      return position++;
+   }
+
+   /**
+    * Gets the position of the oldest value that stays in the sliding window once the value at the given position is reported.
+    *
+    * @param position
+    *       Position of the newly reported value.
+    * @return The position of the oldest value in the sliding window.
+    */
+   protected long getWindowStart(final long position) {
+      return position - windowSize + 1;
    }
 
    @Override
-   public void reset() {
-      fifo.clear();
+   public synchronized void reset() {
+      position = 0;
    }
 }
@@ -19,83 +19,58 @@
  */
 package org.perfcake.reporting.reporter.accumulator;
 
-import org.perfcake.common.TimeSlidingWindow;
-
-import org.apache.log4j.LogManager;
-import org.apache.log4j.Logger;
-
 /**
  * Accumulates a value over a set of recently reported values in a time sliding window.
- * The sliding window is a time period in milliseconds.
+ * The sliding window is a time period in milliseconds. Values older than the period are expired when a new value is added
+ * or the result is requested, and the result is maintained incrementally instead of replaying the window.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
-public abstract class AbstractTimeSlidingWindowAccumulator<T, A extends Accumulator<T>> implements Accumulator<T> {
+public abstract class AbstractTimeSlidingWindowAccumulator<T> implements Accumulator<T> {
 
    /**
-    * Logger of this class.
+    * Length of the sliding window in milliseconds.
     */
-   private static final Logger log = LogManager.getLogger(AbstractTimeSlidingWindowAccumulator.class);
+   protected final long windowLength;
 
    /**
-    * Sliding time window to record values of the given time period.
+    * Time of the newest value. The time never goes back so that the values in the window stay ordered.
     */
-   protected final TimeSlidingWindow<T> window;
-
-   /**
-    * Underlying accumulator class to calculate the result from values in the time window.
-    */
-   protected final Class<A> accumulatorClass;
+   private long lastTime = Long.MIN_VALUE;
 
    /**
     * Creates a new accumulator with the sliding window of a given time period.
     *
     * @param windowSize
-    *       Size of the sliding window.
-    * @param accumulatorClass
-    *       Type of the underlying accumulator that is encapsulated in the sliding time window.
+    *       Size of the sliding window in milliseconds.
     */
-   public AbstractTimeSlidingWindowAccumulator(final int windowSize, final Class<A> accumulatorClass) {
-      window = new TimeSlidingWindow<>(windowSize);
-      this.accumulatorClass = accumulatorClass;
+   public AbstractTimeSlidingWindowAccumulator(final int windowSize) {
+      windowLength = windowSize;
    }
 
-   @Override
-   public T getResult() {
-      final A accumulator = getNewAccumulator();
-
-      if (accumulator != null) {
-         window.forEach(accumulator::add);
-         return accumulator.getResult();
-      } else {
-         return null;
+   /**
+    * Gets the current time in milliseconds, never lower than the previously returned one. Must be called with the lock of this accumulator held.
+    *
+    * @return The current time in milliseconds.
+    */
+   protected long currentTime() {
+      final long now = System.currentTimeMillis();
+      if (now > lastTime) {
+         lastTime = now;
       }
-   }
 
-   @SuppressWarnings("unchecked")
-   @Override
-   public void add(final T value) {
-      window.add(value);
-   }
-
-   @Override
-   public void reset() {
-      window.clear();
+      return lastTime;
    }
 
    /**
-    * Gets a new accumulator instance.
+    * Gets the time of the oldest value that stays in the sliding window at the given time.
     *
-    * @return A new accumulator instance.
+    * @param time
+    *       The current time in milliseconds.
+    * @return The time of the oldest value in the sliding window.
     */
-   private A getNewAccumulator() {
-      try {
-         return accumulatorClass.newInstance();
-      } catch (InstantiationException | IllegalAccessException e) {
-         log.error("Unable to initialize the underlying accumulator: ", e);
-      }
-
-      return null;
+   protected long getWindowStart(final long time) {
+      return time - windowLength;
    }
 }
@@ -35,6 +35,28 @@ public interface Accumulator<T> {
     */
    void add(T value);
 
+   /**
+    * Adds a long value to the accumulator. Accumulators of long values should override this to avoid boxing the value.
+    *
+    * @param value
+    *       The value to be accumulated.
+    */
+   @SuppressWarnings("unchecked")
+   default void addLong(final long value) {
+      add((T) Long.valueOf(value));
+   }
+
+   /**
+    * Adds a floating point value to the accumulator. Accumulators of floating point values should override this to avoid boxing the value.
+    *
+    * @param value
+    *       The value to be accumulated.
+    */
+   @SuppressWarnings("unchecked")
+   default void addDouble(final double value) {
+      add((T) Double.valueOf(value));
+   }
+
    /**
     * Gets the accumulated result of currently added values.
     *
@@ -19,9 +19,12 @@
  */
 package org.perfcake.reporting.reporter.accumulator;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Accumulates an arithmetic average.
- * Atomic types are not used because both values must be set at the same time. Hence the methods are synchronized.
+ * The sum and the number of values are kept in striped adders so that many threads can add values without contention.
+ * They are merged only when the result is read, a result read while other threads add values might not include all of them.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
@@ -31,26 +34,34 @@ public class AvgAccumulator extends SumAccumulator {
    /**
     * Number of reported values.
     */
-   private long count = 0;
+   private final LongAdder count = new LongAdder();
 
    @Override
-   public synchronized void add(final Double number) {
+   public void add(final Double number) {
       super.add(number);
-      count = count + 1;
+      count.increment();
    }
 
    @Override
-   public synchronized Double getResult() {
-      if (count == 0) {
+   public void addDouble(final double value) {
+      super.addDouble(value);
+      count.increment();
+   }
+
+   @Override
+   public Double getResult() {
+      final long values = count.longValue();
+
+      if (values == 0) {
          return 0d;
       } else {
-         return super.getResult() / count;
+         return super.getResult() / values;
       }
    }
 
    @Override
-   public synchronized void reset() {
+   public void reset() {
       super.reset();
-      count = 0;
+      count.reset();
    }
 }
@@ -0,0 +1,93 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.reporting.reporter.accumulator;
+
+/**
+ * Monotonic queue of floating point values that keeps just the candidates for the minimum or maximum of the window.
+ * A new value removes all the newer candidates it supersedes, so the oldest remaining entry is always the extreme of the window
+ * and every value enters and leaves the queue at most once.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+final class ExtremeWindow extends WindowRing {
+
+   /**
+    * True when the window tracks the maximum, false for the minimum.
+    */
+   private final boolean maximum;
+
+   /**
+    * Candidate values.
+    */
+   private double[] values = new double[INITIAL_CAPACITY];
+
+   /**
+    * Creates a new window.
+    *
+    * @param maximum
+    *       True to track the maximum, false to track the minimum.
+    */
+   ExtremeWindow(final boolean maximum) {
+      this.maximum = maximum;
+   }
+
+   /**
+    * Adds a new value to the window.
+    *
+    * @param key
+    *       Key of the value.
+    * @param value
+    *       The value to be added.
+    */
+   void add(final long key, final double value) {
+      while (!isEmpty() && supersedes(value, values[index(size() - 1)])) {
+         removeLast();
+      }
+      final int index = append(key);
+      values[index] = value;
+   }
+
+   /**
+    * Gets the minimum or maximum of the values in the window. The window must not be empty.
+    *
+    * @return The minimum or maximum of the values in the window.
+    */
+   double getExtreme() {
+      return values[index(0)];
+   }
+
+   @Override
+   protected void grow(final int capacity) {
+      values = unwrap(values, capacity);
+   }
+
+   /**
+    * Checks whether a new value makes an older candidate useless.
+    *
+    * @param value
+    *       The new value.
+    * @param candidate
+    *       The older candidate.
+    * @return True if and only if the older candidate can never be the extreme again.
+    */
+   private boolean supersedes(final double value, final double candidate) {
+      return maximum ? value >= candidate : value <= candidate;
+   }
+}
@@ -27,7 +27,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -41,7 +41,7 @@ public class Histogram {
    /**
     * Actual counts of occurrences for given ranges.
     */
-   private Map<Range, AtomicLong> histogram = new LinkedHashMap<>();
+   private Map<Range, LongAdder> histogram = new LinkedHashMap<>();
 
    /**
     * Ranges of the histogram.
@@ -74,7 +74,7 @@ public class Histogram {
          min = rangeDividers.get(i);
 
          if (i == 0) {
-            histogram.put(new Range(Double.NEGATIVE_INFINITY, min), new AtomicLong(0L));
+            histogram.put(new Range(Double.NEGATIVE_INFINITY, min), new LongAdder());
          }
 
          if (i < count - 1) {
@@ -84,7 +84,7 @@ public class Histogram {
          }
 
          if (min < max) {
-            histogram.put(new Range(min, max), new AtomicLong(0L));
+            histogram.put(new Range(min, max), new LongAdder());
          }
       }
 
@@ -101,7 +101,7 @@ public class Histogram {
    public void add(final double value) {
       for (Range range : ranges) {
          if (range.contains(value)) {
-            histogram.get(range).incrementAndGet();
+            histogram.get(range).increment();
             break;
          }
       }
@@ -125,9 +125,9 @@ public class Histogram {
    @edu.umd.cs.findbugs.annotations.SuppressFBWarnings(value = "UC_USELESS_OBJECT", justification = "We copied the histogram hash map to get a frozen state.")
    public Map<Range, Long> getHistogram() {
       Map<Range, Long> result = new LinkedHashMap<>();
-      Map<Range, AtomicLong> snapshot = new LinkedHashMap<>(histogram);
+      Map<Range, LongAdder> snapshot = new LinkedHashMap<>(histogram);
 
-      snapshot.forEach((range, value) -> result.put(range, value.get()));
+      snapshot.forEach((range, value) -> result.put(range, value.longValue()));
 
       return result;
    }
@@ -140,13 +140,13 @@ public class Histogram {
    @edu.umd.cs.findbugs.annotations.SuppressFBWarnings(value = "UC_USELESS_OBJECT", justification = "We copied the histogram hash map to get a frozen state.")
    public Map<Range, Double> getHistogramInPercent() {
       Map<Range, Double> result = new LinkedHashMap<>();
-      Map<Range, AtomicLong> snapshot = new LinkedHashMap<>(histogram);
+      Map<Range, LongAdder> snapshot = new LinkedHashMap<>(histogram);
       final long count = getCount(snapshot);
 
       if (count == 0) {
          snapshot.forEach((range, value) -> result.put(range, 0d));
       } else {
-         snapshot.forEach((range, value) -> result.put(range, ((double) value.get()) / count * 100.0d));
+         snapshot.forEach((range, value) -> result.put(range, ((double) value.longValue()) / count * 100.0d));
       }
 
       return result;
@@ -168,10 +168,10 @@ public class Histogram {
     *       The map snapshot to be counted.
     * @return The sum of all map entries.
     */
-   private static long getCount(Map<Range, AtomicLong> snapshot) {
+   private static long getCount(Map<Range, LongAdder> snapshot) {
       long count = 0;
-      for (AtomicLong l : snapshot.values()) {
-         count = count + l.get();
+      for (LongAdder l : snapshot.values()) {
+         count = count + l.longValue();
       }
 
       return count;
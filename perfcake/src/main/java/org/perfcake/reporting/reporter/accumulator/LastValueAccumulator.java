@@ -29,7 +29,7 @@ public class LastValueAccumulator implements Accumulator<Object> {
    /**
     * Last remembered value.
     */
-   private Object lastValue;
+   private volatile Object lastValue;
 
    @Override
    public void add(final Object value) {
@@ -0,0 +1,77 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.reporting.reporter.accumulator;
+
+/**
+ * Window of long values with a running sum that is exact and thus never needs to be recomputed.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+final class LongSumWindow extends WindowRing {
+
+   /**
+    * Values in the window.
+    */
+   private long[] values = new long[INITIAL_CAPACITY];
+
+   /**
+    * Sum of the values in the window.
+    */
+   private long sum = 0;
+
+   /**
+    * Adds a new value to the window.
+    *
+    * @param key
+    *       Key of the value.
+    * @param value
+    *       The value to be added.
+    */
+   void add(final long key, final long value) {
+      final int index = append(key);
+      values[index] = value;
+      sum = sum + value;
+   }
+
+   /**
+    * Gets the sum of the values in the window.
+    *
+    * @return The sum of the values in the window.
+    */
+   long getSum() {
+      return sum;
+   }
+
+   @Override
+   void clear() {
+      super.clear();
+      sum = 0;
+   }
+
+   @Override
+   protected void onExpired(final int index) {
+      sum = sum - values[index];
+   }
+
+   @Override
+   protected void grow(final int capacity) {
+      values = unwrap(values, capacity);
+   }
+}
@@ -19,33 +19,39 @@
  */
 package org.perfcake.reporting.reporter.accumulator;
 
+import java.util.concurrent.atomic.DoubleAccumulator;
+
 /**
  * Accumulates the maximum of double values.
- * Atomic types are not used because both values must be set at the same time. Hence the methods are synchronized.
+ * The maximum is kept in striped cells so that many threads can add values without contention, the cells are merged when the result is read.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
 public class MaxAccumulator implements Accumulator<Double> {
+
    /**
     * Maximum of the reported values.
     */
-   private Double max = Double.NEGATIVE_INFINITY;
+   private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+   @Override
+   public void add(final Double value) {
+      max.accumulate(value);
+   }
 
    @Override
-   public synchronized void add(final Double value) {
-      if (value > max) {
-         max = value;
-      }
+   public void addDouble(final double value) {
+      max.accumulate(value);
    }
 
    @Override
-   public synchronized Double getResult() {
-      return max;
+   public Double getResult() {
+      return max.get();
    }
 
    @Override
-   public synchronized void reset() {
-      max = Double.NEGATIVE_INFINITY;
+   public void reset() {
+      max.reset();
    }
 }
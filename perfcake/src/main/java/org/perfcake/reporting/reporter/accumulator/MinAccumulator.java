@@ -19,9 +19,11 @@
  */
 package org.perfcake.reporting.reporter.accumulator;
 
+import java.util.concurrent.atomic.DoubleAccumulator;
+
 /**
  * Accumulates the minimum of double values.
- * Atomic types are not used because both values must be set at the same time. Hence the methods are synchronized.
+ * The minimum is kept in striped cells so that many threads can add values without contention, the cells are merged when the result is read.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
@@ -31,22 +33,25 @@ public class MinAccumulator implements Accumulator<Double> {
    /**
     * Mininum of the reported values.
     */
-   private Double min = Double.POSITIVE_INFINITY;
+   private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+
+   @Override
+   public void add(final Double value) {
+      min.accumulate(value);
+   }
 
    @Override
-   public synchronized void add(final Double value) {
-      if (value < min) {
-         min = value;
-      }
+   public void addDouble(final double value) {
+      min.accumulate(value);
    }
 
    @Override
-   public synchronized Double getResult() {
-      return min;
+   public Double getResult() {
+      return min.get();
    }
 
    @Override
-   public synchronized void reset() {
-      min = Double.POSITIVE_INFINITY;
+   public void reset() {
+      min.reset();
    }
 }
@@ -27,6 +27,11 @@ package org.perfcake.reporting.reporter.accumulator;
  */
 public class SlidingWindowAvgAccumulator extends AbstractSlidingWindowAccumulator<Double> {
 
+   /**
+    * Values in the sliding window with their running sum.
+    */
+   private final SumWindow window = new SumWindow();
+
    /**
     * Creates a new average accumulator with the sliding window of a given size.
     *
@@ -38,17 +43,25 @@ public class SlidingWindowAvgAccumulator extends AbstractSlidingWindowAccumulato
    }
 
    @Override
-   public Double getResult() {
-      double accum = 0;
-      double size;
+   public void add(final Double value) {
+      addDouble(value);
+   }
+
+   @Override
+   public synchronized void addDouble(final double value) {
+      final long position = nextPosition();
+      window.expire(getWindowStart(position));
+      window.add(position, value);
+   }
 
-      synchronized (fifo) {
-         for (final Object o : fifo) {
-            accum = accum + (Double) o;
-         }
-         size = fifo.size();
-      }
+   @Override
+   public synchronized Double getResult() {
+      return window.isEmpty() ? 0d : window.getSum() / window.size();
+   }
 
-      return size == 0 ? 0d : accum / size;
+   @Override
+   public synchronized void reset() {
+      super.reset();
+      window.clear();
    }
 }
@@ -27,6 +27,11 @@ package org.perfcake.reporting.reporter.accumulator;
  */
 public class SlidingWindowHarmonicMeanAccumulator extends AbstractSlidingWindowAccumulator<Double> {
 
+   /**
+    * Reciprocal values in the sliding window with their running sum.
+    */
+   private final SumWindow window = new SumWindow();
+
    /**
     * Creates a new harmonic mean accumulator with the sliding window of a given size.
     *
@@ -37,24 +42,26 @@ public class SlidingWindowHarmonicMeanAccumulator extends AbstractSlidingWindowA
       super(windowSize);
    }
 
-   @SuppressWarnings("unchecked")
    @Override
-   public void add(final Double number) {
-      fifo.add(1.0 / number);
+   public void add(final Double value) {
+      addDouble(value);
    }
 
    @Override
-   public Double getResult() {
-      double accum = 0;
-      double size;
+   public synchronized void addDouble(final double value) {
+      final long position = nextPosition();
+      window.expire(getWindowStart(position));
+      window.add(position, 1.0 / value);
+   }
 
-      synchronized (fifo) {
-         for (final Object o : fifo) {
-            accum = accum + (Double) o;
-         }
-         size = fifo.size();
-      }
+   @Override
+   public synchronized Double getResult() {
+      return window.isEmpty() ? 0d : window.size() / window.getSum();
+   }
 
-      return size == 0 ? 0d : size / accum;
+   @Override
+   public synchronized void reset() {
+      super.reset();
+      window.clear();
    }
 }
@@ -27,6 +27,11 @@ package org.perfcake.reporting.reporter.accumulator;
  */
 public class SlidingWindowMaxAccumulator extends AbstractSlidingWindowAccumulator<Double> {
 
+   /**
+    * Candidates for the maximum of the sliding window.
+    */
+   private final ExtremeWindow window = new ExtremeWindow(true);
+
    /**
     * Creates a new maximum accumulator with the sliding window of a given size.
     *
@@ -37,15 +42,26 @@ public class SlidingWindowMaxAccumulator extends AbstractSlidingWindowAccumulato
       super(windowSize);
    }
 
+   @Override
+   public void add(final Double value) {
+      addDouble(value);
+   }
+
+   @Override
+   public synchronized void addDouble(final double value) {
+      final long position = nextPosition();
+      window.expire(getWindowStart(position));
+      window.add(position, value);
+   }
+
    @Override
    public synchronized Double getResult() {
-      double max = Double.MIN_VALUE;
-      synchronized (fifo) {
-         for (final Object o : fifo) {
-            max = Math.max(max, (Double) o);
-         }
-      }
+      return window.isEmpty() ? Double.NaN : window.getExtreme();
+   }
 
-      return fifo.size() == 0 ? Double.NaN : max;
+   @Override
+   public synchronized void reset() {
+      super.reset();
+      window.clear();
    }
 }
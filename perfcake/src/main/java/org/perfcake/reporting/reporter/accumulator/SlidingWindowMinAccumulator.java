@@ -27,6 +27,11 @@ package org.perfcake.reporting.reporter.accumulator;
  */
 public class SlidingWindowMinAccumulator extends AbstractSlidingWindowAccumulator<Double> {
 
+   /**
+    * Candidates for the minimum of the sliding window.
+    */
+   private final ExtremeWindow window = new ExtremeWindow(false);
+
    /**
     * Creates a new minimum accumulator with the sliding window of a given size.
     *
@@ -38,14 +43,25 @@ public class SlidingWindowMinAccumulator extends AbstractSlidingWindowAccumulato
    }
 
    @Override
-   public Double getResult() {
-      double min = Double.POSITIVE_INFINITY;
-      synchronized (fifo) {
-         for (final Object o : fifo) {
-            min = Math.min(min, (Double) o);
-         }
-      }
+   public void add(final Double value) {
+      addDouble(value);
+   }
 
-      return fifo.size() == 0 ? Double.NaN : min;
+   @Override
+   public synchronized void addDouble(final double value) {
+      final long position = nextPosition();
+      window.expire(getWindowStart(position));
+      window.add(position, value);
+   }
+
+   @Override
+   public synchronized Double getResult() {
+      return window.isEmpty() ? Double.NaN : window.getExtreme();
+   }
+
+   @Override
+   public synchronized void reset() {
+      super.reset();
+      window.clear();
    }
 }
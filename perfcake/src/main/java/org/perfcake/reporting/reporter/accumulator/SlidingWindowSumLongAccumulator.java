@@ -27,6 +27,11 @@ package org.perfcake.reporting.reporter.accumulator;
  */
 public class SlidingWindowSumLongAccumulator extends AbstractSlidingWindowAccumulator<Long> {
 
+   /**
+    * Values in the sliding window with their running sum.
+    */
+   private final LongSumWindow window = new LongSumWindow();
+
    /**
     * Creates a new sum accumulator with the sliding window of a given size.
     *
@@ -38,15 +43,25 @@ public class SlidingWindowSumLongAccumulator extends AbstractSlidingWindowAccumu
    }
 
    @Override
-   public Long getResult() {
-      long accum = 0;
+   public void add(final Long value) {
+      addLong(value);
+   }
+
+   @Override
+   public synchronized void addLong(final long value) {
+      final long position = nextPosition();
+      window.expire(getWindowStart(position));
+      window.add(position, value);
+   }
 
-      synchronized (fifo) {
-         for (final Object o : fifo) {
-            accum = accum + (Long) o;
-         }
-      }
+   @Override
+   public synchronized Long getResult() {
+      return window.getSum();
+   }
 
-      return accum;
+   @Override
+   public synchronized void reset() {
+      super.reset();
+      window.clear();
    }
 }
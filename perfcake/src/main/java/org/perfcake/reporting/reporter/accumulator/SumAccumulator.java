@@ -31,13 +31,24 @@ public class SumAccumulator implements Accumulator<Double> {
    /**
     * Sum of the reported values.
     */
-   private DoubleAdder sum = new DoubleAdder();
+   private final DoubleAdder sum = new DoubleAdder();
 
    @Override
    public void add(final Double number) {
       sum.add(number);
    }
 
+   /**
+    * Adds a value to the sum without boxing it. Child classes overriding {@link #add(Double)} must override this method as well.
+    *
+    * @param value
+    *       The value to be accumulated.
+    */
+   @Override
+   public void addDouble(final double value) {
+      sum.add(value);
+   }
+
    @Override
    public Double getResult() {
       return sum.doubleValue();
@@ -45,6 +56,6 @@ public class SumAccumulator implements Accumulator<Double> {
 
    @Override
    public void reset() {
-      sum = new DoubleAdder();
+      sum.reset();
    }
 }
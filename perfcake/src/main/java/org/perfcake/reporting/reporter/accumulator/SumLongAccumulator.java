@@ -31,13 +31,18 @@ public class SumLongAccumulator implements Accumulator<Long> {
    /**
     * Sum of the reported values.
     */
-   private LongAdder sum = new LongAdder();
+   private final LongAdder sum = new LongAdder();
 
    @Override
    public void add(final Long number) {
       sum.add(number);
    }
 
+   @Override
+   public void addLong(final long value) {
+      sum.add(value);
+   }
+
    @Override
    public Long getResult() {
       return sum.longValue();
@@ -45,6 +50,6 @@ public class SumLongAccumulator implements Accumulator<Long> {
 
    @Override
    public void reset() {
-      sum = new LongAdder();
+      sum.reset();
    }
 }
@@ -0,0 +1,100 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.reporting.reporter.accumulator;
+
+/**
+ * Window of floating point values with a running sum. Expired values are subtracted from the sum, and once more values were subtracted
+ * than there are left in the window, the sum is recomputed from the remaining values to keep the rounding error bounded.
+ * Each value is thus summed at most twice in amortized terms.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+final class SumWindow extends WindowRing {
+
+   /**
+    * Values in the window.
+    */
+   private double[] values = new double[INITIAL_CAPACITY];
+
+   /**
+    * Sum of the values in the window.
+    */
+   private double sum = 0;
+
+   /**
+    * Number of values subtracted from the sum since it was last recomputed.
+    */
+   private int subtracted = 0;
+
+   /**
+    * Adds a new value to the window.
+    *
+    * @param key
+    *       Key of the value.
+    * @param value
+    *       The value to be added.
+    */
+   void add(final long key, final double value) {
+      final int index = append(key);
+      values[index] = value;
+      sum = sum + value;
+   }
+
+   /**
+    * Gets the sum of the values in the window.
+    *
+    * @return The sum of the values in the window.
+    */
+   double getSum() {
+      return sum;
+   }
+
+   @Override
+   void expire(final long minKey) {
+      super.expire(minKey);
+
+      if (subtracted > size()) {
+         double accum = 0;
+         for (int i = 0; i < size(); i++) {
+            accum = accum + values[index(i)];
+         }
+         sum = accum;
+         subtracted = 0;
+      }
+   }
+
+   @Override
+   void clear() {
+      super.clear();
+      sum = 0;
+      subtracted = 0;
+   }
+
+   @Override
+   protected void onExpired(final int index) {
+      sum = sum - values[index];
+      subtracted++;
+   }
+
+   @Override
+   protected void grow(final int capacity) {
+      values = unwrap(values, capacity);
+   }
+}
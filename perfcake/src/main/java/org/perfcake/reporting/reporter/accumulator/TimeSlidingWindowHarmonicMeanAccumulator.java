@@ -25,7 +25,12 @@ package org.perfcake.reporting.reporter.accumulator;
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
-public class TimeSlidingWindowHarmonicMeanAccumulator extends AbstractTimeSlidingWindowAccumulator<Double, HarmonicMeanAccumulator> {
+public class TimeSlidingWindowHarmonicMeanAccumulator extends AbstractTimeSlidingWindowAccumulator<Double> {
+
+   /**
+    * Reciprocal values in the sliding window with their running sum.
+    */
+   private final SumWindow window = new SumWindow();
 
    /**
     * Creates a new harmonic mean accumulator with the sliding window of a given size.
@@ -34,7 +39,29 @@ public class TimeSlidingWindowHarmonicMeanAccumulator extends AbstractTimeSlidin
     *       Size of the sliding window.
     */
    public TimeSlidingWindowHarmonicMeanAccumulator(final int windowSize) {
-      super(windowSize, HarmonicMeanAccumulator.class);
+      super(windowSize);
+   }
+
+   @Override
+   public void add(final Double value) {
+      addDouble(value);
    }
 
+   @Override
+   public synchronized void addDouble(final double value) {
+      final long time = currentTime();
+      window.expire(getWindowStart(time));
+      window.add(time, 1.0 / value);
+   }
+
+   @Override
+   public synchronized Double getResult() {
+      window.expire(getWindowStart(currentTime()));
+      return window.isEmpty() ? 0d : window.size() / window.getSum();
+   }
+
+   @Override
+   public synchronized void reset() {
+      window.clear();
+   }
 }
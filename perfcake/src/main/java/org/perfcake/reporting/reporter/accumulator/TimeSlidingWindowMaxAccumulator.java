@@ -25,15 +25,43 @@ package org.perfcake.reporting.reporter.accumulator;
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
-public class TimeSlidingWindowMaxAccumulator extends AbstractTimeSlidingWindowAccumulator<Double, MaxAccumulator> {
+public class TimeSlidingWindowMaxAccumulator extends AbstractTimeSlidingWindowAccumulator<Double> {
+
+   /**
+    * Candidates for the maximum of the sliding window.
+    */
+   private final ExtremeWindow window = new ExtremeWindow(true);
+
    /**
-    * Creates a maximal value average accumulator with the sliding window of a given size.
+    * Creates a new maximal value accumulator with the sliding window of a given size.
     *
     * @param windowSize
     *       Size of the sliding window.
     */
    public TimeSlidingWindowMaxAccumulator(final int windowSize) {
-      super(windowSize, MaxAccumulator.class);
+      super(windowSize);
+   }
+
+   @Override
+   public void add(final Double value) {
+      addDouble(value);
    }
 
+   @Override
+   public synchronized void addDouble(final double value) {
+      final long time = currentTime();
+      window.expire(getWindowStart(time));
+      window.add(time, value);
+   }
+
+   @Override
+   public synchronized Double getResult() {
+      window.expire(getWindowStart(currentTime()));
+      return window.isEmpty() ? Double.NEGATIVE_INFINITY : window.getExtreme();
+   }
+
+   @Override
+   public synchronized void reset() {
+      window.clear();
+   }
 }
@@ -25,7 +25,12 @@ package org.perfcake.reporting.reporter.accumulator;
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
-public class TimeSlidingWindowMinAccumulator extends AbstractTimeSlidingWindowAccumulator<Double, MinAccumulator> {
+public class TimeSlidingWindowMinAccumulator extends AbstractTimeSlidingWindowAccumulator<Double> {
+
+   /**
+    * Candidates for the minimum of the sliding window.
+    */
+   private final ExtremeWindow window = new ExtremeWindow(false);
 
    /**
     * Creates a new minimal value accumulator with the sliding window of a given size.
@@ -34,7 +39,29 @@ public class TimeSlidingWindowMinAccumulator extends AbstractTimeSlidingWindowAc
     *       Size of the sliding window.
     */
    public TimeSlidingWindowMinAccumulator(final int windowSize) {
-      super(windowSize, MinAccumulator.class);
+      super(windowSize);
+   }
+
+   @Override
+   public void add(final Double value) {
+      addDouble(value);
    }
 
+   @Override
+   public synchronized void addDouble(final double value) {
+      final long time = currentTime();
+      window.expire(getWindowStart(time));
+      window.add(time, value);
+   }
+
+   @Override
+   public synchronized Double getResult() {
+      window.expire(getWindowStart(currentTime()));
+      return window.isEmpty() ? Double.POSITIVE_INFINITY : window.getExtreme();
+   }
+
+   @Override
+   public synchronized void reset() {
+      window.clear();
+   }
 }
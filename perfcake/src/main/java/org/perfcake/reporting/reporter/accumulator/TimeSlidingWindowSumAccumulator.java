@@ -25,7 +25,12 @@ package org.perfcake.reporting.reporter.accumulator;
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
-public class TimeSlidingWindowSumAccumulator extends AbstractTimeSlidingWindowAccumulator<Double, SumAccumulator> {
+public class TimeSlidingWindowSumAccumulator extends AbstractTimeSlidingWindowAccumulator<Double> {
+
+   /**
+    * Values in the sliding window with their running sum.
+    */
+   private final SumWindow window = new SumWindow();
 
    /**
     * Creates a new sum accumulator with the sliding window of a given size.
@@ -34,7 +39,29 @@ public class TimeSlidingWindowSumAccumulator extends AbstractTimeSlidingWindowAc
     *       Size of the sliding window.
     */
    public TimeSlidingWindowSumAccumulator(final int windowSize) {
-      super(windowSize, SumAccumulator.class);
+      super(windowSize);
+   }
+
+   @Override
+   public void add(final Double value) {
+      addDouble(value);
    }
 
+   @Override
+   public synchronized void addDouble(final double value) {
+      final long time = currentTime();
+      window.expire(getWindowStart(time));
+      window.add(time, value);
+   }
+
+   @Override
+   public synchronized Double getResult() {
+      window.expire(getWindowStart(currentTime()));
+      return window.getSum();
+   }
+
+   @Override
+   public synchronized void reset() {
+      window.clear();
+   }
 }
@@ -25,7 +25,12 @@ package org.perfcake.reporting.reporter.accumulator;
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  * @author <a href="mailto:pavel.macik@gmail.com">Pavel Macík</a>
  */
-public class TimeSlidingWindowSumLongAccumulator extends AbstractTimeSlidingWindowAccumulator<Long, SumLongAccumulator> {
+public class TimeSlidingWindowSumLongAccumulator extends AbstractTimeSlidingWindowAccumulator<Long> {
+
+   /**
+    * Values in the sliding window with their running sum.
+    */
+   private final LongSumWindow window = new LongSumWindow();
 
    /**
     * Creates a new sum accumulator with the sliding window of a given size.
@@ -34,7 +39,29 @@ public class TimeSlidingWindowSumLongAccumulator extends AbstractTimeSlidingWind
     *       Size of the sliding window.
     */
    public TimeSlidingWindowSumLongAccumulator(final int windowSize) {
-      super(windowSize, SumLongAccumulator.class);
+      super(windowSize);
+   }
+
+   @Override
+   public void add(final Long value) {
+      addLong(value);
    }
 
+   @Override
+   public synchronized void addLong(final long value) {
+      final long time = currentTime();
+      window.expire(getWindowStart(time));
+      window.add(time, value);
+   }
+
+   @Override
+   public synchronized Long getResult() {
+      window.expire(getWindowStart(currentTime()));
+      return window.getSum();
+   }
+
+   @Override
+   public synchronized void reset() {
+      window.clear();
+   }
 }
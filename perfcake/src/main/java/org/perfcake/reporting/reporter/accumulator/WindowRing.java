@@ -0,0 +1,180 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.reporting.reporter.accumulator;
+
+/**
+ * Growable circular queue of keyed entries that backs the sliding window accumulators.
+ * Each entry carries a key, either the position of the value in the stream of reported values or the time when it was reported,
+ * and the keys grow monotonically from the oldest entry to the newest one. Subclasses keep the values in their own primitive arrays
+ * indexed in the same way as the keys. The queue is not thread safe, the accumulators guard it by their own locks.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+abstract class WindowRing {
+
+   /**
+    * Initial capacity of the queue, it must be a power of two.
+    */
+   protected static final int INITIAL_CAPACITY = 16;
+
+   /**
+    * Keys of the entries.
+    */
+   private long[] keys = new long[INITIAL_CAPACITY];
+
+   /**
+    * Index of the oldest entry.
+    */
+   private int head = 0;
+
+   /**
+    * Number of entries in the queue.
+    */
+   private int size = 0;
+
+   /**
+    * Gets the number of entries in the queue.
+    *
+    * @return The number of entries in the queue.
+    */
+   int size() {
+      return size;
+   }
+
+   /**
+    * Checks whether there are no entries in the queue.
+    *
+    * @return True if and only if the queue is empty.
+    */
+   boolean isEmpty() {
+      return size == 0;
+   }
+
+   /**
+    * Removes all the entries whose keys are lower than the given key.
+    *
+    * @param minKey
+    *       The lowest key that stays in the queue.
+    */
+   void expire(final long minKey) {
+      while (size > 0 && keys[head] < minKey) {
+         onExpired(head);
+         head = (head + 1) & (keys.length - 1);
+         size--;
+      }
+   }
+
+   /**
+    * Removes all the entries.
+    */
+   void clear() {
+      head = 0;
+      size = 0;
+   }
+
+   /**
+    * Called for each entry removed by {@link #expire(long)} before its slot is released.
+    *
+    * @param index
+    *       Index of the removed entry.
+    */
+   protected void onExpired(final int index) {
+   }
+
+   /**
+    * Grows the arrays of values kept by the subclass. Implementations should use {@link #unwrap(double[], int)} or {@link #unwrap(long[], int)}.
+    *
+    * @param capacity
+    *       The new capacity.
+    */
+   protected abstract void grow(final int capacity);
+
+   /**
+    * Appends a new entry to the queue.
+    *
+    * @param key
+    *       Key of the new entry.
+    * @return Index of the new entry where the subclass should store its value.
+    */
+   protected int append(final long key) {
+      if (size == keys.length) {
+         final int capacity = keys.length << 1;
+         grow(capacity);
+         keys = unwrap(keys, capacity);
+         head = 0;
+      }
+
+      final int index = index(size++);
+      keys[index] = key;
+      return index;
+   }
+
+   /**
+    * Removes the newest entry from the queue.
+    */
+   protected void removeLast() {
+      size--;
+   }
+
+   /**
+    * Gets the index of the entry at the given offset from the oldest one.
+    *
+    * @param offset
+    *       Offset of the entry, 0 stands for the oldest one.
+    * @return Index of the entry.
+    */
+   protected int index(final int offset) {
+      return (head + offset) & (keys.length - 1);
+   }
+
+   /**
+    * Copies the entries of the given array to a new array of the given capacity so that the oldest entry is at the index 0.
+    *
+    * @param array
+    *       The array to copy.
+    * @param capacity
+    *       Capacity of the new array.
+    * @return The new array.
+    */
+   protected double[] unwrap(final double[] array, final int capacity) {
+      final double[] result = new double[capacity];
+      final int first = Math.min(size, array.length - head);
+      System.arraycopy(array, head, result, 0, first);
+      System.arraycopy(array, 0, result, first, size - first);
+      return result;
+   }
+
+   /**
+    * Copies the entries of the given array to a new array of the given capacity so that the oldest entry is at the index 0.
+    *
+    * @param array
+    *       The array to copy.
+    * @param capacity
+    *       Capacity of the new array.
+    * @return The new array.
+    */
+   protected long[] unwrap(final long[] array, final int capacity) {
+      final long[] result = new long[capacity];
+      final int first = Math.min(size, array.length - head);
+      System.arraycopy(array, head, result, 0, first);
+      System.arraycopy(array, 0, result, first, size - first);
+      return result;
+   }
+}
@@ -21,22 +21,26 @@ package org.perfcake.reporting.reporter.accumulator.weighted;
 
 import org.perfcake.reporting.reporter.accumulator.Accumulator;
 
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Accumulates weighted harmonic mean of inserted values.
  * For values x1, x2, x3... and their respective weights w1, w2, w3... the result is
  * (w1 + w2 + w3 + ...) / ((w1 / x1) + (w2 / x2) + (w3 / x3) + ...).
+ * The sums are kept in striped adders and merged when the result is read, so that many threads can add values without contention.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
 public class WeightedHarmonicMeanAccumulator implements Accumulator<WeightedValue<Double>> {
 
-   private double sum;
-   private long weight;
+   private final DoubleAdder sum = new DoubleAdder();
+   private final LongAdder weight = new LongAdder();
 
    @Override
-   public synchronized void add(final WeightedValue<Double> value) {
-      sum = sum + (value.getWeight() / value.getValue());
-      weight = weight + value.getWeight();
+   public void add(final WeightedValue<Double> value) {
+      sum.add(value.getWeight() / value.getValue());
+      weight.add(value.getWeight());
    }
 
    /**
@@ -46,8 +50,8 @@ public class WeightedHarmonicMeanAccumulator implements Accumulator<WeightedValu
     * @return The weighted mean of all accumulated values.
     */
    @Override
-   public synchronized WeightedValue<Double> getResult() {
-      return new WeightedValue<>(weight / sum, 1);
+   public WeightedValue<Double> getResult() {
+      return new WeightedValue<>(weight.longValue() / sum.doubleValue(), 1);
    }
 
    /**
@@ -55,8 +59,8 @@ public class WeightedHarmonicMeanAccumulator implements Accumulator<WeightedValu
     * as there is nothing accumulated and no mean can be computed.
     */
    @Override
-   public synchronized void reset() {
-      sum = 0d;
-      weight = 0L;
+   public void reset() {
+      sum.reset();
+      weight.reset();
    }
 }
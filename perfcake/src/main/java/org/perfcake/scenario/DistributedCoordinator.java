@@ -0,0 +1,504 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.scenario;
+
+import org.perfcake.PerfCakeConst;
+import org.perfcake.PerfCakeException;
+import org.perfcake.RunInfo;
+import org.perfcake.common.Period;
+import org.perfcake.common.PeriodType;
+import org.perfcake.reporting.MeasurementUnit;
+import org.perfcake.reporting.ReportManager;
+import org.perfcake.reporting.ReportingException;
+import org.perfcake.util.Utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Coordinates a test executed by several {@link DistributedWorker DistributedWorkers}. The coordinator waits
+ * for the given number of workers to connect and sends each of them the scenario with its share of the load.
+ * The iterations of an iteration bound test are split evenly among the workers, a time bound test runs for the same time on all of them.
+ * Values of the sequences are partitioned so that the workers do not generate the same values.</p>
+ *
+ * <p>Once all the workers are ready, they are started at the same moment. The measurement units measured by the workers
+ * are streamed back to the coordinator and reported by the reporters configured in the scenario as if they were measured locally.
+ * The warm-up is thus evaluated on the merged results only.</p>
+ *
+ * <p>The coordinator listens on the loopback address unless a different bind address is configured. The coordinator and the workers
+ * authenticate each other by a shared secret (see {@link DistributedHandshake}) which is mandatory when listening on other
+ * than the loopback address. All the messages are exchanged as plain data, no objects are deserialized on either side.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class DistributedCoordinator {
+
+   /**
+    * Sent by a worker when it is initialized and ready to start.
+    */
+   static final int READY = 1;
+
+   /**
+    * Sent by the coordinator to start the workers.
+    */
+   static final int GO = 2;
+
+   /**
+    * Precedes a measurement unit sent by a worker.
+    */
+   static final int RECORD = 3;
+
+   /**
+    * Sent by a worker when it finished the test, it is followed by a flag whether there was an error and the error message.
+    */
+   static final int END = 4;
+
+   /**
+    * The coordinator's logger.
+    */
+   private static final Logger log = LogManager.getLogger(DistributedCoordinator.class);
+
+   /**
+    * The time for a connected worker to authenticate in milliseconds.
+    */
+   private static final int HANDSHAKE_TIMEOUT = 10_000;
+
+   /**
+    * The location of the scenario to be executed.
+    */
+   private final String scenarioLocation;
+
+   /**
+    * The port to listen on for the workers.
+    */
+   private final int port;
+
+   /**
+    * The address to listen on for the workers, null for the loopback address.
+    */
+   private String bindAddress = Utils.getProperty(PerfCakeConst.COORDINATOR_BIND_PROPERTY);
+
+   /**
+    * The secret shared with the workers.
+    */
+   private String secret = Utils.getProperty(PerfCakeConst.DISTRIBUTED_SECRET_PROPERTY);
+
+   /**
+    * The number of workers to wait for.
+    */
+   private final int workers;
+
+   /**
+    * The time to wait for all the workers to connect in milliseconds.
+    */
+   private long connectTimeout = 300_000;
+
+   /**
+    * Additional properties passed to the workers before they load the scenario.
+    */
+   private Properties properties = new Properties();
+
+   /**
+    * The number of measurement units received from the individual workers.
+    */
+   private final List<AtomicLong> receivedCounts = new ArrayList<>();
+
+   /**
+    * Errors reported by the workers.
+    */
+   private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+   /**
+    * Creates a new coordinator.
+    *
+    * @param scenarioLocation
+    *       The location of the scenario to be executed.
+    * @param port
+    *       The port to listen on for the workers.
+    * @param workers
+    *       The number of workers to wait for.
+    */
+   public DistributedCoordinator(final String scenarioLocation, final int port, final int workers) {
+      this.scenarioLocation = scenarioLocation;
+      this.port = port;
+      this.workers = workers;
+   }
+
+   /**
+    * Executes the scenario on the workers and reports the merged results.
+    *
+    * @throws PerfCakeException
+    *       When it was not possible to load the scenario, to communicate with the workers or when any of the workers failed.
+    */
+   public void execute() throws PerfCakeException {
+      if (workers < 1) {
+         throw new PerfCakeException("There must be at least one worker in a distributed test.");
+      }
+
+      final URL scenarioUrl;
+      final byte[] scenarioContent;
+      try {
+         scenarioUrl = Utils.locationToUrlWithCheck(scenarioLocation, PerfCakeConst.SCENARIOS_DIR_PROPERTY, Utils.determineDefaultLocation("scenarios"), ".xml", ".dsl");
+         try (final InputStream is = scenarioUrl.openStream()) {
+            scenarioContent = IOUtils.toByteArray(is);
+         }
+      } catch (final IOException e) {
+         throw new PerfCakeException(String.format("Cannot read scenario '%s': ", scenarioLocation), e);
+      }
+
+      final Scenario scenario = ScenarioLoader.load(scenarioLocation);
+      final ReportManager reportManager = scenario.getReportManager();
+      final RunInfo runInfo = reportManager.getRunInfo();
+      final String scenarioName = Paths.get(scenarioUrl.getPath()).getFileName().toString();
+
+      final InetAddress address = getInetAddress();
+      if (!address.isLoopbackAddress() && (secret == null || secret.isEmpty())) {
+         throw new PerfCakeException(String.format("A shared secret (%s) must be configured to coordinate workers on %s.", PerfCakeConst.DISTRIBUTED_SECRET_PROPERTY, address));
+      }
+
+      final List<Socket> sockets = new ArrayList<>();
+      final List<DataInputStream> inputs = new ArrayList<>();
+      final List<DataOutputStream> outputs = new ArrayList<>();
+
+      try (final ServerSocket serverSocket = new ServerSocket(port, 0, address)) {
+         log.info("Waiting for {} workers to connect on {}:{}.", workers, address.getHostAddress(), serverSocket.getLocalPort());
+
+         final long deadline = System.currentTimeMillis() + connectTimeout;
+         while (sockets.size() < workers) {
+            serverSocket.setSoTimeout((int) Math.max(1, deadline - System.currentTimeMillis()));
+            final Socket socket = serverSocket.accept();
+            final DataInputStream in;
+            final DataOutputStream out;
+            try {
+               socket.setTcpNoDelay(true);
+               socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+               out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+               in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+               DistributedHandshake.authenticateWorker(in, out, secret == null ? "" : secret);
+               socket.setSoTimeout(0);
+            } catch (final IOException e) {
+               log.warn("Rejected connection from {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+               close(socket);
+               continue;
+            }
+
+            final int i = sockets.size();
+            sockets.add(socket);
+            new WorkerJob(scenarioName, scenarioContent, getWorkerProperties(), getWorkerDuration(runInfo.getDuration(), i), i, workers).writeTo(out);
+            out.flush();
+            outputs.add(out);
+            inputs.add(in);
+            receivedCounts.add(new AtomicLong());
+
+            log.info("Worker {} connected from {}.", i, socket.getRemoteSocketAddress());
+         }
+
+         for (int i = 0; i < workers; i++) {
+            expect(inputs.get(i), READY, i);
+         }
+
+         log.info("All workers are ready, starting the test.");
+         reportManager.start();
+
+         for (final DataOutputStream out : outputs) {
+            out.writeInt(GO);
+            out.flush();
+         }
+
+         final List<Thread> readers = new ArrayList<>();
+         for (int i = 0; i < workers; i++) {
+            final int worker = i;
+            final Thread reader = new Thread(() -> receive(inputs.get(worker), worker, reportManager, runInfo), "PerfCake-coordinator-" + i);
+            readers.add(reader);
+            reader.start();
+         }
+
+         for (final Thread reader : readers) {
+            reader.join();
+         }
+      } catch (final SocketTimeoutException e) {
+         throw new PerfCakeException(String.format("Only %d of %d workers connected in time.", sockets.size(), workers), e);
+      } catch (final IOException e) {
+         throw new PerfCakeException("Error communicating with the workers: ", e);
+      } catch (final InterruptedException e) {
+         throw new PerfCakeException("Interrupted while waiting for the workers to finish: ", e);
+      } finally {
+         if (runInfo.isStarted()) {
+            reportManager.stop();
+         }
+
+         for (final Socket socket : sockets) {
+            close(socket);
+         }
+      }
+
+      log.info("Received {} measurement units from {} workers.", getReceivedCount(), workers);
+
+      if (!errors.isEmpty()) {
+         throw new PerfCakeException("Some workers failed: " + String.join("; ", errors));
+      }
+   }
+
+   /**
+    * Receives the measurement units from a worker and reports them until the worker finishes.
+    *
+    * @param in
+    *       The stream from the worker.
+    * @param worker
+    *       The index of the worker.
+    * @param reportManager
+    *       The report manager to report the measurement units to.
+    * @param runInfo
+    *       The run info of the whole test.
+    */
+   private void receive(final DataInputStream in, final int worker, final ReportManager reportManager, final RunInfo runInfo) {
+      final AtomicLong received = receivedCounts.get(worker);
+
+      try {
+         int code;
+         while ((code = in.readInt()) == RECORD) {
+            final MeasurementUnit mu = MeasurementUnit.readFrom(in);
+            runInfo.getNextIteration();
+            received.incrementAndGet();
+            reportManager.report(mu);
+         }
+
+         if (code != END) {
+            throw new IOException("Unexpected message " + code + " from the worker.");
+         }
+
+         if (in.readBoolean()) {
+            errors.add(String.format("worker %d: %s", worker, in.readUTF()));
+         }
+      } catch (final EOFException e) {
+         errors.add(String.format("worker %d: connection closed unexpectedly", worker));
+      } catch (final IOException | ReportingException e) {
+         log.error(String.format("Error receiving results from worker %d: ", worker), e);
+         errors.add(String.format("worker %d: %s", worker, e.getMessage()));
+      }
+   }
+
+   /**
+    * Reads a message code from a worker and checks it has the expected value.
+    *
+    * @param in
+    *       The stream from the worker.
+    * @param code
+    *       The expected code.
+    * @param worker
+    *       The index of the worker.
+    * @throws IOException
+    *       When the worker did not send the expected code.
+    * @throws PerfCakeException
+    *       When the worker reported an error.
+    */
+   private static void expect(final DataInputStream in, final int code, final int worker) throws IOException, PerfCakeException {
+      final int received = in.readInt();
+
+      if (received == END) {
+         throw new PerfCakeException(String.format("Worker %d failed: %s", worker, in.readBoolean() ? in.readUTF() : "no error reported"));
+      } else if (received != code) {
+         throw new IOException(String.format("Unexpected message %d from worker %d, expected %d.", received, worker, code));
+      }
+   }
+
+   /**
+    * Closes the connection to a worker.
+    *
+    * @param socket
+    *       The connection to be closed.
+    */
+   private static void close(final Socket socket) {
+      try {
+         socket.close();
+      } catch (final IOException e) {
+         log.warn("Unable to close connection to a worker: ", e);
+      }
+   }
+
+   /**
+    * Resolves the address to listen on.
+    *
+    * @return The address to listen on.
+    * @throws PerfCakeException
+    *       When the bind address cannot be resolved.
+    */
+   private InetAddress getInetAddress() throws PerfCakeException {
+      if (bindAddress == null || bindAddress.isEmpty()) {
+         return InetAddress.getLoopbackAddress();
+      }
+
+      try {
+         return InetAddress.getByName(bindAddress);
+      } catch (final IOException e) {
+         throw new PerfCakeException(String.format("Cannot resolve the coordinator bind address '%s': ", bindAddress), e);
+      }
+   }
+
+   /**
+    * Computes the share of the test duration for the given worker.
+    *
+    * @param duration
+    *       The duration of the whole test.
+    * @param worker
+    *       The index of the worker.
+    * @return The run duration of the worker.
+    */
+   Period getWorkerDuration(final Period duration, final int worker) {
+      if (duration.getPeriodType() == PeriodType.ITERATION) {
+         return new Period(PeriodType.ITERATION, duration.getPeriod() / workers + (worker < duration.getPeriod() % workers ? 1 : 0));
+      }
+
+      return duration;
+   }
+
+   /**
+    * Gets the properties to be set on the workers.
+    *
+    * @return The properties for the workers.
+    */
+   private Properties getWorkerProperties() {
+      final Properties result = new Properties();
+      result.putAll(properties);
+
+      final String messagesDir = Utils.getProperty(PerfCakeConst.MESSAGES_DIR_PROPERTY);
+      if (messagesDir != null && !result.containsKey(PerfCakeConst.MESSAGES_DIR_PROPERTY)) {
+         result.setProperty(PerfCakeConst.MESSAGES_DIR_PROPERTY, messagesDir);
+      }
+
+      return result;
+   }
+
+   /**
+    * Gets the total number of measurement units received from all the workers.
+    *
+    * @return The number of received measurement units.
+    */
+   public long getReceivedCount() {
+      return receivedCounts.stream().mapToLong(AtomicLong::get).sum();
+   }
+
+   /**
+    * Gets the number of measurement units received from the given worker.
+    *
+    * @param worker
+    *       The index of the worker.
+    * @return The number of measurement units received from the worker.
+    */
+   public long getReceivedCount(final int worker) {
+      return receivedCounts.get(worker).get();
+   }
+
+   /**
+    * Gets the time to wait for all the workers to connect.
+    *
+    * @return The time to wait in milliseconds.
+    */
+   public long getConnectTimeout() {
+      return connectTimeout;
+   }
+
+   /**
+    * Sets the time to wait for all the workers to connect.
+    *
+    * @param connectTimeout
+    *       The time to wait in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public DistributedCoordinator setConnectTimeout(final long connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+   }
+
+   /**
+    * Gets the address to listen on for the workers.
+    *
+    * @return The address to listen on, null for the loopback address.
+    */
+   public String getBindAddress() {
+      return bindAddress;
+   }
+
+   /**
+    * Sets the address to listen on for the workers. The loopback address is used by default.
+    *
+    * @param bindAddress
+    *       The address to listen on, null for the loopback address.
+    * @return Instance of this to support fluent API.
+    */
+   public DistributedCoordinator setBindAddress(final String bindAddress) {
+      this.bindAddress = bindAddress;
+      return this;
+   }
+
+   /**
+    * Sets the secret shared with the workers. It must be configured when listening on other than the loopback address.
+    *
+    * @param secret
+    *       The shared secret.
+    * @return Instance of this to support fluent API.
+    */
+   public DistributedCoordinator setSecret(final String secret) {
+      this.secret = secret;
+      return this;
+   }
+
+   /**
+    * Gets the additional properties passed to the workers.
+    *
+    * @return The properties passed to the workers.
+    */
+   public Properties getProperties() {
+      return properties;
+   }
+
+   /**
+    * Sets additional properties passed to the workers before they load the scenario.
+    * These are typically the properties specified at the command line.
+    *
+    * @param properties
+    *       The properties passed to the workers.
+    * @return Instance of this to support fluent API.
+    */
+   public DistributedCoordinator setProperties(final Properties properties) {
+      this.properties = properties;
+      return this;
+   }
+}
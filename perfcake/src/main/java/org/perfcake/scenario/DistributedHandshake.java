@@ -0,0 +1,187 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.scenario;
+
+import org.perfcake.PerfCakeConst;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Mutual authentication of a {@link DistributedCoordinator} and a {@link DistributedWorker} by a shared secret.
+ * Both sides send a random challenge and prove the knowledge of the secret by an HMAC of both challenges and their role,
+ * the secret itself is never sent over the network. Nothing else is exchanged before both sides are authenticated.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+final class DistributedHandshake {
+
+   /**
+    * Identifies the protocol and its version at the very beginning of the connection.
+    */
+   private static final int MAGIC = 0x50434431; // PCD1
+
+   /**
+    * The size of the random challenges in bytes.
+    */
+   private static final int CHALLENGE_SIZE = 32;
+
+   /**
+    * The HMAC algorithm used to prove the knowledge of the secret.
+    */
+   private static final String ALGORITHM = "HmacSHA256";
+
+   /**
+    * The source of the random challenges.
+    */
+   private static final SecureRandom random = new SecureRandom();
+
+   /**
+    * This is a static class with no instances.
+    */
+   private DistributedHandshake() {
+   }
+
+   /**
+    * Authenticates a worker that has just connected, called by the coordinator.
+    *
+    * @param in
+    *       The input from the worker.
+    * @param out
+    *       The output to the worker.
+    * @param secret
+    *       The shared secret.
+    * @throws IOException
+    *       When the worker did not prove the knowledge of the secret or the communication failed.
+    */
+   static void authenticateWorker(final DataInputStream in, final DataOutputStream out, final String secret) throws IOException {
+      final byte[] coordinatorChallenge = newChallenge();
+      out.writeInt(MAGIC);
+      out.write(coordinatorChallenge);
+      out.flush();
+
+      if (in.readInt() != MAGIC) {
+         throw new IOException("The peer is not a PerfCake worker.");
+      }
+      final byte[] workerChallenge = new byte[CHALLENGE_SIZE];
+      in.readFully(workerChallenge);
+      verify(in, sign(secret, "worker", coordinatorChallenge, workerChallenge), "worker");
+
+      out.write(sign(secret, "coordinator", coordinatorChallenge, workerChallenge));
+      out.flush();
+   }
+
+   /**
+    * Authenticates the coordinator the worker has just connected to, called by the worker.
+    *
+    * @param in
+    *       The input from the coordinator.
+    * @param out
+    *       The output to the coordinator.
+    * @param secret
+    *       The shared secret.
+    * @throws IOException
+    *       When the coordinator did not prove the knowledge of the secret or the communication failed.
+    */
+   static void authenticateCoordinator(final DataInputStream in, final DataOutputStream out, final String secret) throws IOException {
+      if (in.readInt() != MAGIC) {
+         throw new IOException("The peer is not a PerfCake coordinator.");
+      }
+      final byte[] coordinatorChallenge = new byte[CHALLENGE_SIZE];
+      in.readFully(coordinatorChallenge);
+
+      final byte[] workerChallenge = newChallenge();
+      out.writeInt(MAGIC);
+      out.write(workerChallenge);
+      out.write(sign(secret, "worker", coordinatorChallenge, workerChallenge));
+      out.flush();
+
+      verify(in, sign(secret, "coordinator", coordinatorChallenge, workerChallenge), "coordinator");
+   }
+
+   /**
+    * Generates a new random challenge.
+    *
+    * @return The challenge.
+    */
+   private static byte[] newChallenge() {
+      final byte[] challenge = new byte[CHALLENGE_SIZE];
+      random.nextBytes(challenge);
+
+      return challenge;
+   }
+
+   /**
+    * Computes the proof of the knowledge of the secret.
+    *
+    * @param secret
+    *       The shared secret.
+    * @param role
+    *       The role of the side proving the knowledge.
+    * @param coordinatorChallenge
+    *       The challenge of the coordinator.
+    * @param workerChallenge
+    *       The challenge of the worker.
+    * @return The HMAC of the role and both the challenges.
+    * @throws IOException
+    *       When the HMAC algorithm is not available.
+    */
+   private static byte[] sign(final String secret, final String role, final byte[] coordinatorChallenge, final byte[] workerChallenge) throws IOException {
+      try {
+         final Mac mac = Mac.getInstance(ALGORITHM);
+         mac.init(new SecretKeySpec(("perfcake:" + secret).getBytes(StandardCharsets.UTF_8), ALGORITHM));
+         mac.update(role.getBytes(StandardCharsets.UTF_8));
+         mac.update(coordinatorChallenge);
+         mac.update(workerChallenge);
+
+         return mac.doFinal();
+      } catch (final GeneralSecurityException e) {
+         throw new IOException("Unable to compute the authentication code: ", e);
+      }
+   }
+
+   /**
+    * Reads the proof sent by the peer and compares it with the expected one in a constant time.
+    *
+    * @param in
+    *       The input from the peer.
+    * @param expected
+    *       The expected proof.
+    * @param peer
+    *       The role of the peer for the error message.
+    * @throws IOException
+    *       When the proof does not match.
+    */
+   private static void verify(final DataInputStream in, final byte[] expected, final String peer) throws IOException {
+      final byte[] proof = new byte[expected.length];
+      in.readFully(proof);
+
+      if (!MessageDigest.isEqual(proof, expected)) {
+         throw new IOException(String.format("The %s failed to authenticate, check the shared secret (%s).", peer, PerfCakeConst.DISTRIBUTED_SECRET_PROPERTY));
+      }
+   }
+}
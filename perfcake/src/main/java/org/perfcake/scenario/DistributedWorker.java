@@ -0,0 +1,345 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.scenario;
+
+import org.perfcake.PerfCakeConst;
+import org.perfcake.PerfCakeException;
+import org.perfcake.RunInfo;
+import org.perfcake.reporting.ReportManager;
+import org.perfcake.reporting.reporter.Reporter;
+import org.perfcake.util.Utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes a share of a distributed test under the control of a {@link DistributedCoordinator}.
+ * The worker connects to the coordinator, receives the scenario and waits for the signal to start.
+ * All the measurement units are streamed back to the coordinator, no reporters are configured on the worker.
+ * The messages referenced from the scenario must be available at the same location as on the coordinator.
+ *
+ * <p>The worker executes the scenario only after the coordinator proved the knowledge of the shared secret (see {@link DistributedHandshake}).
+ * Of the properties sent by the coordinator, only the messages directory and the properties allowed by
+ * {@value PerfCakeConst#WORKER_ALLOWED_PROPERTIES_PROPERTY} are set on the worker, the others are ignored.</p>
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class DistributedWorker {
+
+   /**
+    * The worker's logger.
+    */
+   private static final Logger log = LogManager.getLogger(DistributedWorker.class);
+
+   /**
+    * The host of the coordinator.
+    */
+   private final String host;
+
+   /**
+    * The port of the coordinator.
+    */
+   private final int port;
+
+   /**
+    * The time to keep trying to connect to the coordinator in milliseconds.
+    */
+   private long connectTimeout = 300_000;
+
+   /**
+    * The secret shared with the coordinator.
+    */
+   private String secret = Utils.getProperty(PerfCakeConst.DISTRIBUTED_SECRET_PROPERTY);
+
+   /**
+    * The names of the properties accepted from the coordinator, a name ending with an asterisk is a prefix.
+    */
+   private final List<String> allowedProperties = new ArrayList<>();
+
+   /**
+    * Creates a new worker.
+    *
+    * @param host
+    *       The host of the coordinator.
+    * @param port
+    *       The port of the coordinator.
+    */
+   public DistributedWorker(final String host, final int port) {
+      this.host = host;
+      this.port = port;
+      setAllowedProperties(Utils.getProperty(PerfCakeConst.WORKER_ALLOWED_PROPERTIES_PROPERTY));
+   }
+
+   /**
+    * Starts the worker from the command line.
+    *
+    * @param args
+    *       The only argument is the coordinator address in the form of host:port.
+    * @throws Exception
+    *       When the worker was not able to connect to the coordinator or to execute its job.
+    */
+   public static void main(final String[] args) throws Exception {
+      if (args.length != 1 || args[0].lastIndexOf(':') < 1) {
+         System.err.println("Usage: DistributedWorker <coordinator host>:<port>");
+         System.exit(1);
+         return;
+      }
+
+      final int colon = args[0].lastIndexOf(':');
+      new DistributedWorker(args[0].substring(0, colon), Integer.parseInt(args[0].substring(colon + 1))).run();
+   }
+
+   /**
+    * Connects to the coordinator and executes the received job.
+    *
+    * @throws PerfCakeException
+    *       When it was not possible to connect to the coordinator or to communicate with it.
+    */
+   public void run() throws PerfCakeException {
+      try (final Socket socket = connect()) {
+         final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+         final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+         DistributedHandshake.authenticateCoordinator(in, out, secret == null ? "" : secret);
+
+         final WorkerJob job = WorkerJob.readFrom(in);
+         log.info("Received job {} of {} with duration {}.", job.getIndex() + 1, job.getCount(), job.getDuration());
+
+         final WorkerReporter workerReporter = new WorkerReporter(out);
+         final Scenario scenario;
+         try {
+            scenario = prepare(job, workerReporter);
+         } catch (final Exception e) {
+            log.error("Unable to prepare the scenario: ", e);
+            end(out, e.toString());
+            return;
+         }
+
+         out.writeInt(DistributedCoordinator.READY);
+         out.flush();
+
+         if (in.readInt() != DistributedCoordinator.GO) {
+            throw new PerfCakeException("Unexpected message from the coordinator.");
+         }
+
+         String error = null;
+         try {
+            if (job.getDuration().getPeriod() > 0) {
+               scenario.run();
+            }
+            scenario.close();
+         } catch (final PerfCakeException e) {
+            log.error("Error running the scenario: ", e);
+            error = e.toString();
+         }
+
+         workerReporter.flush();
+         log.info("Streamed {} measurement units to the coordinator.", workerReporter.getStreamed());
+         end(out, error);
+      } catch (final IOException e) {
+         throw new PerfCakeException("Error communicating with the coordinator: ", e);
+      }
+   }
+
+   /**
+    * Loads the scenario of the job and sets it up for the distributed execution.
+    *
+    * @param job
+    *       The job received from the coordinator.
+    * @param workerReporter
+    *       The reporter streaming the results to the coordinator.
+    * @return The initialized scenario.
+    * @throws IOException
+    *       When it was not possible to store the scenario.
+    * @throws PerfCakeException
+    *       When it was not possible to load or initialize the scenario.
+    */
+   private Scenario prepare(final WorkerJob job, final WorkerReporter workerReporter) throws IOException, PerfCakeException {
+      for (final String name : job.getProperties().stringPropertyNames()) {
+         if (isAllowedProperty(name)) {
+            System.setProperty(name, job.getProperties().getProperty(name));
+         } else {
+            log.warn("Ignoring property {} sent by the coordinator, it is not allowed by {}.", name, PerfCakeConst.WORKER_ALLOWED_PROPERTIES_PROPERTY);
+         }
+      }
+      Utils.initTimeStamps();
+
+      final Path scenarioFile = Files.createTempFile("perfcake-worker-", "-" + job.getScenarioName());
+      try {
+         Files.write(scenarioFile, job.getScenario());
+         final Scenario scenario = ScenarioLoader.load(scenarioFile.toAbsolutePath().toString());
+
+         final RunInfo runInfo = new RunInfo(job.getDuration());
+         final ReportManager reportManager = scenario.getReportManager();
+         scenario.getGenerator().setRunInfo(runInfo);
+         reportManager.setRunInfo(runInfo);
+
+         for (final Reporter reporter : new ArrayList<>(reportManager.getReporters())) {
+            reportManager.unregisterReporter(reporter);
+         }
+         reportManager.registerReporter(workerReporter);
+
+         scenario.getSequenceManager().partition(job.getIndex(), job.getCount());
+         scenario.init();
+
+         return scenario;
+      } finally {
+         Files.deleteIfExists(scenarioFile);
+      }
+   }
+
+   /**
+    * Tells the coordinator that the worker finished.
+    *
+    * @param out
+    *       The stream to the coordinator.
+    * @param error
+    *       The error message or null when the job was successful.
+    * @throws IOException
+    *       When it was not possible to write to the stream.
+    */
+   private static void end(final DataOutputStream out, final String error) throws IOException {
+      synchronized (out) {
+         out.writeInt(DistributedCoordinator.END);
+         out.writeBoolean(error != null);
+         if (error != null) {
+            out.writeUTF(error);
+         }
+         out.flush();
+      }
+   }
+
+   /**
+    * Checks whether the property sent by the coordinator can be set on the worker.
+    *
+    * @param name
+    *       The name of the property.
+    * @return True if and only if the property is the messages directory or it is allowed by the configuration of the worker.
+    */
+   boolean isAllowedProperty(final String name) {
+      if (PerfCakeConst.MESSAGES_DIR_PROPERTY.equals(name)) {
+         return true;
+      }
+
+      for (final String allowed : allowedProperties) {
+         if (allowed.endsWith("*") ? name.startsWith(allowed.substring(0, allowed.length() - 1)) : name.equals(allowed)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Connects to the coordinator. The coordinator does not need to be started yet, we keep trying until the timeout.
+    *
+    * @return The connected socket.
+    * @throws IOException
+    *       When it was not possible to connect in time.
+    * @throws PerfCakeException
+    *       When interrupted while waiting for the coordinator.
+    */
+   private Socket connect() throws IOException, PerfCakeException {
+      final long deadline = System.currentTimeMillis() + connectTimeout;
+
+      while (true) {
+         try {
+            final Socket socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            log.info("Connected to the coordinator at {}:{}.", host, port);
+
+            return socket;
+         } catch (final IOException e) {
+            if (System.currentTimeMillis() > deadline) {
+               throw e;
+            }
+
+            try {
+               Thread.sleep(500);
+            } catch (final InterruptedException ie) {
+               throw new PerfCakeException("Interrupted while connecting to the coordinator: ", ie);
+            }
+         }
+      }
+   }
+
+   /**
+    * Sets the properties the worker accepts from the coordinator in addition to the messages directory.
+    *
+    * @param allowedProperties
+    *       A comma separated list of property names, a name ending with an asterisk matches all the properties with the given prefix.
+    * @return Instance of this to support fluent API.
+    */
+   public DistributedWorker setAllowedProperties(final String allowedProperties) {
+      this.allowedProperties.clear();
+      if (allowedProperties != null) {
+         for (final String name : allowedProperties.split(",")) {
+            if (!name.trim().isEmpty()) {
+               this.allowedProperties.add(name.trim());
+            }
+         }
+      }
+
+      return this;
+   }
+
+   /**
+    * Sets the secret shared with the coordinator.
+    *
+    * @param secret
+    *       The shared secret.
+    * @return Instance of this to support fluent API.
+    */
+   public DistributedWorker setSecret(final String secret) {
+      this.secret = secret;
+      return this;
+   }
+
+   /**
+    * Gets the time to keep trying to connect to the coordinator.
+    *
+    * @return The time in milliseconds.
+    */
+   public long getConnectTimeout() {
+      return connectTimeout;
+   }
+
+   /**
+    * Sets the time to keep trying to connect to the coordinator.
+    *
+    * @param connectTimeout
+    *       The time in milliseconds.
+    * @return Instance of this to support fluent API.
+    */
+   public DistributedWorker setConnectTimeout(final long connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+   }
+}
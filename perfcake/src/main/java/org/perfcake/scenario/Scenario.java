@@ -20,6 +20,7 @@
 package org.perfcake.scenario;
 
 import org.perfcake.PerfCakeException;
+import org.perfcake.message.MappedContentStore;
 import org.perfcake.message.MessageTemplate;
 import org.perfcake.message.correlator.Correlator;
 import org.perfcake.message.generator.MessageGenerator;
@@ -176,6 +177,8 @@ public class Scenario {
          receiver.stop();
       }
 
+      MappedContentStore.clear(); // the mapped messages of this scenario are not needed any more
+
       if (log.isTraceEnabled()) {
          if (validationManager.isAllMessagesValid()) {
             log.trace("Scenario finished successfully!");
@@ -0,0 +1,210 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.scenario;
+
+import org.perfcake.common.Period;
+import org.perfcake.common.PeriodType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * The share of a distributed test sent by {@link DistributedCoordinator} to a {@link DistributedWorker}.
+ * The job is transferred as plain data, no objects are deserialized by the worker.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+class WorkerJob {
+
+   /**
+    * The maximal size of the scenario definition accepted by the worker.
+    */
+   private static final int MAX_SCENARIO_SIZE = 64 * 1024 * 1024;
+
+   /**
+    * The file name of the scenario, the worker needs its extension to parse it.
+    */
+   private final String scenarioName;
+
+   /**
+    * The content of the scenario definition.
+    */
+   private final byte[] scenario;
+
+   /**
+    * The properties to be set on the worker before loading the scenario.
+    */
+   private final Properties properties;
+
+   /**
+    * The run duration of the worker, i.e. its share of the iterations or the test duration.
+    */
+   private final Period duration;
+
+   /**
+    * The index of the worker starting from 0.
+    */
+   private final int index;
+
+   /**
+    * The total number of workers.
+    */
+   private final int count;
+
+   /**
+    * Creates a new job.
+    *
+    * @param scenarioName
+    *       The file name of the scenario.
+    * @param scenario
+    *       The content of the scenario definition.
+    * @param properties
+    *       The properties to be set on the worker before loading the scenario.
+    * @param duration
+    *       The run duration of the worker.
+    * @param index
+    *       The index of the worker starting from 0.
+    * @param count
+    *       The total number of workers.
+    */
+   WorkerJob(final String scenarioName, final byte[] scenario, final Properties properties, final Period duration, final int index, final int count) {
+      this.scenarioName = scenarioName;
+      this.scenario = scenario;
+      this.properties = properties;
+      this.duration = duration;
+      this.index = index;
+      this.count = count;
+   }
+
+   /**
+    * Writes the job to the given output.
+    *
+    * @param out
+    *       The output to write the job to.
+    * @throws IOException
+    *       When it was not possible to write the job.
+    */
+   void writeTo(final DataOutput out) throws IOException {
+      out.writeUTF(scenarioName);
+      out.writeInt(scenario.length);
+      out.write(scenario);
+
+      out.writeInt(properties.size());
+      for (final String name : properties.stringPropertyNames()) {
+         out.writeUTF(name);
+         out.writeUTF(properties.getProperty(name));
+      }
+
+      out.writeUTF(duration.getPeriodType().name());
+      out.writeLong(duration.getPeriod());
+      out.writeInt(index);
+      out.writeInt(count);
+   }
+
+   /**
+    * Reads a job written by {@link #writeTo(DataOutput)}.
+    *
+    * @param in
+    *       The input to read the job from.
+    * @return The job.
+    * @throws IOException
+    *       When it was not possible to read the job or the job was malformed.
+    */
+   static WorkerJob readFrom(final DataInput in) throws IOException {
+      final String scenarioName = in.readUTF();
+      final int size = in.readInt();
+      if (size < 0 || size > MAX_SCENARIO_SIZE) {
+         throw new IOException("Invalid size of the scenario: " + size);
+      }
+      final byte[] scenario = new byte[size];
+      in.readFully(scenario);
+
+      final Properties properties = new Properties();
+      final int propertiesCount = in.readInt();
+      for (int i = 0; i < propertiesCount; i++) {
+         properties.setProperty(in.readUTF(), in.readUTF());
+      }
+
+      final Period duration;
+      try {
+         duration = new Period(PeriodType.valueOf(in.readUTF()), in.readLong());
+      } catch (final IllegalArgumentException e) {
+         throw new IOException("Invalid run duration of the job: ", e);
+      }
+
+      return new WorkerJob(scenarioName, scenario, properties, duration, in.readInt(), in.readInt());
+   }
+
+   /**
+    * Gets the file name of the scenario.
+    *
+    * @return The file name of the scenario.
+    */
+   String getScenarioName() {
+      return scenarioName;
+   }
+
+   /**
+    * Gets the content of the scenario definition.
+    *
+    * @return The content of the scenario definition.
+    */
+   byte[] getScenario() {
+      return scenario;
+   }
+
+   /**
+    * Gets the properties to be set on the worker before loading the scenario.
+    *
+    * @return The properties.
+    */
+   Properties getProperties() {
+      return properties;
+   }
+
+   /**
+    * Gets the run duration of the worker.
+    *
+    * @return The run duration of the worker.
+    */
+   Period getDuration() {
+      return duration;
+   }
+
+   /**
+    * Gets the index of the worker.
+    *
+    * @return The index of the worker starting from 0.
+    */
+   int getIndex() {
+      return index;
+   }
+
+   /**
+    * Gets the total number of workers.
+    *
+    * @return The total number of workers.
+    */
+   int getCount() {
+      return count;
+   }
+}
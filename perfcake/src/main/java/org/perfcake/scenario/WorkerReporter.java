@@ -0,0 +1,126 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.scenario;
+
+import org.perfcake.common.PeriodType;
+import org.perfcake.reporting.MeasurementUnit;
+import org.perfcake.reporting.ReportingException;
+import org.perfcake.reporting.destination.Destination;
+import org.perfcake.reporting.reporter.AbstractReporter;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Streams all the measurement units reported on a {@link DistributedWorker} to the {@link DistributedCoordinator}
+ * in the compact form of {@link MeasurementUnit#writeTo(DataOutput)}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+class WorkerReporter extends AbstractReporter {
+
+   /**
+    * The stream is flushed when the last flush is older than this number of nanoseconds, so that the coordinator can report on time.
+    */
+   private static final long FLUSH_PERIOD = 100_000_000;
+
+   /**
+    * The stream to the coordinator.
+    */
+   private final DataOutputStream out;
+
+   /**
+    * The time of the last flush in nanoseconds.
+    */
+   private long lastFlush = System.nanoTime();
+
+   /**
+    * The number of streamed measurement units.
+    */
+   private long streamed = 0;
+
+   /**
+    * Creates a new reporter streaming to the given stream.
+    *
+    * @param out
+    *       The stream to the coordinator.
+    */
+   WorkerReporter(final DataOutputStream out) {
+      this.out = out;
+   }
+
+   @Override
+   protected boolean checkStart() {
+      return true; // there are no destinations, the results are streamed
+   }
+
+   @Override
+   protected void doReset() {
+      // the coordinator takes care of the results
+   }
+
+   @Override
+   protected void doReport(final MeasurementUnit measurementUnit) throws ReportingException {
+      try {
+         synchronized (out) {
+            out.writeInt(DistributedCoordinator.RECORD);
+            measurementUnit.writeTo(out);
+            streamed++;
+
+            final long now = System.nanoTime();
+            if (now - lastFlush > FLUSH_PERIOD) {
+               flush();
+               lastFlush = now;
+            }
+         }
+      } catch (IOException e) {
+         throw new ReportingException("Unable to stream the measurement unit to the coordinator: ", e);
+      }
+   }
+
+   /**
+    * Sends all the buffered measurement units to the coordinator.
+    *
+    * @throws IOException
+    *       When it was not possible to write to the stream.
+    */
+   void flush() throws IOException {
+      synchronized (out) {
+         out.flush();
+      }
+   }
+
+   /**
+    * Gets the number of streamed measurement units.
+    *
+    * @return The number of streamed measurement units.
+    */
+   long getStreamed() {
+      synchronized (out) {
+         return streamed;
+      }
+   }
+
+   @Override
+   public void publishResult(final PeriodType periodType, final Destination destination) throws ReportingException {
+      // nothing to publish locally
+   }
+}
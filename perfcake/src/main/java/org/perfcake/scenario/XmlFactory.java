@@ -24,6 +24,7 @@ import org.perfcake.PerfCakeException;
 import org.perfcake.RunInfo;
 import org.perfcake.common.Period;
 import org.perfcake.common.PeriodType;
+import org.perfcake.message.MappedContentStore;
 import org.perfcake.message.Message;
 import org.perfcake.message.MessageTemplate;
 import org.perfcake.message.correlator.Correlator;
@@ -57,11 +58,13 @@ import org.xml.sax.SAXException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
@@ -458,16 +461,23 @@ public class XmlFactory implements ScenarioFactory {
             }
             for (final Messages.Message m : messages.getMessage()) {
                URL messageUrl = null;
-               String currentMessagePayload;
-               if (m.getContent() != null) {
+               Serializable currentMessagePayload;
+               final boolean binary = Boolean.parseBoolean(m.getBinary());
+               final boolean mapped = Boolean.parseBoolean(m.getMapped());
+               if (mapped) {
+                  if (m.getUri() == null || m.getContent() != null) {
+                     throw new PerfCakeException("A memory-mapped message must have the 'uri' attribute set and no 'content'.");
+                  }
+                  currentMessagePayload = MappedContentStore.get(m.getUri());
+               } else if (m.getContent() != null) {
                   if (m.getUri() != null) {
                      log.warn("Both 'content' and 'uri' attributes of a message element are set. 'uri' will be will be ignored");
                   }
-                  currentMessagePayload = m.getContent();
+                  currentMessagePayload = binary ? Base64.getMimeDecoder().decode(m.getContent()) : m.getContent();
                } else {
                   if (m.getUri() != null) {
                      messageUrl = Utils.locationToUrl(m.getUri(), PerfCakeConst.MESSAGES_DIR_PROPERTY, Utils.determineDefaultLocation("messages"), "");
-                     currentMessagePayload = Utils.readFilteredContent(messageUrl);
+                     currentMessagePayload = binary ? Utils.readContent(messageUrl) : Utils.readFilteredContent(messageUrl);
                   } else {
                      messageUrl = null;
                      currentMessagePayload = null;
@@ -502,10 +512,19 @@ public class XmlFactory implements ScenarioFactory {
                }
 
                // create message to be send
-               final MessageTemplate currentMessageToSend = new MessageTemplate(currentMessage, currentMessageMultiplicity, currentMessageValidatorIds);
+               double currentMessageWeight = -1;
+               if (m.getWeight() != null && !m.getWeight().equals("")) {
+                  currentMessageWeight = Double.parseDouble(m.getWeight());
+                  if (currentMessageWeight < 0) {
+                     throw new PerfCakeException(String.format("Message weight must not be negative: %s", m.getWeight()));
+                  }
+               }
+
+               final MessageTemplate currentMessageToSend = new MessageTemplate(currentMessage, currentMessageMultiplicity, currentMessageValidatorIds, m.getName(), currentMessageWeight);
 
                if (log.isDebugEnabled()) {
-                  log.debug("'- Message (" + (messageUrl != null ? messageUrl.toString() : "") + "), " + currentMessageMultiplicity + "x");
+                  log.debug("'- Message (" + (messageUrl != null ? messageUrl.toString() : "") + "), " + currentMessageMultiplicity + "x"
+                        + (m.getName() != null ? ", name " + m.getName() : "") + (currentMessageWeight >= 0 ? ", weight " + currentMessageWeight : "") + (binary ? ", binary" : "") + (mapped ? ", mapped" : ""));
                   log.debug("  '- Properties:");
                   Utils.logProperties(log, Level.DEBUG, currentMessageProperties, "   '- ");
                   log.debug("  '- Headers:");
@@ -0,0 +1,167 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free queue of a fixed capacity for any number of producers and consumers.
+ * Each slot of the ring carries a sequence number that tells whether the slot is ready to be written or read in the current lap,
+ * so the producers and the consumers only contend on a single compare-and-set of their own position.
+ * Neither {@link #offer(Object)} nor {@link #poll()} ever blocks, the caller decides what to do when the ring is full or empty.
+ *
+ * @param <E>
+ *       Type of the elements in the ring.
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class BoundedRing<E> {
+
+   /**
+    * The elements in the ring.
+    */
+   private final AtomicReferenceArray<E> slots;
+
+   /**
+    * The sequence numbers of the slots.
+    */
+   private final AtomicLongArray sequences;
+
+   /**
+    * The mask to compute the slot index from a position, the capacity is always a power of two.
+    */
+   private final int mask;
+
+   /**
+    * The position of the next element to be written.
+    */
+   private final AtomicLong tail = new AtomicLong(0);
+
+   /**
+    * The position of the next element to be read.
+    */
+   private final AtomicLong head = new AtomicLong(0);
+
+   /**
+    * Creates a new ring that can hold at least the given number of elements. The capacity is rounded up to the nearest power of two.
+    *
+    * @param capacity
+    *       The minimal capacity of the ring.
+    */
+   public BoundedRing(final int capacity) {
+      if (capacity < 1 || capacity > (1 << 30)) {
+         throw new IllegalArgumentException("The ring capacity must be between 1 and 2^30, was " + capacity + ".");
+      }
+
+      final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+      slots = new AtomicReferenceArray<>(size);
+      sequences = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+         sequences.set(i, i);
+      }
+      mask = size - 1;
+   }
+
+   /**
+    * Inserts an element to the ring if there is a free slot.
+    *
+    * @param element
+    *       The element to be inserted, must not be null.
+    * @return True if and only if the element was inserted, false when the ring was full.
+    */
+   public boolean offer(final E element) {
+      long position = tail.get();
+
+      while (true) {
+         final int index = (int) position & mask;
+         final long difference = sequences.get(index) - position;
+
+         if (difference == 0) { // the slot is free in this lap
+            if (tail.compareAndSet(position, position + 1)) {
+               slots.lazySet(index, element);
+               sequences.set(index, position + 1); // publishes the element to the consumers
+               return true;
+            }
+            position = tail.get();
+         } else if (difference < 0) { // the slot still holds an element from the previous lap
+            return false;
+         } else { // another producer took the slot
+            position = tail.get();
+         }
+      }
+   }
+
+   /**
+    * Removes the oldest element from the ring.
+    *
+    * @return The oldest element, or null when the ring was empty.
+    */
+   public E poll() {
+      long position = head.get();
+
+      while (true) {
+         final int index = (int) position & mask;
+         final long difference = sequences.get(index) - (position + 1);
+
+         if (difference == 0) { // the slot holds an element written in this lap
+            if (head.compareAndSet(position, position + 1)) {
+               final E element = slots.get(index);
+               slots.lazySet(index, null);
+               sequences.set(index, position + mask + 1); // frees the slot for the next lap
+               return element;
+            }
+            position = head.get();
+         } else if (difference < 0) { // nothing has been written to the slot yet
+            return null;
+         } else { // another consumer took the element
+            position = head.get();
+         }
+      }
+   }
+
+   /**
+    * Gets the approximate number of elements in the ring. The value can be outdated as soon as it is returned.
+    *
+    * @return The number of elements in the ring.
+    */
+   public int size() {
+      final long size = tail.get() - head.get();
+      return (int) Math.max(0, Math.min(size, mask + 1));
+   }
+
+   /**
+    * Checks whether the ring is empty. The value can be outdated as soon as it is returned.
+    *
+    * @return True if and only if there were no elements in the ring.
+    */
+   public boolean isEmpty() {
+      return size() == 0;
+   }
+
+   /**
+    * Gets the capacity of the ring.
+    *
+    * @return The maximal number of elements in the ring.
+    */
+   public int capacity() {
+      return mask + 1;
+   }
+}
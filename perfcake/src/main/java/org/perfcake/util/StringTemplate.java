@@ -20,6 +20,9 @@
 package org.perfcake.util;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
@@ -36,6 +39,9 @@ import java.util.Properties;
  * Examples: ${propertyA} ${non_existing:default} ${env.JAVA_HOME} ${props['java.runtime.name']}
  * Notice: The first call to the constructor and calls to the static method {@link #parseTemplate(String, Properties)} might take more time than a simple RegExp
  * match but this is payed back for the subsequent calls to {@link #toString()}.
+ * The placeholders are resolved to their sources (properties, system properties or environment) already during the compilation, and the template can be rendered
+ * directly into a caller supplied {@link StringBuilder} or {@link ByteBuffer} using {@link #render(Properties, StringBuilder)} and {@link #render(Properties, ByteBuffer, Charset)}
+ * so that the rendering does not allocate any memory.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -46,6 +52,31 @@ public class StringTemplate implements Serializable {
     */
    private static final long serialVersionUID = -1263887679189281564L;
 
+   /**
+    * The placeholder is looked up in the properties.
+    */
+   private static final byte SOURCE_PROPERTIES = 0;
+
+   /**
+    * The placeholder is looked up in the environment properties.
+    */
+   private static final byte SOURCE_ENVIRONMENT = 1;
+
+   /**
+    * The placeholder is looked up in the system properties.
+    */
+   private static final byte SOURCE_SYSTEM = 2;
+
+   /**
+    * Buffers retained by the threads for rendering the templates to strings.
+    */
+   private static final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(StringBuilder::new);
+
+   /**
+    * Larger buffers are not retained by the threads to prevent holding large amounts of memory.
+    */
+   private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
    /**
     * Global properties passed in while creating the template.
     */
@@ -66,6 +97,26 @@ public class StringTemplate implements Serializable {
     */
    private String[] defaults;
 
+   /**
+    * Compiled data of the template. Sources of the property values, one of {@link #SOURCE_PROPERTIES}, {@link #SOURCE_ENVIRONMENT} and {@link #SOURCE_SYSTEM}.
+    */
+   private byte[] sources;
+
+   /**
+    * Compiled data of the template. Names of the properties in their sources with the prefixes removed.
+    */
+   private String[] names;
+
+   /**
+    * Compiled data of the template. The total length of the static parts of the template.
+    */
+   private int staticLength;
+
+   /**
+    * The static parts of the template encoded in the last used character set.
+    */
+   private transient volatile EncodedParts encodedParts;
+
    /**
     * Compiled data of the template. Number of replacements in the template.
     */
@@ -117,6 +168,23 @@ public class StringTemplate implements Serializable {
       return patternSize > 0;
    }
 
+   /**
+    * Checks whether the given property is replaced each time the template is rendered.
+    *
+    * @param name
+    *       The name of the property.
+    * @return True if and only if there is a dynamic placeholder for the property in the template.
+    */
+   public boolean usesProperty(final String name) {
+      for (int i = 0; i < patternSize; i++) {
+         if (replacements[i].equals(name)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
    /**
     * Renders the template.
     *
@@ -134,19 +202,151 @@ public class StringTemplate implements Serializable {
     * @return The rendered template.
     */
    public String toString(final Properties localProperties) {
-      final StringBuilder result = new StringBuilder(parts[0]);
+      if (patternSize == 0) {
+         return parts[0];
+      }
+
+      StringBuilder buffer = buffers.get();
+      buffer.setLength(0);
+      final String result = render(localProperties, buffer).toString();
+
+      if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+         buffers.set(new StringBuilder());
+      }
+
+      return result;
+   }
+
+   /**
+    * Renders the template using the additionally provided properties to the given buffer.
+    *
+    * @param localProperties
+    *       The additional properties to be replaced in the template.
+    * @param out
+    *       The buffer to append the rendered template to.
+    * @return The buffer for chaining the calls.
+    */
+   public StringBuilder render(final Properties localProperties, final StringBuilder out) {
+      out.ensureCapacity(out.length() + staticLength + 16 * patternSize);
+      out.append(parts[0]);
+
+      for (int i = 0; i < patternSize; i++) {
+         out.append(getValue(i, localProperties));
+         out.append(parts[i + 1]);
+      }
+
+      return out;
+   }
+
+   /**
+    * Renders the template using the additionally provided properties to the given byte buffer in the given character set.
+    * The static parts of the template are encoded only once for each character set. UTF-8 is encoded without any memory allocation.
+    * The character set must not write a byte order mark as the parts are encoded separately (i.e. use UTF-16BE instead of UTF-16).
+    *
+    * @param localProperties
+    *       The additional properties to be replaced in the template.
+    * @param out
+    *       The buffer to write the rendered template to.
+    * @param charset
+    *       The character set to encode the rendered template in.
+    * @return The buffer for chaining the calls.
+    * @throws java.nio.BufferOverflowException
+    *       When there is not enough space remaining in the buffer.
+    */
+   public ByteBuffer render(final Properties localProperties, final ByteBuffer out, final Charset charset) {
+      EncodedParts encoded = encodedParts;
+      if (encoded == null || !encoded.charset.equals(charset)) {
+         encoded = new EncodedParts(parts, charset);
+         encodedParts = encoded;
+      }
 
+      out.put(encoded.parts[0]);
       for (int i = 0; i < patternSize; i++) {
-         if (localProperties == null) {
-            result.append(getProperty(replacements[i], this.properties, defaults[i]));
+         final String value = getValue(i, localProperties);
+         if (value != null) {
+            if (encoded.utf8) {
+               putUtf8(value, out);
+            } else {
+               out.put(value.getBytes(charset));
+            }
          } else {
-            final String globalProperty = this.properties.getProperty(replacements[i]);
-            result.append(getProperty(replacements[i], localProperties, globalProperty == null ? defaults[i] : globalProperty));
+            out.put(encoded.nullValue);
          }
-         result.append(parts[i + 1]);
+         out.put(encoded.parts[i + 1]);
       }
 
-      return result.toString();
+      return out;
+   }
+
+   /**
+    * Gets the total length of the static parts of the template. This is the minimal length of the rendered template in characters.
+    *
+    * @return The length of the static parts of the template.
+    */
+   public int getStaticLength() {
+      return staticLength;
+   }
+
+   /**
+    * Gets the value of the placeholder with the given index.
+    *
+    * @param index
+    *       The index of the placeholder.
+    * @param localProperties
+    *       The additional properties to be replaced in the template.
+    * @return The value of the placeholder.
+    */
+   private String getValue(final int index, final Properties localProperties) {
+      String value;
+      switch (sources[index]) {
+         case SOURCE_ENVIRONMENT:
+            value = System.getenv(names[index]);
+            break;
+         case SOURCE_SYSTEM:
+            value = System.getProperty(names[index]);
+            break;
+         default:
+            value = (localProperties != null ? localProperties : properties).getProperty(names[index]);
+      }
+
+      if (value == null && localProperties != null) { // global properties take precedence over the default value
+         value = properties.getProperty(replacements[index]);
+      }
+
+      return value == null ? defaults[index] : value;
+   }
+
+   /**
+    * Writes the string to the buffer encoded in UTF-8. Unpaired surrogates are replaced by a question mark.
+    *
+    * @param value
+    *       The string to be written.
+    * @param out
+    *       The buffer to write to.
+    */
+   private static void putUtf8(final String value, final ByteBuffer out) {
+      final int length = value.length();
+      for (int i = 0; i < length; i++) {
+         final char c = value.charAt(i);
+         if (c < 0x80) {
+            out.put((byte) c);
+         } else if (c < 0x800) {
+            out.put((byte) (0xC0 | (c >> 6)));
+            out.put((byte) (0x80 | (c & 0x3F)));
+         } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+            final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+            out.put((byte) (0xF0 | (codePoint >> 18)));
+            out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            out.put((byte) (0x80 | (codePoint & 0x3F)));
+         } else if (Character.isSurrogate(c)) {
+            out.put((byte) '?');
+         } else {
+            out.put((byte) (0xE0 | (c >> 12)));
+            out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            out.put((byte) (0x80 | (c & 0x3F)));
+         }
+      }
    }
 
    /**
@@ -297,6 +497,33 @@ public class StringTemplate implements Serializable {
       this.replacements = replacements.toArray(new String[replacements.size()]);
       this.defaults = defaults.toArray(new String[defaults.size()]);
       this.patternSize = replacements.size();
+
+      this.sources = new byte[patternSize];
+      this.names = new String[patternSize];
+      for (int i = 0; i < patternSize; i++) {
+         final String property = this.replacements[i];
+         if (property.startsWith("env.")) {
+            sources[i] = SOURCE_ENVIRONMENT;
+            names[i] = property.substring(4);
+         } else if (property.startsWith("props['")) {
+            sources[i] = SOURCE_SYSTEM;
+            names[i] = property.substring(7, property.length() - 2); // we expect it to end with ']
+         } else if (property.startsWith("props[")) {
+            sources[i] = SOURCE_SYSTEM;
+            names[i] = property.substring(6, property.length() - 1);
+         } else if (property.startsWith("props.")) {
+            sources[i] = SOURCE_SYSTEM;
+            names[i] = property.substring(6);
+         } else {
+            sources[i] = SOURCE_PROPERTIES;
+            names[i] = property;
+         }
+      }
+
+      this.staticLength = 0;
+      for (final String part : this.parts) {
+         staticLength = staticLength + part.length();
+      }
    }
 
    /**
@@ -329,19 +556,47 @@ public class StringTemplate implements Serializable {
    }
 
    /**
-    * Gets the property value from all known places given the property prefix.
-    *
-    * @param property
-    *       The property name.
-    * @param properties
-    *       Local properties to be used when system resources did not contain the property.
-    * @param defaultValue
-    *       The default value to be used when the property was not found anywhere.
-    * @return The property value, or null if the property was not found in any location.
+    * The static parts of the template encoded in a character set.
     */
-   private static String getProperty(final String property, final Properties properties, final String defaultValue) {
-      final String value = getProperty(property, properties);
-      return value == null ? defaultValue : value;
+   private static final class EncodedParts {
+
+      /**
+       * The character set of the encoded parts.
+       */
+      private final Charset charset;
+
+      /**
+       * True when the character set is UTF-8 and the values can be encoded directly to the buffer.
+       */
+      private final boolean utf8;
+
+      /**
+       * The encoded static parts.
+       */
+      private final byte[][] parts;
+
+      /**
+       * The encoded representation of a missing value.
+       */
+      private final byte[] nullValue;
+
+      /**
+       * Encodes the static parts of the template.
+       *
+       * @param parts
+       *       The static parts of the template.
+       * @param charset
+       *       The character set to encode the parts in.
+       */
+      private EncodedParts(final String[] parts, final Charset charset) {
+         this.charset = charset;
+         this.utf8 = StandardCharsets.UTF_8.equals(charset);
+         this.parts = new byte[parts.length][];
+         for (int i = 0; i < parts.length; i++) {
+            this.parts[i] = parts[i].getBytes(charset);
+         }
+         this.nullValue = "null".getBytes(charset);
+      }
    }
 
    /**
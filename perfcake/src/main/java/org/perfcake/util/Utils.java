@@ -209,6 +209,23 @@ public class Utils {
       }
    }
 
+   /**
+    * Reads URL (file) content as raw bytes. There is no property filtering, so the content can be binary.
+    *
+    * @param url
+    *       The file location as an URL.
+    * @return The file contents.
+    * @throws IOException
+    *       When it was not possible to read the content.
+    */
+   public static byte[] readContent(final URL url) throws IOException {
+      try {
+         return Files.readAllBytes(Paths.get(url.toURI()));
+      } catch (URISyntaxException e) {
+         throw new IOException("Invalid URL: " + url, e);
+      }
+   }
+
    /**
     * Reads the file location into a string while filtering properties. The file content is processed as an UTF-8 encoded text.
     *
@@ -0,0 +1,133 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message;
+
+import org.perfcake.TestSetup;
+import org.perfcake.util.Utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Properties;
+
+/**
+ * Verifies the memory-mapped message content and its rendering in message templates.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "unit" })
+public class MappedContentStoreTest extends TestSetup {
+
+   @Test
+   public void mappedContentTest() throws Exception {
+      final File file = new File(Utils.getResource("/messages/binary-message.bin"));
+      final byte[] expected = Files.readAllBytes(file.toPath());
+
+      final MappedContent content = MappedContentStore.get("binary-message.bin");
+      Assert.assertSame(MappedContentStore.get("binary-message.bin"), content, "The location must be mapped only once.");
+      Assert.assertFalse(content.isTemplate());
+      Assert.assertEquals(content.getSize(), expected.length);
+      Assert.assertTrue(content.getBuffer().isReadOnly());
+      Assert.assertTrue(content.getBuffer().isDirect(), "The content must not be copied to the heap.");
+      Assert.assertEquals(content.toByteArray(), expected);
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Assert.assertEquals(content.transferTo(Channels.newChannel(out)), expected.length);
+      Assert.assertEquals(out.toByteArray(), expected);
+
+      final Message message = new Message(content);
+      Assert.assertTrue(message.isBinary());
+      Assert.assertSame(message.getMappedPayload(), content);
+      Assert.assertEquals(message.getPayloadSize(StandardCharsets.UTF_8), expected.length);
+      Assert.assertEquals(message.getEncodedPayload(StandardCharsets.UTF_8), expected);
+   }
+
+   @Test
+   public void serializationTest() throws Exception {
+      final MappedContent content = MappedContentStore.get("message2.txt");
+
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+         oos.writeObject(new Message(content));
+      }
+
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         final Message message = (Message) ois.readObject();
+         Assert.assertSame(message.getMappedPayload(), content, "The content must be resolved from the local store.");
+      }
+   }
+
+   @Test
+   public void locationTemplateTest() throws Exception {
+      final MappedContent template = MappedContentStore.get("message@{number}.txt");
+      Assert.assertTrue(template.isTemplate());
+
+      final MessageTemplate messageTemplate = new MessageTemplate(new Message(template), 1, Collections.emptyList());
+      Assert.assertTrue(messageTemplate.usesAttribute("number"));
+
+      final Properties attributes = new Properties();
+      attributes.setProperty("number", "2");
+      final Message message = messageTemplate.getFilteredMessage(attributes);
+      Assert.assertSame(message.getMappedPayload(), MappedContentStore.get("message2.txt"));
+      Assert.assertEquals(message.getPayload().toString(), Utils.readFilteredContent(Utils.getResourceAsUrl("/messages/message2.txt")));
+
+      attributes.setProperty("number", "3");
+      Assert.assertSame(messageTemplate.getFilteredMessage(attributes).getMappedPayload(), MappedContentStore.get("message3.txt"));
+   }
+
+   @Test
+   public void clearTest() throws Exception {
+      final MappedContent content = MappedContentStore.get("message2.txt");
+      MappedContentStore.clear();
+      Assert.assertEquals(MappedContentStore.size(), 0);
+
+      // no file stays open, the mapped region is written directly
+      for (int i = 0; i < 3; i++) {
+         final ByteArrayOutputStream out = new ByteArrayOutputStream();
+         Assert.assertEquals(content.transferTo(Channels.newChannel(out)), content.getSize());
+         Assert.assertEquals(out.toByteArray(), content.toByteArray());
+      }
+
+      Assert.assertNotSame(MappedContentStore.get("message2.txt"), content, "The location must be mapped again.");
+   }
+
+   @Test
+   public void payloadBufferTest() throws Exception {
+      final MappedContent content = MappedContentStore.get("binary-message.bin");
+      final Message message = new Message(content);
+
+      final ByteBuffer buffer = message.getPayloadBuffer(StandardCharsets.UTF_8);
+      Assert.assertTrue(buffer.isDirect(), "The mapped payload must not be copied to the heap.");
+      Assert.assertEquals(buffer.remaining(), content.getSize());
+      Assert.assertNotSame(message.getEncodedPayload(StandardCharsets.UTF_8), message.getEncodedPayload(StandardCharsets.UTF_8), "The copies must not be cached.");
+
+      Assert.assertEquals(new Message("text").getPayloadBuffer(StandardCharsets.UTF_8), ByteBuffer.wrap("text".getBytes(StandardCharsets.UTF_8)));
+   }
+}
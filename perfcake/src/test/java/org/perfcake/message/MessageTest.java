@@ -0,0 +1,75 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Verifies the payload encoding and size computation of {@link Message}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "unit" })
+public class MessageTest {
+
+   @Test
+   public void binaryPayloadTest() {
+      final byte[] payload = new byte[] { 0, 1, 2, (byte) 0xff };
+      final Message message = new Message(payload);
+
+      Assert.assertTrue(message.isBinary());
+      Assert.assertSame(message.getEncodedPayload(StandardCharsets.UTF_8), payload);
+      Assert.assertSame(message.getEncodedPayload(StandardCharsets.UTF_16), payload);
+      Assert.assertEquals(message.getPayloadSize(StandardCharsets.UTF_8), 4L);
+      Assert.assertEquals(message.getPayloadSize(StandardCharsets.UTF_16), 4L);
+   }
+
+   @Test
+   public void textPayloadSizeTest() {
+      final String[] payloads = new String[] { "", "Hello", "Příliš žluťoučký kůň", "€中", "😀 smile", "lone \ud83d surrogate" };
+
+      for (final String payload : payloads) {
+         final Message message = new Message(payload);
+         Assert.assertFalse(message.isBinary());
+         Assert.assertEquals(message.getPayloadSize(StandardCharsets.UTF_8), payload.getBytes(StandardCharsets.UTF_8).length, payload);
+         Assert.assertEquals(message.getPayloadSize(StandardCharsets.UTF_16LE), payload.getBytes(StandardCharsets.UTF_16LE).length, payload);
+      }
+
+      Assert.assertEquals(new Message().getPayloadSize(StandardCharsets.UTF_8), 0L);
+      Assert.assertEquals(Message.sizeOf(null, StandardCharsets.UTF_8), 0L);
+      Assert.assertEquals(Message.sizeOf(42, StandardCharsets.UTF_8), 2L);
+   }
+
+   @Test
+   public void encodedPayloadCacheTest() {
+      final Message message = new Message("žluťoučký");
+      final byte[] encoded = message.getEncodedPayload(StandardCharsets.UTF_8);
+
+      Assert.assertSame(message.getEncodedPayload(StandardCharsets.UTF_8), encoded);
+      Assert.assertEquals(message.getPayloadSize(StandardCharsets.UTF_8), encoded.length);
+
+      message.setPayload("fish");
+      Assert.assertEquals(message.getPayloadSize(StandardCharsets.UTF_8), 4L);
+      Assert.assertEquals(new String(message.getEncodedPayload(StandardCharsets.UTF_8), StandardCharsets.UTF_8), "fish");
+   }
+}
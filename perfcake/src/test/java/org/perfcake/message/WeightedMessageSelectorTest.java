@@ -0,0 +1,114 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message;
+
+import org.perfcake.PerfCakeException;
+import org.perfcake.TestSetup;
+import org.perfcake.reporting.Measurement;
+import org.perfcake.reporting.Quantity;
+import org.perfcake.reporting.destination.DummyDestination;
+import org.perfcake.scenario.Scenario;
+import org.perfcake.scenario.ScenarioLoader;
+import org.perfcake.scenario.ScenarioRetractor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the weighted selection of messages.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "unit" })
+public class WeightedMessageSelectorTest extends TestSetup {
+
+   private static final int SAMPLES = 1_000_000;
+
+   private static MessageTemplate template(final String name, final double weight) {
+      return new MessageTemplate(new Message(name), 1, new ArrayList<>(), name, weight);
+   }
+
+   @Test
+   public void testDistribution() {
+      final WeightedMessageSelector selector = new WeightedMessageSelector(Arrays.asList(template("read", 70), template("write", 25), template("search", 5)));
+      Assert.assertEquals(selector.getGroupCount(), 3);
+
+      final int[] counts = new int[selector.getGroupCount()];
+      for (int i = 0; i < SAMPLES; i++) {
+         counts[selector.nextIndex()]++;
+      }
+
+      Assert.assertEquals(counts[0] / (double) SAMPLES, 0.70, 0.005);
+      Assert.assertEquals(counts[1] / (double) SAMPLES, 0.25, 0.005);
+      Assert.assertEquals(counts[2] / (double) SAMPLES, 0.05, 0.005);
+   }
+
+   @Test
+   public void testGroups() {
+      final MessageTemplate unnamed = new MessageTemplate(new Message("x"), 1, new ArrayList<>());
+      final List<MessageTemplate> store = Arrays.asList(template("a", 1), template("b", 2), new MessageTemplate(new Message("a2"), 1, new ArrayList<>(), "a", 1), unnamed);
+      final WeightedMessageSelector selector = new WeightedMessageSelector(store);
+
+      Assert.assertTrue(WeightedMessageSelector.isWeighted(store));
+      Assert.assertFalse(WeightedMessageSelector.isWeighted(Arrays.asList(unnamed)));
+
+      Assert.assertEquals(selector.getGroupCount(), 3);
+      Assert.assertEquals(selector.getName(0), "a");
+      Assert.assertEquals(selector.getGroup(0).size(), 2);
+      Assert.assertEquals(selector.getProbability(0), 0.4, 0.0001);
+      Assert.assertEquals(selector.getName(1), "b");
+      Assert.assertEquals(selector.getProbability(1), 0.4, 0.0001);
+      Assert.assertNull(selector.getName(2));
+      Assert.assertEquals(selector.getProbability(2), 0.2, 0.0001); // the default weight of 1
+   }
+
+   @Test
+   public void testZeroWeight() {
+      final WeightedMessageSelector selector = new WeightedMessageSelector(Arrays.asList(template("a", 1), template("b", 0)));
+
+      for (int i = 0; i < 10_000; i++) {
+         Assert.assertEquals(selector.nextIndex(), 0);
+      }
+   }
+
+   @Test(groups = { "integration" })
+   public void testWeightedScenario() throws PerfCakeException {
+      final Scenario scenario = ScenarioLoader.load("test-weighted-messages");
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      final DummyDestination destination = (DummyDestination) new ScenarioRetractor(scenario).getReportManager().getReporters().iterator().next().getDestinations().iterator().next();
+      final Measurement m = destination.getLastMeasurement();
+
+      final long read = (Long) m.get("msg_read");
+      final long write = (Long) m.get("msg_write");
+      final long search = (Long) m.get("msg_search");
+      Assert.assertEquals(read + write + search, 20_000);
+      Assert.assertEquals(read / 20_000d, 0.70, 0.03);
+      Assert.assertEquals(write / 20_000d, 0.25, 0.03);
+      Assert.assertEquals(search / 20_000d, 0.05, 0.02);
+      Assert.assertTrue(m.get("msg_read_responseTime") instanceof Quantity);
+   }
+}
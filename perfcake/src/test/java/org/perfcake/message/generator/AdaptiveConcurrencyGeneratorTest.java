@@ -0,0 +1,78 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.TestSetup;
+import org.perfcake.scenario.Scenario;
+import org.perfcake.scenario.ScenarioLoader;
+import org.perfcake.scenario.ScenarioRetractor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link AdaptiveConcurrencyGenerator}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class AdaptiveConcurrencyGeneratorTest extends TestSetup {
+
+   @Test
+   public void testAimd() {
+      final AdaptiveConcurrencyGenerator generator = new AdaptiveConcurrencyGenerator();
+      generator.setAlgorithm(AdaptiveConcurrencyGenerator.Algorithm.AIMD).setLatencyLimit(100).setIncrement(2).setBackoffRatio(0.5);
+
+      Assert.assertEquals(generator.computeLimit(10, 50, 0), 12d);
+      Assert.assertEquals(generator.computeLimit(12, 150, 0), 6d);
+      Assert.assertEquals(generator.computeLimit(6, 50, 5), 3d); // too many errors
+   }
+
+   @Test
+   public void testGradient() {
+      final AdaptiveConcurrencyGenerator generator = new AdaptiveConcurrencyGenerator();
+      generator.setTolerance(1.5).setSmoothing(1);
+
+      // the response time does not grow, we probe for more capacity
+      Assert.assertEquals(generator.computeLimit(16, 10, 0), 20d, 0.0001);
+      Assert.assertEquals(generator.computeLimit(20, 14, 0), 20 + Math.sqrt(20), 0.0001);
+
+      // the response time grew more than the tolerance, the system is queueing
+      Assert.assertEquals(generator.computeLimit(16, 30, 0), 16 * 0.5 + 4, 0.0001);
+      Assert.assertEquals(generator.computeLimit(16, 20, 0), 16 * 0.75 + 4, 0.0001);
+
+      // smoothing
+      generator.setSmoothing(0.5);
+      Assert.assertEquals(generator.computeLimit(16, 10, 0), 18d, 0.0001);
+   }
+
+   @Test(groups = "integration")
+   public void testGrowingThreads() throws Exception {
+      final Scenario scenario = ScenarioLoader.load("test-adaptive-concurrency");
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      final MessageGenerator generator = new ScenarioRetractor(scenario).getGenerator();
+      Assert.assertTrue(generator instanceof AdaptiveConcurrencyGenerator, "AdaptiveConcurrencyGenerator");
+
+      // the response time of the sender does not depend on the load, so the number of threads grows up to the maximum
+      Assert.assertTrue(generator.getThreads() > 12, "The number of threads did not grow: " + generator.getThreads());
+   }
+}
@@ -0,0 +1,73 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.TestSetup;
+import org.perfcake.message.sender.TestSender;
+import org.perfcake.scenario.Scenario;
+import org.perfcake.scenario.ScenarioLoader;
+import org.perfcake.scenario.ScenarioRetractor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link ArrivalRateMessageGenerator}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class ArrivalRateMessageGeneratorTest extends TestSetup {
+
+   @Test
+   public void testNoLateIterations() throws Exception {
+      final ArrivalRateMessageGenerator generator = runScenario(10);
+
+      Assert.assertEquals(TestSender.getCounter(), 100);
+      Assert.assertEquals(generator.getLateCount(), 0);
+   }
+
+   @Test
+   public void testSaturatedSenders() throws Exception {
+      final long start = System.currentTimeMillis();
+      final ArrivalRateMessageGenerator generator = runScenario(1);
+
+      // a single thread can handle roughly 50 iterations per second, the queue must grow and the load must not drop
+      Assert.assertEquals(TestSender.getCounter(), 100);
+      Assert.assertTrue(System.currentTimeMillis() - start >= 1900, "The iterations were not queued.");
+      Assert.assertTrue(generator.getLateCount() > 0, "Some iterations must have been late.");
+      Assert.assertTrue(generator.getMaxLateness() > 500, "The lateness must grow over time.");
+   }
+
+   private ArrivalRateMessageGenerator runScenario(final int threads) throws Exception {
+      TestSender.resetCounter();
+      System.setProperty("test.threads", String.valueOf(threads));
+
+      final Scenario scenario = ScenarioLoader.load("test-arrival-rate");
+      scenario.init();
+      scenario.run();
+      scenario.close();
+      System.getProperties().remove("test.threads");
+
+      final MessageGenerator generator = new ScenarioRetractor(scenario).getGenerator();
+      Assert.assertTrue(generator instanceof ArrivalRateMessageGenerator, "ArrivalRateMessageGenerator");
+
+      return (ArrivalRateMessageGenerator) generator;
+   }
+}
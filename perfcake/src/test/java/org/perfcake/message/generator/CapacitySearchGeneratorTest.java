@@ -0,0 +1,83 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.TestSetup;
+import org.perfcake.scenario.Scenario;
+import org.perfcake.scenario.ScenarioLoader;
+import org.perfcake.scenario.ScenarioRetractor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+/**
+ * Tests {@link CapacitySearchGenerator}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = "integration")
+public class CapacitySearchGeneratorTest extends TestSetup {
+
+   @Test
+   public void testStepSearch() throws Exception {
+      final CapacitySearchGenerator generator = runSearch("STEP");
+      final List<CapacityStep> steps = generator.getSteps();
+
+      // 2 threads with 10 ms per message can handle less than 200 messages per second
+      Assert.assertTrue(steps.size() >= 2 && steps.size() <= 5, "Unexpected number of steps: " + steps.size());
+      Assert.assertFalse(steps.get(steps.size() - 1).isPassed());
+      for (int i = 0; i < steps.size() - 1; i++) {
+         Assert.assertTrue(steps.get(i).isPassed(), "Step " + i + " should have passed: " + steps.get(i));
+         Assert.assertEquals(steps.get(i).getSpeed(), 50d * (i + 1));
+      }
+
+      Assert.assertTrue(generator.getSustainableThroughput() >= 45 && generator.getSustainableThroughput() < 210, "Sustainable throughput " + generator.getSustainableThroughput());
+      Assert.assertNotNull(generator.getKneeStep());
+   }
+
+   @Test
+   public void testBisectSearch() throws Exception {
+      final CapacitySearchGenerator generator = runSearch("BISECT");
+      final List<CapacityStep> steps = generator.getSteps();
+
+      Assert.assertTrue(steps.get(0).isPassed());
+      Assert.assertEquals(steps.get(1).getSpeed(), 1000d);
+      Assert.assertFalse(steps.get(1).isPassed());
+      Assert.assertEquals(steps.get(2).getSpeed(), 525d);
+      Assert.assertTrue(generator.getSustainableThroughput() > 100 && generator.getSustainableThroughput() < 210, "Sustainable throughput " + generator.getSustainableThroughput());
+   }
+
+   private CapacitySearchGenerator runSearch(final String mode) throws Exception {
+      System.setProperty("test.mode", mode);
+
+      final Scenario scenario = ScenarioLoader.load("test-capacity-search");
+      scenario.init();
+      scenario.run();
+      scenario.close();
+      System.getProperties().remove("test.mode");
+
+      final MessageGenerator generator = new ScenarioRetractor(scenario).getGenerator();
+      Assert.assertTrue(generator instanceof CapacitySearchGenerator, "CapacitySearchGenerator");
+
+      return (CapacitySearchGenerator) generator;
+   }
+}
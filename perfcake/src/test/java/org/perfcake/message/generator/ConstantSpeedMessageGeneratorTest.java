@@ -0,0 +1,192 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.RunInfo;
+import org.perfcake.TestSetup;
+import org.perfcake.common.Period;
+import org.perfcake.common.PeriodType;
+import org.perfcake.message.Message;
+import org.perfcake.message.MessageTemplate;
+import org.perfcake.message.sender.TestSender;
+import org.perfcake.scenario.Scenario;
+import org.perfcake.scenario.ScenarioBuilder;
+import org.perfcake.scenario.ScenarioLoader;
+import org.perfcake.scenario.ScenarioRetractor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+/**
+ * Tests {@link ConstantSpeedMessageGenerator} and {@link GcraPacer}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class ConstantSpeedMessageGeneratorTest extends TestSetup {
+
+   @Test
+   public void testFractionalRate() {
+      final GcraPacer pacer = new GcraPacer(3, 1); // 333333333.33 ns interval
+      long now = 0;
+      int events = 0;
+
+      while (now <= 10_000_000_000L) { // 10 s of simulated time
+         final long delay = pacer.getDelay(now);
+         if (delay <= 0) {
+            pacer.onEvent(now);
+            events++;
+         } else {
+            now = now + delay;
+         }
+      }
+
+      Assert.assertEquals(events, 31); // events at 0, 1/3, 2/3, ... 10 s
+      Assert.assertEquals(pacer.getAverageInterval(), 333.333, 0.001);
+      Assert.assertEquals(pacer.getJitter(), 0d, 0.001);
+   }
+
+   @Test
+   public void testHighRate() {
+      final GcraPacer pacer = new GcraPacer(3_000_000, 1);
+      long now = 0;
+      int events = 0;
+
+      while (now < 1_000_000_000L) {
+         if (pacer.getDelay(now) <= 0) {
+            pacer.onEvent(now);
+            events++;
+         }
+         now = now + 100; // the caller is slower than the emission interval, the late events must not lower the rate
+      }
+
+      Assert.assertEquals(events, 3_000_000, 1);
+   }
+
+   @Test
+   public void testBurst() {
+      final GcraPacer pacer = new GcraPacer(10, 5);
+      pacer.onEvent(0);
+
+      // after a long pause, we can send the whole burst at once but not more
+      final long now = 10_000_000_000L;
+      int events = 0;
+      while (pacer.getDelay(now) <= 0) {
+         pacer.onEvent(now);
+         events++;
+      }
+
+      Assert.assertEquals(events, 5);
+      Assert.assertEquals(pacer.getDelay(now), 100_000_000L);
+   }
+
+   @Test
+   public void testStochasticIntervals() {
+      final GcraPacer pacer = new GcraPacer(1000, 1); // the mean interval is 1 ms
+      pacer.onEvent(0, 5_000_000d);
+
+      // the event is late by less than the emission interval but more than the next interval, it must not be caught up at once
+      pacer.onEvent(5_500_000L, 100_000d);
+      Assert.assertEquals(pacer.getDelay(5_500_000L), 100_000L);
+
+      // late by less than the next interval, the schedule is kept
+      pacer.onEvent(5_650_000L, 200_000d);
+      Assert.assertEquals(pacer.getDelay(5_650_000L), 150_000L);
+   }
+
+   @Test
+   public void testRateChange() {
+      final GcraPacer pacer = new GcraPacer(10, 1);
+      pacer.onEvent(0);
+      Assert.assertEquals(pacer.getDelay(0), 100_000_000L);
+
+      pacer.setRate(20);
+      pacer.onEvent(100_000_000L);
+      Assert.assertEquals(pacer.getDelay(100_000_000L), 50_000_000L);
+      Assert.assertEquals(pacer.getRate(), 20d, 0.0001);
+   }
+
+   @Test
+   public void testGeneratorSpeed() throws Exception {
+      final long start = System.currentTimeMillis();
+      final ConstantSpeedMessageGenerator generator = runScenario(500, 100);
+      final long duration = System.currentTimeMillis() - start;
+
+      Assert.assertEquals(TestSender.getCounter(), 500);
+      Assert.assertTrue(duration >= 4900 && duration < 6500, "The speed was not kept, the test took " + duration + " ms.");
+      Assert.assertEquals(generator.getAverageInterval(), 10d, 0.5);
+      Assert.assertTrue(generator.getJitter() < 5d, "The jitter was too high: " + generator.getJitter());
+
+      // keeping the pace is not waiting for the sender threads
+      Assert.assertTrue(generator.getPacingTime() > 4000d, "Generator pacing time " + generator.getPacingTime() + " ms.");
+      Assert.assertTrue(generator.getIdleTime() < 1000d, "Generator idle time " + generator.getIdleTime() + " ms.");
+   }
+
+   @Test(timeOut = 30_000)
+   public void testDefaultSpeed() throws Exception {
+      TestSender.resetCounter();
+      final ConstantSpeedMessageGenerator generator = new ConstantSpeedMessageGenerator();
+      generator.setThreads(4);
+
+      final Message message = new Message();
+      message.setPayload("hello");
+      final ScenarioBuilder builder = new ScenarioBuilder(new RunInfo(new Period(PeriodType.ITERATION, 500)), generator, TestSender.class.getName(), new Properties());
+      builder.addMessage(new MessageTemplate(message, 1, null));
+
+      final Scenario scenario = builder.build();
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      // all the messages were sent and not faster than the default speed of 5000 messages per second allows
+      Assert.assertEquals(TestSender.getCounter(), 500);
+      Assert.assertTrue(generator.getAverageInterval() >= 0.15d, "Average interval: " + generator.getAverageInterval());
+   }
+
+   @Test
+   public void testGeneratorFractionalSpeed() throws Exception {
+      final long start = System.currentTimeMillis();
+      runScenario(3, 2.5);
+      final long duration = System.currentTimeMillis() - start;
+
+      // 3 messages at 2.5 messages per second take 2 intervals of 400 ms
+      Assert.assertEquals(TestSender.getCounter(), 3);
+      Assert.assertTrue(duration >= 790, "The speed was not kept, the test took " + duration + " ms.");
+   }
+
+   private ConstantSpeedMessageGenerator runScenario(final long iterations, final double speed) throws Exception {
+      TestSender.resetCounter();
+      System.setProperty("test.iterations", String.valueOf(iterations));
+      System.setProperty("test.speed", String.valueOf(speed));
+
+      final Scenario scenario = ScenarioLoader.load("test-constant-speed");
+      scenario.init();
+      scenario.run();
+      scenario.close();
+      System.getProperties().remove("test.iterations");
+      System.getProperties().remove("test.speed");
+
+      final MessageGenerator generator = new ScenarioRetractor(scenario).getGenerator();
+      Assert.assertTrue(generator instanceof ConstantSpeedMessageGenerator, "ConstantSpeedMessageGenerator");
+
+      return (ConstantSpeedMessageGenerator) generator;
+   }
+}
@@ -19,15 +19,36 @@
  */
 package org.perfcake.message.generator;
 
+import org.perfcake.PerfCakeConst;
+import org.perfcake.PerfCakeException;
+import org.perfcake.RunInfo;
 import org.perfcake.TestSetup;
+import org.perfcake.common.Period;
+import org.perfcake.common.PeriodType;
+import org.perfcake.message.Message;
+import org.perfcake.message.MessageTemplate;
 import org.perfcake.message.sender.TestSender;
+import org.perfcake.reporting.MeasurementUnit;
+import org.perfcake.reporting.destination.Destination;
+import org.perfcake.reporting.reporter.AbstractReporter;
 import org.perfcake.scenario.Scenario;
+import org.perfcake.scenario.ScenarioBuilder;
 import org.perfcake.scenario.ScenarioLoader;
 import org.perfcake.scenario.ScenarioRetractor;
 
 import org.testng.Assert;
+import org.testng.Reporter;
 import org.testng.annotations.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Test @{DefaultMessageGenerator} features.
  *
@@ -76,4 +97,322 @@ public class DefaultMessageGeneratorTest extends TestSetup {
       Assert.assertTrue(generator instanceof DefaultMessageGenerator, "DefaultMessageGenerator");
       Assert.assertEquals(((DefaultMessageGenerator) generator).getShutdownPeriod(), 1000, "Auto tuned shuthown period.");
    }
+
+   @Test
+   public void generatorIdleTimeTest() throws Exception {
+      TestSender.resetCounter();
+
+      final Scenario scenario = ScenarioLoader.load("test-generator-idle");
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      Assert.assertEquals(TestSender.getCounter(), 200);
+
+      final DefaultMessageGenerator generator = (DefaultMessageGenerator) new ScenarioRetractor(scenario).getGenerator();
+      final double idle = generator.getIdleTime();
+      final double busy = generator.getBusyTime();
+
+      // the senders are slow, so the generator should be waiting for them most of the time instead of spinning
+      Assert.assertTrue(idle > 500, "Generator idle time " + idle + " ms.");
+      Assert.assertTrue(idle > 2 * busy, String.format("Generator idle time %.3f ms should be much higher than busy time %.3f ms.", idle, busy));
+   }
+
+   @Test
+   public void saturationTest() throws Exception {
+      // preparing each task takes 2 ms while the sender is instant, so the sender threads keep waiting for the generator
+      final DefaultMessageGenerator slowGenerator = new DefaultMessageGenerator() {
+         @Override
+         protected SenderTask newSenderTask() {
+            LockSupport.parkNanos(2_000_000);
+            return super.newSenderTask();
+         }
+      };
+      slowGenerator.setSaturationPolicy(DefaultMessageGenerator.SaturationPolicy.FAIL).setSaturationTolerance(50).setMonitoringPeriod(100).setThreads(4);
+
+      final Scenario scenario = buildSaturationScenario(slowGenerator, 0);
+      scenario.init();
+      try {
+         scenario.run();
+         Assert.fail("The scenario should have failed because of the saturated generator.");
+      } catch (final PerfCakeException e) {
+         // expected
+      } finally {
+         scenario.close();
+      }
+
+      Assert.assertTrue(slowGenerator.getSaturatedPercentage() > 50, "Saturated percentage " + slowGenerator.getSaturatedPercentage());
+      Assert.assertTrue(slowGenerator.getQueueDepth() <= 1, "Queue depth " + slowGenerator.getQueueDepth());
+      Assert.assertTrue(slowGenerator.getIdlePercentage() < slowGenerator.getSaturationIdleThreshold(), "Generator idle " + slowGenerator.getIdlePercentage());
+   }
+
+   @Test
+   public void handOffRetryTest() throws Exception {
+      TestSender.resetCounter();
+      final AtomicInteger createdTasks = new AtomicInteger();
+      final AtomicInteger handOffs = new AtomicInteger();
+
+      // every other hand-off times out, the generator must retry with the same task
+      final DefaultMessageGenerator generator = new DefaultMessageGenerator() {
+         private Runnable rejectedTask = null;
+
+         @Override
+         protected SenderTask newSenderTask() {
+            createdTasks.incrementAndGet();
+            return super.newSenderTask();
+         }
+
+         @Override
+         protected boolean handOff(final Runnable task) throws InterruptedException {
+            if (handOffs.getAndIncrement() % 2 == 0) {
+               rejectedTask = task;
+               return false;
+            }
+
+            Assert.assertSame(task, rejectedTask, "The rejected task should have been retried.");
+            return super.handOff(task);
+         }
+      };
+      generator.setThreads(2);
+
+      final Message message = new Message();
+      message.setPayload("hello");
+      final ScenarioBuilder builder = new ScenarioBuilder(new RunInfo(new Period(PeriodType.ITERATION, 100)), generator, TestSender.class.getName(), new Properties());
+      builder.addMessage(new MessageTemplate(message, 1, null));
+
+      final Scenario scenario = builder.build();
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      Assert.assertEquals(TestSender.getCounter(), 100);
+      Assert.assertEquals(handOffs.get(), 200);
+      Assert.assertEquals(createdTasks.get(), 100);
+   }
+
+   @Test
+   public void noSaturationTest() throws Exception {
+      // slow senders keep the queue full, the generator is waiting most of the time
+      final DefaultMessageGenerator generator = new DefaultMessageGenerator();
+      generator.setSaturationPolicy(DefaultMessageGenerator.SaturationPolicy.FAIL).setSaturationTolerance(0).setMonitoringPeriod(100).setSenderTaskQueueSize(10).setThreads(2);
+
+      final Scenario scenario = buildSaturationScenario(generator, 10);
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      Assert.assertEquals(generator.getSaturatedPercentage(), 0d);
+      Assert.assertTrue(generator.getQueueDepth() > 0, "Queue depth " + generator.getQueueDepth());
+      if (ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported()) {
+         Assert.assertTrue(generator.getCpuPercentage() >= 0 && generator.getCpuPercentage() < 50, "Generator CPU " + generator.getCpuPercentage());
+      }
+   }
+
+   @Test
+   public void reportSaturationTest() throws Exception {
+      Assert.assertEquals(countSaturationResults(new DefaultMessageGenerator()), 0, "The saturation results should not be reported by default.");
+      Assert.assertEquals(countSaturationResults(new DefaultMessageGenerator().setReportSaturation(true)), 100);
+   }
+
+   /**
+    * Runs 100 iterations with the given generator and counts the measurement units carrying the saturation results.
+    *
+    * @param generator
+    *       The generator to be used.
+    * @return The number of measurement units with all the saturation results.
+    * @throws Exception
+    *       When the scenario failed.
+    */
+   private int countSaturationResults(final DefaultMessageGenerator generator) throws Exception {
+      final AtomicInteger withResults = new AtomicInteger();
+      final AbstractReporter reporter = new AbstractReporter() {
+         @Override
+         protected void doReset() {
+         }
+
+         @Override
+         protected void doReport(final MeasurementUnit measurementUnit) {
+            if (measurementUnit.getResult(PerfCakeConst.SCHEDULE_LAG_TAG) != null && measurementUnit.getResult(PerfCakeConst.REPORTING_BACKLOG_TAG) != null
+                  && measurementUnit.getResult(PerfCakeConst.REPORTING_LAG_TAG) != null) {
+               withResults.incrementAndGet();
+            }
+         }
+
+         @Override
+         public void publishResult(final PeriodType periodType, final Destination destination) {
+         }
+      };
+      generator.setThreads(2);
+
+      final Message message = new Message();
+      message.setPayload("hello");
+      final ScenarioBuilder builder = new ScenarioBuilder(new RunInfo(new Period(PeriodType.ITERATION, 100)), generator, TestSender.class.getName(), new Properties());
+      builder.addMessage(new MessageTemplate(message, 1, null));
+      builder.addReporter(reporter);
+
+      final Scenario scenario = builder.build();
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      return withResults.get();
+   }
+
+   /**
+    * Builds a one second long scenario with the given generator and {@link TestSender}.
+    *
+    * @param generator
+    *       The generator to be used.
+    * @param senderDelay
+    *       The delay of the sender in milliseconds.
+    * @return The new scenario.
+    * @throws Exception
+    *       When the scenario could not be built.
+    */
+   private Scenario buildSaturationScenario(final DefaultMessageGenerator generator, final long senderDelay) throws Exception {
+      final Properties senderProperties = new Properties();
+      senderProperties.setProperty("delay", String.valueOf(senderDelay));
+
+      final Message message = new Message();
+      message.setPayload("hello");
+
+      final ScenarioBuilder builder = new ScenarioBuilder(new RunInfo(new Period(PeriodType.TIME, 1000)), generator, TestSender.class.getName(), senderProperties);
+      builder.addMessage(new MessageTemplate(message, 1, null));
+
+      return builder.build();
+   }
+
+   @Test
+   public void recyclingTest() throws Exception {
+      TestSender.resetCounter();
+
+      System.setProperty("recycling", "true");
+      System.setProperty("iterations", "10000");
+      System.setProperty("threads", "4");
+      final Scenario scenario = ScenarioLoader.load("test-generator-recycling");
+      System.getProperties().remove("recycling");
+      System.getProperties().remove("iterations");
+      System.getProperties().remove("threads");
+
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      Assert.assertEquals(TestSender.getCounter(), 10000);
+      Assert.assertTrue(((DefaultMessageGenerator) new ScenarioRetractor(scenario).getGenerator()).isRecycling());
+   }
+
+   @Test
+   public void prerenderingTest() throws Exception {
+      TestSender.resetCounter();
+
+      System.setProperty("prerendered", "256");
+      System.setProperty("recycling", "true");
+      System.setProperty("iterations", "10000");
+      System.setProperty("threads", "4");
+      final Scenario scenario = ScenarioLoader.load("test-generator-recycling");
+      System.getProperties().remove("prerendered");
+      System.getProperties().remove("recycling");
+      System.getProperties().remove("iterations");
+      System.getProperties().remove("threads");
+
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      Assert.assertEquals(TestSender.getCounter(), 10000);
+      Assert.assertEquals(((DefaultMessageGenerator) new ScenarioRetractor(scenario).getGenerator()).getPrerenderedIterations(), 256);
+   }
+
+   @Test(groups = { "ueber", "performance" })
+   public void recyclingAllocationTest() throws Exception {
+      final double plain = allocatedBytesPerIteration(false);
+      final double recycled = allocatedBytesPerIteration(true);
+
+      Reporter.log(String.format("Bytes allocated per iteration: %.1f without recycling, %.1f with recycling.", plain, recycled));
+      Assert.assertTrue(recycled < plain * 0.95, String.format("Recycling should lower the allocation rate (%.1f B vs. %.1f B per iteration).", recycled, plain));
+   }
+
+   /**
+    * Measures the number of bytes allocated by the sending thread per iteration. The sender tasks are executed directly in the current thread.
+    *
+    * @param recycling
+    *       True to recycle the sender tasks.
+    * @return The average number of bytes allocated per iteration.
+    * @throws Exception
+    *       When the scenario could not be executed.
+    */
+   private double allocatedBytesPerIteration(final boolean recycling) throws Exception {
+      final int warmUp = 50_000;
+      final int iterations = 200_000;
+
+      System.setProperty("recycling", String.valueOf(recycling));
+      final Scenario scenario = ScenarioLoader.load("test-generator-recycling");
+      System.getProperties().remove("recycling");
+
+      scenario.init();
+      final DefaultMessageGenerator generator = (DefaultMessageGenerator) new ScenarioRetractor(scenario).getGenerator();
+      final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      final long threadId = Thread.currentThread().getId();
+
+      generator.setStartTime();
+      for (int i = 0; i < warmUp; i++) {
+         generator.newSenderTask().run();
+      }
+
+      final long start = threadBean.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < iterations; i++) {
+         generator.newSenderTask().run();
+      }
+      final long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+      generator.setStopTime();
+      scenario.close();
+
+      return allocated / (double) iterations;
+   }
+
+   @Test
+   public void virtualThreadsTest() throws Exception {
+      final DefaultMessageGenerator generator = new DefaultMessageGenerator().setThreadType(DefaultMessageGenerator.ThreadType.VIRTUAL);
+
+      boolean virtualThreadsSupported;
+      try {
+         Thread.class.getMethod("ofVirtual");
+         virtualThreadsSupported = true;
+      } catch (final NoSuchMethodException e) {
+         virtualThreadsSupported = false;
+      }
+
+      if (!virtualThreadsSupported) {
+         try {
+            generator.newExecutorService(10);
+            Assert.fail("Virtual threads should not be available on this JVM.");
+         } catch (final PerfCakeException e) {
+            return; // expected
+         }
+      }
+
+      final ThreadPoolExecutor executor = generator.newExecutorService(10);
+      final CountDownLatch latch = new CountDownLatch(100);
+      final AtomicBoolean allVirtual = new AtomicBoolean(true);
+
+      for (int i = 0; i < 100; i++) {
+         executor.submit(() -> {
+            try {
+               if (!(Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())) {
+                  allVirtual.set(false);
+               }
+            } catch (final ReflectiveOperationException e) {
+               allVirtual.set(false);
+            }
+            latch.countDown();
+         });
+      }
+
+      Assert.assertTrue(latch.await(10, TimeUnit.SECONDS), "All tasks executed.");
+      Assert.assertTrue(allVirtual.get(), "All tasks executed in virtual threads.");
+      Assert.assertTrue(executor.getLargestPoolSize() <= 10, "The number of threads is limited.");
+      executor.shutdown();
+   }
 }
@@ -0,0 +1,140 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.TestSetup;
+import org.perfcake.message.sender.TestSender;
+import org.perfcake.scenario.Scenario;
+import org.perfcake.scenario.ScenarioLoader;
+import org.perfcake.scenario.ScenarioRetractor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link JourneyMessageGenerator}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class JourneyMessageGeneratorTest extends TestSetup {
+
+   @Test
+   public void testThinkTimeDistributions() {
+      final JourneyMessageGenerator generator = new JourneyMessageGenerator();
+      generator.setThinkTime(100).setThinkTimeDeviation(50);
+
+      for (final JourneyMessageGenerator.ThinkTime distribution : JourneyMessageGenerator.ThinkTime.values()) {
+         generator.setThinkTimeDistribution(distribution);
+
+         double sum = 0;
+         for (int i = 0; i < 100_000; i++) {
+            final double thinkTime = generator.nextThinkTime();
+            Assert.assertTrue(thinkTime >= 0, distribution.name());
+            sum = sum + thinkTime;
+         }
+
+         Assert.assertEquals(sum / 100_000, 100, distribution == JourneyMessageGenerator.ThinkTime.NORMAL ? 3 : 2, distribution.name()); // the truncated normal is slightly shifted
+      }
+   }
+
+   @Test(groups = "integration")
+   public void testJourney() throws Exception {
+      TestSender.resetRecordings();
+
+      final Scenario scenario = ScenarioLoader.load("test-journey");
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      final JourneyMessageGenerator generator = (JourneyMessageGenerator) new ScenarioRetractor(scenario).getGenerator();
+      Assert.assertEquals(generator.getCompletedJourneys(), 5);
+      Assert.assertEquals(generator.getActiveUsers(), 0);
+
+      final List<String> recorded = new ArrayList<>(TestSender.getRecordedMessages());
+      Assert.assertEquals(recorded.size(), 20);
+
+      for (int user = 0; user < 5; user++) {
+         final String token = "t" + user + "x";
+         final List<String> journey = new ArrayList<>();
+         for (final String message : recorded) {
+            if (message.endsWith(token)) {
+               journey.add(message);
+            }
+         }
+
+         Assert.assertEquals(journey, Arrays.asList("login token=" + token, "browse " + token, "browse " + token, "checkout " + token));
+      }
+   }
+
+   @Test(groups = "integration")
+   public void testManyIdleSessions() throws Exception {
+      System.setProperty("journey.users", "100000");
+      System.setProperty("journey.iterations", "250000");
+      System.setProperty("journey.thinkTime", "1000");
+      System.setProperty("journey.rampUp", "1000");
+      System.setProperty("journey.repeat", "true");
+      System.setProperty("journey.recording", "false");
+
+      try {
+         final Scenario scenario = ScenarioLoader.load("test-journey");
+         scenario.init();
+
+         final int threadsBefore = Thread.activeCount();
+         final AtomicInteger maxThreads = new AtomicInteger();
+         final Thread monitor = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+               maxThreads.accumulateAndGet(Thread.activeCount(), Math::max);
+               try {
+                  Thread.sleep(10);
+               } catch (final InterruptedException ie) {
+                  return;
+               }
+            }
+         });
+         monitor.start();
+
+         final long start = System.currentTimeMillis();
+         try {
+            scenario.run();
+            scenario.close();
+         } finally {
+            monitor.interrupt();
+            monitor.join();
+         }
+
+         final JourneyMessageGenerator generator = (JourneyMessageGenerator) new ScenarioRetractor(scenario).getGenerator();
+         Assert.assertEquals(generator.getActiveUsers(), 100_000);
+         Assert.assertTrue(System.currentTimeMillis() - start < 30_000, "The sessions were too slow.");
+         Assert.assertTrue(maxThreads.get() - threadsBefore < 100, "The sessions must not occupy a thread each: " + maxThreads.get());
+      } finally {
+         System.clearProperty("journey.users");
+         System.clearProperty("journey.iterations");
+         System.clearProperty("journey.thinkTime");
+         System.clearProperty("journey.rampUp");
+         System.clearProperty("journey.repeat");
+         System.clearProperty("journey.recording");
+      }
+   }
+}
@@ -0,0 +1,211 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator;
+
+import org.perfcake.PerfCakeConst;
+import org.perfcake.TestSetup;
+import org.perfcake.message.MappedContentStore;
+import org.perfcake.message.Message;
+import org.perfcake.message.MessageTemplate;
+import org.perfcake.message.sequence.NumberSequence;
+import org.perfcake.message.sequence.PrimitiveNumberSequence;
+import org.perfcake.message.sequence.SequenceManager;
+import org.perfcake.message.sequence.ThreadIdSequence;
+import org.perfcake.util.Utils;
+
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Tests {@link PayloadPrerenderer}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class PayloadPrerendererTest extends TestSetup {
+
+   private static final Charset CHARSET = Charset.forName(Utils.getDefaultEncoding());
+
+   @Test
+   public void testPrerendering() throws Exception {
+      final SequenceManager sequenceManager = new SequenceManager();
+      sequenceManager.addSequence("seq", new PrimitiveNumberSequence());
+
+      final MessageTemplate plain = new MessageTemplate(new Message("value=@{seq}"), 1, new ArrayList<>());
+      final MessageTemplate numbered = new MessageTemplate(new Message("iteration=@{" + PerfCakeConst.ITERATION_NUMBER_PROPERTY + "}"), 1, new ArrayList<>());
+      final PayloadPrerenderer prerenderer = new PayloadPrerenderer(Arrays.asList(plain, numbered), null, sequenceManager, 16);
+
+      prerenderer.start();
+      try {
+         long lastValue = -1;
+         int received = 0;
+         while (received < 100) {
+            final PayloadPrerenderer.PreparedIteration iteration = prerenderer.poll();
+            if (iteration == null) {
+               Thread.sleep(1);
+               continue;
+            }
+            received++;
+
+            final long value = Long.parseLong(iteration.getAttributes().getProperty("seq"));
+            Assert.assertTrue(value > lastValue, "The iterations must be prepared in the order of the sequence values.");
+            lastValue = value;
+
+            Assert.assertEquals(iteration.getTemplates().size(), 2);
+            final Message message = iteration.getMessage(0);
+            Assert.assertEquals(message.getPayload(), "value=" + value);
+            Assert.assertEquals(new String(message.getEncodedPayload(CHARSET), CHARSET), "value=" + value);
+            Assert.assertNull(iteration.getMessage(1), "The iteration number is not known in advance.");
+         }
+      } finally {
+         prerenderer.stop();
+      }
+
+      Assert.assertEquals(prerenderer.getHits(), 100);
+      Assert.assertNull(prerenderer.poll(), "The prepared iterations should be dropped when stopped.");
+   }
+
+   @Test
+   public void testThreadBoundSequence() throws Exception {
+      final SequenceManager sequenceManager = new SequenceManager();
+      sequenceManager.addSequence("seq", new PrimitiveNumberSequence());
+      sequenceManager.addSequence("tid", new ThreadIdSequence());
+
+      final MessageTemplate plain = new MessageTemplate(new Message("value=@{seq}"), 1, new ArrayList<>());
+      final MessageTemplate threadBound = new MessageTemplate(new Message("thread=@{tid}"), 1, new ArrayList<>());
+      final PayloadPrerenderer prerenderer = new PayloadPrerenderer(Arrays.asList(plain, threadBound), null, sequenceManager, 16);
+      final String senderThread = Long.toString(Thread.currentThread().getId());
+
+      prerenderer.start();
+      try {
+         int received = 0;
+         while (received < 20) {
+            final PayloadPrerenderer.PreparedIteration iteration = prerenderer.poll();
+            if (iteration == null) {
+               Thread.sleep(1);
+               continue;
+            }
+            received++;
+
+            Assert.assertEquals(iteration.getAttributes().getProperty("tid"), senderThread, "The thread id must be the one of the sender thread.");
+            Assert.assertNotNull(iteration.getMessage(0));
+            Assert.assertNull(iteration.getMessage(1), "Messages with thread bound sequences must be rendered by the sender thread.");
+            Assert.assertEquals(threadBound.getFilteredMessage(iteration.getAttributes()).getPayload(), "thread=" + senderThread);
+         }
+      } finally {
+         prerenderer.stop();
+      }
+   }
+
+   @Test
+   public void testMappedPayload() throws Exception {
+      final SequenceManager sequenceManager = new SequenceManager();
+      sequenceManager.addSequence("doc", new NumberSequence().setStart(2).setEnd(3).setCycle(true));
+
+      final MessageTemplate mapped = new MessageTemplate(new Message(MappedContentStore.get("message@{doc}.txt")), 1, new ArrayList<>());
+      final PayloadPrerenderer prerenderer = new PayloadPrerenderer(Collections.singletonList(mapped), null, sequenceManager, 16);
+
+      prerenderer.start();
+      try {
+         int received = 0;
+         while (received < 10) {
+            final PayloadPrerenderer.PreparedIteration iteration = prerenderer.poll();
+            if (iteration == null) {
+               Thread.sleep(1);
+               continue;
+            }
+            received++;
+
+            final Message message = iteration.getMessage(0);
+            final String location = "message" + iteration.getAttributes().getProperty("doc") + ".txt";
+            Assert.assertSame(message.getMappedPayload(), MappedContentStore.get(location), "The location must be resolved in advance.");
+            Assert.assertTrue(message.getPayloadBuffer(CHARSET).isDirect(), "The mapped payload must not be copied to the heap.");
+         }
+      } finally {
+         prerenderer.stop();
+      }
+   }
+
+   @Test(groups = { "ueber", "performance" })
+   public void testRenderCostOffHotPath() throws Exception {
+      final StringBuilder json = new StringBuilder("{\"items\": [");
+      for (int i = 0; i < 200; i++) {
+         json.append(i == 0 ? "" : ", ").append("{\"id\": \"@{seq}-").append(i).append("\", \"name\": \"item @{seq}\", \"price\": ").append(i).append(".99}");
+      }
+      json.append("]}");
+
+      final SequenceManager sequenceManager = new SequenceManager();
+      sequenceManager.addSequence("seq", new PrimitiveNumberSequence());
+      final List<MessageTemplate> messageStore = Collections.singletonList(new MessageTemplate(new Message(json.toString()), 1, new ArrayList<>()));
+
+      final int batch = 1000;
+      final int rounds = 20;
+      final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+      // the sender thread renders and encodes the payload itself
+      long inline = 0;
+      for (int r = 0; r < rounds; r++) {
+         final long start = threadBean.getCurrentThreadCpuTime();
+         for (int i = 0; i < batch; i++) {
+            final Properties attributes = sequenceManager.getSnapshot();
+            messageStore.get(0).getFilteredMessage(attributes).getEncodedPayload(CHARSET);
+         }
+         inline = inline + threadBean.getCurrentThreadCpuTime() - start;
+      }
+
+      // the sender thread only picks up the prepared payload
+      final PayloadPrerenderer prerenderer = new PayloadPrerenderer(messageStore, null, sequenceManager, batch);
+      long prerendered = 0;
+      prerenderer.start();
+      try {
+         for (int r = 0; r < rounds; r++) {
+            while (prerenderer.getReady() < batch) { // let the background thread fill the ring
+               Thread.sleep(1);
+            }
+
+            final long start = threadBean.getCurrentThreadCpuTime();
+            for (int i = 0; i < batch; i++) {
+               final PayloadPrerenderer.PreparedIteration iteration = prerenderer.poll();
+               if (iteration != null) {
+                  iteration.getMessage(0).getEncodedPayload(CHARSET);
+               } else {
+                  messageStore.get(0).getFilteredMessage(sequenceManager.getSnapshot()).getEncodedPayload(CHARSET);
+               }
+            }
+            prerendered = prerendered + threadBean.getCurrentThreadCpuTime() - start;
+         }
+      } finally {
+         prerenderer.stop();
+      }
+
+      Reporter.log(String.format("Sender thread CPU time per iteration: %.2f us rendering inline, %.2f us with pre-rendered payloads (%d hits, %d misses).",
+            inline / 1000d / batch / rounds, prerendered / 1000d / batch / rounds, prerenderer.getHits(), prerenderer.getMisses()));
+      Assert.assertTrue(prerendered < inline / 2, String.format("Pre-rendering should move the rendering cost off the sender thread (%d ns vs. %d ns).", prerendered, inline));
+   }
+}
@@ -0,0 +1,165 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.generator.profile;
+
+import org.perfcake.PerfCakeException;
+import org.perfcake.TestSetup;
+import org.perfcake.common.Period;
+import org.perfcake.common.PeriodType;
+import org.perfcake.message.generator.CustomProfileGenerator;
+import org.perfcake.message.sender.TestSender;
+import org.perfcake.scenario.Scenario;
+import org.perfcake.scenario.ScenarioLoader;
+import org.perfcake.scenario.ScenarioRetractor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the stochastic arrival profiles.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = "unit")
+public class ArrivalProfileTest extends TestSetup {
+
+   private static final long SECOND = 1_000_000_000L;
+
+   @Test
+   public void testPoisson() throws PerfCakeException {
+      final ArrivalProfile profile = new PoissonProfile();
+      profile.init("rate=1000;seed=42;threads=5");
+
+      final ProfileRequest request = profile.getProfile(new Period(PeriodType.TIME, 0));
+      Assert.assertEquals(request.getThreads(), 5);
+      Assert.assertEquals(request.getSpeed(), 1000d);
+
+      // mean and standard deviation of the exponential distribution are both equal to 1 / rate
+      final int count = 100_000;
+      double sum = 0, sumSquares = 0;
+      for (int i = 0; i < count; i++) {
+         final double interval = profile.nextInterval(0);
+         sum = sum + interval;
+         sumSquares = sumSquares + interval * interval;
+      }
+      final double mean = sum / count;
+      final double deviation = Math.sqrt(sumSquares / count - mean * mean);
+
+      Assert.assertEquals(mean, 1_000_000d, 20_000d);
+      Assert.assertEquals(deviation, 1_000_000d, 30_000d);
+   }
+
+   @Test
+   public void testSeed() throws PerfCakeException {
+      final ArrivalProfile first = new BurstProfile();
+      final ArrivalProfile second = new BurstProfile();
+      final ArrivalProfile third = new BurstProfile();
+      first.init("seed=7");
+      second.init("seed=7");
+      third.init("seed=8");
+
+      boolean different = false;
+      long time = 0;
+      for (int i = 0; i < 1000; i++) {
+         final double interval = first.nextInterval(time);
+         Assert.assertEquals(second.nextInterval(time), interval);
+         different = different || third.nextInterval(time) != interval;
+         time = time + (long) interval;
+      }
+
+      Assert.assertTrue(different, "Different seeds must produce different intervals.");
+   }
+
+   @Test
+   public void testBurst() throws PerfCakeException {
+      final BurstProfile profile = new BurstProfile();
+      profile.init("rate=1090;burstRate=10000;burstDuration=100;calmDuration=900;seed=1");
+
+      // bursts take 10 % of the time, so the mean rate 1090 leaves (1090 - 0.1 * 10000) / 0.9 = 100 for the calm state
+      Assert.assertEquals(profile.getCalmRate(), 100d, 0.000001);
+      Assert.assertEquals(profile.getProfile(null).getSpeed(), 1090d);
+
+      long time = 0;
+      long count = 0;
+      while (time < 600 * SECOND) {
+         time = time + (long) profile.nextInterval(time);
+         count++;
+      }
+
+      Assert.assertEquals(count / 600d, 1090d, 60d);
+   }
+
+   @Test(expectedExceptions = PerfCakeException.class)
+   public void testBurstOverMeanRate() throws PerfCakeException {
+      new BurstProfile().init("rate=100;burstRate=10000;burstDuration=100;calmDuration=900");
+   }
+
+   @Test
+   public void testSinusoidal() throws PerfCakeException {
+      final SinusoidalProfile profile = new SinusoidalProfile();
+      profile.init("rate=1000;amplitude=800;period=1000;seed=3");
+
+      Assert.assertEquals(profile.getRateAt(250_000_000d), 1800d, 0.001);
+      Assert.assertEquals(profile.getRateAt(750_000_000d), 200d, 0.001);
+
+      // count the arrivals in the first and the second half of each period
+      long time = 0;
+      long high = 0;
+      long low = 0;
+      while (time < 100 * SECOND) {
+         time = time + (long) profile.nextInterval(time);
+         if ((time % SECOND) < SECOND / 2) {
+            high++;
+         } else {
+            low++;
+         }
+      }
+
+      // the mean rate in the halves is 1000 +- 2 * 800 / pi
+      Assert.assertEquals(high / 50d, 1509d, 30d);
+      Assert.assertEquals(low / 50d, 491d, 30d);
+   }
+
+   @Test(expectedExceptions = PerfCakeException.class)
+   public void testInvalidAmplitude() throws PerfCakeException {
+      new SinusoidalProfile().init("rate=100;amplitude=200");
+   }
+
+   @Test(groups = "integration")
+   public void testGenerator() throws Exception {
+      TestSender.resetCounter();
+      final long start = System.currentTimeMillis();
+
+      final Scenario scenario = ScenarioLoader.load("test-profile-poisson");
+      scenario.init();
+      scenario.run();
+      scenario.close();
+
+      final long duration = System.currentTimeMillis() - start;
+      final CustomProfileGenerator generator = (CustomProfileGenerator) new ScenarioRetractor(scenario).getGenerator();
+
+      // 1000 messages at 500 messages per second on average
+      Assert.assertEquals(TestSender.getCounter(), 1000);
+      Assert.assertTrue(duration > 1500, "The test took " + duration + " ms.");
+      Assert.assertEquals(generator.getAverageInterval(), 2d, 0.3);
+      Assert.assertEquals(generator.getThreads(), 4);
+      Assert.assertTrue(generator.getJitter() > 0.5, "The intervals must not be regular.");
+   }
+}
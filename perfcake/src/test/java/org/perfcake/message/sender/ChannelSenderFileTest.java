@@ -19,8 +19,11 @@
  */
 package org.perfcake.message.sender;
 
+import org.perfcake.message.MappedContent;
+import org.perfcake.message.MappedContentStore;
 import org.perfcake.message.Message;
 import org.perfcake.util.ObjectFactory;
+import org.perfcake.util.Utils;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -72,4 +75,48 @@ public class ChannelSenderFileTest {
          Assert.fail(e.getMessage(), e.getCause());
       }
    }
+
+   @Test
+   public void testBinaryMessage() throws Exception {
+      final Properties senderProperties = new Properties();
+      final File file = File.createTempFile("perfcake-", "message.bin");
+      file.deleteOnExit();
+      Files.write(file.toPath(), new byte[] { 'x', 'x', 'x', 1, 2, (byte) 0xff });
+      senderProperties.setProperty("target", file.getAbsolutePath());
+      senderProperties.setProperty("awaitResponse", "true");
+
+      final byte[] payload = new byte[] { (byte) 0xca, (byte) 0xfe, 0 };
+      final Message message = new Message(payload);
+
+      final ChannelSender sender = (ChannelSenderFile) ObjectFactory.summonInstance(ChannelSenderFile.class.getName(), senderProperties);
+      sender.init();
+      sender.preSend(message, null);
+
+      Assert.assertSame(sender.messageBuffer.array(), payload, "Binary payload must not be copied.");
+
+      final Serializable response = sender.doSend(message, null);
+      Assert.assertEquals((byte[]) response, new byte[] { 1, 2, (byte) 0xff });
+      Assert.assertEquals(Files.readAllBytes(file.toPath()), new byte[] { (byte) 0xca, (byte) 0xfe, 0, 1, 2, (byte) 0xff });
+
+      sender.postSend(message);
+   }
+
+   @Test
+   public void testMappedMessage() throws Exception {
+      final Properties senderProperties = new Properties();
+      final File file = File.createTempFile("perfcake-", "message.bin");
+      file.deleteOnExit();
+      senderProperties.setProperty("target", file.getAbsolutePath());
+
+      final MappedContent content = MappedContentStore.get("file://" + Utils.getResource("/messages/binary-message.bin"));
+      final Message message = new Message(content);
+
+      final ChannelSender sender = (ChannelSenderFile) ObjectFactory.summonInstance(ChannelSenderFile.class.getName(), senderProperties);
+      sender.init();
+      sender.preSend(message, null);
+      Assert.assertNull(sender.doSend(message, null));
+      sender.postSend(message);
+
+      Assert.assertEquals(Files.readAllBytes(file.toPath()), content.toByteArray());
+   }
 }
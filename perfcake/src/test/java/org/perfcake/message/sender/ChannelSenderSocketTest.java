@@ -19,8 +19,11 @@
  */
 package org.perfcake.message.sender;
 
+import org.perfcake.message.MappedContent;
+import org.perfcake.message.MappedContentStore;
 import org.perfcake.message.Message;
 import org.perfcake.util.ObjectFactory;
+import org.perfcake.util.Utils;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -92,6 +95,25 @@ public class ChannelSenderSocketTest {
       }
    }
 
+   @Test
+   public void testMappedMessage() throws Exception {
+      final Properties senderProperties = new Properties();
+      senderProperties.setProperty("target", target);
+      senderProperties.setProperty("awaitResponse", "true");
+
+      final MappedContent content = MappedContentStore.get("file://" + Utils.getResource("/messages/binary-message.bin"));
+      final Message message = new Message(content);
+
+      final ChannelSender sender = (ChannelSenderSocket) ObjectFactory.summonInstance(ChannelSenderSocket.class.getName(), senderProperties);
+      sender.init();
+      sender.preSend(message, null);
+
+      final Serializable response = sender.doSend(message, null);
+      Assert.assertEquals((byte[]) response, content.toByteArray());
+
+      sender.postSend(message);
+   }
+
    @Test
    public void testNullMessage() {
       final Properties senderProperties = new Properties();
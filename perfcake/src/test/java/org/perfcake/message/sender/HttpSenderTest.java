@@ -21,6 +21,8 @@ package org.perfcake.message.sender;
 
 import org.perfcake.PerfCakeException;
 import org.perfcake.TestSetup;
+import org.perfcake.message.MappedContent;
+import org.perfcake.message.MappedContentStore;
 import org.perfcake.message.Message;
 import org.perfcake.message.correlator.GenerateHeaderCorrelator;
 import org.perfcake.message.sender.HttpSender.Method;
@@ -38,6 +40,8 @@ import io.vertx.ext.web.handler.CookieHandler;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
@@ -63,6 +67,7 @@ public class HttpSenderTest extends TestSetup {
    private static final String TEST_ADDITIONAL_PROPERTY_NAME = "Test-Additional_Property-Name";
    private static final String TEST_ADDITIONAL_PROPERTY_VALUE = "test-Additional_property-value...";
    private static final String POST_PAYLOAD = "I'm the fish!";
+   private static final String POST_ASYNC_PAYLOAD = "Hello Async!";
    private static final String METHOD_PROPERTY = "method";
    private static final String METHOD_VALUE = "GET";
 
@@ -292,6 +297,141 @@ public class HttpSenderTest extends TestSetup {
       Assert.assertEquals(atomicInteger.get(), 10); // each client maintained its own cookies
    }
 
+   @Test
+   public void testSessionCookies() throws PerfCakeException, InterruptedException {
+      final AtomicInteger sessions = new AtomicInteger();
+      final AtomicInteger requests = new AtomicInteger();
+      final Vertx vertx = Vertx.vertx();
+      final HttpServer server = vertx.createHttpServer();
+      final Router router = Router.router(vertx);
+      router.route("/*").handler(BodyHandler.create());
+      router.route("/*").handler(CookieHandler.create());
+      router.route("/*").handler((context) -> {
+         requests.incrementAndGet();
+         if (context.getCookie("mysid") == null) {
+            context.addCookie(Cookie.cookie("mysid", Integer.toString(sessions.getAndIncrement())));
+         }
+         context.response().setStatusCode(200).end();
+      });
+      new Thread(() -> server.requestHandler(router::accept).listen(8093)).start();
+      Thread.sleep(500);
+
+      runScenario("test-journey-cookies");
+
+      server.close();
+      vertx.close();
+
+      Assert.assertEquals(requests.get(), 60);
+      Assert.assertEquals(sessions.get(), 20); // each virtual user maintained its own cookies regardless of the sender threads
+   }
+
+   @Test
+   public void testMergeCookies() {
+      Assert.assertEquals(HttpSender.mergeCookies(null, Arrays.asList("a=1; Path=/", "b=2")), "a=1; b=2");
+      Assert.assertEquals(HttpSender.mergeCookies("a=1; b=2", Arrays.asList("a=3", "b=; Max-Age=0")), "a=3");
+   }
+
+   @Test
+   public void testAsync() throws PerfCakeException, InterruptedException {
+      final AtomicInteger requests = new AtomicInteger();
+      final Vertx vertx = Vertx.vertx();
+      final HttpServer server = vertx.createHttpServer();
+      final Router router = Router.router(vertx);
+      router.route("/*").handler(BodyHandler.create());
+      router.route("/*").handler((context) -> {
+         if (POST_ASYNC_PAYLOAD.equals(context.getBodyAsString())) {
+            requests.incrementAndGet();
+         }
+         vertx.setTimer(200, id -> context.response().setStatusCode(200).end());
+      });
+      new Thread(() -> server.requestHandler(router::accept).listen(8092)).start();
+      Thread.sleep(500);
+
+      final long start = System.currentTimeMillis();
+      runScenario("test-http-async");
+      final long duration = System.currentTimeMillis() - start;
+
+      server.close();
+      vertx.close();
+
+      Assert.assertEquals(requests.get(), 400);
+      Assert.assertTrue(duration < 10_000, String.format("Two threads should keep many requests in flight, but the scenario took %d ms.", duration));
+   }
+
+   @Test
+   public void testSharedAsyncClient() throws Exception {
+      final Vertx vertx = Vertx.vertx();
+      final HttpServer server = vertx.createHttpServer();
+      server.requestHandler(request -> request.response().setStatusCode(200).end("ok"));
+      new Thread(() -> server.listen(8096)).start();
+      Thread.sleep(500);
+
+      final Properties senderProperties = new Properties();
+      senderProperties.setProperty("target", "http://localhost:8096/");
+      final HttpSender first = (HttpSender) ObjectFactory.summonInstance(HttpSender.class.getName(), senderProperties);
+      final HttpSender second = (HttpSender) ObjectFactory.summonInstance(HttpSender.class.getName(), senderProperties);
+
+      try {
+         first.init();
+         second.init();
+         Assert.assertEquals(first.sendAsync(new Message("a"), null, null).toCompletableFuture().get(), "ok");
+         Assert.assertEquals(second.sendAsync(new Message("b"), null, null).toCompletableFuture().get(), "ok");
+         Assert.assertEquals(HttpSender.getSharedClientUsers(), 2);
+
+         first.close();
+         Assert.assertEquals(HttpSender.getSharedClientUsers(), 1);
+         Assert.assertEquals(second.sendAsync(new Message("c"), null, null).toCompletableFuture().get(), "ok");
+
+         second.close();
+         Assert.assertEquals(HttpSender.getSharedClientUsers(), 0);
+      } finally {
+         server.close();
+         vertx.close();
+      }
+   }
+
+   @Test
+   public void testMappedPayload() throws Exception {
+      final MappedContent content = MappedContentStore.get("binary-message.bin");
+      final List<byte[]> bodies = new ArrayList<>();
+      final List<String> contentTypes = new ArrayList<>();
+      final Vertx vertx = Vertx.vertx();
+      final HttpServer server = vertx.createHttpServer();
+      final Router router = Router.router(vertx);
+      router.route("/*").handler(BodyHandler.create());
+      router.route("/*").handler((context) -> {
+         synchronized (bodies) {
+            bodies.add(context.getBody().getBytes());
+            contentTypes.add(context.request().getHeader("Content-Type"));
+         }
+         context.response().setStatusCode(200).end("ok");
+      });
+      new Thread(() -> server.requestHandler(router::accept).listen(8094)).start();
+      Thread.sleep(500);
+
+      final Properties senderProperties = new Properties();
+      senderProperties.setProperty("method", "POST");
+      senderProperties.setProperty("target", "http://localhost:8094/");
+      final HttpSender sender = (HttpSender) ObjectFactory.summonInstance(HttpSender.class.getName(), senderProperties);
+
+      try {
+         Assert.assertEquals(_sendMessage(sender, new Message(content)), "ok");
+
+         sender.init();
+         Assert.assertEquals(sender.sendAsync(new Message(content), null, null).toCompletableFuture().get(), "ok");
+         sender.close();
+      } finally {
+         server.close();
+         vertx.close();
+      }
+
+      Assert.assertEquals(bodies.size(), 2);
+      for (int i = 0; i < 2; i++) {
+         Assert.assertEquals(bodies.get(i), content.toByteArray());
+         Assert.assertEquals(contentTypes.get(i), "application/octet-stream");
+      }
+   }
+
    private String _sendMessage(final MessageSender sender, final Message message) throws Exception {
       return _sendMessage(sender, message, null);
    }
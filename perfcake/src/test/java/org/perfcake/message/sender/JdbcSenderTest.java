@@ -21,6 +21,8 @@ package org.perfcake.message.sender;
 
 import static org.mockito.Mockito.*;
 
+import org.perfcake.PerfCakeException;
+import org.perfcake.message.Message;
 import org.perfcake.util.ObjectFactory;
 
 import org.apache.logging.log4j.Logger;
@@ -251,6 +253,18 @@ public class JdbcSenderTest {
       Assert.assertEquals(sender.getDriverClass(), driverClass);
    }
 
+   @Test
+   public void testBinaryMessage() throws Exception {
+      final JdbcSender sender = (JdbcSender) ObjectFactory.summonInstance(JdbcSender.class.getName(), new Properties());
+
+      try { // the message is rejected before any statement is created
+         sender.preSend(new Message(new byte[] { 1, 2, 3 }), null);
+         Assert.fail("Binary messages cannot be sent as SQL statements.");
+      } catch (final PerfCakeException e) {
+         Assert.assertTrue(e.getMessage().contains("cannot send binary messages"), e.getMessage());
+      }
+   }
+
    @Test
    public void testNegativeClose() throws Exception {
       final String errorMessage = "Huhúúú";
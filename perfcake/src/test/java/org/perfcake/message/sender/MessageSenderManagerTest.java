@@ -31,9 +31,12 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -137,6 +140,126 @@ public class MessageSenderManagerTest extends TestSetup {
       Assert.assertTrue(i > 9000); // we are not perfect in storing the results, the are concurrent overwrites
    }
 
+   @Test
+   public void threadAffinityTest() throws Exception {
+      final MessageSenderManager msm = new MessageSenderManager();
+      msm.setSenderPoolSize(4);
+      msm.setSenderClass(SENDER_CLASS_NAME);
+      msm.setThreadAffinity(true);
+      msm.init();
+
+      final Map<String, Set<MessageSender>> usedSenders = new ConcurrentHashMap<>();
+      final ExecutorService es = Executors.newFixedThreadPool(4);
+      for (int i = 0; i < 400; i++) {
+         es.submit(() -> {
+            try {
+               final MessageSender sender = msm.acquireSender();
+               usedSenders.computeIfAbsent(Thread.currentThread().getName(), name -> ConcurrentHashMap.newKeySet()).add(sender);
+               msm.releaseSender(sender);
+            } catch (final PerfCakeException e) {
+               usedSenders.put("failure", new HashSet<>());
+            }
+         });
+      }
+      es.shutdown();
+      assertTrue(es.awaitTermination(10, TimeUnit.SECONDS));
+
+      assertFalse(usedSenders.containsKey("failure"), "No sender was available.");
+      assertEquals(usedSenders.size(), 4);
+      usedSenders.forEach((thread, senders) -> assertEquals(senders.size(), 1, "Thread " + thread + " should keep using the same sender."));
+      assertEquals(msm.availableSenderCount(), 4);
+
+      // a new thread steals an idle sender
+      final MessageSender[] stolen = new MessageSender[1];
+      final Thread thief = new Thread(() -> {
+         try {
+            stolen[0] = msm.acquireSender();
+         } catch (final PerfCakeException e) {
+            // the assertion below fails
+         }
+      });
+      thief.start();
+      thief.join();
+      assertNotNull(stolen[0]);
+      assertEquals(msm.availableSenderCount(), 3);
+
+      msm.close();
+   }
+
+   @Test
+   public void growOnDemandTest() throws Exception {
+      for (final boolean threadAffinity : new boolean[] { false, true }) {
+         final MessageSenderManager msm = new MessageSenderManager();
+         msm.setSenderPoolSize(2);
+         msm.setSenderClass(SENDER_CLASS_NAME);
+         msm.setThreadAffinity(threadAffinity);
+         msm.setGrowOnDemand(true);
+         msm.init();
+
+         final Set<MessageSender> senders = new HashSet<>();
+         for (int i = 0; i < 5; i++) {
+            senders.add(msm.acquireSender());
+         }
+         assertEquals(senders.size(), 5);
+         assertEquals(msm.availableSenderCount(), 0);
+
+         senders.forEach(msm::releaseSender);
+         assertEquals(msm.availableSenderCount(), 5);
+         msm.close();
+      }
+   }
+
+   @Test
+   public void parallelInitTest() throws Exception {
+      final MessageSenderManager msm = new MessageSenderManager();
+      msm.setSenderPoolSize(8);
+      msm.setSenderClass(SENDER_CLASS_NAME);
+      msm.setInitConcurrency(8);
+
+      final Set<String> initThreads = ConcurrentHashMap.newKeySet();
+      TestSender.setOnInitListener(target -> {
+         initThreads.add(Thread.currentThread().getName());
+         try {
+            Thread.sleep(200); // simulates connecting to the target
+         } catch (final InterruptedException e) {
+            // no problem
+         }
+      });
+
+      try {
+         msm.init();
+      } finally {
+         TestSender.setOnInitListener(null);
+      }
+
+      assertEquals(msm.availableSenderCount(), 8);
+      assertTrue(initThreads.size() > 1, "Senders should be initialized in multiple threads.");
+      assertTrue(msm.getInitTime() < 8 * 200, "Parallel initialization took " + msm.getInitTime() + " ms.");
+      msm.close();
+   }
+
+   @Test
+   public void lazyInitTest() throws Exception {
+      final MessageSenderManager msm = new MessageSenderManager();
+      msm.setSenderPoolSize(10);
+      msm.setSenderClass(SENDER_CLASS_NAME);
+      msm.setInitialPoolSize(2);
+      msm.setGrowOnDemand(true);
+      msm.init();
+
+      assertEquals(msm.availableSenderCount(), 2);
+
+      final Set<MessageSender> senders = new HashSet<>();
+      for (int i = 0; i < 4; i++) {
+         senders.add(msm.acquireSender());
+      }
+      assertEquals(senders.size(), 4);
+
+      senders.forEach(msm::releaseSender);
+      assertEquals(msm.availableSenderCount(), 4);
+      msm.close();
+   }
+
    private static class SenderTask implements Runnable {
       private static final Random rnd = new Random(System.currentTimeMillis());
 
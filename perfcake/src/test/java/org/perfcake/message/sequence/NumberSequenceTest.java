@@ -25,6 +25,12 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Martin Večeřa <marvenec@gmail.com>
@@ -124,4 +130,86 @@ public class NumberSequenceTest {
       Assert.assertEquals(props.getProperty("v1"), "17");
    }
 
-}
\ No newline at end of file
+   @Test
+   public void boundariesTest() throws PerfCakeException {
+      final long[] steps = { -7, -3, -1, 0, 1, 2, 5 };
+      final long[] bounds = { -10, 0, 3, 10, 11, Long.MIN_VALUE, Long.MAX_VALUE };
+      final Properties props = new Properties();
+
+      for (final long step : steps) {
+         for (final long start : new long[] { -4, 0, 3, 10 }) {
+            for (final long end : bounds) {
+               for (final boolean cycle : new boolean[] { true, false }) {
+                  final NumberSequence s = new NumberSequence();
+                  s.setStart(start).setEnd(end).setCycle(cycle).setStep(step);
+                  s.reset();
+
+                  long expected = start;
+                  for (int i = 0; i < 30; i++) {
+                     s.publishNext("v1", props);
+                     Assert.assertEquals(Long.parseLong(props.getProperty("v1")), expected, String.format("start=%d, end=%d, step=%d, cycle=%b, i=%d", start, s.getEnd(), step, cycle, i));
+                     expected = expectedNext(expected, s);
+                  }
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Computes the next value of the sequence step by step the way the sequence is defined.
+    *
+    * @param current
+    *       The current value.
+    * @param s
+    *       The sequence configuration.
+    * @return The next value.
+    */
+   private static long expectedNext(final long current, final NumberSequence s) {
+      final long next = current + s.getStep();
+
+      if (s.getStep() > 0 && s.getEnd() > Long.MIN_VALUE && next > s.getEnd()) {
+         return s.isCycle() ? s.getStart() : s.getEnd();
+      } else if (s.getStep() <= 0 && s.getEnd() < Long.MAX_VALUE && next < s.getEnd()) {
+         return s.isCycle() ? s.getStart() : s.getEnd();
+      }
+
+      return next;
+   }
+
+   @Test
+   public void blockTest() throws Exception {
+      final NumberSequence s = new NumberSequence();
+      s.setStart(0);
+      s.setEnd(999);
+      s.setBlockSize(16);
+      s.reset();
+
+      final int threads = 8;
+      final int perThread = 1000; // a multiple of the block size would not exercise the boundary
+      final Set<String> seen = ConcurrentHashMap.newKeySet();
+      final AtomicInteger total = new AtomicInteger();
+      final ExecutorService es = Executors.newFixedThreadPool(threads);
+      for (int t = 0; t < threads; t++) {
+         es.submit(() -> {
+            final Properties props = new Properties();
+            for (int i = 0; i < perThread; i++) {
+               s.publishNext("v1", props);
+               seen.add(props.getProperty("v1"));
+               total.incrementAndGet();
+            }
+         });
+      }
+      es.shutdown();
+      Assert.assertTrue(es.awaitTermination(10, TimeUnit.SECONDS));
+
+      Assert.assertEquals(total.get(), threads * perThread);
+      Assert.assertEquals(seen.size(), 1000); // all the values were used, none outside of the range
+      seen.forEach(v -> Assert.assertTrue(Long.parseLong(v) >= 0 && Long.parseLong(v) <= 999));
+
+      s.reset();
+      final Properties props = new Properties();
+      s.publishNext("v1", props);
+      Assert.assertEquals(props.getProperty("v1"), "0", "Reset should forget the reserved blocks.");
+   }
+}
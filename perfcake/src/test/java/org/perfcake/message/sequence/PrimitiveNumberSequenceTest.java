@@ -46,4 +46,19 @@ public class PrimitiveNumberSequenceTest {
       Assert.assertEquals(props.getProperty("v1"), "2");
    }
 
+   @Test
+   public void testPartitionedSequence() throws PerfCakeException {
+      final Sequence s = new PrimitiveNumberSequence();
+      s.partition(1, 3);
+      s.reset();
+
+      final Properties props = new Properties();
+      s.publishNext("v1", props);
+      Assert.assertEquals(props.getProperty("v1"), "1");
+      s.publishNext("v1", props);
+      Assert.assertEquals(props.getProperty("v1"), "4");
+      s.publishNext("v1", props);
+      Assert.assertEquals(props.getProperty("v1"), "7");
+   }
+
 }
\ No newline at end of file
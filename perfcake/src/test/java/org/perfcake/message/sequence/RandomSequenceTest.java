@@ -55,4 +55,27 @@ public class RandomSequenceTest {
       Assert.assertEquals(seq.getMin(), 10);
       Assert.assertEquals(seq.getMax(), 384);
    }
-}
\ No newline at end of file
+
+   @Test
+   public void seedTest() throws PerfCakeException {
+      final RandomSequence seq = new RandomSequence();
+      seq.setSeed(42L);
+      seq.reset();
+
+      final Properties props = new Properties();
+      final StringBuilder first = new StringBuilder();
+      for (int i = 0; i < 10; i++) {
+         seq.publishNext("v1", props);
+         first.append(props.getProperty("v1")).append(",");
+      }
+
+      seq.reset();
+      final StringBuilder second = new StringBuilder();
+      for (int i = 0; i < 10; i++) {
+         seq.publishNext("v1", props);
+         second.append(props.getProperty("v1")).append(",");
+      }
+
+      Assert.assertEquals(second.toString(), first.toString());
+   }
+}
@@ -0,0 +1,148 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.sequence;
+
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the sequences under contention of many threads with the former implementations
+ * that serialized all the threads on a lock. The results are only reported as the difference depends heavily on the number of CPU cores.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "ueber", "performance" })
+public class SequenceContentionTest {
+
+   private static final int THREADS = 16;
+
+   private static final int ITERATIONS = 200_000;
+
+   /**
+    * The former number sequence advancing the value under a lock.
+    */
+   private static class LockingNumberSequence implements Sequence {
+
+      private long value = 0;
+
+      @Override
+      public synchronized void publishNext(final String sequenceId, final Properties values) {
+         values.setProperty(sequenceId, Long.toString(value++));
+      }
+   }
+
+   /**
+    * The former random sequence sharing a single random number generator.
+    */
+   private static class SharedRandomSequence implements Sequence {
+
+      private final Random rnd = new Random();
+
+      @Override
+      public void publishNext(final String sequenceId, final Properties values) {
+         values.setProperty(sequenceId, String.valueOf(rnd.nextInt(100)));
+      }
+   }
+
+   /**
+    * Measures the time needed by all the threads to publish the given number of values each.
+    *
+    * @param sequence
+    *       The sequence to measure.
+    * @return The time in nanoseconds.
+    */
+   private static long measure(final Sequence sequence) throws InterruptedException {
+      final ExecutorService es = Executors.newFixedThreadPool(THREADS);
+      final CountDownLatch ready = new CountDownLatch(THREADS);
+      final CountDownLatch go = new CountDownLatch(1);
+
+      for (int t = 0; t < THREADS; t++) {
+         es.submit(() -> {
+            final Properties values = new Properties();
+            ready.countDown();
+            go.await();
+            for (int i = 0; i < ITERATIONS; i++) {
+               sequence.publishNext("s", values);
+            }
+            return null;
+         });
+      }
+
+      ready.await();
+      final long start = System.nanoTime();
+      go.countDown();
+      es.shutdown();
+      Assert.assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+
+      return System.nanoTime() - start;
+   }
+
+   /**
+    * Measures both sequences several times after a warm-up round and reports the best times.
+    *
+    * @param name
+    *       The name of the compared sequences.
+    * @param former
+    *       The former implementation.
+    * @param current
+    *       The current implementation.
+    */
+   private static void compare(final String name, final Sequence former, final Sequence current) throws InterruptedException {
+      final long[] best = { Long.MAX_VALUE, Long.MAX_VALUE };
+      for (int round = 0; round < 4; round++) {
+         final long f = measure(former);
+         final long c = measure(current);
+         if (round > 0) {
+            best[0] = Math.min(best[0], f);
+            best[1] = Math.min(best[1], c);
+         }
+      }
+
+      Reporter.log(String.format("%s with %d threads: %.1f ns per value with the former implementation, %.1f ns per value now.",
+            name, THREADS, best[0] / (double) THREADS / ITERATIONS, best[1] / (double) THREADS / ITERATIONS), true);
+   }
+
+   @Test
+   public void numberSequenceTest() throws Exception {
+      final NumberSequence shared = new NumberSequence();
+      shared.reset();
+      final NumberSequence blocks = new NumberSequence().setBlockSize(64);
+      blocks.reset();
+
+      compare("NumberSequence", new LockingNumberSequence(), shared);
+      compare("NumberSequence with blocks", new LockingNumberSequence(), blocks);
+   }
+
+   @Test
+   public void randomSequenceTest() throws Exception {
+      final RandomSequence current = new RandomSequence();
+      current.reset();
+
+      compare("RandomSequence", new SharedRandomSequence(), current);
+   }
+}
@@ -0,0 +1,202 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.message.sequence;
+
+import org.perfcake.PerfCakeException;
+import org.perfcake.message.Message;
+import org.perfcake.message.MessageTemplate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies the lazy publishing of sequence values in {@link SequenceSnapshot}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "unit" })
+public class SequenceSnapshotTest {
+
+   /**
+    * Counts the calls to {@link #publishNext(String, Properties)}.
+    */
+   private static class CountingSequence implements Sequence {
+
+      private final AtomicInteger calls = new AtomicInteger();
+
+      private final boolean multiValued;
+
+      private CountingSequence() {
+         this(true);
+      }
+
+      private CountingSequence(final boolean multiValued) {
+         this.multiValued = multiValued;
+      }
+
+      @Override
+      public void publishNext(final String sequenceId, final Properties values) {
+         values.setProperty(sequenceId, String.valueOf(calls.getAndIncrement()));
+         if (multiValued) {
+            values.setProperty(sequenceId + "_extra", "extra");
+         }
+      }
+
+      @Override
+      public boolean isMultiValued() {
+         return multiValued;
+      }
+   }
+
+   private SequenceManager newManager(final CountingSequence... sequences) throws PerfCakeException {
+      final SequenceManager manager = new SequenceManager();
+      for (int i = 0; i < sequences.length; i++) {
+         manager.addSequence("s" + i, sequences[i]);
+      }
+
+      return manager;
+   }
+
+   @Test
+   public void lazyPublishingTest() throws PerfCakeException {
+      final CountingSequence used = new CountingSequence();
+      final CountingSequence unused = new CountingSequence();
+      final SequenceManager manager = newManager(used, unused);
+      final MessageTemplate template = new MessageTemplate(new Message("value @{s0}, again @{s0}"), 1, Collections.emptyList());
+
+      final SequenceSnapshot snapshot = manager.getSnapshot();
+      for (int i = 0; i < 3; i++) {
+         snapshot.clear();
+         snapshot.setProperty("other", "o");
+         Assert.assertEquals(template.getFilteredMessage(snapshot).getPayload(), "value " + i + ", again " + i);
+         Assert.assertEquals(snapshot.getProperty("other"), "o");
+      }
+
+      Assert.assertEquals(used.calls.get(), 3);
+      Assert.assertEquals(unused.calls.get(), 0, "Unused sequences must not be advanced.");
+   }
+
+   @Test
+   public void materializationTest() throws PerfCakeException {
+      final CountingSequence first = new CountingSequence();
+      final CountingSequence second = new CountingSequence();
+      final SequenceManager manager = newManager(first, second);
+
+      SequenceSnapshot snapshot = manager.getSnapshot();
+      Assert.assertEquals(snapshot.getProperty("s0"), "0");
+      Assert.assertEquals(snapshot.stringPropertyNames().size(), 4);
+      Assert.assertEquals(snapshot.getProperty("s0"), "0");
+      Assert.assertEquals(snapshot.getProperty("s1"), "0");
+      Assert.assertEquals(first.calls.get(), 1);
+      Assert.assertEquals(second.calls.get(), 1);
+
+      // an unknown key might have been published by any sequence
+      snapshot = manager.getSnapshot();
+      Assert.assertEquals(snapshot.getProperty("s1_extra"), "extra");
+      Assert.assertEquals(snapshot.getProperty("s0"), "1");
+      Assert.assertNull(snapshot.getProperty("missing"));
+
+      snapshot.clear();
+      Assert.assertEquals(snapshot.getProperty("s1"), "2");
+      Assert.assertEquals(first.calls.get(), 2);
+   }
+
+   @Test
+   public void unknownKeyTest() throws PerfCakeException {
+      final CountingSequence single = new CountingSequence(false);
+      final CountingSequence multi = new CountingSequence(true);
+      final SequenceSnapshot snapshot = newManager(single, multi).getSnapshot();
+
+      // only the sequences publishing more than their own value can know the key
+      Assert.assertNull(snapshot.getProperty("missing"));
+      Assert.assertNull(snapshot.get("missing"));
+      Assert.assertEquals(single.calls.get(), 0, "Single valued sequences must not be advanced by unknown keys.");
+      Assert.assertEquals(multi.calls.get(), 1);
+
+      Assert.assertEquals(snapshot.getProperty("s1_extra"), "extra");
+      Assert.assertEquals(snapshot.getProperty("s0"), "0");
+      Assert.assertEquals(multi.calls.get(), 1);
+
+      snapshot.clear();
+      Assert.assertNull(snapshot.getProperty("s0_extra"));
+      Assert.assertEquals(single.calls.get(), 1);
+      Assert.assertEquals(multi.calls.get(), 2);
+   }
+
+   @Test
+   public void explicitValueTest() throws PerfCakeException {
+      final CountingSequence sequence = new CountingSequence();
+      final SequenceSnapshot snapshot = newManager(sequence).getSnapshot();
+
+      final Properties initial = new Properties();
+      initial.setProperty("s0", "fixed");
+      initial.setProperty("session", "42");
+      snapshot.putAll(initial);
+
+      Assert.assertEquals(snapshot.getProperty("s0"), "fixed");
+      Assert.assertEquals(snapshot.getProperty("session"), "42");
+      Assert.assertTrue(snapshot.containsKey("s0"));
+      Assert.assertEquals(sequence.calls.get(), 0);
+   }
+
+   @Test
+   public void eagerPublishingTest() throws Exception {
+      final SequenceManager manager = new SequenceManager();
+      manager.addSequence("thread", new ThreadIdSequence());
+      final SequenceSnapshot snapshot = manager.getSnapshot();
+
+      final String[] fromOtherThread = new String[1];
+      final Thread reader = new Thread(() -> fromOtherThread[0] = snapshot.getProperty("thread"));
+      reader.start();
+      reader.join();
+
+      Assert.assertEquals(fromOtherThread[0], String.valueOf(Thread.currentThread().getId()));
+   }
+
+   @Test
+   public void copyAndSerializationTest() throws Exception {
+      final SequenceSnapshot snapshot = newManager(new CountingSequence()).getSnapshot();
+      snapshot.setProperty("other", "o");
+
+      final Properties copy = new Properties();
+      copy.putAll(snapshot);
+      Assert.assertEquals(copy.getProperty("s0"), "0");
+      Assert.assertEquals(copy.getProperty("other"), "o");
+      Assert.assertEquals(snapshot.clone(), copy);
+
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+         oos.writeObject(snapshot);
+      }
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         final Object read = ois.readObject();
+         Assert.assertEquals(read.getClass(), Properties.class);
+         Assert.assertEquals(read, copy);
+      }
+   }
+}
@@ -82,6 +82,7 @@ public class SequencesIntegrationTest extends TestSetup {
       Assert.assertEquals(targets.get(9), "test-null-4");
 
       ScenarioRetractor retractor = new ScenarioRetractor(scenario);
-      Assert.assertEquals(retractor.getSequenceManager().getSnapshot().getProperty("counterPlus"), "15");
+      // counterPlus is not used anywhere in the scenario, so it was not advanced
+      Assert.assertEquals(retractor.getSequenceManager().getSnapshot().getProperty("counterPlus"), "10");
    }
 }
@@ -0,0 +1,137 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.reporting;
+
+import org.perfcake.PerfCakeConst;
+import org.perfcake.TestUtil;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+
+/**
+ * Tests {@link org.perfcake.reporting.MeasurementUnit}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "unit" })
+public class MeasurementUnitTest {
+
+   @Test
+   public void testStandardResults() {
+      final MeasurementUnit mu = new MeasurementUnit(1);
+      Assert.assertTrue(mu.hasResult(StandardResult.FAILURES));
+      Assert.assertFalse(mu.hasResult(StandardResult.THREADS));
+      Assert.assertNull(mu.getResult(PerfCakeConst.THREADS_TAG));
+
+      mu.setResult(StandardResult.THREADS, 10);
+      mu.setResult(StandardResult.REQUEST_SIZE, 1024L);
+      mu.setResult(StandardResult.SCHEDULE_LAG, 0.25d);
+      mu.appendResult(PerfCakeConst.RESPONSE_SIZE_TAG, 2048L);
+      mu.appendResult("custom", "value");
+      mu.setAttributes(TestUtil.props("a", "1"));
+      mu.setFailure(new Exception());
+
+      Assert.assertEquals(mu.getResult(PerfCakeConst.THREADS_TAG), 10);
+      Assert.assertEquals(mu.getResult(PerfCakeConst.REQUEST_SIZE_TAG), 1024L);
+      Assert.assertEquals(mu.getResult(PerfCakeConst.SCHEDULE_LAG_TAG), 0.25d);
+      Assert.assertEquals(mu.getLongResult(StandardResult.RESPONSE_SIZE), 2048L);
+      Assert.assertEquals(mu.getDoubleResult(StandardResult.SCHEDULE_LAG), 0.25d);
+      Assert.assertEquals(mu.getLongResult(StandardResult.FAILURES), 1L);
+      Assert.assertEquals(mu.getResult(PerfCakeConst.ATTRIBUTES_TAG), TestUtil.props("a", "1"));
+
+      Assert.assertEquals(mu.getCustomResults().size(), 1, "Only the custom result should be stored in the map.");
+      final Map<String, Object> results = mu.getResults();
+      Assert.assertEquals(results.size(), 7);
+      Assert.assertEquals(results.get("custom"), "value");
+      Assert.assertEquals(results.get(PerfCakeConst.FAILURES_TAG), 1L);
+
+      mu.appendResult(PerfCakeConst.THREADS_TAG, "many"); // non-numeric values are kept as custom results
+      Assert.assertFalse(mu.hasResult(StandardResult.THREADS));
+      Assert.assertEquals(mu.getResult(PerfCakeConst.THREADS_TAG), "many");
+
+      mu.reset(2);
+      Assert.assertEquals(mu.getResults().size(), 1);
+      Assert.assertEquals(mu.getLongResult(StandardResult.FAILURES), 0L);
+      Assert.assertNull(mu.getAttributes());
+   }
+
+   @Test
+   public void testStreaming() throws Exception {
+      final MeasurementUnit mu = new MeasurementUnit(42);
+      mu.setResult(StandardResult.THREADS, 10);
+      mu.setResult(StandardResult.REQUEST_SIZE, 1024L);
+      mu.setResult(StandardResult.RESPONSE_SIZE, 2048L);
+      mu.setResult(StandardResult.GENERATOR_CPU, 12.5d);
+      mu.setResult(StandardResult.QUEUE_DEPTH, 3);
+      mu.appendResult("custom", 1.5d);
+      mu.setAttributes(TestUtil.props("a", "1", PerfCakeConst.ITERATION_NUMBER_PROPERTY, "42"));
+
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (final ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+         mu.streamOut(oos);
+      }
+
+      try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         final MeasurementUnit read = MeasurementUnit.streamIn(ois);
+         Assert.assertEquals(read.getIteration(), 42L);
+         Assert.assertEquals(read.getResults(), mu.getResults());
+         Assert.assertEquals(read.getDoubleResult(StandardResult.GENERATOR_CPU), 12.5d);
+         Assert.assertEquals(read.getCustomResults().size(), 1);
+      }
+   }
+
+   @Test
+   public void testDataStreaming() throws Exception {
+      final MeasurementUnit mu = new MeasurementUnit(42);
+      mu.setResult(StandardResult.THREADS, 10);
+      mu.setResult(StandardResult.GENERATOR_CPU, 12.5d);
+      mu.appendResult("long", 7L);
+      mu.appendResult("text", "value");
+      mu.appendResult("other", new StringBuilder("converted"));
+      mu.setAttributes(TestUtil.props("a", "1", PerfCakeConst.ITERATION_NUMBER_PROPERTY, "42"));
+      mu.setFailure(new IllegalStateException("failed"));
+
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (final DataOutputStream out = new DataOutputStream(bytes)) {
+         mu.writeTo(out);
+      }
+
+      try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         final MeasurementUnit read = MeasurementUnit.readFrom(in);
+         Assert.assertEquals(read.getIteration(), 42L);
+         Assert.assertEquals(read.getLongResult(StandardResult.THREADS), 10L);
+         Assert.assertEquals(read.getDoubleResult(StandardResult.GENERATOR_CPU), 12.5d);
+         Assert.assertEquals(read.getResult("long"), 7L);
+         Assert.assertEquals(read.getResult("text"), "value");
+         Assert.assertEquals(read.getResult("other"), "converted", "Other values are transferred as strings.");
+         Assert.assertEquals(read.getAttributes().getProperty("a"), "1");
+         Assert.assertEquals(read.getFailure().getMessage(), "java.lang.IllegalStateException: failed");
+         Assert.assertEquals(in.read(), -1, "The whole unit must be read.");
+      }
+   }
+}
@@ -0,0 +1,219 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.reporting;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests {@link org.perfcake.reporting.ReportingPipeline}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "unit" })
+public class ReportingPipelineTest {
+
+   @Test
+   public void testConcurrentProducers() throws InterruptedException {
+      final int producers = 4;
+      final int perProducer = 50_000;
+      final AtomicLong reportedSum = new AtomicLong();
+      final AtomicLong callbacks = new AtomicLong();
+      final List<Long> order = new ArrayList<>();
+      final ReportingPipeline pipeline = new ReportingPipeline(64, ReportManager.OverflowPolicy.BLOCK, 1, mu -> {
+         reportedSum.addAndGet(mu.getIteration());
+         if (mu.getIteration() < perProducer) { // only the first producer, its units must keep their order
+            order.add(mu.getIteration());
+         }
+      });
+      Assert.assertEquals(pipeline.getCapacity(), 64);
+      pipeline.start();
+
+      final List<Thread> threads = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+         final long base = (long) p * perProducer;
+         threads.add(new Thread(() -> {
+            for (long i = 0; i < perProducer; i++) {
+               Assert.assertTrue(pipeline.submit(new MeasurementUnit(base + i), callbacks::incrementAndGet));
+            }
+         }));
+      }
+
+      threads.forEach(Thread::start);
+      for (final Thread thread : threads) {
+         thread.join(60_000);
+      }
+
+      pipeline.shutdown();
+      Assert.assertTrue(pipeline.awaitTermination(10, TimeUnit.SECONDS));
+
+      final long total = (long) producers * perProducer;
+      Assert.assertEquals(reportedSum.get(), total * (total - 1) / 2);
+      Assert.assertEquals(callbacks.get(), total);
+      Assert.assertEquals(pipeline.getDropped(), 0);
+      Assert.assertEquals(pipeline.getBacklog(), 0);
+      for (int i = 0; i < order.size(); i++) {
+         Assert.assertEquals(order.get(i), Long.valueOf(i));
+      }
+   }
+
+   @Test
+   public void testCallbacksOnShutdown() throws InterruptedException {
+      for (int round = 0; round < 20; round++) {
+         final AtomicLong submitted = new AtomicLong();
+         final AtomicLong callbacks = new AtomicLong();
+         final ReportingPipeline pipeline = new ReportingPipeline(64, ReportManager.OverflowPolicy.BLOCK, 1, mu -> {
+         });
+         pipeline.start();
+
+         // the producers keep submitting while the pipeline is being closed, each unit must be released exactly once
+         final List<Thread> threads = new ArrayList<>();
+         for (int p = 0; p < 4; p++) {
+            threads.add(new Thread(() -> {
+               for (long i = 0; i < 5_000; i++) {
+                  submitted.incrementAndGet();
+                  pipeline.submit(new MeasurementUnit(i), callbacks::incrementAndGet);
+               }
+            }));
+         }
+
+         threads.forEach(Thread::start);
+         Thread.sleep(1);
+         pipeline.shutdown();
+         for (final Thread thread : threads) {
+            thread.join(60_000);
+         }
+         Assert.assertTrue(pipeline.awaitTermination(10, TimeUnit.SECONDS));
+
+         Assert.assertEquals(callbacks.get(), submitted.get());
+         Assert.assertEquals(pipeline.getBacklog(), 0);
+      }
+   }
+
+   @Test
+   public void testDropAndSample() throws InterruptedException {
+      for (final ReportManager.OverflowPolicy policy : new ReportManager.OverflowPolicy[] { ReportManager.OverflowPolicy.DROP, ReportManager.OverflowPolicy.SAMPLE }) {
+         final CountDownLatch release = new CountDownLatch(1);
+         final AtomicLong reported = new AtomicLong();
+         final AtomicLong callbacks = new AtomicLong();
+         final ReportingPipeline pipeline = new ReportingPipeline(4, policy, 2, mu -> {
+            try {
+               release.await(); // keeps the reporting thread busy with the first unit
+            } catch (final InterruptedException e) {
+               // we are done
+            }
+            reported.incrementAndGet();
+         });
+         pipeline.start();
+
+         for (int i = 0; i < 4; i++) { // the unit being reported keeps its slot until it is done
+            Assert.assertTrue(pipeline.submit(new MeasurementUnit(i), callbacks::incrementAndGet));
+         }
+         Assert.assertEquals(pipeline.getBacklog(), 4);
+
+         if (policy == ReportManager.OverflowPolicy.DROP) {
+            for (int i = 0; i < 10; i++) {
+               Assert.assertFalse(pipeline.submit(new MeasurementUnit(4), callbacks::incrementAndGet));
+            }
+            Assert.assertEquals(pipeline.getDropped(), 10);
+         } else {
+            Assert.assertFalse(pipeline.submit(new MeasurementUnit(4), callbacks::incrementAndGet));
+            Assert.assertEquals(pipeline.getDropped(), 1);
+
+            // the second unit is sampled and waits for a free slot
+            final Thread sampled = new Thread(() -> pipeline.submit(new MeasurementUnit(5), callbacks::incrementAndGet));
+            sampled.start();
+            Thread.sleep(100);
+            Assert.assertTrue(sampled.isAlive(), "The sampled unit should wait for a free slot.");
+            release.countDown();
+            sampled.join(10_000);
+            Assert.assertFalse(sampled.isAlive());
+            Assert.assertEquals(pipeline.getDropped(), 1);
+         }
+
+         release.countDown();
+         pipeline.shutdown();
+         Assert.assertTrue(pipeline.awaitTermination(10, TimeUnit.SECONDS));
+         Assert.assertEquals(callbacks.get(), reported.get() + pipeline.getDropped());
+         Assert.assertFalse(pipeline.submit(new MeasurementUnit(6), null), "No more units should be accepted after shutdown.");
+      }
+   }
+
+   @Test
+   public void testShutdownNowAndLag() throws InterruptedException {
+      final CountDownLatch release = new CountDownLatch(1);
+      final AtomicLong reported = new AtomicLong();
+      final AtomicLong callbacks = new AtomicLong();
+      final ReportingPipeline pipeline = new ReportingPipeline(16, ReportManager.OverflowPolicy.BLOCK, 1, mu -> {
+         try {
+            release.await();
+         } catch (final InterruptedException e) {
+            // we are done
+         }
+         reported.incrementAndGet();
+      });
+      pipeline.start();
+
+      for (int i = 0; i < 10; i++) {
+         Assert.assertTrue(pipeline.submit(new MeasurementUnit(i), callbacks::incrementAndGet));
+      }
+
+      Thread.sleep(50);
+      pipeline.shutdownNow();
+      release.countDown();
+      Assert.assertTrue(pipeline.awaitTermination(10, TimeUnit.SECONDS));
+
+      Assert.assertEquals(reported.get(), 1, "Only the unit being reported should have been reported.");
+      Assert.assertEquals(callbacks.get(), 10, "The discarded units must still be released.");
+      Assert.assertEquals(pipeline.getBacklog(), 0);
+      Assert.assertEquals(pipeline.getDropped(), 0);
+   }
+
+   @Test
+   public void testReportingLag() throws InterruptedException {
+      final AtomicLong observedLag = new AtomicLong();
+      final ReportingPipeline[] pipeline = new ReportingPipeline[1];
+      pipeline[0] = new ReportingPipeline(16, ReportManager.OverflowPolicy.BLOCK, 1, mu -> {
+         if (mu.getIteration() == 0) {
+            try {
+               Thread.sleep(100); // the second unit waits in the meantime
+            } catch (final InterruptedException e) {
+               // we are done
+            }
+         } else {
+            observedLag.set((long) pipeline[0].getLag());
+         }
+      });
+      pipeline[0].start();
+
+      pipeline[0].submit(new MeasurementUnit(0), null);
+      pipeline[0].submit(new MeasurementUnit(1), null);
+      pipeline[0].shutdown();
+      Assert.assertTrue(pipeline[0].awaitTermination(10, TimeUnit.SECONDS));
+
+      Assert.assertTrue(observedLag.get() >= 50, "The second unit should have waited for the first one, the lag was " + observedLag.get() + " ms.");
+   }
+}
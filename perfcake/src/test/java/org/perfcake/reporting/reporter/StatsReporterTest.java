@@ -24,6 +24,7 @@ import org.perfcake.RunInfo;
 import org.perfcake.TestSetup;
 import org.perfcake.common.Period;
 import org.perfcake.common.PeriodType;
+import org.perfcake.reporting.FakeMeasurementUnit;
 import org.perfcake.reporting.Measurement;
 import org.perfcake.reporting.MeasurementUnit;
 import org.perfcake.reporting.Quantity;
@@ -46,6 +47,7 @@ import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests all {@link org.perfcake.reporting.reporter.StatsReporter} implemetations.
@@ -316,6 +318,88 @@ public class StatsReporterTest extends TestSetup {
       Assert.assertNotNull(dest.getLastMeasurement(), "Destination should have registered some measurements.");
    }
 
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testConcurrentReporting() throws Exception {
+      final int threads = 4;
+      final int perThread = 2_500;
+      final ResponseTimeStatsReporter rtsr = new ResponseTimeStatsReporter();
+      final ResponseTimeHistogramReporter rthr = new ResponseTimeHistogramReporter();
+      final DummyDestination statsDest = new DummyDestination();
+      final DummyDestination histogramDest = new DummyDestination();
+      rtsr.registerDestination(statsDest, new Period(PeriodType.ITERATION, 1000));
+      rthr.registerDestination(histogramDest, new Period(PeriodType.ITERATION, 1000));
+
+      final ReportManager rm = new ReportManager();
+      rm.setConcurrentReporting(true);
+      rm.registerReporter(rtsr);
+      rm.registerReporter(rthr);
+      rm.setRunInfo(new RunInfo(new Period(PeriodType.ITERATION, threads * perThread)));
+      rm.start();
+
+      final AtomicInteger foreignCallbacks = new AtomicInteger();
+      final List<Thread> senders = new LinkedList<>();
+      for (int t = 0; t < threads; t++) {
+         final double time = t + 1;
+         senders.add(new Thread(() -> {
+            final Thread sender = Thread.currentThread();
+            for (int i = 0; i < perThread; i++) {
+               final FakeMeasurementUnit mu = new FakeMeasurementUnit(rm.getRunInfo().getNextIteration());
+               mu.startMeasure();
+               mu.setTime(time);
+               try {
+                  rm.report(mu, () -> {
+                     if (Thread.currentThread() != sender) {
+                        foreignCallbacks.incrementAndGet();
+                     }
+                  });
+               } catch (final ReportingException e) {
+                  foreignCallbacks.incrementAndGet();
+               }
+            }
+         }));
+      }
+
+      senders.forEach(Thread::start);
+      for (final Thread sender : senders) {
+         sender.join();
+      }
+      rm.stop();
+
+      Assert.assertEquals(foreignCallbacks.get(), 0, "All the units should have been reported in the sender threads.");
+      Assert.assertEquals(rm.getReportingBacklog(), 0);
+
+      final Measurement m = statsDest.getLastMeasurement();
+      Assert.assertEquals(m.getIteration(), threads * perThread - 1);
+      Assert.assertEquals(((Quantity<Number>) m.get(StatsReporter.AVERAGE)).getNumber().doubleValue(), 2.5d, 0.0001d);
+      Assert.assertEquals(((Quantity<Number>) m.get(StatsReporter.MINIMUM)).getNumber().doubleValue(), 1d);
+      Assert.assertEquals(((Quantity<Number>) m.get(StatsReporter.MAXIMUM)).getNumber().doubleValue(), 4d);
+
+      Assert.assertEquals(histogramDest.getLastMeasurement().get("perc1.000000000000"), "4");
+   }
+
+   @Test
+   public void testConcurrentReportingFallback() throws Exception {
+      final ClassifyingReporter classifying = new ClassifyingReporter();
+      final ReportManager rm = new ReportManager();
+      rm.setConcurrentReporting(true);
+      rm.registerReporter(new ResponseTimeStatsReporter());
+      rm.registerReporter(classifying);
+      rm.setRunInfo(new RunInfo(new Period(PeriodType.ITERATION, 1)));
+      rm.start();
+
+      final Thread[] callbackThread = new Thread[1];
+      final MeasurementUnit mu = rm.newMeasurementUnit();
+      mu.startMeasure();
+      mu.stopMeasure();
+      rm.report(mu, () -> callbackThread[0] = Thread.currentThread());
+      rm.stop();
+
+      Assert.assertFalse(classifying.isConcurrent());
+      Assert.assertNotNull(callbackThread[0]);
+      Assert.assertNotEquals(callbackThread[0], Thread.currentThread(), "The unit should have been reported by the reporting thread.");
+   }
+
    private static class Worker implements Runnable {
       private ReportManager rm;
 
@@ -138,6 +138,40 @@ public class AccumulatorsTest {
       Assert.assertEquals(aa.getResult(), (Long) 0L, "SlidingWindowSumLongAccumulator must be 0 after reset.");
    }
 
+   @Test
+   public void slidingWindowExtremesAccumulatorTest() {
+      final int WINDOW = 37, COUNT = 2000;
+      final Random r = new Random(42);
+      final double[] values = new double[COUNT];
+
+      final SlidingWindowMinAccumulator min = new SlidingWindowMinAccumulator(WINDOW);
+      final SlidingWindowMaxAccumulator max = new SlidingWindowMaxAccumulator(WINDOW);
+      final SlidingWindowAvgAccumulator avg = new SlidingWindowAvgAccumulator(WINDOW);
+
+      for (int i = 0; i < COUNT; i++) {
+         values[i] = r.nextInt(200) - 150; // mostly negative values with plenty of duplicates
+         min.add(values[i]);
+         max.add(values[i]);
+         avg.add(values[i]);
+
+         double expectedMin = Double.POSITIVE_INFINITY, expectedMax = Double.NEGATIVE_INFINITY, sum = 0;
+         for (int j = Math.max(0, i - WINDOW + 1); j <= i; j++) {
+            expectedMin = Math.min(expectedMin, values[j]);
+            expectedMax = Math.max(expectedMax, values[j]);
+            sum = sum + values[j];
+         }
+
+         Assert.assertEquals(min.getResult(), expectedMin, "Wrong minimum after " + (i + 1) + " values.");
+         Assert.assertEquals(max.getResult(), expectedMax, "Wrong maximum after " + (i + 1) + " values.");
+         Assert.assertEquals(avg.getResult(), sum / Math.min(i + 1, WINDOW), 1e-9, "Wrong average after " + (i + 1) + " values.");
+      }
+
+      min.reset();
+      max.reset();
+      Assert.assertEquals(min.getResult(), Double.NaN);
+      Assert.assertEquals(max.getResult(), Double.NaN);
+   }
+
    @Test
    public void maxLongValueAccumulatorTest() {
       final MaxLongValueAccumulator mlva = new MaxLongValueAccumulator();
@@ -0,0 +1,153 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.scenario;
+
+import org.perfcake.PerfCakeException;
+import org.perfcake.TestSetup;
+import org.perfcake.common.Period;
+import org.perfcake.common.PeriodType;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the distributed execution of a scenario by a coordinator and several workers.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "ueber" })
+public class DistributedExecutionTest extends TestSetup {
+
+   @Test
+   public void testIterationsSplit() {
+      final DistributedCoordinator coordinator = new DistributedCoordinator("test-distributed", 0, 3);
+      final Period duration = new Period(PeriodType.ITERATION, 1000);
+
+      Assert.assertEquals(coordinator.getWorkerDuration(duration, 0).getPeriod(), 334);
+      Assert.assertEquals(coordinator.getWorkerDuration(duration, 1).getPeriod(), 333);
+      Assert.assertEquals(coordinator.getWorkerDuration(duration, 2).getPeriod(), 333);
+
+      final Period time = new Period(PeriodType.TIME, 1000);
+      Assert.assertEquals(coordinator.getWorkerDuration(time, 2), time);
+   }
+
+   @Test
+   public void testDistributedExecution() throws Exception {
+      final int port = getFreePort();
+      final ExecutorService workers = Executors.newFixedThreadPool(2);
+
+      try {
+         final List<Future<?>> results = new ArrayList<>();
+         for (int i = 0; i < 2; i++) {
+            results.add(workers.submit(() -> {
+               new DistributedWorker("localhost", port).setConnectTimeout(30_000).setSecret("s3cr3t").setAllowedProperties("test.*").run();
+               return null;
+            }));
+         }
+
+         final Properties props = new Properties();
+         props.setProperty("test.iterations", "1001");
+         final DistributedCoordinator coordinator = new DistributedCoordinator("test-distributed", port, 2).setConnectTimeout(30_000).setSecret("s3cr3t").setProperties(props);
+         System.setProperty("test.iterations", "1001");
+         try {
+            coordinator.execute();
+         } finally {
+            System.clearProperty("test.iterations");
+         }
+
+         for (final Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+         }
+
+         Assert.assertEquals(coordinator.getReceivedCount(), 1001);
+         Assert.assertEquals(coordinator.getReceivedCount(0), 501);
+         Assert.assertEquals(coordinator.getReceivedCount(1), 500);
+      } finally {
+         workers.shutdownNow();
+      }
+   }
+
+   @Test(expectedExceptions = PerfCakeException.class)
+   public void testMissingWorkers() throws Exception {
+      new DistributedCoordinator("test-distributed", getFreePort(), 1).setConnectTimeout(500).execute();
+   }
+
+   @Test
+   public void testWrongSecret() throws Exception {
+      final int port = getFreePort();
+      final ExecutorService workers = Executors.newSingleThreadExecutor();
+
+      try {
+         final Future<?> worker = workers.submit(() -> {
+            new DistributedWorker("localhost", port).setConnectTimeout(30_000).setSecret("wrong").run();
+            return null;
+         });
+
+         try {
+            new DistributedCoordinator("test-distributed", port, 1).setConnectTimeout(3_000).setSecret("s3cr3t").execute();
+            Assert.fail("The worker must not be accepted.");
+         } catch (final PerfCakeException e) {
+            Assert.assertTrue(e.getMessage().contains("Only 0 of 1"), e.getMessage());
+         }
+
+         try {
+            worker.get(30, TimeUnit.SECONDS);
+            Assert.fail("The worker must not accept the coordinator.");
+         } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof PerfCakeException, e.getCause().toString());
+         }
+      } finally {
+         workers.shutdownNow();
+      }
+   }
+
+   @Test(expectedExceptions = PerfCakeException.class, expectedExceptionsMessageRegExp = ".*shared secret.*")
+   public void testSecretRequiredOnPublicAddress() throws Exception {
+      new DistributedCoordinator("test-distributed", getFreePort(), 1).setBindAddress("0.0.0.0").setSecret(null).setConnectTimeout(500).execute();
+   }
+
+   @Test
+   public void testAllowedProperties() {
+      final DistributedWorker worker = new DistributedWorker("localhost", 0).setAllowedProperties("test.iterations, my.*");
+
+      Assert.assertTrue(worker.isAllowedProperty("test.iterations"));
+      Assert.assertTrue(worker.isAllowedProperty("my.property"));
+      Assert.assertTrue(worker.isAllowedProperty("perfcake.messages.dir"));
+      Assert.assertFalse(worker.isAllowedProperty("test.iterations.other"));
+      Assert.assertFalse(worker.isAllowedProperty("java.class.path"));
+   }
+
+   private static int getFreePort() throws IOException {
+      try (final ServerSocket socket = new ServerSocket(0)) {
+         return socket.getLocalPort();
+      }
+   }
+}
@@ -25,6 +25,7 @@ import org.perfcake.TestSetup;
 import org.perfcake.common.BoundPeriod;
 import org.perfcake.common.Period;
 import org.perfcake.common.PeriodType;
+import org.perfcake.message.MappedContentStore;
 import org.perfcake.message.Message;
 import org.perfcake.message.MessageTemplate;
 import org.perfcake.message.generator.DefaultMessageGenerator;
@@ -47,6 +48,7 @@ import org.testng.annotations.Test;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
@@ -306,4 +308,35 @@ public class XmlFactoryTest extends TestSetup {
 
       Assert.assertTrue(vm.isFastForward(), "Fast forward did not load properly.");
    }
+
+   @Test
+   public void parseBinaryMessagesTest() throws Exception {
+      final XmlFactory binaryScenarioFactory = new XmlFactory();
+      binaryScenarioFactory.init(Utils.getResourceAsUrl("/scenarios/test-binary-messages.xml"));
+
+      final List<MessageTemplate> messages = binaryScenarioFactory.parseMessages(new ValidationManager());
+      Assert.assertEquals(messages.size(), 5);
+
+      final Message fromFile = messages.get(0).getMessage();
+      Assert.assertTrue(fromFile.isBinary());
+      Assert.assertEquals((byte[]) fromFile.getPayload(), new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 0x00, '$', '{', 'x', '}', (byte) 0xff, '\n', (byte) 0x80 }, "Binary content must not be filtered.");
+      Assert.assertEquals(fromFile.getPayloadSize(StandardCharsets.UTF_8), 12L);
+
+      final Message fromContent = messages.get(1).getMessage();
+      Assert.assertTrue(fromContent.isBinary());
+      Assert.assertEquals((byte[]) fromContent.getPayload(), new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 0x00, '$' });
+
+      final Message text = messages.get(2).getMessage();
+      Assert.assertFalse(text.isBinary());
+      Assert.assertEquals(text.getPayload(), MESSAGE2_CONTENT);
+
+      final Message mapped = messages.get(3).getMessage();
+      Assert.assertSame(mapped.getMappedPayload(), MappedContentStore.get("binary-message.bin"));
+      Assert.assertEquals(mapped.getEncodedPayload(StandardCharsets.UTF_8), fromFile.getPayload());
+
+      final Properties attributes = new Properties();
+      attributes.setProperty("number", "2");
+      Assert.assertTrue(messages.get(4).getMessage().getMappedPayload().isTemplate());
+      Assert.assertEquals(messages.get(4).getFilteredMessage(attributes).getPayload().toString(), MESSAGE2_CONTENT);
+   }
 }
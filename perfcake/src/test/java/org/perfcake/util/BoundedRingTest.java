@@ -0,0 +1,117 @@
+/*
+ * -----------------------------------------------------------------------\
+ * PerfCake
+ *  
+ * Copyright (C) 2010 - 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package org.perfcake.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests {@link BoundedRing}.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+@Test(groups = { "unit" })
+public class BoundedRingTest {
+
+   @Test
+   public void testCapacity() {
+      Assert.assertEquals(new BoundedRing<>(1).capacity(), 1);
+      Assert.assertEquals(new BoundedRing<>(2).capacity(), 2);
+      Assert.assertEquals(new BoundedRing<>(3).capacity(), 4);
+      Assert.assertEquals(new BoundedRing<>(1000).capacity(), 1024);
+      Assert.assertEquals(new BoundedRing<>(1024).capacity(), 1024);
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testInvalidCapacity() {
+      new BoundedRing<>(0);
+   }
+
+   @Test
+   public void testFifo() {
+      final BoundedRing<Integer> ring = new BoundedRing<>(4);
+      Assert.assertTrue(ring.isEmpty());
+      Assert.assertNull(ring.poll());
+
+      for (int lap = 0; lap < 3; lap++) { // make sure the slots are reused correctly
+         for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(ring.offer(lap * 10 + i));
+         }
+         Assert.assertFalse(ring.offer(-1), "The ring should be full.");
+         Assert.assertEquals(ring.size(), 4);
+
+         for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(ring.poll(), Integer.valueOf(lap * 10 + i));
+         }
+         Assert.assertNull(ring.poll());
+         Assert.assertTrue(ring.isEmpty());
+      }
+   }
+
+   @Test
+   public void testConcurrentAccess() throws InterruptedException {
+      final int producers = 4;
+      final int consumers = 4;
+      final int perProducer = 200_000;
+      final BoundedRing<Long> ring = new BoundedRing<>(64);
+      final AtomicLong consumedCount = new AtomicLong();
+      final AtomicLong consumedSum = new AtomicLong();
+      final List<Thread> threads = new ArrayList<>();
+
+      for (int p = 0; p < producers; p++) {
+         final long base = (long) p * perProducer;
+         threads.add(new Thread(() -> {
+            for (long i = 1; i <= perProducer; i++) {
+               while (!ring.offer(base + i)) {
+                  Thread.yield();
+               }
+            }
+         }));
+      }
+
+      for (int c = 0; c < consumers; c++) {
+         threads.add(new Thread(() -> {
+            while (consumedCount.get() < (long) producers * perProducer) {
+               final Long value = ring.poll();
+               if (value == null) {
+                  Thread.yield();
+               } else {
+                  consumedSum.addAndGet(value);
+                  consumedCount.incrementAndGet();
+               }
+            }
+         }));
+      }
+
+      threads.forEach(Thread::start);
+      for (final Thread thread : threads) {
+         thread.join(60_000);
+      }
+
+      final long n = (long) producers * perProducer;
+      Assert.assertEquals(consumedCount.get(), n);
+      Assert.assertEquals(consumedSum.get(), n * (n + 1) / 2, "Each element must be consumed exactly once.");
+      Assert.assertTrue(ring.isEmpty());
+   }
+}
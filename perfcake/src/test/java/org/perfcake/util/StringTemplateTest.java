@@ -25,6 +25,10 @@ import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Properties;
 
 /**
@@ -73,6 +77,31 @@ public class StringTemplateTest {
             dynamicProps == null ? null : dynamicProps.toString()));
    }
 
+   @Test(dataProvider = "patterns")
+   public void testRenderToBuffers(final String template, final String result, final Properties permanentProps, final Properties dynamicProps) {
+      final StringTemplate s = new StringTemplate(template, permanentProps);
+
+      final StringBuilder builder = new StringBuilder("prefix:");
+      Assert.assertEquals(s.render(dynamicProps, builder).toString(), "prefix:" + result);
+      Assert.assertTrue(s.getStaticLength() <= result.length());
+
+      for (final Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16BE }) {
+         final ByteBuffer buffer = ByteBuffer.allocate(1024);
+         s.render(dynamicProps, buffer, charset);
+         Assert.assertEquals(Arrays.copyOf(buffer.array(), buffer.position()), result.getBytes(charset));
+      }
+   }
+
+   @Test
+   public void testRenderUtf8() {
+      final StringTemplate s = new StringTemplate("Zden\u011bk @{name} \ud83c\udf70 @{broken}!");
+      final Properties props = TestUtil.props("name", "Kop\u0159ivnice \ud83c\udf82", "broken", "\ud83c");
+      final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+      s.render(props, buffer, StandardCharsets.UTF_8);
+      Assert.assertEquals(Arrays.copyOf(buffer.array(), buffer.position()), s.toString(props).getBytes(StandardCharsets.UTF_8));
+   }
+
    @Test
    public void hasPlaceholdersTest() {
       final StringTemplate s1 = new StringTemplate("no replacements");